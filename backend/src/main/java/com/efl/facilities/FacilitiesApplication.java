@@ -3,14 +3,25 @@ package com.efl.facilities;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EntityScan("com.efl.facilities.models")
 @EnableJpaRepositories("com.efl.facilities.repositories")
+@ImportRuntimeHints(FacilitiesRuntimeHints.class)
+@EnableScheduling
 public class FacilitiesApplication {
 
     public static void main(final String[] args) {
-        SpringApplication.run(FacilitiesApplication.class, args);
+        ConfigurableApplicationContext context = SpringApplication.run(FacilitiesApplication.class, args);
+
+        // Training run for the class-data-sharing archive (see backend/Dockerfile):
+        // start completely, then shut down so the JVM can dump the loaded classes.
+        if (context.getEnvironment().getProperty("efl.startup.exit-after-start", Boolean.class, false)) {
+            SpringApplication.exit(context);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.efl.facilities;
+
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.models.Municipality;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Classpath resources loaded by name, JDK proxies created at runtime and
+ * beans read or filled by reflection, which a GraalVM native image would
+ * otherwise leave out.
+ */
+public class FacilitiesRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        hints.resources().registerPattern("ehcache.xml");
+        hints.resources().registerPattern("data/*.geojson");
+
+        // TimingDataSource and DeadlineDataSource
+        hints.proxies().registerJdkProxy(Connection.class);
+        hints.proxies().registerJdkProxy(Statement.class);
+        hints.proxies().registerJdkProxy(PreparedStatement.class);
+        hints.proxies().registerJdkProxy(CallableStatement.class);
+        hints.proxies().registerJdkProxy(ResultSet.class);
+
+        // Filled by FacilitySelectionService's BeanPropertyRowMapper and read by GraphQL
+        hints.reflection().registerType(Facility.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+        hints.reflection().registerType(Municipality.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+    }
+}
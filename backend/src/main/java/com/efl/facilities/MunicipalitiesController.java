@@ -1,21 +1,144 @@
 package com.efl.facilities;
 
+import com.efl.facilities.jfr.GeoJsonServedEvent;
+import com.efl.facilities.models.coverage.ImmersionCoverageResult;
+import com.efl.facilities.models.coverage.ImmersionProgram;
+import com.efl.facilities.services.ImmersionCoverageService;
+import com.efl.facilities.timing.ServerTimingFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
 @RestController
 public class MunicipalitiesController {
 
+    private static final int BBOX_PARTS = 4;
+    private static final String BBOX_FORMAT = "bbox must be minLon,minLat,maxLon,maxLat";
+
     private final MunicipalitiesService municipalitiesService;
+    private final ImmersionCoverageService immersionCoverageService;
 
-    public MunicipalitiesController(MunicipalitiesService municipalitiesService) {
+    public MunicipalitiesController(
+            MunicipalitiesService municipalitiesService,
+            ImmersionCoverageService immersionCoverageService
+    ) {
         this.municipalitiesService = municipalitiesService;
+        this.immersionCoverageService = immersionCoverageService;
     }
 
-    @CrossOrigin(origins = "*")
+    /**
+     * The municipalities GeoJSON, optionally narrowed to a province (code such
+     * as ON, or PRUID), a list of census subdivision ids (CSDUID or DGUID)
+     * and/or a bounding box "minLon,minLat,maxLon,maxLat". Filters combine;
+     * without any, the whole file is returned.
+     */
+    @CrossOrigin(origins = "*", exposedHeaders = ServerTimingFilter.SERVER_TIMING_HEADER)
     @GetMapping(value = "/api/municipalities", produces = "application/json")
-    public String getMunicipalities() throws Exception {
-        return municipalitiesService.getMunicipalitiesGeoJson();
+    public void getMunicipalities(
+            @RequestParam(required = false) String province,
+            @RequestParam(required = false) List<String> csduid,
+            @RequestParam(required = false) String bbox,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        GeoJsonServedEvent event = new GeoJsonServedEvent();
+        event.begin();
+        boolean loaded = municipalitiesService.isLoaded();
+        MunicipalityFeatureIndex index = municipalitiesService.getIndex();
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        if (province == null && csduid == null && bbox == null) {
+            byte[] all = index.getSource();
+            response.setContentLengthLong(all.length);
+            response.getOutputStream().write(all);
+            commit(event, request, all.length, loaded);
+            return;
+        }
+
+        int[] features = null;
+        if (province != null) {
+            features = index.featuresInProvince(province);
+        }
+        if (csduid != null) {
+            features = narrow(features, index.featuresWithIds(csduid));
+        }
+        if (bbox != null) {
+            double[] box;
+            try {
+                box = parseBbox(bbox);
+            } catch (IllegalArgumentException e) {
+                response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+                return;
+            }
+            features = narrow(features, index.featuresIntersecting(box[0], box[1], box[2], box[3]));
+        }
+
+        long length = index.collectionLength(features);
+        response.setContentLengthLong(length);
+        OutputStream out = response.getOutputStream();
+        index.writeCollection(features, out);
+        commit(event, request, length, false);
+    }
+
+    private static void commit(GeoJsonServedEvent event, HttpServletRequest request, long bytes, boolean cacheHit) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.setServed(request.getRequestURI(), request.getQueryString(), bytes, cacheHit);
+            event.commit();
+        }
+    }
+
+    /**
+     * Per census subdivision, the distance from its centroid to the nearest
+     * facility offering the program (any, frenchImmersion, earlyImmersion,
+     * middleImmersion or lateImmersion) and how many are within radiusKm.
+     * Rows carry the CSDUID to join onto the GeoJSON above.
+     */
+    @CrossOrigin(origins = "*", exposedHeaders = ServerTimingFilter.SERVER_TIMING_HEADER)
+    @GetMapping("/api/municipalities/immersion-coverage")
+    public ResponseEntity<ImmersionCoverageResult> getImmersionCoverage(
+            @RequestParam(defaultValue = "any") String program,
+            @RequestParam(defaultValue = "10") double radiusKm,
+            @RequestParam(required = false) String province
+    ) throws IOException {
+        try {
+            return ResponseEntity.ok(immersionCoverageService.getCoverage(
+                    ImmersionProgram.fromParamName(program), radiusKm, province));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private static int[] narrow(int[] current, int[] matches) {
+        return current == null ? matches : MunicipalityFeatureIndex.intersect(current, matches);
+    }
+
+    /**
+     * @throws IllegalArgumentException unless bbox is four numbers with min &lt;= max
+     */
+    private static double[] parseBbox(String bbox) {
+        String[] parts = bbox.split(",");
+        if (parts.length != BBOX_PARTS) {
+            throw new IllegalArgumentException(BBOX_FORMAT);
+        }
+        double[] box = new double[BBOX_PARTS];
+        for (int i = 0; i < BBOX_PARTS; i++) {
+            // NumberFormatException is an IllegalArgumentException
+            box[i] = Double.parseDouble(parts[i].trim());
+        }
+        if (box[0] > box[2] || box[1] > box[3]) {
+            throw new IllegalArgumentException(BBOX_FORMAT);
+        }
+        return box;
     }
-}
\ No newline at end of file
+}
@@ -1,15 +1,66 @@
 package com.efl.facilities;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 
 @Service
 public class MunicipalitiesService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(MunicipalitiesService.class);
+
+    static final String GEOJSON_RESOURCE = "data/canadaDistricts.geojson";
+
+    private volatile MunicipalityFeatureIndex index;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            getIndex();
+        } catch (IOException e) {
+            // Requests will retry and report the failure themselves
+            LOG.warn("Could not load {}: {}", GEOJSON_RESOURCE, e.getMessage());
+        }
+    }
+
+    /**
+     * The municipalities GeoJSON, read and indexed on first use.
+     */
+    public MunicipalityFeatureIndex getIndex() throws IOException {
+        MunicipalityFeatureIndex loaded = index;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = index;
+                if (loaded == null) {
+                    loaded = load();
+                    index = loaded;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /** Whether the GeoJSON has been read and indexed yet. */
+    public boolean isLoaded() {
+        return index != null;
+    }
+
+    private MunicipalityFeatureIndex load() throws IOException {
+        try (InputStream in = new ClassPathResource(GEOJSON_RESOURCE).getInputStream()) {
+            MunicipalityFeatureIndex loaded = MunicipalityFeatureIndex.build(in.readAllBytes());
+            LOG.info("Indexed {} municipality features", loaded.getFeatureCount());
+            return loaded;
+        }
+    }
+
     public String getMunicipalitiesGeoJson() throws IOException {
-    ClassPathResource resource = new ClassPathResource("data/canadaDistricts.geojson");
-    return new String(resource.getInputStream().readAllBytes());
+        return new String(getIndex().getSource(), StandardCharsets.UTF_8);
+    }
 }
-}
\ No newline at end of file
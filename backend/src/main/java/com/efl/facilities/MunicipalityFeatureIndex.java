@@ -0,0 +1,564 @@
+package com.efl.facilities;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The census subdivision GeoJSON, split once into the byte range of each
+ * feature in the original file and indexed by province, census subdivision id
+ * (CSDUID or DGUID) and bounding box. A subset is answered by writing the
+ * matching ranges between a FeatureCollection header and footer, so features
+ * are never re-serialized. Each feature's name and centroid are kept too, for
+ * analyses that need one point per subdivision.
+ */
+@SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops") // one index entry per feature
+public final class MunicipalityFeatureIndex {
+
+    private static final byte[] HEADER =
+            "{\"type\":\"FeatureCollection\",\"features\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FOOTER = "]}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SEPARATOR = ",".getBytes(StandardCharsets.UTF_8);
+
+    private static final int PRUID_LENGTH = 2;
+    // GeoJSON geometries nest five deep at most (MultiPolygon coordinates); deeper arrays are only bounded
+    private static final int MAX_GEOMETRY_DEPTH = 16;
+    private static final Map<String, String> PROVINCE_BY_PRUID = Map.ofEntries(
+            Map.entry("10", "NL"), Map.entry("11", "PE"), Map.entry("12", "NS"),
+            Map.entry("13", "NB"), Map.entry("24", "QC"), Map.entry("35", "ON"),
+            Map.entry("46", "MB"), Map.entry("47", "SK"), Map.entry("48", "AB"),
+            Map.entry("59", "BC"), Map.entry("60", "YT"), Map.entry("61", "NT"),
+            Map.entry("62", "NU")
+    );
+
+    private final byte[] source;
+    private final int[] starts;
+    private final int[] ends;
+    // minLon, minLat, maxLon, maxLat per feature; NaN when a feature has no coordinates
+    private final double[] bounds;
+    // lon, lat per feature; NaN when a feature has no coordinates
+    private final double[] centroids;
+    private final FeatureInfo[] features;
+    private final Map<String, int[]> byProvince;
+    private final Map<String, Integer> bySubdivisionId;
+
+    private MunicipalityFeatureIndex(
+            byte[] source,
+            int[] starts,
+            int[] ends,
+            double[] bounds,
+            double[] centroids,
+            FeatureInfo[] features,
+            Map<String, int[]> byProvince,
+            Map<String, Integer> bySubdivisionId
+    ) {
+        this.source = source;
+        this.starts = starts;
+        this.ends = ends;
+        this.bounds = bounds;
+        this.centroids = centroids;
+        this.features = features;
+        this.byProvince = byProvince;
+        this.bySubdivisionId = bySubdivisionId;
+    }
+
+    /**
+     * Index a GeoJSON FeatureCollection. The array is kept as is and must not be modified afterwards.
+     */
+    public static MunicipalityFeatureIndex build(byte[] source) throws IOException {
+        List<int[]> ranges = new ArrayList<>();
+        List<FeatureInfo> infos = new ArrayList<>();
+        Map<String, List<Integer>> provinces = new HashMap<>();
+        Map<String, Integer> subdivisions = new HashMap<>();
+
+        try (JsonParser parser = new JsonFactory().createParser(source)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("GeoJSON root is not an object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (!"features".equals(field) || value != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    int start = featureStart(source, parser.getTokenLocation().getByteOffset());
+                    FeatureInfo info = readFeature(parser);
+                    int end = featureEnd(source, parser.getCurrentLocation().getByteOffset());
+
+                    int index = ranges.size();
+                    ranges.add(new int[] {start, end});
+                    infos.add(info);
+                    if (info.province != null) {
+                        provinces.computeIfAbsent(info.province, k -> new ArrayList<>()).add(index);
+                    }
+                    if (info.csduid != null) {
+                        subdivisions.put(info.csduid, index);
+                    }
+                    if (info.dguid != null) {
+                        subdivisions.put(info.dguid, index);
+                    }
+                }
+            }
+        }
+
+        int count = ranges.size();
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        double[] bounds = new double[count * 4];
+        double[] centroids = new double[count * 2];
+        for (int i = 0; i < count; i++) {
+            starts[i] = ranges.get(i)[0];
+            ends[i] = ranges.get(i)[1];
+            FeatureInfo info = infos.get(i);
+            System.arraycopy(info.bounds, 0, bounds, i * 4, 4);
+            centroids[i * 2] = info.centroidLon();
+            centroids[i * 2 + 1] = info.centroidLat();
+        }
+        Map<String, int[]> byProvince = new HashMap<>();
+        provinces.forEach((province, indexes) ->
+                byProvince.put(province, indexes.stream().mapToInt(Integer::intValue).toArray()));
+
+        return new MunicipalityFeatureIndex(source, starts, ends, bounds, centroids,
+                infos.toArray(new FeatureInfo[0]), byProvince, subdivisions);
+    }
+
+    // Token offsets are where the parser saw '{' / '}'; settle on the exact byte
+    private static int featureStart(byte[] source, long offset) {
+        int i = (int) Math.max(0, Math.min(offset, source.length - 1));
+        if (source[i] != '{' && i + 1 < source.length && source[i + 1] == '{') {
+            return i + 1;
+        }
+        while (i > 0 && source[i] != '{') {
+            i--;
+        }
+        return i;
+    }
+
+    private static int featureEnd(byte[] source, long offset) {
+        int i = (int) Math.min(offset + 1, source.length);
+        while (i > 0 && source[i - 1] != '}') {
+            i--;
+        }
+        return i;
+    }
+
+    private static FeatureInfo readFeature(JsonParser parser) throws IOException {
+        FeatureInfo info = new FeatureInfo();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("properties".equals(field) && value == JsonToken.START_OBJECT) {
+                readProperties(parser, info);
+            } else if ("geometry".equals(field) && value == JsonToken.START_OBJECT) {
+                readGeometry(parser, info);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (info.province == null && info.csduid != null && info.csduid.length() >= PRUID_LENGTH) {
+            info.province = PROVINCE_BY_PRUID.get(info.csduid.substring(0, PRUID_LENGTH));
+        }
+        return info;
+    }
+
+    private static void readProperties(JsonParser parser, FeatureInfo info) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName().toUpperCase(Locale.ROOT);
+            JsonToken value = parser.nextToken();
+            if (value.isScalarValue() && value != JsonToken.VALUE_NULL) {
+                String text = parser.getValueAsString();
+                switch (field) {
+                    case "CSDUID" -> info.csduid = text;
+                    case "DGUID" -> info.dguid = text;
+                    case "CSDNAME" -> info.name = text;
+                    case "PRUID" -> info.province = PROVINCE_BY_PRUID.get(text);
+                    default -> {
+                        // Other properties are served as-is but not indexed
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Expand the bounds with every position in the geometry's (arbitrarily
+     * nested) coordinates arrays, and accumulate the area-weighted centroid of
+     * its rings. A position is an array whose first two elements are numbers:
+     * longitude, then latitude. A ring is an array of positions; the first
+     * ring of each polygon is its outer boundary and the rest are holes.
+     */
+    private static void readGeometry(JsonParser parser, FeatureInfo info) throws IOException {
+        int depth = 1;
+        int positionIndex = -1; // index within the innermost array, -1 outside one
+        double lon = Double.NaN;
+        // Per nesting depth: whether the array there holds positions, and how many rings its children closed
+        boolean[] holdsPositions = new boolean[MAX_GEOMETRY_DEPTH];
+        int[] ringsClosed = new int[MAX_GEOMETRY_DEPTH];
+        Ring ring = new Ring();
+        while (depth > 0) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                depth++;
+                positionIndex = 0;
+                if (depth < MAX_GEOMETRY_DEPTH) {
+                    holdsPositions[depth] = false;
+                    ringsClosed[depth] = 0;
+                    if (!holdsPositions[depth - 1]) {
+                        // Possibly the first position of a ring; drop anything a bbox left behind
+                        ring.reset();
+                    }
+                }
+            } else if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY) {
+                if (depth < MAX_GEOMETRY_DEPTH && depth > 1 && holdsPositions[depth]) {
+                    info.addRing(ring, ringsClosed[depth - 1] == 0);
+                    ringsClosed[depth - 1]++;
+                    ring.reset();
+                }
+                depth--;
+                positionIndex = -1;
+            } else if (token.isNumeric() && positionIndex >= 0) {
+                if (positionIndex == 0) {
+                    lon = parser.getDoubleValue();
+                } else if (positionIndex == 1) {
+                    double lat = parser.getDoubleValue();
+                    extend(info.bounds, lon, lat);
+                    ring.add(lon, lat);
+                    if (depth > 1 && depth - 1 < MAX_GEOMETRY_DEPTH) {
+                        holdsPositions[depth - 1] = true;
+                    }
+                }
+                positionIndex++;
+            }
+        }
+    }
+
+    /**
+     * Collect the rings of a Polygon or MultiPolygon's coordinates array (the
+     * parser is just inside it), grouped by polygon the same way
+     * {@link #readGeometry} tells outer rings from holes.
+     */
+    private static List<double[][]> readPolygons(JsonParser parser) throws IOException {
+        List<List<double[]>> polygons = new ArrayList<>();
+        int depth = 1;
+        int positionIndex = 0;
+        double lon = Double.NaN;
+        boolean[] holdsPositions = new boolean[MAX_GEOMETRY_DEPTH];
+        int[] ringsClosed = new int[MAX_GEOMETRY_DEPTH];
+        double[] ring = new double[64];
+        int ringLength = 0;
+        while (depth > 0) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                depth++;
+                positionIndex = 0;
+                if (depth < MAX_GEOMETRY_DEPTH) {
+                    holdsPositions[depth] = false;
+                    ringsClosed[depth] = 0;
+                    if (!holdsPositions[depth - 1]) {
+                        ringLength = 0;
+                    }
+                }
+            } else if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY) {
+                if (depth < MAX_GEOMETRY_DEPTH && depth > 1 && holdsPositions[depth]) {
+                    if (ringsClosed[depth - 1] == 0 || polygons.isEmpty()) {
+                        polygons.add(new ArrayList<>());
+                    }
+                    polygons.get(polygons.size() - 1).add(Arrays.copyOf(ring, ringLength));
+                    ringsClosed[depth - 1]++;
+                    ringLength = 0;
+                }
+                depth--;
+                positionIndex = -1;
+            } else if (token.isNumeric() && positionIndex >= 0) {
+                if (positionIndex == 0) {
+                    lon = parser.getDoubleValue();
+                } else if (positionIndex == 1) {
+                    if (ringLength + 2 > ring.length) {
+                        ring = Arrays.copyOf(ring, ring.length * 2);
+                    }
+                    ring[ringLength++] = lon;
+                    ring[ringLength++] = parser.getDoubleValue();
+                    if (depth - 1 < MAX_GEOMETRY_DEPTH) {
+                        holdsPositions[depth - 1] = true;
+                    }
+                }
+                positionIndex++;
+            }
+        }
+        List<double[][]> result = new ArrayList<>(polygons.size());
+        for (List<double[]> rings : polygons) {
+            result.add(rings.toArray(new double[0][]));
+        }
+        return result;
+    }
+
+    private static void extend(double[] box, double lon, double lat) {
+        box[0] = Double.isNaN(box[0]) ? lon : Math.min(box[0], lon);
+        box[1] = Double.isNaN(box[1]) ? lat : Math.min(box[1], lat);
+        box[2] = Double.isNaN(box[2]) ? lon : Math.max(box[2], lon);
+        box[3] = Double.isNaN(box[3]) ? lat : Math.max(box[3], lat);
+    }
+
+    /** The whole file, exactly as loaded. */
+    public byte[] getSource() {
+        return source;
+    }
+
+    public int getFeatureCount() {
+        return starts.length;
+    }
+
+    /** The feature's CSDUID, or its DGUID if it has no CSDUID; null if it has neither. */
+    public String getSubdivisionId(int feature) {
+        FeatureInfo info = features[feature];
+        return info.csduid != null ? info.csduid : info.dguid;
+    }
+
+    /** The feature's DGUID, or null. */
+    public String getDguid(int feature) {
+        return features[feature].dguid;
+    }
+
+    /** The feature's CSDNAME, or null. */
+    public String getName(int feature) {
+        return features[feature].name;
+    }
+
+    /** Two-letter province code of the feature, or null. */
+    public String getProvince(int feature) {
+        return features[feature].province;
+    }
+
+    /**
+     * Longitude of the feature's area-weighted centroid (the middle of its
+     * bounding box for geometries without area); NaN without coordinates.
+     */
+    public double getCentroidLon(int feature) {
+        return centroids[feature * 2];
+    }
+
+    /** Latitude to go with {@link #getCentroidLon}. */
+    public double getCentroidLat(int feature) {
+        return centroids[feature * 2 + 1];
+    }
+
+    /**
+     * The feature's polygons, re-read from its bytes: per polygon its rings,
+     * outer ring first, each as a flat lon, lat, lon, lat... array. Empty for
+     * a feature whose geometry is not a Polygon or MultiPolygon.
+     */
+    public List<double[][]> getPolygons(int feature) throws IOException {
+        int length = ends[feature] - starts[feature];
+        try (JsonParser parser = new JsonFactory().createParser(source, starts[feature], length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return List.of();
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("geometry".equals(field) && value == JsonToken.START_OBJECT) {
+                    return readPolygonGeometry(parser);
+                }
+                parser.skipChildren();
+            }
+        }
+        return List.of();
+    }
+
+    private static List<double[][]> readPolygonGeometry(JsonParser parser) throws IOException {
+        String type = null;
+        List<double[][]> polygons = List.of();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("type".equals(field) && value == JsonToken.VALUE_STRING) {
+                type = parser.getText();
+            } else if ("coordinates".equals(field) && value == JsonToken.START_ARRAY) {
+                polygons = readPolygons(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return "Polygon".equals(type) || "MultiPolygon".equals(type) ? polygons : List.of();
+    }
+
+    /** Features in the given province (two-letter code or PRUID), in file order. */
+    public int[] featuresInProvince(String province) {
+        String code = province.trim().toUpperCase(Locale.ROOT);
+        code = PROVINCE_BY_PRUID.getOrDefault(code, code);
+        return byProvince.getOrDefault(code, new int[0]).clone();
+    }
+
+    /** Features with any of the given CSDUIDs or DGUIDs, in file order; unknown ids are skipped. */
+    public int[] featuresWithIds(Collection<String> ids) {
+        return ids.stream()
+                .map(id -> bySubdivisionId.get(id.trim()))
+                .filter(Objects::nonNull)
+                .mapToInt(Integer::intValue)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    /** Features whose bounding box intersects the given one, in file order. */
+    public int[] featuresIntersecting(double minLon, double minLat, double maxLon, double maxLat) {
+        int[] matches = new int[starts.length];
+        int count = 0;
+        for (int i = 0; i < starts.length; i++) {
+            int b = i * 4;
+            // NaN bounds compare false, so features without coordinates never match
+            if (bounds[b] <= maxLon && bounds[b + 2] >= minLon && bounds[b + 1] <= maxLat && bounds[b + 3] >= minLat) {
+                matches[count++] = i;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    /** Features present in both sorted lists. */
+    public static int[] intersect(int[] a, int[] b) {
+        int[] both = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                both[count++] = a[i];
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(both, count);
+    }
+
+    /** Byte length of the FeatureCollection {@link #writeCollection} writes for these features. */
+    public long collectionLength(int[] features) {
+        long length = HEADER.length + FOOTER.length + (long) Math.max(features.length - 1, 0) * SEPARATOR.length;
+        for (int feature : features) {
+            length += ends[feature] - starts[feature];
+        }
+        return length;
+    }
+
+    /** Write a FeatureCollection of the given features, copying each one's bytes from the source. */
+    public void writeCollection(int[] features, OutputStream out) throws IOException {
+        out.write(HEADER);
+        for (int i = 0; i < features.length; i++) {
+            if (i > 0) {
+                out.write(SEPARATOR);
+            }
+            int feature = features[i];
+            out.write(source, starts[feature], ends[feature] - starts[feature]);
+        }
+        out.write(FOOTER);
+    }
+
+    private static final class FeatureInfo {
+        String province;
+        String csduid;
+        String dguid;
+        String name;
+        final double[] bounds = {Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+        // Signed area (holes negative) and area-weighted sums of ring centroids
+        double area;
+        double weightedLon;
+        double weightedLat;
+
+        void addRing(Ring ring, boolean outer) {
+            double ringArea = Math.abs(ring.area());
+            if (ringArea == 0) {
+                return;
+            }
+            double weight = outer ? ringArea : -ringArea;
+            area += weight;
+            weightedLon += weight * ring.centroidLon();
+            weightedLat += weight * ring.centroidLat();
+        }
+
+        double centroidLon() {
+            return area > 0 ? weightedLon / area : (bounds[0] + bounds[2]) / 2;
+        }
+
+        double centroidLat() {
+            return area > 0 ? weightedLat / area : (bounds[1] + bounds[3]) / 2;
+        }
+    }
+
+    /**
+     * Shoelace sums over one ring, in degrees. Planar, which is close enough
+     * for a census subdivision's centroid.
+     */
+    private static final class Ring {
+        private double firstLon;
+        private double firstLat;
+        private double lastLon;
+        private double lastLat;
+        private int points;
+        private double twiceArea;
+        private double sumLon;
+        private double sumLat;
+
+        void add(double lon, double lat) {
+            if (points == 0) {
+                firstLon = lon;
+                firstLat = lat;
+            } else {
+                edge(lastLon, lastLat, lon, lat);
+            }
+            lastLon = lon;
+            lastLat = lat;
+            points++;
+        }
+
+        private void edge(double lon0, double lat0, double lon1, double lat1) {
+            double cross = lon0 * lat1 - lon1 * lat0;
+            twiceArea += cross;
+            sumLon += (lon0 + lon1) * cross;
+            sumLat += (lat0 + lat1) * cross;
+        }
+
+        /** Signed area, closing the ring if its last position doesn't repeat the first. */
+        double area() {
+            if (points > 0 && (lastLon != firstLon || lastLat != firstLat)) {
+                edge(lastLon, lastLat, firstLon, firstLat);
+                lastLon = firstLon;
+                lastLat = firstLat;
+            }
+            return twiceArea / 2;
+        }
+
+        double centroidLon() {
+            return sumLon / (3 * twiceArea);
+        }
+
+        double centroidLat() {
+            return sumLat / (3 * twiceArea);
+        }
+
+        void reset() {
+            points = 0;
+            twiceArea = 0;
+            sumLon = 0;
+            sumLat = 0;
+        }
+    }
+}
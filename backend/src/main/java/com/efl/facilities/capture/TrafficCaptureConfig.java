@@ -0,0 +1,35 @@
+package com.efl.facilities.capture;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Traffic capture, on when efl.capture.enabled is true: the log file and
+ * the filter writing to it, ordered first so each recorded duration
+ * includes the rest of the filter chain.
+ */
+@Configuration
+@ConditionalOnProperty(name = "efl.capture.enabled", havingValue = "true")
+@EnableConfigurationProperties(TrafficCaptureProperties.class)
+public class TrafficCaptureConfig {
+
+    @Bean(destroyMethod = "close")
+    public TrafficLog trafficLog(TrafficCaptureProperties properties) throws IOException {
+        return TrafficLog.create(Path.of(properties.getPath()), properties.getMaxBytes());
+    }
+
+    @Bean
+    public FilterRegistrationBean<TrafficCaptureFilter> trafficCaptureFilter(TrafficLog trafficLog) {
+        FilterRegistrationBean<TrafficCaptureFilter> registration =
+                new FilterRegistrationBean<>(new TrafficCaptureFilter(trafficLog));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,149 @@
+package com.efl.facilities.capture;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * Records each facility and municipality request (method, route, path,
+ * query, status, timing and body size) to a {@link TrafficLog} for
+ * tools/traffic_replay.py. Registered ahead of the other filters by
+ * {@link TrafficCaptureConfig}, so the duration covers all of them.
+ */
+public class TrafficCaptureFilter extends OncePerRequestFilter {
+
+    private final TrafficLog trafficLog;
+
+    public TrafficCaptureFilter(TrafficLog trafficLog) {
+        this.trafficLog = trafficLog;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        if (uri.startsWith("/api/municipalities")) {
+            return false;
+        }
+        // The change stream stays open; replaying it would just hold a connection
+        return !uri.startsWith("/api/facilities") || uri.startsWith("/api/facilities/changes/stream");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        CountingResponse counted = new CountingResponse(response);
+        try {
+            chain.doFilter(request, counted);
+        } finally {
+            counted.flushWriter();
+            if (!request.isAsyncStarted()) {
+                long end = System.nanoTime();
+                Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                trafficLog.append(new TrafficRecord(trafficLog.micros(start), (end - start) / 1000,
+                        request.getMethod(), route == null ? null : route.toString(), request.getRequestURI(),
+                        request.getQueryString(), response.getStatus(), counted.getByteCount()));
+            }
+        }
+    }
+
+    /**
+     * Counts the body bytes, whether written as bytes or as characters.
+     */
+    private static final class CountingResponse extends HttpServletResponseWrapper {
+        private CountingOutputStream outputStream;
+        private PrintWriter writer;
+
+        CountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        long getByteCount() {
+            return outputStream == null ? 0 : outputStream.count;
+        }
+
+        void flushWriter() {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            return countingStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                // Encode here, as the container would, so the count is in bytes
+                writer = new PrintWriter(new OutputStreamWriter(countingStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            flushWriter();
+            super.flushBuffer();
+        }
+
+        private CountingOutputStream countingStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new CountingOutputStream(super.getOutputStream());
+            }
+            return outputStream;
+        }
+    }
+
+    private static final class CountingOutputStream extends ServletOutputStream {
+        private final ServletOutputStream delegate;
+        private long count;
+
+        CountingOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.efl.facilities.capture;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Traffic capture, bound from efl.capture.enabled, efl.capture.path and
+ * efl.capture.max-bytes. Each start replaces the file at the path.
+ */
+@ConfigurationProperties(prefix = "efl.capture")
+public class TrafficCaptureProperties {
+
+    private static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private boolean enabled;
+    private String path = "traffic.eflt";
+    private long maxBytes = DEFAULT_MAX_BYTES;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+}
@@ -0,0 +1,239 @@
+package com.efl.facilities.capture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Captured requests, appended to a compact binary file that
+ * tools/traffic_replay.py reads back. The file is:
+ * <pre>
+ *   "EFLT", version byte (1), capture start as epoch milliseconds (8 bytes, big-endian)
+ *   then per request: start µs, duration µs, status, response bytes (unsigned varints),
+ *                     method, route, path, query (strings)
+ * </pre>
+ * A string is a varint tag: 0 for null, 1 for a literal (varint byte length and
+ * UTF-8) used once, 2 for a literal that becomes the next table entry, and
+ * 3 + n for table entry n. Methods, routes and paths go in the table until it
+ * holds {@link #MAX_TABLE_SIZE} strings, so a typical request takes a dozen
+ * bytes plus its query. Appends are buffered and flushed every few seconds;
+ * once the file reaches its size limit, capture stops.
+ */
+public class TrafficLog implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TrafficLog.class);
+
+    static final byte[] MAGIC = {'E', 'F', 'L', 'T'};
+    static final int VERSION = 1;
+    static final int MAX_TABLE_SIZE = 4096;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_LITERAL = 1;
+    private static final int TAG_NEW_ENTRY = 2;
+    private static final int TAG_FIRST_ENTRY = 3;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final Path path;
+    private final long maxBytes;
+    private final long startNanos;
+    private final OutputStream out;
+    private final ByteArrayOutputStream scratch = new ByteArrayOutputStream(256);
+    private final Map<String, Integer> table = new HashMap<>();
+    private long written;
+    private long dropped;
+    private boolean full;
+    private boolean closed;
+
+    private TrafficLog(Path path, long maxBytes, OutputStream out) {
+        this.path = path;
+        this.maxBytes = maxBytes;
+        this.startNanos = System.nanoTime();
+        this.out = out;
+    }
+
+    /**
+     * Start a new capture at the path, replacing any file there.
+     */
+    public static TrafficLog create(Path path, long maxBytes) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        TrafficLog log = new TrafficLog(path, maxBytes, new BufferedOutputStream(Files.newOutputStream(path),
+                BUFFER_BYTES));
+        DataOutputStream header = new DataOutputStream(log.out);
+        header.write(MAGIC);
+        header.writeByte(VERSION);
+        header.writeLong(System.currentTimeMillis());
+        log.written = MAGIC.length + 1 + Long.BYTES;
+        LOG.info("Capturing facility and municipality requests to {}", path);
+        return log;
+    }
+
+    /** Microseconds since the capture started, for {@link TrafficRecord#startMicros()}. */
+    public long micros(long nanoTime) {
+        return Math.max((nanoTime - startNanos) / 1000, 0);
+    }
+
+    public synchronized void append(TrafficRecord record) {
+        if (closed || full) {
+            dropped++;
+            return;
+        }
+        scratch.reset();
+        writeVarint(scratch, record.startMicros());
+        writeVarint(scratch, record.durationMicros());
+        writeVarint(scratch, record.status());
+        writeVarint(scratch, record.responseBytes());
+        writeString(scratch, record.method(), true);
+        writeString(scratch, record.route(), true);
+        writeString(scratch, record.path(), true);
+        writeString(scratch, record.query(), false);
+        if (written + scratch.size() > maxBytes) {
+            full = true;
+            dropped++;
+            LOG.warn("Traffic capture {} reached {} bytes; no more requests are recorded", path, maxBytes);
+            return;
+        }
+        try {
+            scratch.writeTo(out);
+            written += scratch.size();
+        } catch (IOException e) {
+            full = true;
+            LOG.warn("Could not write to traffic capture {}; stopping: {}", path, e.getMessage());
+        }
+    }
+
+    /** Requests not recorded because the file was full, or closed. */
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    @Scheduled(fixedDelayString = "${efl.capture.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        if (closed) {
+            return;
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            LOG.warn("Could not flush traffic capture {}: {}", path, e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            out.close();
+            LOG.info("Closed traffic capture {}: {} bytes", path, written);
+        }
+    }
+
+    private void writeString(ByteArrayOutputStream buffer, String value, boolean intern) {
+        if (value == null) {
+            writeVarint(buffer, TAG_NULL);
+            return;
+        }
+        Integer entry = intern ? table.get(value) : null;
+        if (entry != null) {
+            writeVarint(buffer, TAG_FIRST_ENTRY + entry);
+            return;
+        }
+        boolean added = intern && table.size() < MAX_TABLE_SIZE;
+        if (added) {
+            table.put(value, table.size());
+        }
+        writeVarint(buffer, added ? TAG_NEW_ENTRY : TAG_LITERAL);
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(buffer, bytes.length);
+        buffer.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream buffer, long value) {
+        long rest = value;
+        while ((rest & ~0x7FL) != 0) {
+            buffer.write((int) (rest & 0x7F) | 0x80);
+            rest >>>= 7;
+        }
+        buffer.write((int) rest);
+    }
+
+    /**
+     * Read a capture back. The reference for the format; the replayer has its own reader.
+     *
+     * @throws IOException if the file isn't a traffic capture, or ends part-way through a request
+     */
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops") // one record per request
+    public static List<TrafficRecord> read(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC) || in.readUnsignedByte() != VERSION) {
+            throw new IOException("Not a version " + VERSION + " traffic capture");
+        }
+        in.readLong();
+        List<String> table = new ArrayList<>();
+        List<TrafficRecord> records = new ArrayList<>();
+        int first;
+        while ((first = in.read()) >= 0) {
+            long startMicros = readVarint(in, first);
+            long durationMicros = readVarint(in, in.readUnsignedByte());
+            int status = (int) readVarint(in, in.readUnsignedByte());
+            long responseBytes = readVarint(in, in.readUnsignedByte());
+            records.add(new TrafficRecord(startMicros, durationMicros, readString(in, table),
+                    readString(in, table), readString(in, table), readString(in, table), status, responseBytes));
+        }
+        return records;
+    }
+
+    private static String readString(DataInputStream in, List<String> table) throws IOException {
+        long tag = readVarint(in, in.readUnsignedByte());
+        if (tag == TAG_NULL) {
+            return null;
+        }
+        if (tag >= TAG_FIRST_ENTRY) {
+            return table.get((int) (tag - TAG_FIRST_ENTRY));
+        }
+        byte[] bytes = new byte[(int) readVarint(in, in.readUnsignedByte())];
+        in.readFully(bytes);
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        if (tag == TAG_NEW_ENTRY) {
+            table.add(value);
+        }
+        return value;
+    }
+
+    private static long readVarint(DataInputStream in, int first) throws IOException {
+        long value = first & 0x7F;
+        int shift = 7;
+        int next = first;
+        while ((next & 0x80) != 0) {
+            next = in.read();
+            if (next < 0) {
+                throw new EOFException("Traffic capture ends inside a request");
+            }
+            value |= (long) (next & 0x7F) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+}
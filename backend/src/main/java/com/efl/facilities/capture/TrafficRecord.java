@@ -0,0 +1,14 @@
+package com.efl.facilities.capture;
+
+/**
+ * One captured request.
+ *
+ * @param startMicros when it arrived, in microseconds since the capture started
+ * @param durationMicros until the handler returned, the body written
+ * @param route the handler's path pattern (e.g. /api/facilities/province/{province}), or null if none matched
+ * @param query the query string, or null
+ * @param responseBytes body bytes written, before any compression by the server
+ */
+public record TrafficRecord(long startMicros, long durationMicros, String method, String route, String path,
+                            String query, int status, long responseBytes) {
+}
@@ -0,0 +1,120 @@
+package com.efl.facilities.catchments;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Catchment polygons for one facility type and language stream at one
+ * dataset version, as GeoJSON features already serialized per province. A
+ * response is those bytes between a FeatureCollection header and footer.
+ */
+public final class CatchmentMap {
+
+    public static final String MEDIA_TYPE = "application/geo+json";
+
+    private static final byte[] HEADER =
+            "{\"type\":\"FeatureCollection\",\"features\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FOOTER = "]}".getBytes(StandardCharsets.UTF_8);
+    private static final byte SEPARATOR = ',';
+
+    private final long datasetVersion;
+    private final String facilityType;
+    private final LanguageStream stream;
+    private final Map<String, byte[]> featuresByProvince;
+    private final int facilityCount;
+    private final int cellCount;
+    private final long elapsedMs;
+    private final long builtAtNanos = System.nanoTime();
+
+    public CatchmentMap(long datasetVersion, String facilityType, LanguageStream stream,
+                        Map<String, byte[]> featuresByProvince, int facilityCount, int cellCount, long elapsedMs) {
+        this.datasetVersion = datasetVersion;
+        this.facilityType = facilityType;
+        this.stream = stream;
+        this.featuresByProvince = Map.copyOf(featuresByProvince);
+        this.facilityCount = facilityCount;
+        this.cellCount = cellCount;
+        this.elapsedMs = elapsedMs;
+    }
+
+    /**
+     * Join features, each a complete GeoJSON Feature, into the comma-separated
+     * run that goes inside a FeatureCollection; nulls are skipped.
+     */
+    public static byte[] join(List<byte[]> features) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] feature : features) {
+            if (feature == null) {
+                continue;
+            }
+            if (out.size() > 0) {
+                out.write(SEPARATOR);
+            }
+            out.writeBytes(feature);
+        }
+        return out.toByteArray();
+    }
+
+    public long getDatasetVersion() {
+        return datasetVersion;
+    }
+
+    /** The facility type the map was drawn for; null for every type. */
+    public String getFacilityType() {
+        return facilityType;
+    }
+
+    public LanguageStream getStream() {
+        return stream;
+    }
+
+    public int getFacilityCount() {
+        return facilityCount;
+    }
+
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    /** {@link System#nanoTime()} when the map was finished. */
+    public long getBuiltAtNanos() {
+        return builtAtNanos;
+    }
+
+    /**
+     * The FeatureCollection for one province, or all of them.
+     *
+     * @param province two-letter code; null for all of Canada
+     */
+    public Resource asResource(String province) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(HEADER);
+        if (province == null) {
+            featuresByProvince.keySet().stream().sorted().forEach(code -> append(out, featuresByProvince.get(code)));
+        } else {
+            append(out, featuresByProvince.get(province.trim().toUpperCase(Locale.ROOT)));
+        }
+        out.writeBytes(FOOTER);
+        return new ByteArrayResource(out.toByteArray());
+    }
+
+    private static void append(ByteArrayOutputStream out, byte[] features) {
+        if (features == null || features.length == 0) {
+            return;
+        }
+        if (out.size() > HEADER.length) {
+            out.write(SEPARATOR);
+        }
+        out.writeBytes(features);
+    }
+}
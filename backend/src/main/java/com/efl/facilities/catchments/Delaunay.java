@@ -0,0 +1,443 @@
+package com.efl.facilities.catchments;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Delaunay neighbours of a set of distinct planar points, by sweep-hull
+ * triangulation: points are added in order of distance from a seed triangle,
+ * each one joined to the convex hull edges it can see, and edges are flipped
+ * until every triangle's circumcircle is empty. O(n log n) on the sort; the
+ * hull is walked from an angular hash, so insertion is close to constant time.
+ * Two sites are Voronoi neighbours exactly when they share a Delaunay edge.
+ */
+final class Delaunay {
+
+    private final double[] coords;
+    private final int[] triangles;
+    private final int[] halfedges;
+    private int triangleLength;
+
+    private final int hashSize;
+    private final int[] hullPrev;
+    private final int[] hullNext;
+    private final int[] hullTri;
+    private final int[] hullHash;
+    private int hullStart;
+    private double centerX;
+    private double centerY;
+
+    // Flips still to check while legalizing; deeper stacks only come from degenerate input
+    private final int[] edgeStack = new int[512];
+
+    private Delaunay(double[] coords) {
+        this.coords = coords;
+        int n = coords.length / 2;
+        int maxTriangles = Math.max(2 * n - 5, 0);
+        triangles = new int[maxTriangles * 3];
+        halfedges = new int[maxTriangles * 3];
+        hashSize = (int) Math.ceil(Math.sqrt(n));
+        hullPrev = new int[n];
+        hullNext = new int[n];
+        hullTri = new int[n];
+        hullHash = new int[Math.max(hashSize, 1)];
+    }
+
+    /**
+     * Each point's Delaunay neighbours, ascending. Points are x, y pairs and
+     * must be distinct. Collinear input has no triangles; each point's
+     * neighbours are then the points before and after it along the line.
+     */
+    static int[][] neighbours(double[] coords) {
+        int n = coords.length / 2;
+        if (n < 3) {
+            int[][] result = new int[n][];
+            for (int i = 0; i < n; i++) {
+                result[i] = n == 2 ? new int[] {1 - i} : new int[0];
+            }
+            return result;
+        }
+        Delaunay delaunay = new Delaunay(coords);
+        if (!delaunay.triangulate()) {
+            return alongLine(coords);
+        }
+        return delaunay.edges(n);
+    }
+
+    private boolean triangulate() {
+        int n = coords.length / 2;
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, coords[2 * i]);
+            minY = Math.min(minY, coords[2 * i + 1]);
+            maxX = Math.max(maxX, coords[2 * i]);
+            maxY = Math.max(maxY, coords[2 * i + 1]);
+        }
+        double cx = (minX + maxX) / 2;
+        double cy = (minY + maxY) / 2;
+
+        // Seed triangle: the point nearest the middle, its nearest neighbour,
+        // and the point making the smallest circumcircle with those two
+        int i0 = 0;
+        double minDist = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            double d = dist(cx, cy, coords[2 * i], coords[2 * i + 1]);
+            if (d < minDist) {
+                i0 = i;
+                minDist = d;
+            }
+        }
+        double i0x = coords[2 * i0];
+        double i0y = coords[2 * i0 + 1];
+
+        int i1 = -1;
+        minDist = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            double d = dist(i0x, i0y, coords[2 * i], coords[2 * i + 1]);
+            if (i != i0 && d < minDist && d > 0) {
+                i1 = i;
+                minDist = d;
+            }
+        }
+        if (i1 < 0) {
+            return false;
+        }
+        double i1x = coords[2 * i1];
+        double i1y = coords[2 * i1 + 1];
+
+        int i2 = -1;
+        double minRadius = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            if (i == i0 || i == i1) {
+                continue;
+            }
+            double r = circumradius(i0x, i0y, i1x, i1y, coords[2 * i], coords[2 * i + 1]);
+            if (r < minRadius) {
+                i2 = i;
+                minRadius = r;
+            }
+        }
+        if (i2 < 0) {
+            return false;
+        }
+        double i2x = coords[2 * i2];
+        double i2y = coords[2 * i2 + 1];
+
+        // Keep every triangle counter-clockwise
+        if (cross(i0x, i0y, i1x, i1y, i2x, i2y) < 0) {
+            int i = i1;
+            double x = i1x;
+            double y = i1y;
+            i1 = i2;
+            i1x = i2x;
+            i1y = i2y;
+            i2 = i;
+            i2x = x;
+            i2y = y;
+        }
+        double[] center = circumcenter(i0x, i0y, i1x, i1y, i2x, i2y);
+        centerX = center[0];
+        centerY = center[1];
+
+        double[] dists = new double[n];
+        for (int i = 0; i < n; i++) {
+            dists[i] = dist(coords[2 * i], coords[2 * i + 1], centerX, centerY);
+        }
+        int[] ids = IntStream.range(0, n).boxed()
+                .sorted(Comparator.comparingDouble(i -> dists[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        hullStart = i0;
+        hullNext[i0] = i1;
+        hullPrev[i2] = i1;
+        hullNext[i1] = i2;
+        hullPrev[i0] = i2;
+        hullNext[i2] = i0;
+        hullPrev[i1] = i0;
+        hullTri[i0] = 0;
+        hullTri[i1] = 1;
+        hullTri[i2] = 2;
+        Arrays.fill(hullHash, -1);
+        hullHash[hashKey(i0x, i0y)] = i0;
+        hullHash[hashKey(i1x, i1y)] = i1;
+        hullHash[hashKey(i2x, i2y)] = i2;
+        addTriangle(i0, i1, i2, -1, -1, -1);
+
+        for (int k = 0; k < n; k++) {
+            int i = ids[k];
+            if (i == i0 || i == i1 || i == i2) {
+                continue;
+            }
+            insert(i);
+        }
+        return true;
+    }
+
+    private void insert(int i) {
+        double x = coords[2 * i];
+        double y = coords[2 * i + 1];
+
+        // A hull edge the point can see: start from the hashed hull vertex nearest its angle
+        int start = 0;
+        int key = hashKey(x, y);
+        for (int j = 0; j < hashSize; j++) {
+            start = hullHash[(key + j) % hashSize];
+            if (start != -1 && start != hullNext[start]) {
+                break;
+            }
+        }
+        start = hullPrev[start];
+        int e = start;
+        int q = hullNext[e];
+        while (!visible(x, y, e, q)) {
+            e = q;
+            if (e == start) {
+                // Inside the hull by rounding only; nothing sensible to connect it to
+                return;
+            }
+            q = hullNext[e];
+        }
+
+        int t = addTriangle(e, i, hullNext[e], -1, -1, hullTri[e]);
+        hullTri[i] = legalize(t + 2);
+        hullTri[e] = t;
+
+        // Walk forward along the hull, joining every other edge the point can see
+        int next = hullNext[e];
+        q = hullNext[next];
+        while (visible(x, y, next, q)) {
+            t = addTriangle(next, i, q, hullTri[i], -1, hullTri[next]);
+            hullTri[i] = legalize(t + 2);
+            hullNext[next] = next; // removed from the hull
+            next = q;
+            q = hullNext[next];
+        }
+
+        // And backward, when the first visible edge was where the search started
+        if (e == start) {
+            q = hullPrev[e];
+            while (visible(x, y, q, e)) {
+                t = addTriangle(q, i, e, -1, hullTri[e], hullTri[q]);
+                legalize(t + 2);
+                hullTri[q] = t;
+                hullNext[e] = e; // removed from the hull
+                e = q;
+                q = hullPrev[e];
+            }
+        }
+
+        hullStart = e;
+        hullPrev[i] = e;
+        hullNext[e] = i;
+        hullPrev[next] = i;
+        hullNext[i] = next;
+        hullHash[hashKey(x, y)] = i;
+        hullHash[hashKey(coords[2 * e], coords[2 * e + 1])] = e;
+    }
+
+    /**
+     * Flip the edge {@code a} and the ones behind it until their triangles are
+     * Delaunay. Returns the halfedge that ends up where {@code a}'s triangle's
+     * previous edge was, for the caller's hull bookkeeping.
+     */
+    private int legalize(int a) {
+        int depth = 0;
+        int ar;
+        while (true) {
+            int b = halfedges[a];
+            int a0 = a - a % 3;
+            ar = a0 + (a + 2) % 3;
+            if (b == -1) {
+                if (depth == 0) {
+                    break;
+                }
+                a = edgeStack[--depth];
+                continue;
+            }
+            int b0 = b - b % 3;
+            int al = a0 + (a + 1) % 3;
+            int bl = b0 + (b + 2) % 3;
+            int p0 = triangles[ar];
+            int pr = triangles[a];
+            int pl = triangles[al];
+            int p1 = triangles[bl];
+            if (inCircle(p0, pr, pl, p1)) {
+                triangles[a] = p1;
+                triangles[b] = p0;
+                int hbl = halfedges[bl];
+                if (hbl == -1) {
+                    // The flipped edge was on the hull; repoint the hull at it
+                    int e = hullStart;
+                    do {
+                        if (hullTri[e] == bl) {
+                            hullTri[e] = a;
+                            break;
+                        }
+                        e = hullPrev[e];
+                    } while (e != hullStart);
+                }
+                link(a, hbl);
+                link(b, halfedges[ar]);
+                link(ar, bl);
+                int br = b0 + (b + 1) % 3;
+                if (depth < edgeStack.length) {
+                    edgeStack[depth++] = br;
+                }
+            } else {
+                if (depth == 0) {
+                    break;
+                }
+                a = edgeStack[--depth];
+            }
+        }
+        return ar;
+    }
+
+    private int addTriangle(int i0, int i1, int i2, int a, int b, int c) {
+        int t = triangleLength;
+        triangles[t] = i0;
+        triangles[t + 1] = i1;
+        triangles[t + 2] = i2;
+        link(t, a);
+        link(t + 1, b);
+        link(t + 2, c);
+        triangleLength += 3;
+        return t;
+    }
+
+    private void link(int a, int b) {
+        halfedges[a] = b;
+        if (b != -1) {
+            halfedges[b] = a;
+        }
+    }
+
+    private int[][] edges(int n) {
+        int[] counts = new int[n];
+        for (int e = 0; e < triangleLength; e++) {
+            if (halfedges[e] == -1 || e < halfedges[e]) {
+                counts[triangles[e]]++;
+                counts[triangles[nextHalfedge(e)]]++;
+            }
+        }
+        int[][] result = new int[n][];
+        for (int i = 0; i < n; i++) {
+            result[i] = new int[counts[i]];
+            counts[i] = 0;
+        }
+        for (int e = 0; e < triangleLength; e++) {
+            if (halfedges[e] == -1 || e < halfedges[e]) {
+                int from = triangles[e];
+                int to = triangles[nextHalfedge(e)];
+                result[from][counts[from]++] = to;
+                result[to][counts[to]++] = from;
+            }
+        }
+        for (int[] neighbours : result) {
+            Arrays.sort(neighbours);
+        }
+        return result;
+    }
+
+    private static int[][] alongLine(double[] coords) {
+        int n = coords.length / 2;
+        double dx = coords[2] - coords[0];
+        double dy = coords[3] - coords[1];
+        for (int i = 1; i < n && dx == 0 && dy == 0; i++) {
+            dx = coords[2 * i] - coords[0];
+            dy = coords[2 * i + 1] - coords[1];
+        }
+        double ux = dx;
+        double uy = dy;
+        int[] order = IntStream.range(0, n).boxed()
+                .sorted(Comparator.comparingDouble(i -> coords[2 * i] * ux + coords[2 * i + 1] * uy))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        int[][] result = new int[n][];
+        for (int k = 0; k < n; k++) {
+            int[] neighbours = k == 0 ? new int[] {order[1]}
+                    : k == n - 1 ? new int[] {order[n - 2]}
+                    : new int[] {order[k - 1], order[k + 1]};
+            Arrays.sort(neighbours);
+            result[order[k]] = neighbours;
+        }
+        return result;
+    }
+
+    private static int nextHalfedge(int e) {
+        return e % 3 == 2 ? e - 2 : e + 1;
+    }
+
+    private int hashKey(double x, double y) {
+        return (int) Math.floor(pseudoAngle(x - centerX, y - centerY) * hashSize) % hashSize;
+    }
+
+    // Monotonic in the angle of (dx, dy), in [0, 1]
+    private static double pseudoAngle(double dx, double dy) {
+        double p = dx / (Math.abs(dx) + Math.abs(dy));
+        return (dy > 0 ? 3 - p : 1 + p) / 4;
+    }
+
+    /** Whether (x, y) is strictly outside the counter-clockwise hull edge from p to q. */
+    private boolean visible(double x, double y, int p, int q) {
+        return cross(coords[2 * p], coords[2 * p + 1], coords[2 * q], coords[2 * q + 1], x, y) < 0;
+    }
+
+    /** Whether d is inside the circumcircle of the counter-clockwise triangle a, b, c. */
+    private boolean inCircle(int a, int b, int c, int d) {
+        double px = coords[2 * d];
+        double py = coords[2 * d + 1];
+        double adx = coords[2 * a] - px;
+        double ady = coords[2 * a + 1] - py;
+        double bdx = coords[2 * b] - px;
+        double bdy = coords[2 * b + 1] - py;
+        double cdx = coords[2 * c] - px;
+        double cdy = coords[2 * c + 1] - py;
+        double det = (adx * adx + ady * ady) * (bdx * cdy - cdx * bdy)
+                - (bdx * bdx + bdy * bdy) * (adx * cdy - cdx * ady)
+                + (cdx * cdx + cdy * cdy) * (adx * bdy - bdx * ady);
+        return det > 0;
+    }
+
+    /** Twice the signed area of a, b, c; positive when counter-clockwise. */
+    static double cross(double ax, double ay, double bx, double by, double cx, double cy) {
+        return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+    }
+
+    private static double dist(double ax, double ay, double bx, double by) {
+        double dx = ax - bx;
+        double dy = ay - by;
+        return dx * dx + dy * dy;
+    }
+
+    // Squared, and infinite for collinear points
+    private static double circumradius(double ax, double ay, double bx, double by, double cx, double cy) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double ex = cx - ax;
+        double ey = cy - ay;
+        double bl = dx * dx + dy * dy;
+        double cl = ex * ex + ey * ey;
+        double d = 0.5 / (dx * ey - dy * ex);
+        double x = (ey * bl - dy * cl) * d;
+        double y = (dx * cl - ex * bl) * d;
+        double r = x * x + y * y;
+        return Double.isFinite(r) ? r : Double.POSITIVE_INFINITY;
+    }
+
+    private static double[] circumcenter(double ax, double ay, double bx, double by, double cx, double cy) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double ex = cx - ax;
+        double ey = cy - ay;
+        double bl = dx * dx + dy * dy;
+        double cl = ex * ex + ey * ey;
+        double d = 0.5 / (dx * ey - dy * ex);
+        return new double[] {ax + (ey * bl - dy * cl) * d, ay + (dx * cl - ex * bl) * d};
+    }
+}
@@ -0,0 +1,43 @@
+package com.efl.facilities.catchments;
+
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.models.coverage.ImmersionProgram;
+
+import java.util.function.Predicate;
+
+/**
+ * Which facilities a catchment map is drawn around, named as they appear in the API.
+ */
+public enum LanguageStream {
+    ALL("all", facility -> true),
+    FRENCH_IMMERSION("frenchImmersion", ImmersionProgram.ANY::isOfferedBy),
+    LANGUAGE_MINORITY("languageMinority", facility -> Boolean.TRUE.equals(facility.getLanguageMinorityStatus()));
+
+    private final String paramName;
+    private final Predicate<Facility> includes;
+
+    LanguageStream(String paramName, Predicate<Facility> includes) {
+        this.paramName = paramName;
+        this.includes = includes;
+    }
+
+    public String getParamName() {
+        return paramName;
+    }
+
+    public boolean includes(Facility facility) {
+        return includes.test(facility);
+    }
+
+    /**
+     * @throws IllegalArgumentException if no stream has that API name
+     */
+    public static LanguageStream fromParamName(String paramName) {
+        for (LanguageStream stream : values()) {
+            if (stream.paramName.equals(paramName)) {
+                return stream;
+            }
+        }
+        throw new IllegalArgumentException("Unknown language stream: " + paramName);
+    }
+}
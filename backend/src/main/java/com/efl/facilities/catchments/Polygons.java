@@ -0,0 +1,80 @@
+package com.efl.facilities.catchments;
+
+import java.util.Arrays;
+
+/**
+ * Planar polygon clipping on flat x, y, x, y... rings (not closed: the last
+ * vertex joins back to the first). Convex clip polygons are counter-clockwise.
+ */
+final class Polygons {
+
+    private Polygons() {
+    }
+
+    /** The part of the ring where nx·x + ny·y &lt;= c, by Sutherland–Hodgman against one edge. */
+    static double[] clipToHalfPlane(double[] ring, double nx, double ny, double c) {
+        int n = ring.length / 2;
+        double[] out = new double[ring.length + 4];
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            double ax = ring[2 * i];
+            double ay = ring[2 * i + 1];
+            double bx = ring[2 * j];
+            double by = ring[2 * j + 1];
+            double da = nx * ax + ny * ay - c;
+            double db = nx * bx + ny * by - c;
+            if (da <= 0) {
+                out = ensure(out, length + 2);
+                out[length++] = ax;
+                out[length++] = ay;
+            }
+            if (da < 0 && db > 0 || da > 0 && db < 0) {
+                double t = da / (da - db);
+                out = ensure(out, length + 2);
+                out[length++] = ax + t * (bx - ax);
+                out[length++] = ay + t * (by - ay);
+            }
+        }
+        return length >= 6 ? Arrays.copyOf(out, length) : new double[0];
+    }
+
+    /** The part of any ring inside a convex, counter-clockwise polygon; empty if they don't overlap. */
+    static double[] clip(double[] ring, double[] convex) {
+        int n = convex.length / 2;
+        double[] clipped = ring;
+        for (int i = 0; i < n && clipped.length > 0; i++) {
+            int j = (i + 1) % n;
+            double ax = convex[2 * i];
+            double ay = convex[2 * i + 1];
+            double bx = convex[2 * j];
+            double by = convex[2 * j + 1];
+            // Inside is left of a→b: the outward normal is (by - ay, ax - bx)
+            double nx = by - ay;
+            double ny = ax - bx;
+            clipped = clipToHalfPlane(clipped, nx, ny, nx * ax + ny * ay);
+        }
+        return clipped;
+    }
+
+    /** minX, minY, maxX, maxY of the ring. */
+    static double[] bounds(double[] ring) {
+        double[] box = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int i = 0; i < ring.length; i += 2) {
+            box[0] = Math.min(box[0], ring[i]);
+            box[1] = Math.min(box[1], ring[i + 1]);
+            box[2] = Math.max(box[2], ring[i]);
+            box[3] = Math.max(box[3], ring[i + 1]);
+        }
+        return box;
+    }
+
+    static boolean overlaps(double[] a, double[] b) {
+        return a[0] <= b[2] && a[2] >= b[0] && a[1] <= b[3] && a[3] >= b[1];
+    }
+
+    private static double[] ensure(double[] array, int length) {
+        return length <= array.length ? array : Arrays.copyOf(array, Math.max(length, array.length * 2));
+    }
+}
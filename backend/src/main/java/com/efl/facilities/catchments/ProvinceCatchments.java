@@ -0,0 +1,215 @@
+package com.efl.facilities.catchments;
+
+import com.efl.facilities.models.Facility;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Voronoi diagram of one province's facilities, clipped to its census
+ * subdivisions: each site's catchment is the land in the province closer to
+ * it than to any other site. Facilities at the same position share a site.
+ * Building triangulates the sites (O(n log n)); each cell is then the
+ * intersection of the half-planes between a site and its Delaunay
+ * neighbours, clipped against the subdivision polygons it overlaps, and can
+ * be written independently of the others, so callers spread the cells across
+ * threads.
+ */
+@SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops") // one site per position, one ring per clip
+public final class ProvinceCatchments {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    // Six decimals of a degree is about 10 cm
+    private static final double COORDINATE_PRECISION = 1e6;
+    // Margin around the province and its sites so the outermost cells are closed before clipping
+    private static final double MARGIN = 1.0;
+
+    private final SubdivisionShapes shapes;
+    private final double[] coords;
+    private final List<List<Long>> facilityIds;
+    private final int[][] neighbours;
+    private final double[] box;
+
+    private ProvinceCatchments(SubdivisionShapes shapes, double[] coords, List<List<Long>> facilityIds,
+                               int[][] neighbours, double[] box) {
+        this.shapes = shapes;
+        this.coords = coords;
+        this.facilityIds = facilityIds;
+        this.neighbours = neighbours;
+        this.box = box;
+    }
+
+    /**
+     * Triangulate the given facilities, all in the shapes' province and with coordinates.
+     */
+    public static ProvinceCatchments build(SubdivisionShapes shapes, List<Facility> facilities) {
+        Map<Position, List<Long>> sites = new LinkedHashMap<>();
+        for (Facility facility : facilities) {
+            Position position = new Position(facility.getLongitude().doubleValue(),
+                    facility.getLatitude().doubleValue());
+            sites.computeIfAbsent(position, p -> new ArrayList<>()).add(facility.getId());
+        }
+
+        double[] coords = new double[sites.size() * 2];
+        double[] box = shapes.isEmpty()
+                ? new double[] {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                        Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY}
+                : shapes.getBounds().clone();
+        int i = 0;
+        for (Position position : sites.keySet()) {
+            double x = shapes.x(position.lon());
+            double y = position.lat();
+            coords[i++] = x;
+            coords[i++] = y;
+            box[0] = Math.min(box[0], x);
+            box[1] = Math.min(box[1], y);
+            box[2] = Math.max(box[2], x);
+            box[3] = Math.max(box[3], y);
+        }
+        box[0] -= MARGIN;
+        box[1] -= MARGIN;
+        box[2] += MARGIN;
+        box[3] += MARGIN;
+        return new ProvinceCatchments(shapes, coords, new ArrayList<>(sites.values()),
+                Delaunay.neighbours(coords), box);
+    }
+
+    public String getProvince() {
+        return shapes.getProvince();
+    }
+
+    public int getSiteCount() {
+        return facilityIds.size();
+    }
+
+    /** The site's x, y in the projected plane. */
+    double[] position(int site) {
+        return new double[] {coords[2 * site], coords[2 * site + 1]};
+    }
+
+    /** Voronoi cell of the site, in the projected plane, counter-clockwise. */
+    double[] cell(int site) {
+        double x = coords[2 * site];
+        double y = coords[2 * site + 1];
+        double[] cell = {box[0], box[1], box[2], box[1], box[2], box[3], box[0], box[3]};
+        int[] others = neighbours[site];
+        if (others.length == 0 && getSiteCount() > 1) {
+            // The triangulation dropped this site (only near-coincident points do that); fall back to every site
+            others = new int[getSiteCount() - 1];
+            for (int k = 0, j = 0; k < getSiteCount(); k++) {
+                if (k != site) {
+                    others[j++] = k;
+                }
+            }
+        }
+        for (int other : others) {
+            double ox = coords[2 * other];
+            double oy = coords[2 * other + 1];
+            // Keep the side of the perpendicular bisector closer to this site
+            double nx = ox - x;
+            double ny = oy - y;
+            cell = Polygons.clipToHalfPlane(cell, nx, ny, nx * (x + ox) / 2 + ny * (y + oy) / 2);
+            if (cell.length == 0) {
+                break;
+            }
+        }
+        return cell;
+    }
+
+    /**
+     * The site's catchment as a GeoJSON Feature with a MultiPolygon geometry
+     * and its province and facility ids as properties; null when its cell
+     * covers no part of any subdivision (a site offshore, say).
+     */
+    public byte[] feature(int site) {
+        double[] cell = cell(site);
+        if (cell.length == 0) {
+            return null;
+        }
+        double[] cellBounds = Polygons.bounds(cell);
+        List<List<double[]>> polygons = new ArrayList<>();
+        for (SubdivisionShapes.Shape shape : shapes.getShapes()) {
+            if (!Polygons.overlaps(shape.bounds(), cellBounds)) {
+                continue;
+            }
+            double[] outer = Polygons.clip(shape.rings()[0], cell);
+            if (outer.length == 0) {
+                continue;
+            }
+            List<double[]> rings = new ArrayList<>();
+            rings.add(outer);
+            for (int r = 1; r < shape.rings().length; r++) {
+                double[] hole = shape.rings()[r];
+                if (Polygons.overlaps(Polygons.bounds(hole), cellBounds)) {
+                    double[] clipped = Polygons.clip(hole, cell);
+                    if (clipped.length > 0) {
+                        rings.add(clipped);
+                    }
+                }
+            }
+            polygons.add(rings);
+        }
+        if (polygons.isEmpty()) {
+            return null;
+        }
+        try {
+            return write(site, polygons);
+        } catch (IOException e) {
+            // Only from a ByteArrayOutputStream, which doesn't throw
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] write(int site, List<List<double[]>> polygons) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator json = JSON.createGenerator(out)) {
+            json.writeStartObject();
+            json.writeStringField("type", "Feature");
+            json.writeObjectFieldStart("properties");
+            json.writeStringField("province", getProvince());
+            json.writeArrayFieldStart("facilityIds");
+            for (Long id : facilityIds.get(site)) {
+                json.writeNumber(id);
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeObjectFieldStart("geometry");
+            json.writeStringField("type", "MultiPolygon");
+            json.writeArrayFieldStart("coordinates");
+            for (List<double[]> rings : polygons) {
+                json.writeStartArray();
+                for (double[] ring : rings) {
+                    json.writeStartArray();
+                    // GeoJSON closes each ring by repeating its first position
+                    for (int i = 0; i <= ring.length; i += 2) {
+                        int at = i % ring.length;
+                        json.writeStartArray();
+                        json.writeNumber(round(shapes.lon(ring[at])));
+                        json.writeNumber(round(ring[at + 1]));
+                        json.writeEndArray();
+                    }
+                    json.writeEndArray();
+                }
+                json.writeEndArray();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    private static double round(double degrees) {
+        return Math.round(degrees * COORDINATE_PRECISION) / COORDINATE_PRECISION;
+    }
+
+    private record Position(double lon, double lat) {
+    }
+}
@@ -0,0 +1,115 @@
+package com.efl.facilities.catchments;
+
+import com.efl.facilities.MunicipalityFeatureIndex;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One province's census subdivision polygons, projected onto a plane where
+ * Voronoi cells can be built and clipped: x = longitude · cos(φ₀), y =
+ * latitude, with φ₀ the middle of the province's latitudes. Distances in
+ * that plane are within a few percent of true ones across a province, which
+ * only moves a cell edge by the same fraction of the gap between two sites.
+ * Built from the index once and reused for every catchment map.
+ */
+@SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops") // one shape per polygon
+public final class SubdivisionShapes {
+
+    private final String province;
+    private final double scale;
+    private final List<Shape> shapes;
+    private final double[] bounds;
+
+    private SubdivisionShapes(String province, double scale, List<Shape> shapes, double[] bounds) {
+        this.province = province;
+        this.scale = scale;
+        this.shapes = shapes;
+        this.bounds = bounds;
+    }
+
+    /**
+     * @param province two-letter code, as the index has it
+     */
+    public static SubdivisionShapes of(MunicipalityFeatureIndex index, String province) throws IOException {
+        int[] features = index.featuresInProvince(province);
+        List<double[][]> polygons = new ArrayList<>();
+        for (int feature : features) {
+            for (double[][] polygon : index.getPolygons(feature)) {
+                // A polygon needs an outer ring of at least three positions
+                if (polygon.length > 0 && polygon[0].length >= 6) {
+                    polygons.add(polygon);
+                }
+            }
+        }
+        double minLat = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        for (double[][] polygon : polygons) {
+            double[] box = Polygons.bounds(polygon[0]);
+            minLat = Math.min(minLat, box[1]);
+            maxLat = Math.max(maxLat, box[3]);
+        }
+        double scale = polygons.isEmpty() ? 1 : Math.cos(Math.toRadians((minLat + maxLat) / 2));
+
+        List<Shape> shapes = new ArrayList<>(polygons.size());
+        double[] bounds = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (double[][] polygon : polygons) {
+            double[][] rings = new double[polygon.length][];
+            for (int r = 0; r < polygon.length; r++) {
+                rings[r] = project(polygon[r], scale);
+            }
+            double[] box = Polygons.bounds(rings[0]);
+            bounds[0] = Math.min(bounds[0], box[0]);
+            bounds[1] = Math.min(bounds[1], box[1]);
+            bounds[2] = Math.max(bounds[2], box[2]);
+            bounds[3] = Math.max(bounds[3], box[3]);
+            shapes.add(new Shape(rings, box));
+        }
+        return new SubdivisionShapes(province, scale, shapes, bounds);
+    }
+
+    private static double[] project(double[] ring, double scale) {
+        // GeoJSON rings repeat their first position at the end; the clipper closes rings itself
+        int length = ring.length;
+        if (length >= 4 && ring[0] == ring[length - 2] && ring[1] == ring[length - 1]) {
+            length -= 2;
+        }
+        double[] projected = new double[length];
+        for (int i = 0; i < length; i += 2) {
+            projected[i] = ring[i] * scale;
+            projected[i + 1] = ring[i + 1];
+        }
+        return projected;
+    }
+
+    public String getProvince() {
+        return province;
+    }
+
+    public boolean isEmpty() {
+        return shapes.isEmpty();
+    }
+
+    double x(double lon) {
+        return lon * scale;
+    }
+
+    double lon(double x) {
+        return x / scale;
+    }
+
+    List<Shape> getShapes() {
+        return shapes;
+    }
+
+    /** minX, minY, maxX, maxY over every polygon. */
+    double[] getBounds() {
+        return bounds;
+    }
+
+    /** A projected polygon (outer ring, then holes) and its outer ring's bounds. */
+    record Shape(double[][] rings, double[] bounds) {
+    }
+}
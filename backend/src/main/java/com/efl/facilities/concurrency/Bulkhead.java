@@ -0,0 +1,100 @@
+package com.efl.facilities.concurrency;
+
+import com.efl.facilities.deadline.RequestDeadline;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A concurrency budget for one class of work. At most maxConcurrent calls run
+ * at once and at most maxQueued wait (each for up to maxWaitMillis) for a slot;
+ * anything beyond that is rejected immediately with {@link BulkheadFullException}.
+ * A caller with a {@link RequestDeadline} waits no longer than it has left.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long maxWaitMillis;
+
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public Bulkhead(String name, int maxConcurrent, int maxQueued, long maxWaitMillis) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxWaitMillis = maxWaitMillis;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    public <T> T execute(Supplier<T> work) {
+        acquire();
+        try {
+            return work.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void acquire() {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            throw reject();
+        }
+        try {
+            RequestDeadline deadline = RequestDeadline.current();
+            long waitMillis = deadline == null ? maxWaitMillis : Math.min(maxWaitMillis, deadline.remainingMillis());
+            if (!permits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS)) {
+                if (waitMillis < maxWaitMillis) {
+                    // Ran out of request time rather than queue time
+                    deadline.cancel(RequestDeadline.Reason.DEADLINE_EXCEEDED);
+                    deadline.check();
+                }
+                throw reject();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject();
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    private BulkheadFullException reject() {
+        rejected.incrementAndGet();
+        return new BulkheadFullException(name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public int getActive() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+}
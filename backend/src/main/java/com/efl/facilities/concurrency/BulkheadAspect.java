@@ -0,0 +1,29 @@
+package com.efl.facilities.concurrency;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs {@link BulkheadLimited} methods inside their named bulkhead. Ordered
+ * ahead of the transaction advisor so a rejected call never borrows a connection.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class BulkheadAspect {
+
+    private final ConcurrencyLimits limits;
+
+    public BulkheadAspect(ConcurrencyLimits limits) {
+        this.limits = limits;
+    }
+
+    @Around("@annotation(bulkheadLimited)")
+    public Object limit(ProceedingJoinPoint joinPoint, BulkheadLimited bulkheadLimited) {
+        return limits.bulkhead(bulkheadLimited.value()).execute(() -> CoalescingAspect.proceed(joinPoint));
+    }
+}
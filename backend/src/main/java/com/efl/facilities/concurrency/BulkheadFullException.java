@@ -0,0 +1,20 @@
+package com.efl.facilities.concurrency;
+
+/**
+ * Thrown instead of queueing when a bulkhead's concurrency budget and queue are used up.
+ */
+public class BulkheadFullException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String bulkhead;
+
+    public BulkheadFullException(String bulkhead) {
+        super("Too many concurrent requests for " + bulkhead);
+        this.bulkhead = bulkhead;
+    }
+
+    public String getBulkhead() {
+        return bulkhead;
+    }
+}
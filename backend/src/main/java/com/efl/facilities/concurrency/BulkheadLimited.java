@@ -0,0 +1,17 @@
+package com.efl.facilities.concurrency;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the annotated method inside the named {@link Bulkhead}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface BulkheadLimited {
+
+    /** Bulkhead name, configured under efl.bulkheads.&lt;name&gt;. */
+    String value();
+}
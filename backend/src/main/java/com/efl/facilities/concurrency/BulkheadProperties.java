@@ -0,0 +1,58 @@
+package com.efl.facilities.concurrency;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bulkhead budgets, bound from efl.bulkheads.&lt;name&gt;.max-concurrent / max-queued / max-wait-ms.
+ */
+@ConfigurationProperties(prefix = "efl")
+public class BulkheadProperties {
+
+    private Map<String, Budget> bulkheads = new LinkedHashMap<>();
+
+    public Map<String, Budget> getBulkheads() {
+        return bulkheads;
+    }
+
+    public void setBulkheads(Map<String, Budget> bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    public static class Budget {
+
+        private static final int DEFAULT_MAX_CONCURRENT = 4;
+        private static final int DEFAULT_MAX_QUEUED = 16;
+        private static final long DEFAULT_MAX_WAIT_MS = 1000;
+
+        private int maxConcurrent = DEFAULT_MAX_CONCURRENT;
+        private int maxQueued = DEFAULT_MAX_QUEUED;
+        private long maxWaitMs = DEFAULT_MAX_WAIT_MS;
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public void setMaxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+        }
+
+        public long getMaxWaitMs() {
+            return maxWaitMs;
+        }
+
+        public void setMaxWaitMs(long maxWaitMs) {
+            this.maxWaitMs = maxWaitMs;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.efl.facilities.concurrency;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Concurrent calls to the annotated method with equal arguments share a single
+ * execution (see {@link SingleFlight}). Only for side-effect-free reads.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Coalesce {
+}
@@ -0,0 +1,47 @@
+package com.efl.facilities.concurrency;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Routes {@link Coalesce} methods through the shared {@link SingleFlight}, keyed
+ * on the method and its arguments. Runs outside {@link BulkheadAspect} so that
+ * followers wait on the leader's result instead of taking bulkhead slots.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class CoalescingAspect {
+
+    private final ConcurrencyLimits limits;
+
+    public CoalescingAspect(ConcurrencyLimits limits) {
+        this.limits = limits;
+    }
+
+    @Around("@annotation(com.efl.facilities.concurrency.Coalesce)")
+    public Object coalesce(ProceedingJoinPoint joinPoint) throws Throwable {
+        List<Object> key = Arrays.asList(joinPoint.getSignature().toLongString(),
+                Arrays.asList(joinPoint.getArgs()));
+        return limits.getSingleFlight().execute(key, () -> proceed(joinPoint));
+    }
+
+    // proceed() declares Throwable; unchecked ones pass through, anything else is wrapped
+    @SuppressWarnings("PMD.AvoidCatchingThrowable")
+    static Object proceed(ProceedingJoinPoint joinPoint) {
+        try {
+            return joinPoint.proceed();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
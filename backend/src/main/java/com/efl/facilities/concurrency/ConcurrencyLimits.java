@@ -0,0 +1,59 @@
+package com.efl.facilities.concurrency;
+
+import com.efl.facilities.models.concurrency.BulkheadStatus;
+import com.efl.facilities.models.concurrency.ConcurrencyStatistics;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Owns the shared {@link SingleFlight} and the named {@link Bulkhead}s used by
+ * {@link CoalescingAspect} and {@link BulkheadAspect}. A bulkhead with no
+ * configuration gets the default budget from {@link BulkheadProperties.Budget}.
+ */
+@Component
+@EnableConfigurationProperties(BulkheadProperties.class)
+public class ConcurrencyLimits {
+
+    private final SingleFlight singleFlight = new SingleFlight();
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final BulkheadProperties properties;
+
+    public ConcurrencyLimits(BulkheadProperties properties) {
+        this.properties = properties;
+    }
+
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    public Bulkhead bulkhead(String name) {
+        return bulkheads.computeIfAbsent(name, this::createBulkhead);
+    }
+
+    private Bulkhead createBulkhead(String name) {
+        BulkheadProperties.Budget budget =
+                properties.getBulkheads().getOrDefault(name, new BulkheadProperties.Budget());
+        return new Bulkhead(name, budget.getMaxConcurrent(), budget.getMaxQueued(), budget.getMaxWaitMs());
+    }
+
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops") // one status per bulkhead
+    public ConcurrencyStatistics getStatistics() {
+        ConcurrencyStatistics statistics = new ConcurrencyStatistics();
+        statistics.setCoalescedExecutions(singleFlight.getExecutions());
+        statistics.setCoalescedCalls(singleFlight.getCoalesced());
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            BulkheadStatus status = new BulkheadStatus();
+            status.setName(bulkhead.getName());
+            status.setMaxConcurrent(bulkhead.getMaxConcurrent());
+            status.setMaxQueued(bulkhead.getMaxQueued());
+            status.setActive(bulkhead.getActive());
+            status.setQueued(bulkhead.getQueued());
+            status.setRejected(bulkhead.getRejected());
+            statistics.getBulkheads().add(status);
+        }
+        return statistics;
+    }
+}
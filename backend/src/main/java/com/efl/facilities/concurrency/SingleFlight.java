@@ -0,0 +1,93 @@
+package com.efl.facilities.concurrency;
+
+import com.efl.facilities.deadline.RequestCancelledException;
+import com.efl.facilities.deadline.RequestDeadline;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls with the same key into one execution: the first
+ * caller runs the work, everyone arriving while it is in flight waits for and
+ * shares its result (or its exception). Nothing is cached once the call ends.
+ *
+ * A waiting caller gives up at its own {@link RequestDeadline}. If the leader's
+ * request is cancelled instead, its waiters don't inherit that: the next one
+ * runs the work itself.
+ */
+public class SingleFlight {
+
+    private final ConcurrentMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Object key, Supplier<T> work) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            try {
+                return (T) await(existing);
+            } catch (RequestCancelledException e) {
+                if (e.isFor(RequestDeadline.current())) {
+                    throw e;
+                }
+                inFlight.remove(key, existing);
+                return execute(key, work);
+            }
+        }
+
+        executions.incrementAndGet();
+        try {
+            T result = work.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private Object await(CompletableFuture<Object> future) {
+        RequestDeadline deadline = RequestDeadline.current();
+        try {
+            if (deadline == null) {
+                return future.join();
+            }
+            return future.get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (CompletionException | ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        } catch (TimeoutException e) {
+            deadline.cancel(RequestDeadline.Reason.DEADLINE_EXCEEDED);
+            throw new RequestCancelledException(deadline, deadline.getCancelReason(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+}
@@ -0,0 +1,137 @@
+package com.efl.facilities.controllers;
+
+import com.efl.facilities.concurrency.ConcurrencyLimits;
+import com.efl.facilities.deadline.DeadlineWatchdog;
+import com.efl.facilities.jfr.FlightRecordings;
+import com.efl.facilities.models.cache.FacilityCacheStatistics;
+import com.efl.facilities.models.changes.DatasetVersion;
+import com.efl.facilities.models.changes.ReplicaState;
+import com.efl.facilities.models.concurrency.ConcurrencyStatistics;
+import com.efl.facilities.models.concurrency.DeadlineStatistics;
+import com.efl.facilities.models.timing.SlowRequestSample;
+import com.efl.facilities.services.FacilityCacheService;
+import com.efl.facilities.services.DatasetVersionTracker;
+import com.efl.facilities.services.FacilityChangeLogService;
+import com.efl.facilities.timing.SlowRequestLog;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Operational endpoints. These are called from inside the compose network
+ * (e.g. by the ingestor) and are not routed through the public proxy.
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    @Autowired
+    private FacilityCacheService facilityCacheService;
+
+    @Autowired
+    private FacilityChangeLogService facilityChangeLogService;
+
+    @Autowired
+    private ConcurrencyLimits concurrencyLimits;
+
+    @Autowired
+    private DeadlineWatchdog deadlineWatchdog;
+
+    @Autowired
+    private DatasetVersionTracker datasetVersionTracker;
+
+    @Autowired
+    private SlowRequestLog slowRequestLog;
+
+    @Autowired
+    private FlightRecordings flightRecordings;
+
+    @GetMapping("/cache")
+    public FacilityCacheStatistics getCacheStatistics() {
+        return facilityCacheService.getStatistics();
+    }
+
+    /**
+     * Coalescing counters and the live state of each bulkhead.
+     */
+    @GetMapping("/concurrency")
+    public ConcurrencyStatistics getConcurrencyStatistics() {
+        return concurrencyLimits.getStatistics();
+    }
+
+    /**
+     * Configured request deadlines and how many requests were cancelled,
+     * because they ran out of time or because their client went away.
+     */
+    @GetMapping("/deadlines")
+    public DeadlineStatistics getDeadlineStatistics() {
+        return deadlineWatchdog.getStatistics();
+    }
+
+    /**
+     * Record the dataset version produced by an ingest and notify everything
+     * that caches facility data. Answers with the current version (no body if
+     * no ingest has ever changed anything).
+     */
+    @PostMapping("/ingest-complete")
+    public ResponseEntity<DatasetVersion> ingestComplete() {
+        DatasetVersion version = facilityChangeLogService.recordIngest();
+        return version == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(version);
+    }
+
+    /**
+     * Backend replicas that have polled the dataset version recently, with
+     * the version each one is serving.
+     */
+    @GetMapping("/replicas")
+    public List<ReplicaState> getReplicas() {
+        return datasetVersionTracker.getLiveReplicas();
+    }
+
+    /**
+     * The most recent facility and municipality requests over
+     * efl.timing.slow-request-ms, newest first, with their SQL.
+     */
+    @GetMapping("/slow-requests")
+    public List<SlowRequestSample> getSlowRequests() {
+        return slowRequestLog.recent();
+    }
+
+    /**
+     * A JFR file of everything recorded so far, including the EFL facility
+     * query, validation and GeoJSON events; open it in JDK Mission Control.
+     * 404 if no flight recording is running.
+     */
+    @GetMapping("/flight-recording")
+    public void getFlightRecording(HttpServletResponse response) throws IOException {
+        Path file = flightRecordings.dump();
+        if (file == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), "No flight recording is running");
+            return;
+        }
+        try {
+            String name = "efl-" + DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")
+                    .withZone(ZoneOffset.UTC).format(Instant.now()) + ".jfr";
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.attachment().filename(name).build().toString());
+            response.setContentLengthLong(Files.size(file));
+            Files.copy(file, response.getOutputStream());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.efl.facilities.controllers;
+
+import com.efl.facilities.concurrency.BulkheadFullException;
+import com.efl.facilities.deadline.RequestCancelledException;
+import com.efl.facilities.deadline.RequestDeadline;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Turns a full bulkhead into a quick 503 so clients back off instead of
+ * piling up, and a request cancelled at its deadline into a 504. A database
+ * that can't be reached (including while its circuit breaker is open) is a
+ * 503 too, retried once the breaker would let a request through.
+ */
+@RestControllerAdvice
+public class ConcurrencyExceptionHandler {
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    // Nobody reads it, but it keeps abandoned requests apart from failures in the access log
+    private static final int CLIENT_CLOSED_REQUEST = 499;
+
+    @Value("${efl.fallback.breaker.open-ms:10000}")
+    private long breakerOpenMs;
+
+    @ExceptionHandler(BulkheadFullException.class)
+    public ResponseEntity<String> handleBulkheadFull(BulkheadFullException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .body(e.getMessage());
+    }
+
+    @ExceptionHandler(RequestCancelledException.class)
+    public ResponseEntity<String> handleRequestCancelled(RequestCancelledException e) {
+        if (e.getReason() == RequestDeadline.Reason.CLIENT_DISCONNECTED) {
+            return ResponseEntity.status(CLIENT_CLOSED_REQUEST).build();
+        }
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(e.getMessage());
+    }
+
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class,
+            TransientDataAccessResourceException.class})
+    public ResponseEntity<String> handleDatabaseUnavailable(RuntimeException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(breakerOpenMs / 1000, 1)))
+                .body("Database unavailable");
+    }
+}
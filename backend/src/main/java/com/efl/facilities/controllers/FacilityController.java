@@ -1,18 +1,55 @@
 package com.efl.facilities.controllers;
 
+import com.efl.facilities.catchments.CatchmentMap;
+import com.efl.facilities.catchments.LanguageStream;
+import com.efl.facilities.fallback.StaleWhileRevalidateAspect;
+import com.efl.facilities.history.FacilityVintage;
+import com.efl.facilities.jfr.GeoJsonServedEvent;
+import com.efl.facilities.markers.FacilityMarkers;
 import com.efl.facilities.models.Facility;
+import com.efl.facilities.models.batch.FacilityBatchRequest;
+import com.efl.facilities.models.batch.FacilityBatchResult;
+import com.efl.facilities.models.changes.FacilityChangeSet;
+import com.efl.facilities.models.stats.FacilityStatsResult;
 import com.efl.facilities.services.FacilityService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import com.efl.facilities.models.validation.FacilityValidationResult;
 import com.efl.facilities.services.FacilityValidationService;
+import com.efl.facilities.services.FacilityStatsService;
+import com.efl.facilities.services.FacilityChangeLogService;
+import com.efl.facilities.services.DatasetVersionBroadcaster;
+import com.efl.facilities.services.FacilityHistoryService;
+import com.efl.facilities.services.FacilityMarkerService;
+import com.efl.facilities.services.CatchmentService;
+import com.efl.facilities.timing.ServerTimingFilter;
+import com.efl.facilities.web.DatasetVersionHeaderFilter;
+import com.efl.facilities.web.FacilityJsonHttpMessageConverter;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 @RestController
 @RequestMapping("/api/facilities")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {
+        DatasetVersionHeaderFilter.VERSION_HEADER,
+        DatasetVersionHeaderFilter.LATEST_VERSION_HEADER,
+        DatasetVersionHeaderFilter.SKEW_HEADER,
+        ServerTimingFilter.SERVER_TIMING_HEADER,
+        HttpHeaders.AGE,
+        StaleWhileRevalidateAspect.WARNING_HEADER
+})
 public class FacilityController {
 
     @Autowired
@@ -21,46 +58,250 @@ public class FacilityController {
     @Autowired
     private FacilityValidationService facilityValidationService;
 
+    @Autowired
+    private FacilityStatsService facilityStatsService;
+
+    @Autowired
+    private FacilityChangeLogService facilityChangeLogService;
+
+    @Autowired
+    private DatasetVersionBroadcaster datasetVersionBroadcaster;
+
+    @Autowired
+    private FacilityHistoryService facilityHistoryService;
+
+    @Autowired
+    private FacilityMarkerService facilityMarkerService;
+
+    @Autowired
+    private CatchmentService catchmentService;
+
+    /**
+     * The list and single-facility endpoints and /stats take an optional asOf:
+     * a dataset version, a date (yyyy-MM-dd) or an ISO-8601 instant. They then
+     * answer from the facilities as they were at that version, or 404 if
+     * history doesn't reach back that far.
+     */
     @GetMapping
-    public List<Facility> getAllFacilities() {
-        return facilityService.getAllFacilities();
+    public ResponseEntity<List<Facility>> getAllFacilities(@RequestParam(required = false) String asOf) {
+        if (asOf != null) {
+            return historicalMatching(asOf, facility -> true);
+        }
+        return ResponseEntity.ok(facilityService.getAllFacilities());
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Facility> getFacilityById(@PathVariable Long id) {
+    public ResponseEntity<Facility> getFacilityById(
+            @PathVariable Long id,
+            @RequestParam(required = false) String asOf
+    ) {
+        if (asOf != null) {
+            return historical(asOf, vintage -> vintage.getById(id));
+        }
         return facilityService.getFacilityById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/unique/{uniqueId}")
-    public ResponseEntity<Facility> getFacilityByUniqueId(@PathVariable String uniqueId) {
+    public ResponseEntity<Facility> getFacilityByUniqueId(
+            @PathVariable String uniqueId,
+            @RequestParam(required = false) String asOf
+    ) {
+        if (asOf != null) {
+            return historical(asOf, vintage -> vintage.get(uniqueId));
+        }
         Facility facility = facilityService.getFacilityByUniqueId(uniqueId);
         return facility != null ? ResponseEntity.ok(facility) : ResponseEntity.notFound().build();
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<FacilityBatchResult> getFacilitiesBatch(@RequestBody FacilityBatchRequest request) {
+        try {
+            return ResponseEntity.ok(facilityService.getFacilitiesBatch(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/province/{province}")
-    public List<Facility> getFacilitiesByProvince(@PathVariable String province) {
-        return facilityService.getFacilitiesByProvince(province);
+    public ResponseEntity<List<Facility>> getFacilitiesByProvince(
+            @PathVariable String province,
+            @RequestParam(required = false) String asOf
+    ) {
+        if (asOf != null) {
+            return historicalMatching(asOf, facility -> province.equals(facility.getProvince()));
+        }
+        return ResponseEntity.ok(facilityService.getFacilitiesByProvince(province));
     }
 
     @GetMapping("/municipality/{municipalityName}")
-    public List<Facility> getFacilitiesByMunicipality(@PathVariable String municipalityName) {
-        return facilityService.getFacilitiesByMunicipality(municipalityName);
+    public ResponseEntity<List<Facility>> getFacilitiesByMunicipality(
+            @PathVariable String municipalityName,
+            @RequestParam(required = false) String asOf
+    ) {
+        if (asOf != null) {
+            return historicalMatching(asOf, facility -> municipalityName.equals(facility.getMunicipalityName()));
+        }
+        return ResponseEntity.ok(facilityService.getFacilitiesByMunicipality(municipalityName));
     }
 
     @GetMapping("/type/{facilityType}")
-    public List<Facility> getFacilitiesByType(@PathVariable String facilityType) {
-        return facilityService.getFacilitiesByType(facilityType);
+    public ResponseEntity<List<Facility>> getFacilitiesByType(
+            @PathVariable String facilityType,
+            @RequestParam(required = false) String asOf
+    ) {
+        if (asOf != null) {
+            return historicalMatching(asOf, facility -> facilityType.equals(facility.getFacilityType()));
+        }
+        return ResponseEntity.ok(facilityService.getFacilitiesByType(facilityType));
     }
 
     @GetMapping("/french-immersion")
-    public List<Facility> getFrenchImmersionFacilities() {
-        return facilityService.getFrenchImmersionFacilities();
+    public ResponseEntity<List<Facility>> getFrenchImmersionFacilities(@RequestParam(required = false) String asOf) {
+        if (asOf != null) {
+            return historicalMatching(asOf, facility -> Boolean.TRUE.equals(facility.getFrenchImmersion()));
+        }
+        return ResponseEntity.ok(facilityService.getFrenchImmersionFacilities());
+    }
+
+    /**
+     * Positions, ids and program flags of every located facility in the
+     * packed binary layout described in {@link FacilityMarkers}, optionally
+     * for one province (a two-letter code). The ETag changes with the
+     * dataset version.
+     */
+    @GetMapping(value = "/markers", produces = FacilityMarkers.MEDIA_TYPE)
+    public ResponseEntity<Resource> getMarkers(@RequestParam(required = false) String province) {
+        if (province != null && !province.matches("[A-Za-z]{2}")) {
+            return ResponseEntity.badRequest().build();
+        }
+        FacilityMarkers markers = facilityMarkerService.getMarkers(province);
+        return ResponseEntity.ok()
+                .eTag("markers-" + markers.getDatasetVersion() + (province == null ? "" : "-" + province))
+                .body(markers.asResource());
+    }
+
+    /**
+     * GeoJSON catchment polygons: for each located facility of the type (all
+     * types when omitted) in the stream (all, frenchImmersion or
+     * languageMinority), the part of its province closer to it than to any
+     * other such facility, with the facility ids as properties. Optionally
+     * for one province. The ETag changes with the dataset version.
+     */
+    @GetMapping(value = "/catchments", produces = CatchmentMap.MEDIA_TYPE)
+    public ResponseEntity<Resource> getCatchments(
+            @RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "all") String stream,
+            @RequestParam(required = false) String province,
+            HttpServletRequest request
+    ) throws IOException {
+        GeoJsonServedEvent event = new GeoJsonServedEvent();
+        event.begin();
+        if (province != null && !province.matches("[A-Za-z]{2}")) {
+            return ResponseEntity.badRequest().build();
+        }
+        LanguageStream languageStream;
+        try {
+            languageStream = LanguageStream.fromParamName(stream);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        long started = System.nanoTime();
+        CatchmentMap catchments = catchmentService.getCatchments(type, languageStream);
+        Resource body = catchments.asResource(province);
+        event.end();
+        if (event.shouldCommit()) {
+            // The body is written after this returns, so the duration covers building (or finding) it
+            event.setServed(request.getRequestURI(), request.getQueryString(), body.contentLength(),
+                    catchments.getBuiltAtNanos() < started);
+            event.commit();
+        }
+        return ResponseEntity.ok()
+                .eTag("catchments-" + catchments.getDatasetVersion() + "-" + stream
+                        + (type == null ? "" : "-" + Integer.toHexString(type.hashCode()))
+                        + (province == null ? "" : "-" + province))
+                .body(body);
+    }
+
+    private ResponseEntity<List<Facility>> historicalMatching(String asOf, Predicate<Facility> filter) {
+        return historical(asOf, vintage -> vintage.toList().stream().filter(filter).toList());
+    }
+
+    /**
+     * The answer from the facilities as of asOf: 400 if asOf is malformed,
+     * 404 if there is no such version or the answer is null.
+     */
+    private <T> ResponseEntity<T> historical(String asOf, Function<FacilityVintage, T> answer) {
+        Optional<FacilityVintage> vintage;
+        try {
+            vintage = facilityHistoryService.getVintage(asOf);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        FacilityJsonHttpMessageConverter.bypassCache();
+        return vintage.map(answer)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Facility counts, e.g. {@code /stats?groupBy=province,authorityName&frenchImmersion=true}.
+     * Any other request parameter named after a dimension filters on that value.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<FacilityStatsResult> getStats(
+            @RequestParam(required = false) List<String> groupBy,
+            @RequestParam(required = false) String asOf,
+            @RequestParam Map<String, String> params
+    ) {
+        List<String> dimensions = groupBy == null ? List.of() : groupBy;
+        try {
+            if (asOf != null) {
+                Optional<FacilityVintage> vintage = facilityHistoryService.getVintage(asOf);
+                return vintage.map(v -> ResponseEntity.ok(facilityStatsService.getStats(v, dimensions, params)))
+                        .orElse(ResponseEntity.notFound().build());
+            }
+            return ResponseEntity.ok(facilityStatsService.getStats(dimensions, params));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Facilities inserted, updated or deleted after the given dataset version.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<FacilityChangeSet> getChanges(@RequestParam long since) {
+        if (since < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(facilityChangeLogService.getChangesSince(since));
+    }
+
+    /**
+     * Server-Sent Events announcing each new dataset version.
+     */
+    @GetMapping(value = "/changes/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(HttpServletResponse response) {
+        // keep the reverse proxy from buffering the stream
+        response.setHeader("X-Accel-Buffering", "no");
+        return datasetVersionBroadcaster.subscribe();
     }
 
+    /**
+     * The validation summary of the latest ingest run. With scan=true, or if
+     * no run has been recorded, the whole table is validated instead, which
+     * also reports near-duplicates.
+     */
     @GetMapping("/validate")
-    public FacilityValidationResult validateFacilities() {
+    public FacilityValidationResult validateFacilities(@RequestParam(defaultValue = "false") boolean scan) {
+        if (!scan) {
+            Optional<FacilityValidationResult> latest = facilityValidationService.getLatestIngestValidation();
+            if (latest.isPresent()) {
+                return latest.get();
+            }
+        }
         return facilityValidationService.validateFacilities();
     }
 }
\ No newline at end of file
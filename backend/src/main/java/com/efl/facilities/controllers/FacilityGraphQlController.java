@@ -0,0 +1,190 @@
+package com.efl.facilities.controllers;
+
+import com.efl.facilities.MunicipalitiesService;
+import com.efl.facilities.MunicipalityFeatureIndex;
+import com.efl.facilities.graphql.FacilityColumns;
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.models.Municipality;
+import com.efl.facilities.services.FacilitySelectionService;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.DataFetchingFieldSelectionSet;
+import org.dataloader.BatchLoaderEnvironment;
+import org.dataloader.DataLoader;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.graphql.execution.BatchLoaderRegistry;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * GraphQL queries over facilities and municipalities (schema in
+ * graphql/schema.graphqls). Facilities are read with only the columns the
+ * query selected. Municipality.facilities goes through a data loader, so a
+ * response with any number of municipalities makes one facility query per
+ * {@code FacilityService.BATCH_QUERY_CHUNK_SIZE} subdivision ids.
+ */
+@Controller
+public class FacilityGraphQlController {
+
+    static final String FACILITIES_BY_MUNICIPALITY = "facilitiesByMunicipality";
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private final FacilitySelectionService facilitySelectionService;
+    private final MunicipalitiesService municipalitiesService;
+
+    public FacilityGraphQlController(
+            FacilitySelectionService facilitySelectionService,
+            MunicipalitiesService municipalitiesService,
+            BatchLoaderRegistry batchLoaderRegistry
+    ) {
+        this.facilitySelectionService = facilitySelectionService;
+        this.municipalitiesService = municipalitiesService;
+        batchLoaderRegistry.<Municipality, List<Facility>>forName(FACILITIES_BY_MUNICIPALITY)
+                .registerMappedBatchLoader((municipalities, environment) ->
+                        Mono.fromCallable(() -> loadFacilities(municipalities, environment)));
+    }
+
+    @QueryMapping
+    public Facility facility(@Argument long id, DataFetchingFieldSelectionSet selection) {
+        return facilitySelectionService.getFacility(id, FacilityColumns.forSelection(selection)).orElse(null);
+    }
+
+    @QueryMapping
+    public List<Facility> facilities(
+            @Argument String province,
+            @Argument String municipalityName,
+            @Argument String facilityType,
+            @Argument Boolean frenchImmersion,
+            @Argument int first,
+            @Argument int offset,
+            DataFetchingFieldSelectionSet selection
+    ) {
+        checkPage(first, offset);
+        Map<String, Object> filters = new LinkedHashMap<>();
+        putIfPresent(filters, "province", province);
+        putIfPresent(filters, "municipalityName", municipalityName);
+        putIfPresent(filters, "facilityType", facilityType);
+        putIfPresent(filters, "frenchImmersion", frenchImmersion);
+        return facilitySelectionService.getFacilities(FacilityColumns.forSelection(selection), filters, first, offset);
+    }
+
+    @QueryMapping
+    public List<Municipality> municipalities(
+            @Argument String province,
+            @Argument List<String> ids,
+            @Argument int first,
+            @Argument int offset
+    ) throws IOException {
+        checkPage(first, offset);
+        MunicipalityFeatureIndex index = municipalitiesService.getIndex();
+        int[] features = null;
+        if (province != null) {
+            features = index.featuresInProvince(province);
+        }
+        if (ids != null) {
+            int[] matches = index.featuresWithIds(ids);
+            features = features == null ? matches : MunicipalityFeatureIndex.intersect(features, matches);
+        }
+        int count = features == null ? index.getFeatureCount() : features.length;
+        List<Municipality> municipalities = new ArrayList<>(Math.min(count, first));
+        int skipped = 0;
+        for (int i = 0; i < count && municipalities.size() < first; i++) {
+            int feature = features == null ? i : features[i];
+            // Without either id a feature can't be named or matched to facilities
+            if (index.getSubdivisionId(feature) == null) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                municipalities.add(municipality(index, feature));
+            }
+        }
+        return municipalities;
+    }
+
+    /**
+     * Queued on the data loader with the columns this selection needs; the
+     * loader reads the union of them for the whole batch.
+     */
+    @SchemaMapping(typeName = "Municipality", field = "facilities")
+    public CompletableFuture<List<Facility>> municipalityFacilities(
+            Municipality municipality,
+            DataFetchingFieldSelectionSet selection,
+            DataFetchingEnvironment environment
+    ) {
+        DataLoader<Municipality, List<Facility>> loader = environment.getDataLoader(FACILITIES_BY_MUNICIPALITY);
+        return loader.load(municipality, FacilityColumns.forSelection(selection));
+    }
+
+    private Map<Municipality, List<Facility>> loadFacilities(Set<Municipality> municipalities,
+                                                             BatchLoaderEnvironment environment) {
+        Set<String> columns = new LinkedHashSet<>();
+        for (Object keyColumns : environment.getKeyContextsList()) {
+            if (keyColumns instanceof Set<?> set) {
+                set.forEach(column -> columns.add((String) column));
+            }
+        }
+        if (columns.isEmpty()) {
+            columns.add(FacilityColumns.ID);
+        }
+
+        // A facility's census_subdivision_id may be either of a municipality's ids
+        Set<String> ids = new HashSet<>();
+        for (Municipality municipality : municipalities) {
+            ids.add(municipality.getId());
+            if (municipality.getDguid() != null) {
+                ids.add(municipality.getDguid());
+            }
+        }
+        Map<String, List<Facility>> bySubdivision = facilitySelectionService.getFacilitiesBySubdivision(ids, columns);
+
+        Map<Municipality, List<Facility>> facilities = new HashMap<>();
+        for (Municipality municipality : municipalities) {
+            List<Facility> found = new ArrayList<>(bySubdivision.getOrDefault(municipality.getId(), List.of()));
+            if (municipality.getDguid() != null && !municipality.getDguid().equals(municipality.getId())) {
+                found.addAll(bySubdivision.getOrDefault(municipality.getDguid(), List.of()));
+            }
+            facilities.put(municipality, found);
+        }
+        return facilities;
+    }
+
+    private static void checkPage(int first, int offset) {
+        if (first < 0 || first > MAX_PAGE_SIZE || offset < 0) {
+            throw new IllegalArgumentException("first must be 0 to " + MAX_PAGE_SIZE + " and offset at least 0");
+        }
+    }
+
+    private static void putIfPresent(Map<String, Object> filters, String field, Object value) {
+        if (value != null) {
+            filters.put(FacilityColumns.forField(field), value);
+        }
+    }
+
+    private static Municipality municipality(MunicipalityFeatureIndex index, int feature) {
+        Municipality municipality = new Municipality();
+        municipality.setId(index.getSubdivisionId(feature));
+        municipality.setDguid(index.getDguid(feature));
+        municipality.setName(index.getName(feature));
+        municipality.setProvince(index.getProvince(feature));
+        // GraphQL has no NaN, so a feature without coordinates has no centroid
+        double lat = index.getCentroidLat(feature);
+        double lon = index.getCentroidLon(feature);
+        municipality.setCentroidLatitude(Double.isNaN(lat) ? null : lat);
+        municipality.setCentroidLongitude(Double.isNaN(lon) ? null : lon);
+        return municipality;
+    }
+}
@@ -0,0 +1,106 @@
+package com.efl.facilities.datasource;
+
+import com.efl.facilities.deadline.DeadlineDataSource;
+import com.efl.facilities.fallback.CircuitBreaker;
+import com.efl.facilities.fallback.CircuitBreakerDataSource;
+import com.efl.facilities.fallback.FallbackProperties;
+import com.efl.facilities.timing.TimingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The application DataSource: the primary pool configured under
+ * spring.datasource (with its spring.datasource.hikari settings) plus one
+ * read-only Hikari pool per configured replica, routed by
+ * {@link ReadWriteRoutingDataSource}. Writes, including everything inside a
+ * read-write transaction, always go to the primary. Connections are checked
+ * out through {@link TimingDataSource} so request timings include pool wait
+ * and SQL time, and through {@link DeadlineDataSource} so statements stop at
+ * the request's deadline. The primary hands out connections through a
+ * {@link CircuitBreakerDataSource}, so while it is down requests fail fast
+ * instead of queueing for the pool's connection-timeout.
+ */
+@Configuration
+@EnableConfigurationProperties({DataSourceProperties.class, ReplicaDataSourceProperties.class,
+        FallbackProperties.class})
+public class DataSourceConfig {
+
+    @Bean(autowireCandidate = false)
+    public ReadWriteRoutingDataSource routingDataSource(
+            DataSourceProperties dataSourceProperties,
+            ReplicaDataSourceProperties replicaProperties,
+            FallbackProperties fallbackProperties,
+            Environment environment
+    ) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName(ReadWriteRoutingDataSource.PRIMARY);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<ReplicaDataSourceProperties.Replica> configured = replicaProperties.getReplicas();
+        for (int i = 0; i < configured.size(); i++) {
+            String name = "replica-" + i;
+            replicas.put(name, replicaPool(name, configured.get(i)));
+        }
+        FallbackProperties.Breaker breaker = fallbackProperties.getBreaker();
+        return new ReadWriteRoutingDataSource(new CircuitBreakerDataSource(primary,
+                new CircuitBreaker(ReadWriteRoutingDataSource.PRIMARY, breaker.getFailureThreshold(),
+                        breaker.getOpenMs())), replicas);
+    }
+
+    private HikariDataSource replicaPool(String name, ReplicaDataSourceProperties.Replica replica) {
+        HikariDataSource pool = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(replica.getUrl())
+                .username(replica.getUsername())
+                .password(replica.getPassword())
+                .driverClassName(replica.getDriverClassName())
+                .build();
+        pool.setPoolName(name);
+        pool.setMaximumPoolSize(replica.getMaximumPoolSize());
+        pool.setConnectionTimeout(replica.getConnectionTimeoutMs());
+        pool.setReadOnly(true);
+        // Don't fail startup because a replica is down; the health monitor handles it
+        pool.setInitializationFailTimeout(-1);
+        return pool;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            DataSourceProperties dataSourceProperties,
+            ReplicaDataSourceProperties replicaProperties,
+            FallbackProperties fallbackProperties,
+            Environment environment
+    ) {
+        return new LazyConnectionDataSourceProxy(new DeadlineDataSource(new TimingDataSource(
+                routingDataSource(dataSourceProperties, replicaProperties, fallbackProperties, environment))));
+    }
+
+    @Bean
+    public ReplicaHealthMonitor replicaHealthMonitor(
+            DataSourceProperties dataSourceProperties,
+            ReplicaDataSourceProperties replicaProperties,
+            FallbackProperties fallbackProperties,
+            Environment environment
+    ) {
+        return new ReplicaHealthMonitor(
+                routingDataSource(dataSourceProperties, replicaProperties, fallbackProperties, environment));
+    }
+}
@@ -0,0 +1,141 @@
+package com.efl.facilities.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to the healthy replicas in round-robin order
+ * and everything else to the primary. A replica that fails to hand out a
+ * connection is marked down on the spot and the request falls back to the
+ * primary; {@link ReplicaHealthMonitor} brings it back once it recovers.
+ *
+ * Must sit behind a LazyConnectionDataSourceProxy: the transaction's read-only
+ * flag is only known once it has begun, after the connection would normally
+ * have been fetched.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    public static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final List<String> replicaKeys;
+    private final Set<String> down = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(DataSource primary, Map<String, DataSource> replicas) {
+        this.primary = primary;
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.replicaKeys = new ArrayList<>(replicas.keySet());
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        int size = replicaKeys.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            String key = replicaKeys.get((start + i) % size);
+            if (!down.contains(key)) {
+                return key;
+            }
+        }
+        return PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        if (PRIMARY.equals(key)) {
+            return primary.getConnection();
+        }
+        try {
+            return replicas.get(key).getConnection();
+        } catch (SQLException e) {
+            markDown((String) key, e.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Object key = determineCurrentLookupKey();
+        if (PRIMARY.equals(key)) {
+            return primary.getConnection(username, password);
+        }
+        try {
+            return replicas.get(key).getConnection(username, password);
+        } catch (SQLException e) {
+            markDown((String) key, e.getMessage());
+            return primary.getConnection(username, password);
+        }
+    }
+
+    public void markDown(String key, String reason) {
+        if (down.add(key)) {
+            LOG.warn("Replica {} taken out of rotation: {}", key, reason);
+        }
+    }
+
+    public void markUp(String key) {
+        if (down.remove(key)) {
+            LOG.info("Replica {} back in rotation", key);
+        }
+    }
+
+    public boolean isUp(String key) {
+        return !down.contains(key);
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    public Map<String, DataSource> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    public void close() {
+        for (DataSource replica : replicas.values()) {
+            closeQuietly(replica);
+        }
+        closeQuietly(primary);
+    }
+
+    private void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                LOG.warn("Could not close datasource: {}", e.getMessage());
+            }
+        }
+    }
+}
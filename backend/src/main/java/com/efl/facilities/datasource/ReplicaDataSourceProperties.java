@@ -0,0 +1,87 @@
+package com.efl.facilities.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas, bound from efl.datasource.replicas[n].url / username / password
+ * (plus optional driver-class-name, maximum-pool-size, connection-timeout-ms).
+ * With no replicas configured every transaction uses the primary datasource.
+ */
+@ConfigurationProperties(prefix = "efl.datasource")
+public class ReplicaDataSourceProperties {
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(List<Replica> replicas) {
+        this.replicas = replicas;
+    }
+
+    public static class Replica {
+
+        private static final int DEFAULT_MAXIMUM_POOL_SIZE = 5;
+        // Short, so a dead replica is skipped quickly instead of stalling reads
+        private static final long DEFAULT_CONNECTION_TIMEOUT_MS = 2000;
+
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+        private int maximumPoolSize = DEFAULT_MAXIMUM_POOL_SIZE;
+        private long connectionTimeoutMs = DEFAULT_CONNECTION_TIMEOUT_MS;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public String getDriverClassName() {
+            return driverClassName;
+        }
+
+        public void setDriverClassName(String driverClassName) {
+            this.driverClassName = driverClassName;
+        }
+
+        public int getMaximumPoolSize() {
+            return maximumPoolSize;
+        }
+
+        public void setMaximumPoolSize(int maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+        }
+
+        public long getConnectionTimeoutMs() {
+            return connectionTimeoutMs;
+        }
+
+        public void setConnectionTimeoutMs(long connectionTimeoutMs) {
+            this.connectionTimeoutMs = connectionTimeoutMs;
+        }
+    }
+}
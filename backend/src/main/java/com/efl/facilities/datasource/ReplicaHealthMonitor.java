@@ -0,0 +1,105 @@
+package com.efl.facilities.datasource;
+
+import com.efl.facilities.events.DatasetChangedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+/**
+ * Periodically checks each replica and takes it out of rotation when it is
+ * unreachable or still behind the primary's dataset version, so that caches
+ * rebuilt after an ingest never read a replica that has not replayed it yet.
+ */
+public class ReplicaHealthMonitor {
+
+    private static final String LATEST_VERSION_SQL = "select max(version) from dataset_version";
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final ReadWriteRoutingDataSource routingDataSource;
+
+    public ReplicaHealthMonitor(ReadWriteRoutingDataSource routingDataSource) {
+        this.routingDataSource = routingDataSource;
+    }
+
+    @Scheduled(fixedDelayString = "${efl.datasource.health-check-interval-ms:5000}")
+    public void scheduledCheck() {
+        checkReplicas();
+    }
+
+    /**
+     * Re-check before any other listener rebuilds from the new version.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        checkReplicas();
+    }
+
+    public void checkReplicas() {
+        Map<String, DataSource> replicas = routingDataSource.getReplicas();
+        if (replicas.isEmpty()) {
+            return;
+        }
+
+        Long primaryVersion;
+        try {
+            primaryVersion = latestVersion(routingDataSource.getPrimary());
+        } catch (SQLException e) {
+            // Without the primary's version only reachability can be judged
+            primaryVersion = null;
+        }
+
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            String problem = check(replica.getValue(), primaryVersion);
+            if (problem == null) {
+                routingDataSource.markUp(replica.getKey());
+            } else {
+                routingDataSource.markDown(replica.getKey(), problem);
+            }
+        }
+    }
+
+    /** A description of what is wrong with the replica, or null if it can serve reads. */
+    private String check(DataSource replica, Long primaryVersion) {
+        try (Connection connection = replica.getConnection()) {
+            if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                return "connection is not valid";
+            }
+            if (primaryVersion == null) {
+                return null;
+            }
+            Long replicaVersion = latestVersion(connection);
+            if (replicaVersion == null || replicaVersion < primaryVersion) {
+                return "at dataset version " + replicaVersion + ", primary is at " + primaryVersion;
+            }
+            return null;
+        } catch (SQLException e) {
+            return e.getMessage();
+        }
+    }
+
+    private Long latestVersion(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return latestVersion(connection);
+        }
+    }
+
+    private Long latestVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(LATEST_VERSION_SQL)) {
+            if (!resultSet.next()) {
+                return null;
+            }
+            long version = resultSet.getLong(1);
+            return resultSet.wasNull() ? 0L : version;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.efl.facilities.deadline;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Holds statements to the {@link RequestDeadline} of the calling thread: a
+ * cancelled request can't check out a connection or start a statement, each
+ * statement's query timeout is cut to the time left, and running statements
+ * are registered so cancelling the request cancels them in the database. A
+ * statement that fails because of that surfaces as
+ * {@link RequestCancelledException}, so the transaction rolls back and the
+ * connection goes back to the pool. Connections handed out with no deadline
+ * (startup, scheduled jobs, ingest) are returned as-is.
+ */
+public class DeadlineDataSource extends DelegatingDataSource {
+
+    private static final double MILLIS_PER_SECOND = 1000.0;
+
+    public DeadlineDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        RequestDeadline deadline = RequestDeadline.current();
+        if (deadline == null) {
+            return super.getConnection();
+        }
+        deadline.check();
+        Connection connection = super.getConnection();
+        return proxy(Connection.class, connection, new ConnectionHandler(connection, deadline));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        RequestDeadline deadline = RequestDeadline.current();
+        if (deadline == null) {
+            return super.getConnection(username, password);
+        }
+        deadline.check();
+        Connection connection = super.getConnection(username, password);
+        return proxy(Connection.class, connection, new ConnectionHandler(connection, deadline));
+    }
+
+    private static <T> T proxy(Class<T> type, T target, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(DeadlineDataSource.class.getClassLoader(), new Class<?>[] {type}, handler));
+    }
+
+    /**
+     * Calls the target, rethrowing what it threw rather than the reflection wrapper.
+     */
+    private static Object invoke(Object target, Method method, Object... args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * Proxies keep identity semantics, as in {@link com.efl.facilities.timing.TimingDataSource}.
+     */
+    private abstract static class Handler implements InvocationHandler {
+        private final Object target;
+
+        Handler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Deadline proxy for " + target;
+                default:
+                    return handle(target, method, args);
+            }
+        }
+
+        abstract Object handle(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    private static final class ConnectionHandler extends Handler {
+        private final RequestDeadline deadline;
+
+        ConnectionHandler(Connection target, RequestDeadline deadline) {
+            super(target);
+            this.deadline = deadline;
+        }
+
+        @Override
+        Object handle(Object target, Method method, Object[] args) throws Throwable {
+            Object result = DeadlineDataSource.invoke(target, method, args);
+            if (result instanceof CallableStatement statement) {
+                return proxy(CallableStatement.class, statement, new StatementHandler(statement, deadline));
+            }
+            if (result instanceof PreparedStatement statement) {
+                return proxy(PreparedStatement.class, statement, new StatementHandler(statement, deadline));
+            }
+            if (result instanceof Statement statement) {
+                return proxy(Statement.class, statement, new StatementHandler(statement, deadline));
+            }
+            return result;
+        }
+    }
+
+    private static final class StatementHandler extends Handler {
+        private final Statement statement;
+        private final RequestDeadline deadline;
+
+        StatementHandler(Statement target, RequestDeadline deadline) {
+            super(target);
+            this.statement = target;
+            this.deadline = deadline;
+            deadline.register(target);
+        }
+
+        @Override
+        Object handle(Object target, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                deadline.unregister(statement);
+                return DeadlineDataSource.invoke(target, method, args);
+            }
+            if (!name.startsWith("execute")) {
+                return DeadlineDataSource.invoke(target, method, args);
+            }
+
+            deadline.check();
+            boundQueryTimeout();
+            try {
+                return DeadlineDataSource.invoke(target, method, args);
+            } catch (SQLException e) {
+                if (!deadline.isCancelled() && !deadline.isExpired()) {
+                    throw e;
+                }
+                // Cancelled by us or timed out by the driver; either way the request is over
+                deadline.cancel(RequestDeadline.Reason.DEADLINE_EXCEEDED);
+                throw new RequestCancelledException(deadline, deadline.getCancelReason(), e);
+            }
+        }
+
+        // Query timeouts are whole seconds; round up so a statement is never cut short of the deadline
+        private void boundQueryTimeout() throws SQLException {
+            int seconds = (int) Math.max(1, Math.ceil(deadline.remainingMillis() / MILLIS_PER_SECOND));
+            int current = statement.getQueryTimeout();
+            if (current == 0 || current > seconds) {
+                statement.setQueryTimeout(seconds);
+            }
+        }
+    }
+}
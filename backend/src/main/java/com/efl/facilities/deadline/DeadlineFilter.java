@@ -0,0 +1,197 @@
+package com.efl.facilities.deadline;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/**
+ * Gives each facility, municipality and GraphQL request a {@link RequestDeadline}.
+ * A synchronous servlet request isn't told when its client goes away, so a
+ * disconnect is noticed the first time writing the response fails; the
+ * request is cancelled then, and the deadline bounds everything before it.
+ */
+@Component
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private DeadlineWatchdog deadlineWatchdog;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        if (uri.startsWith("/api/municipalities") || uri.startsWith("/graphql")) {
+            return false;
+        }
+        // The change stream is meant to stay open
+        return !uri.startsWith("/api/facilities") || uri.startsWith("/api/facilities/changes/stream");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestDeadline deadline = deadlineWatchdog.begin(request.getRequestURI());
+        try {
+            chain.doFilter(request, new DeadlineResponse(response, deadline));
+        } finally {
+            deadlineWatchdog.end(deadline);
+        }
+    }
+
+    /**
+     * Cancels the request when a write to the client fails.
+     */
+    private static final class DeadlineResponse extends HttpServletResponseWrapper {
+        private final RequestDeadline deadline;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        DeadlineResponse(HttpServletResponse response, RequestDeadline deadline) {
+            super(response);
+            this.deadline = deadline;
+        }
+
+        IOException disconnected(IOException e) {
+            deadline.cancel(RequestDeadline.Reason.CLIENT_DISCONNECTED);
+            return e;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new DeadlineOutputStream(super.getOutputStream(), this);
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                // Wrapped inside the PrintWriter, which would otherwise swallow the failure
+                writer = new PrintWriter(new DeadlineWriter(super.getWriter(), this));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            try {
+                super.flushBuffer();
+            } catch (IOException e) {
+                throw disconnected(e);
+            }
+        }
+    }
+
+    private static final class DeadlineOutputStream extends ServletOutputStream {
+        private final ServletOutputStream delegate;
+        private final DeadlineResponse response;
+
+        DeadlineOutputStream(ServletOutputStream delegate, DeadlineResponse response) {
+            this.delegate = delegate;
+            this.response = response;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            try {
+                delegate.write(b);
+            } catch (IOException e) {
+                throw response.disconnected(e);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                delegate.write(b, off, len);
+            } catch (IOException e) {
+                throw response.disconnected(e);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            try {
+                delegate.flush();
+            } catch (IOException e) {
+                throw response.disconnected(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                delegate.close();
+            } catch (IOException e) {
+                throw response.disconnected(e);
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+
+    private static final class DeadlineWriter extends FilterWriter {
+        private final DeadlineResponse response;
+
+        DeadlineWriter(Writer delegate, DeadlineResponse response) {
+            super(delegate);
+            this.response = response;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            try {
+                super.write(c);
+            } catch (IOException e) {
+                throw response.disconnected(e);
+            }
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            try {
+                super.write(cbuf, off, len);
+            } catch (IOException e) {
+                throw response.disconnected(e);
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            try {
+                super.write(str, off, len);
+            } catch (IOException e) {
+                throw response.disconnected(e);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            try {
+                super.flush();
+            } catch (IOException e) {
+                throw response.disconnected(e);
+            }
+        }
+    }
+}
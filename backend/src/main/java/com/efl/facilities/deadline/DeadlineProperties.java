@@ -0,0 +1,36 @@
+package com.efl.facilities.deadline;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Request deadlines, bound from efl.deadlines.default-ms and
+ * efl.deadlines.endpoints[&lt;path prefix&gt;]=&lt;ms&gt;. The longest matching
+ * prefix wins.
+ */
+@ConfigurationProperties(prefix = "efl.deadlines")
+public class DeadlineProperties {
+
+    private static final long DEFAULT_MS = 30_000;
+
+    private long defaultMs = DEFAULT_MS;
+    private Map<String, Long> endpoints = new LinkedHashMap<>();
+
+    public long getDefaultMs() {
+        return defaultMs;
+    }
+
+    public void setDefaultMs(long defaultMs) {
+        this.defaultMs = defaultMs;
+    }
+
+    public Map<String, Long> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(Map<String, Long> endpoints) {
+        this.endpoints = endpoints;
+    }
+}
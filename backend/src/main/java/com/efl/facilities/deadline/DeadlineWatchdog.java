@@ -0,0 +1,100 @@
+package com.efl.facilities.deadline;
+
+import com.efl.facilities.models.concurrency.DeadlineStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out request deadlines, cancels the ones that expire while their
+ * thread is blocked (in the database, say, where no checkpoint runs) and
+ * counts every cancellation.
+ */
+@Component
+@EnableConfigurationProperties(DeadlineProperties.class)
+public class DeadlineWatchdog {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DeadlineWatchdog.class);
+
+    static final String DEFAULT_ENDPOINT = "default";
+
+    private final DeadlineProperties properties;
+    private final List<String> prefixesLongestFirst;
+    private final Set<RequestDeadline> active = ConcurrentHashMap.newKeySet();
+    private final AtomicLong cancelledByDeadline = new AtomicLong();
+    private final AtomicLong cancelledByDisconnect = new AtomicLong();
+    private final Map<String, AtomicLong> cancelledByEndpoint = new ConcurrentHashMap<>();
+
+    public DeadlineWatchdog(DeadlineProperties properties) {
+        this.properties = properties;
+        this.prefixesLongestFirst = new ArrayList<>(properties.getEndpoints().keySet());
+        prefixesLongestFirst.sort(Comparator.comparingInt(String::length).reversed());
+    }
+
+    /**
+     * Start the deadline configured for this request path on the calling thread.
+     */
+    public RequestDeadline begin(String path) {
+        String endpoint = DEFAULT_ENDPOINT;
+        long timeoutMs = properties.getDefaultMs();
+        for (String prefix : prefixesLongestFirst) {
+            if (path.startsWith(prefix)) {
+                endpoint = prefix;
+                timeoutMs = properties.getEndpoints().get(prefix);
+                break;
+            }
+        }
+        RequestDeadline deadline = RequestDeadline.begin(endpoint, timeoutMs, this::cancelled);
+        active.add(deadline);
+        return deadline;
+    }
+
+    public void end(RequestDeadline deadline) {
+        RequestDeadline.clear();
+        active.remove(deadline);
+    }
+
+    @Scheduled(fixedDelayString = "${efl.deadlines.check-interval-ms:250}")
+    public void cancelExpired() {
+        for (RequestDeadline deadline : active) {
+            if (deadline.isExpired()) {
+                deadline.cancel(RequestDeadline.Reason.DEADLINE_EXCEEDED);
+            }
+        }
+    }
+
+    private void cancelled(RequestDeadline deadline) {
+        if (deadline.getCancelReason() == RequestDeadline.Reason.CLIENT_DISCONNECTED) {
+            cancelledByDisconnect.incrementAndGet();
+        } else {
+            cancelledByDeadline.incrementAndGet();
+        }
+        cancelledByEndpoint.computeIfAbsent(deadline.getEndpoint(), endpoint -> new AtomicLong()).incrementAndGet();
+        LOG.info("Cancelled {} request: {}", deadline.getEndpoint(), deadline.getCancelReason());
+    }
+
+    public DeadlineStatistics getStatistics() {
+        DeadlineStatistics statistics = new DeadlineStatistics();
+        statistics.setDefaultMs(properties.getDefaultMs());
+        statistics.setEndpointDeadlinesMs(new LinkedHashMap<>(properties.getEndpoints()));
+        statistics.setActiveRequests(active.size());
+        statistics.setCancelledByDeadline(cancelledByDeadline.get());
+        statistics.setCancelledByDisconnect(cancelledByDisconnect.get());
+        Map<String, Long> byEndpoint = new TreeMap<>();
+        cancelledByEndpoint.forEach((endpoint, count) -> byEndpoint.put(endpoint, count.get()));
+        statistics.setCancelledByEndpoint(byEndpoint);
+        return statistics;
+    }
+}
@@ -0,0 +1,37 @@
+package com.efl.facilities.deadline;
+
+/**
+ * Thrown at a checkpoint (or out of a cancelled statement) once the request
+ * has run out of time or its client has gone away.
+ */
+public class RequestCancelledException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient RequestDeadline deadline;
+    private final RequestDeadline.Reason reason;
+
+    public RequestCancelledException(RequestDeadline deadline, RequestDeadline.Reason reason) {
+        this(deadline, reason, null);
+    }
+
+    public RequestCancelledException(RequestDeadline deadline, RequestDeadline.Reason reason, Throwable cause) {
+        super(reason == RequestDeadline.Reason.DEADLINE_EXCEEDED
+                ? "Request exceeded its " + deadline.getTimeoutMs() + " ms deadline"
+                : "Client disconnected", cause);
+        this.deadline = deadline;
+        this.reason = reason;
+    }
+
+    public RequestDeadline.Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * Whether this cancellation belongs to the given request rather than to
+     * another one whose result it was waiting on.
+     */
+    public boolean isFor(RequestDeadline other) {
+        return deadline == other;
+    }
+}
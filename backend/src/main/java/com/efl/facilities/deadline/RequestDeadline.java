@@ -0,0 +1,169 @@
+package com.efl.facilities.deadline;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * How long one request may keep working, and whether it has been cancelled.
+ * Long-running code calls {@link #checkpoint()} between chunks of work;
+ * {@link DeadlineDataSource} bounds every statement by the time left and
+ * registers it here, so {@link #cancel} can stop a query that is already
+ * running. Unlike {@link com.efl.facilities.timing.RequestTiming} this is
+ * thread-safe: the watchdog and the response cancel it from other threads.
+ */
+public final class RequestDeadline {
+
+    public enum Reason {
+        DEADLINE_EXCEEDED,
+        CLIENT_DISCONNECTED
+    }
+
+    private static final ThreadLocal<RequestDeadline> CURRENT = new ThreadLocal<>();
+
+    private final String endpoint;
+    private final long timeoutMs;
+    private final long deadlineNanos;
+    private final Consumer<RequestDeadline> onCancel;
+    private final AtomicReference<Reason> cancelled = new AtomicReference<>();
+    private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+
+    private RequestDeadline(String endpoint, long timeoutMs, Consumer<RequestDeadline> onCancel) {
+        this.endpoint = endpoint;
+        this.timeoutMs = timeoutMs;
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        this.onCancel = onCancel;
+    }
+
+    /**
+     * Start a deadline for the request on this thread. onCancel runs once, on
+     * whichever thread cancels it.
+     */
+    public static RequestDeadline begin(String endpoint, long timeoutMs, Consumer<RequestDeadline> onCancel) {
+        RequestDeadline deadline = new RequestDeadline(endpoint, timeoutMs, onCancel);
+        CURRENT.set(deadline);
+        return deadline;
+    }
+
+    /**
+     * The deadline of the request on this thread, or null if there is none.
+     * Worker threads (parallel streams, fork/join) have none; capture it on
+     * the request thread and pass it to {@link #checkpoint(RequestDeadline)}.
+     */
+    public static RequestDeadline current() {
+        return CURRENT.get();
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Make the deadline this thread's, for a worker doing part of a request
+     * (a query against one shard, say) so its statements are bounded too.
+     * Returns the one it replaced, to restore once the work is done; null
+     * clears it.
+     */
+    public static RequestDeadline attach(RequestDeadline deadline) {
+        RequestDeadline previous = CURRENT.get();
+        if (deadline == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(deadline);
+        }
+        return previous;
+    }
+
+    /**
+     * Throws {@link RequestCancelledException} if the request on this thread
+     * has been cancelled or has run out of time.
+     */
+    public static void checkpoint() {
+        checkpoint(CURRENT.get());
+    }
+
+    public static void checkpoint(RequestDeadline deadline) {
+        if (deadline != null) {
+            deadline.check();
+        }
+    }
+
+    public void check() {
+        if (cancelled.get() == null && isExpired()) {
+            cancel(Reason.DEADLINE_EXCEEDED);
+        }
+        Reason reason = cancelled.get();
+        if (reason != null) {
+            throw new RequestCancelledException(this, reason);
+        }
+    }
+
+    /**
+     * Cancel the request and any statement it is running. Only the first
+     * cancellation counts; returns whether this was it.
+     */
+    public boolean cancel(Reason reason) {
+        if (!cancelled.compareAndSet(null, reason)) {
+            return false;
+        }
+        for (Statement statement : statements) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                // Already finished or closed; the request thread sees the flag at its next checkpoint
+            }
+        }
+        onCancel.accept(this);
+        return true;
+    }
+
+    void register(Statement statement) {
+        statements.add(statement);
+        if (cancelled.get() != null) {
+            // Lost a race with cancel(); make sure this one doesn't run unbounded either
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                // Not running yet; the check before execute stops it
+            }
+        }
+    }
+
+    void unregister(Statement statement) {
+        statements.remove(statement);
+    }
+
+    public boolean isExpired() {
+        return System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get() != null;
+    }
+
+    /**
+     * Why the request was cancelled, or null while it is still running.
+     */
+    public Reason getCancelReason() {
+        return cancelled.get();
+    }
+
+    public long remainingMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    /**
+     * The configured endpoint prefix the deadline came from, or "default".
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+}
@@ -0,0 +1,27 @@
+package com.efl.facilities.events;
+
+import java.time.Instant;
+
+/**
+ * Published once an ingest run has finished writing facilities, so that
+ * anything holding data derived from the previous dataset can drop or rebuild it.
+ */
+public class DatasetChangedEvent {
+
+    private final long version;
+    private final Instant changedAt;
+
+    public DatasetChangedEvent(long version, Instant changedAt) {
+        this.version = version;
+        this.changedAt = changedAt;
+    }
+
+    /** The dataset version now in the database (0 before the first recorded ingest). */
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getChangedAt() {
+        return changedAt;
+    }
+}
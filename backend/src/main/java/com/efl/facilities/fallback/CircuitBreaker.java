@@ -0,0 +1,103 @@
+package com.efl.facilities.fallback;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops calls to something that keeps failing. After failureThreshold
+ * failures in a row it opens and refuses every call for openMs; then it lets
+ * a single trial call through (half-open), closing again if that succeeds and
+ * reopening if it fails. Every call {@link #tryAcquire()} lets through must
+ * be followed by {@link #onSuccess()}, {@link #onFailure()} or
+ * {@link #onInconclusive()}.
+ */
+public class CircuitBreaker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private long rejected;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMs) {
+        this(name, failureThreshold, openMs, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, int failureThreshold, long openMs, LongSupplier nanoClock) {
+        this.name = name;
+        this.failureThreshold = Math.max(failureThreshold, 1);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+        this.nanoClock = nanoClock;
+    }
+
+    /** Whether a call may go ahead now. */
+    public synchronized boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            return true;
+        }
+        // Open, or a trial call is already out
+        rejected++;
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            LOG.info("Circuit {} closed again", name);
+        }
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    public synchronized void onFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || state == State.CLOSED && failures >= failureThreshold) {
+            LOG.warn("Circuit {} open for {} ms after {} failures in a row", name,
+                    TimeUnit.NANOSECONDS.toMillis(openNanos), failures);
+            state = State.OPEN;
+            openedAt = nanoClock.getAsLong();
+        }
+    }
+
+    /**
+     * The call failed in a way that says nothing about whether the thing
+     * behind the breaker works. The run of failures neither grows nor
+     * resets, and a trial call that ends this way lets another trial through.
+     */
+    public synchronized void onInconclusive() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /** Calls refused while open or half-open. */
+    public synchronized long getRejected() {
+        return rejected;
+    }
+}
@@ -0,0 +1,118 @@
+package com.efl.facilities.fallback;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Checks connections out through a {@link CircuitBreaker}. Once the pool has
+ * failed to connect to the database several times in a row, callers fail at
+ * once instead of each waiting out the pool's connection-timeout against a
+ * database that is down, and a single caller at a time probes whether it is
+ * back.
+ *
+ * Only connection failures count. When every connection is busy, Hikari times
+ * the wait out with a SQLTransientConnectionException that has no cause; when
+ * the database is unreachable, the timeout carries the driver's last
+ * connection error, with a SQLState in class 08.
+ */
+public class CircuitBreakerDataSource extends DelegatingDataSource implements Closeable {
+
+    // SQL-client unable to establish connection; Hibernate and Spring translate it as a connection failure
+    private static final String SQL_STATE_CANNOT_CONNECT = "08001";
+    private static final String SQL_STATE_CLASS_CONNECTION = "08";
+
+    private final CircuitBreaker breaker;
+
+    public CircuitBreakerDataSource(DataSource targetDataSource, CircuitBreaker breaker) {
+        super(targetDataSource);
+        this.breaker = breaker;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        boolean connected = false;
+        SQLException failure = null;
+        try {
+            Connection connection = super.getConnection();
+            connected = true;
+            return connection;
+        } catch (SQLException e) {
+            failure = e;
+            throw e;
+        } finally {
+            release(connected, failure);
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        boolean connected = false;
+        SQLException failure = null;
+        try {
+            Connection connection = super.getConnection(username, password);
+            connected = true;
+            return connection;
+        } catch (SQLException e) {
+            failure = e;
+            throw e;
+        } finally {
+            release(connected, failure);
+        }
+    }
+
+    private void acquire() throws SQLTransientConnectionException {
+        if (!breaker.tryAcquire()) {
+            throw new SQLTransientConnectionException(
+                    "Circuit " + breaker.getName() + " is open; not waiting for a connection", SQL_STATE_CANNOT_CONNECT);
+        }
+    }
+
+    /**
+     * @param failure what the pool threw, or null if it connected or threw something other than a SQLException
+     */
+    private void release(boolean connected, SQLException failure) {
+        if (connected) {
+            breaker.onSuccess();
+        } else if (failure == null || isConnectionFailure(failure)) {
+            breaker.onFailure();
+        } else {
+            breaker.onInconclusive();
+        }
+    }
+
+    /**
+     * Whether the failure, or anything behind it, is a connection exception
+     * (SQLState class 08), or is any other SQLException than a pool or
+     * statement timeout.
+     */
+    static boolean isConnectionFailure(SQLException failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && sql.getSQLState() != null
+                    && sql.getSQLState().startsWith(SQL_STATE_CLASS_CONNECTION)) {
+                return true;
+            }
+        }
+        return !(failure instanceof SQLTransientConnectionException || failure instanceof SQLTimeoutException);
+    }
+
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    /** Closes the pool underneath, as the routing datasource would have without this wrapper. */
+    @Override
+    public void close() throws IOException {
+        if (getTargetDataSource() instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+}
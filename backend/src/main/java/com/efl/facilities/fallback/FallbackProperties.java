@@ -0,0 +1,92 @@
+package com.efl.facilities.fallback;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Stale-while-revalidate and circuit breaker settings, bound from efl.fallback.*.
+ */
+@ConfigurationProperties(prefix = "efl.fallback")
+public class FallbackProperties {
+
+    private static final long DEFAULT_REFRESH_AFTER_MS = 30_000;
+    private static final long DEFAULT_MAX_STALE_MS = 24 * 60 * 60 * 1000L;
+    private static final int DEFAULT_MAX_ENTRIES = 10_000;
+    private static final int DEFAULT_REFRESH_THREADS = 2;
+
+    /** How old a stored answer may get before a call refreshes it in the background. */
+    private long refreshAfterMs = DEFAULT_REFRESH_AFTER_MS;
+    /** Stored answers older than this are never served, not even during an outage. */
+    private long maxStaleMs = DEFAULT_MAX_STALE_MS;
+    /** Answers kept, least recently used dropped first. */
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private int refreshThreads = DEFAULT_REFRESH_THREADS;
+    private Breaker breaker = new Breaker();
+
+    public long getRefreshAfterMs() {
+        return refreshAfterMs;
+    }
+
+    public void setRefreshAfterMs(long refreshAfterMs) {
+        this.refreshAfterMs = refreshAfterMs;
+    }
+
+    public long getMaxStaleMs() {
+        return maxStaleMs;
+    }
+
+    public void setMaxStaleMs(long maxStaleMs) {
+        this.maxStaleMs = maxStaleMs;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public int getRefreshThreads() {
+        return refreshThreads;
+    }
+
+    public void setRefreshThreads(int refreshThreads) {
+        this.refreshThreads = refreshThreads;
+    }
+
+    public Breaker getBreaker() {
+        return breaker;
+    }
+
+    public void setBreaker(Breaker breaker) {
+        this.breaker = breaker;
+    }
+
+    /**
+     * The breaker on the primary pool's connections.
+     */
+    public static class Breaker {
+
+        private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+        private static final long DEFAULT_OPEN_MS = 10_000;
+
+        private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+        private long openMs = DEFAULT_OPEN_MS;
+
+        public int getFailureThreshold() {
+            return failureThreshold;
+        }
+
+        public void setFailureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+        }
+
+        public long getOpenMs() {
+            return openMs;
+        }
+
+        public void setOpenMs(long openMs) {
+            this.openMs = openMs;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.efl.facilities.fallback;
+
+import com.efl.facilities.concurrency.BulkheadFullException;
+import com.efl.facilities.events.DatasetChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The last good result of each {@link ServeStale} call, by key, so that
+ * callers needn't wait on the database for an answer it already gave.
+ *
+ * An answer stored since the last dataset change is returned at once; once
+ * it is older than refresh-after, that call also starts a background refresh
+ * (one per key at a time) and the answer is marked stale. After a dataset
+ * change stored answers are only a fallback: the next call loads afresh, and
+ * gets the old answer only if the database can't be reached or its bulkhead
+ * is full. Answers older than max-stale are never served.
+ *
+ * Caches keyed by the current dataset version must not keep what they build
+ * from such an old answer, or it would outlive the outage. They compare
+ * {@link #earlierVersionsServed()} before and after building an entry.
+ */
+@Component
+public class LastGoodResults implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LastGoodResults.class);
+
+    // Answers from before the last dataset change served on each thread
+    private static final ThreadLocal<long[]> EARLIER_VERSIONS_SERVED = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * What a call gets: the value and, if it came from the store rather than
+     * the database just now, how old it is, whether it is stale or failed to
+     * refresh, and whether it is from before the last dataset change.
+     */
+    public record Served(Object value, long ageMillis, boolean stale, boolean revalidationFailed,
+                         boolean earlierVersion) {
+
+        static Served loaded(Object value) {
+            return new Served(value, -1, false, false, false);
+        }
+
+        public boolean isStored() {
+            return ageMillis >= 0;
+        }
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long storedAt;
+        private final long generation;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile boolean revalidationFailed;
+
+        Entry(Object value, long storedAt, long generation) {
+            this.value = value;
+            this.storedAt = storedAt;
+            this.generation = generation;
+        }
+    }
+
+    private final long refreshAfterNanos;
+    private final long maxStaleNanos;
+    private final Map<Object, Entry> entries;
+    private final ExecutorService refresher;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+
+    public LastGoodResults(FallbackProperties properties) {
+        this.refreshAfterNanos = TimeUnit.MILLISECONDS.toNanos(properties.getRefreshAfterMs());
+        this.maxStaleNanos = TimeUnit.MILLISECONDS.toNanos(properties.getMaxStaleMs());
+        int maxEntries = properties.getMaxEntries();
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        });
+        AtomicInteger threads = new AtomicInteger();
+        this.refresher = Executors.newFixedThreadPool(Math.max(properties.getRefreshThreads(), 1), task -> {
+            Thread thread = new Thread(task, "stale-refresh-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs before the caches rebuild, so nothing they load is served from
+     * before the change.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * The stored answer for the key, or a new one from load.
+     *
+     * @throws RuntimeException what load threw, if there is no answer to fall back on or it failed for
+     *                          another reason than the database being unreachable or busy
+     */
+    public Served serve(Object key, Supplier<Object> load) {
+        long current = generation.get();
+        long now = System.nanoTime();
+        Entry entry = entries.get(key);
+        if (entry != null && now - entry.storedAt > maxStaleNanos) {
+            entry = null;
+        }
+        if (entry != null && entry.generation == current) {
+            long age = now - entry.storedAt;
+            boolean stale = age >= refreshAfterNanos;
+            if (stale) {
+                refreshInBackground(key, entry, load);
+            }
+            return new Served(entry.value, TimeUnit.NANOSECONDS.toMillis(age), stale, entry.revalidationFailed,
+                    false);
+        }
+
+        try {
+            Object value = load.get();
+            store(key, value, current);
+            return Served.loaded(value);
+        } catch (RuntimeException e) {
+            if (entry == null || !isUnavailable(e)) {
+                throw e;
+            }
+            fallbacks.incrementAndGet();
+            EARLIER_VERSIONS_SERVED.get()[0]++;
+            LOG.debug("Serving the last good answer for {}: {}", key, e.getMessage());
+            return new Served(entry.value, TimeUnit.NANOSECONDS.toMillis(now - entry.storedAt), true, true, true);
+        }
+    }
+
+    private void refreshInBackground(Object key, Entry entry, Supplier<Object> load) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    store(key, load.get(), entry.generation);
+                } catch (RuntimeException e) {
+                    if (!entry.revalidationFailed) {
+                        LOG.warn("Could not refresh {}; serving the last good answer: {}", key, e.getMessage());
+                    }
+                    entry.revalidationFailed = true;
+                    refreshFailures.incrementAndGet();
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            entry.refreshing.set(false);
+        }
+    }
+
+    private void store(Object key, Object value, long loadedGeneration) {
+        synchronized (entries) {
+            Entry existing = entries.get(key);
+            // A slow refresh mustn't replace what was loaded after a dataset change
+            if (existing == null || existing.generation <= loadedGeneration) {
+                entries.put(key, new Entry(value, System.nanoTime(), loadedGeneration));
+            }
+        }
+    }
+
+    /** Failures that mean the database can't answer right now, rather than that the call is wrong. */
+    static boolean isUnavailable(RuntimeException e) {
+        return e instanceof DataAccessException || e instanceof TransactionException
+                || e instanceof BulkheadFullException;
+    }
+
+    /**
+     * How many answers from before the last dataset change the current thread
+     * has been served. If it went up while an entry was built, the entry may
+     * reflect the earlier version and must not be stored under the current one.
+     */
+    public static long earlierVersionsServed() {
+        return EARLIER_VERSIONS_SERVED.get()[0];
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /** Calls answered from the store because loading failed. */
+    public long getFallbacks() {
+        return fallbacks.get();
+    }
+
+    public long getRefreshFailures() {
+        return refreshFailures.get();
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+}
@@ -0,0 +1,16 @@
+package com.efl.facilities.fallback;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The annotated method's last good result is kept per argument list and
+ * served while it is refreshed, or when the database can't be reached (see
+ * {@link LastGoodResults}). Only for side-effect-free reads.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ServeStale {
+}
@@ -0,0 +1,89 @@
+package com.efl.facilities.fallback;
+
+import com.efl.facilities.web.FacilityJsonHttpMessageConverter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Answers {@link ServeStale} methods through {@link LastGoodResults}, keyed on
+ * the method and its arguments, and says so on the current response: Age for
+ * an answer that wasn't loaded just now, plus a Warning when it is stale (110)
+ * or the database couldn't be reached to refresh it (111). Runs outside
+ * CoalescingAspect and BulkheadAspect, so a stored answer costs neither.
+ *
+ * An answer from before the last dataset change also keeps the request's
+ * facilities out of the JSON fragment cache, which already holds the new
+ * version's fragments.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+public class StaleWhileRevalidateAspect {
+
+    public static final String WARNING_HEADER = "Warning";
+    static final String STALE = "110 - \"Response is Stale\"";
+    static final String REVALIDATION_FAILED = "111 - \"Revalidation Failed\"";
+
+    private final LastGoodResults results;
+
+    public StaleWhileRevalidateAspect(LastGoodResults results) {
+        this.results = results;
+    }
+
+    @Around("@annotation(com.efl.facilities.fallback.ServeStale)")
+    public Object serve(ProceedingJoinPoint joinPoint) {
+        List<Object> key = Arrays.asList(joinPoint.getSignature().toLongString(),
+                Arrays.asList(joinPoint.getArgs()));
+        // proceed() clones the invocation, so a background refresh can run it on another thread
+        LastGoodResults.Served served = results.serve(key, () -> proceed(joinPoint));
+        if (served.earlierVersion()) {
+            FacilityJsonHttpMessageConverter.bypassCache();
+        }
+        if (served.isStored()
+                && RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                && attributes.getResponse() != null) {
+            describe(attributes.getResponse(), served);
+        }
+        return served.value();
+    }
+
+    static void describe(HttpServletResponse response, LastGoodResults.Served served) {
+        response.setHeader(HttpHeaders.AGE, Long.toString(served.ageMillis() / 1000));
+        if (served.stale()) {
+            addWarning(response, STALE);
+        }
+        if (served.revalidationFailed()) {
+            addWarning(response, REVALIDATION_FAILED);
+        }
+    }
+
+    // A request may read several stored answers; each warning is given once
+    private static void addWarning(HttpServletResponse response, String warning) {
+        if (!response.getHeaders(WARNING_HEADER).contains(warning)) {
+            response.addHeader(WARNING_HEADER, warning);
+        }
+    }
+
+    // proceed() declares Throwable; unchecked ones pass through, anything else is wrapped
+    @SuppressWarnings("PMD.AvoidCatchingThrowable")
+    private static Object proceed(ProceedingJoinPoint joinPoint) {
+        try {
+            return joinPoint.proceed();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.efl.facilities.graphql;
+
+import graphql.schema.DataFetchingFieldSelectionSet;
+import graphql.schema.SelectedField;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The educational_facility column behind each field of the GraphQL Facility
+ * type. A query reads only the columns for the fields it selects, and only
+ * columns listed here ever reach the SQL.
+ */
+public final class FacilityColumns {
+
+    public static final String ID = "id";
+    public static final String SUBDIVISION_ID = "census_subdivision_id";
+    public static final String PROVINCE = "province";
+
+    private static final Map<String, String> COLUMN_BY_FIELD = Stream.of(
+            "id", "uniqueId", "facilityName", "facilityType", "authorityName", "address", "unit",
+            "postalCode", "municipalityName", "province", "sourceId", "minGrade", "maxGrade",
+            "languageMinorityStatus", "frenchImmersion", "earlyImmersion", "middleImmersion",
+            "lateImmersion", "censusSubdivisionName", "censusSubdivisionId", "geometry",
+            "longitude", "latitude", "dateUpdated"
+    ).collect(Collectors.toUnmodifiableMap(Function.identity(), FacilityColumns::snakeCase));
+
+    private static final Set<String> COLUMNS = Set.copyOf(COLUMN_BY_FIELD.values());
+
+    private FacilityColumns() {
+    }
+
+    /**
+     * The columns for the Facility fields in the selection, id always first.
+     * Fields that aren't columns (such as nested objects) are skipped.
+     */
+    public static Set<String> forSelection(DataFetchingFieldSelectionSet selection) {
+        Set<String> columns = new LinkedHashSet<>();
+        columns.add(ID);
+        for (SelectedField field : selection.getImmediateFields()) {
+            String column = COLUMN_BY_FIELD.get(field.getName());
+            if (column != null) {
+                columns.add(column);
+            }
+        }
+        return columns;
+    }
+
+    /** The column for a Facility field, or null if it isn't one. */
+    public static String forField(String field) {
+        return COLUMN_BY_FIELD.get(field);
+    }
+
+    /**
+     * @throws IllegalArgumentException if any of them isn't a facility column
+     */
+    public static void check(Collection<String> columns) {
+        for (String column : columns) {
+            if (!COLUMNS.contains(column)) {
+                throw new IllegalArgumentException("Not a facility column: " + column);
+            }
+        }
+    }
+
+    private static String snakeCase(String field) {
+        return field.replaceAll("([A-Z])", "_$1").toLowerCase(Locale.ROOT);
+    }
+}
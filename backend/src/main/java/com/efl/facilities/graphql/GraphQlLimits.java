@@ -0,0 +1,82 @@
+package com.efl.facilities.graphql;
+
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.analysis.FieldComplexityCalculator;
+import graphql.analysis.MaxQueryComplexityInstrumentation;
+import graphql.analysis.MaxQueryDepthInstrumentation;
+import graphql.execution.instrumentation.Instrumentation;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLList;
+import graphql.schema.GraphQLNonNull;
+import graphql.schema.GraphQLType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.graphql.execution.DataFetcherExceptionResolver;
+import org.springframework.graphql.execution.DataFetcherExceptionResolverAdapter;
+import org.springframework.graphql.execution.ErrorType;
+
+/**
+ * Limits that keep one GraphQL request from tying up the connection pool.
+ * Queries nested deeper than efl.graphql.max-depth, or whose estimated cost
+ * is over efl.graphql.max-complexity, are rejected before anything runs.
+ * A field costs one plus its children's cost, which for a list counts once
+ * per expected element: {@code first} where the field takes it, otherwise
+ * {@link #ASSUMED_LIST_SIZE}. Every root list pages with {@code first}, so
+ * only nested lists such as Municipality.facilities are priced by the
+ * assumption.
+ */
+@Configuration
+public class GraphQlLimits {
+
+    static final int ASSUMED_LIST_SIZE = 10;
+    // Far above any sensible limit, and low enough that graphql-java's sums of siblings can't overflow
+    private static final long MAX_FIELD_COMPLEXITY = 1 << 24;
+
+    @Bean
+    public Instrumentation maxQueryDepthInstrumentation(@Value("${efl.graphql.max-depth:6}") int maxDepth) {
+        return new MaxQueryDepthInstrumentation(maxDepth);
+    }
+
+    @Bean
+    public Instrumentation maxQueryComplexityInstrumentation(
+            @Value("${efl.graphql.max-complexity:50000}") int maxComplexity) {
+        return new MaxQueryComplexityInstrumentation(maxComplexity, complexityCalculator());
+    }
+
+    /**
+     * Bad arguments are the client's error, not an internal one.
+     */
+    @Bean
+    public DataFetcherExceptionResolver badArgumentResolver() {
+        return new DataFetcherExceptionResolverAdapter() {
+            @Override
+            protected GraphQLError resolveToSingleError(Throwable ex, DataFetchingEnvironment env) {
+                if (!(ex instanceof IllegalArgumentException)) {
+                    return null;
+                }
+                return GraphqlErrorBuilder.newError(env)
+                        .errorType(ErrorType.BAD_REQUEST)
+                        .message(ex.getMessage())
+                        .build();
+            }
+        };
+    }
+
+    static FieldComplexityCalculator complexityCalculator() {
+        return (environment, childComplexity) -> {
+            if (!isList(environment.getFieldDefinition().getType())) {
+                return 1 + childComplexity;
+            }
+            Object first = environment.getArguments().get("first");
+            int size = first instanceof Integer n ? Math.max(n, 1) : ASSUMED_LIST_SIZE;
+            return (int) Math.min(1 + (long) childComplexity * size, MAX_FIELD_COMPLEXITY);
+        };
+    }
+
+    private static boolean isList(GraphQLType type) {
+        GraphQLType unwrapped = type instanceof GraphQLNonNull nonNull ? nonNull.getWrappedType() : type;
+        return unwrapped instanceof GraphQLList;
+    }
+}
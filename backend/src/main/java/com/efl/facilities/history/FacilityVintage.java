@@ -0,0 +1,144 @@
+package com.efl.facilities.history;
+
+import com.efl.facilities.models.Facility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every facility as of one dataset version, keyed by uniqueId.
+ *
+ * Facilities are spread over a fixed number of small buckets by hash. Deriving
+ * the next version with {@link #apply} copies only the bucket table and the
+ * buckets the change touches; every other bucket (and every facility object)
+ * is shared with the previous version. Keeping N versions therefore costs one
+ * full copy plus, per version, the table and the changed buckets.
+ *
+ * Immutable once built, and so are the facilities in it.
+ */
+public final class FacilityVintage {
+
+    private static final int BUCKET_BITS = 10;
+    private static final int BUCKET_COUNT = 1 << BUCKET_BITS;
+    private static final Facility[] EMPTY = new Facility[0];
+    private static final Comparator<Facility> BY_ID =
+            Comparator.comparing(Facility::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final long version;
+    private final Facility[][] buckets;
+    private final int size;
+
+    private FacilityVintage(long version, Facility[][] buckets, int size) {
+        this.version = version;
+        this.buckets = buckets;
+        this.size = size;
+    }
+
+    /** A vintage holding the given facilities; later ones win for a repeated uniqueId. */
+    public static FacilityVintage of(long version, Collection<Facility> facilities) {
+        Facility[][] buckets = new Facility[BUCKET_COUNT][];
+        Arrays.fill(buckets, EMPTY);
+        return new FacilityVintage(version, buckets, 0).apply(version, facilities, List.of());
+    }
+
+    /**
+     * The next vintage: this one with the given facilities inserted or
+     * replaced and the given uniqueIds removed. A uniqueId both upserted and
+     * deleted ends up upserted.
+     */
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops") // one rebuilt bucket per touched bucket
+    public FacilityVintage apply(long nextVersion, Collection<Facility> upserted, Collection<String> deleted) {
+        Map<Integer, Map<String, Facility>> touched = new HashMap<>();
+        for (String uniqueId : deleted) {
+            bucketCopy(touched, uniqueId).remove(uniqueId);
+        }
+        for (Facility facility : upserted) {
+            bucketCopy(touched, facility.getUniqueId()).put(facility.getUniqueId(), facility);
+        }
+
+        Facility[][] next = buckets.clone();
+        int nextSize = size;
+        for (Map.Entry<Integer, Map<String, Facility>> entry : touched.entrySet()) {
+            int bucket = entry.getKey();
+            nextSize += entry.getValue().size() - buckets[bucket].length;
+            next[bucket] = entry.getValue().values().toArray(EMPTY);
+        }
+        return new FacilityVintage(nextVersion, next, nextSize);
+    }
+
+    // The contents of the uniqueId's bucket as a mutable map, copied on first touch
+    private Map<String, Facility> bucketCopy(Map<Integer, Map<String, Facility>> touched, String uniqueId) {
+        return touched.computeIfAbsent(bucketOf(uniqueId), bucket -> {
+            Map<String, Facility> copy = new HashMap<>();
+            for (Facility facility : buckets[bucket]) {
+                copy.put(facility.getUniqueId(), facility);
+            }
+            return copy;
+        });
+    }
+
+    private static int bucketOf(String uniqueId) {
+        // Fibonacci hashing spreads similar ids ("SCH-001", "SCH-002") over the top bits
+        return (uniqueId == null ? 0 : uniqueId.hashCode() * 0x9E3779B9) >>> (Integer.SIZE - BUCKET_BITS);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** The facility with this uniqueId, or null. */
+    public Facility get(String uniqueId) {
+        for (Facility facility : buckets[bucketOf(uniqueId)]) {
+            if (facility.getUniqueId() == null ? uniqueId == null : facility.getUniqueId().equals(uniqueId)) {
+                return facility;
+            }
+        }
+        return null;
+    }
+
+    /** The facility with this id, or null. A scan, since vintages are keyed by uniqueId. */
+    public Facility getById(Long id) {
+        for (Facility[] bucket : buckets) {
+            for (Facility facility : bucket) {
+                if (id.equals(facility.getId())) {
+                    return facility;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Every facility, ordered by id like a table scan. */
+    public List<Facility> toList() {
+        List<Facility> all = new ArrayList<>(size);
+        for (Facility[] bucket : buckets) {
+            all.addAll(Arrays.asList(bucket));
+        }
+        all.sort(BY_ID);
+        return all;
+    }
+
+    /** How many buckets this vintage shares with another, out of {@link #bucketCount()}. */
+    public int sharedBuckets(FacilityVintage other) {
+        int shared = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (buckets[i] == other.buckets[i]) {
+                shared++;
+            }
+        }
+        return shared;
+    }
+
+    public static int bucketCount() {
+        return BUCKET_COUNT;
+    }
+}
@@ -0,0 +1,30 @@
+package com.efl.facilities.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One FacilityService call, from before coalescing and the bulkhead to the
+ * answer, so waits show up in the duration.
+ */
+@Name("com.efl.FacilityQuery")
+@Label("Facility Query")
+@Category({"EFL", "Facilities"})
+@Description("A FacilityService call")
+@StackTrace(false)
+public class FacilityQueryEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Argument")
+    String argument;
+
+    @Label("Rows")
+    @Description("Facilities returned; -1 if the call failed")
+    int rows;
+}
@@ -0,0 +1,72 @@
+package com.efl.facilities.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One validation pass over the facility table, with its issue counts by type
+ * and the time spent in each phase. Coalesced callers share one event.
+ */
+@Name("com.efl.FacilityValidation")
+@Label("Facility Validation")
+@Category({"EFL", "Facilities"})
+@Description("A full validation pass")
+@StackTrace(false)
+public class FacilityValidationEvent extends Event {
+
+    @Label("Records")
+    int records;
+
+    @Label("Missing Field Issues")
+    int missingFieldIssues;
+
+    @Label("Duplicate Unique Id Issues")
+    int duplicateUniqueIdIssues;
+
+    @Label("Invalid Province Issues")
+    int invalidProvinceIssues;
+
+    @Label("Invalid Coordinate Issues")
+    int invalidCoordinateIssues;
+
+    @Label("Near Duplicates")
+    int nearDuplicates;
+
+    @Label("Duplicate Count Pass")
+    @Timespan(Timespan.NANOSECONDS)
+    long duplicateCountPass;
+
+    @Label("Rule Pass")
+    @Timespan(Timespan.NANOSECONDS)
+    long rulePass;
+
+    @Label("Near Duplicate Pass")
+    @Timespan(Timespan.NANOSECONDS)
+    long nearDuplicatePass;
+
+    public void setRecords(int records) {
+        this.records = records;
+    }
+
+    public void setIssues(int missingField, int duplicateUniqueId, int invalidProvince, int invalidCoordinate) {
+        this.missingFieldIssues = missingField;
+        this.duplicateUniqueIdIssues = duplicateUniqueId;
+        this.invalidProvinceIssues = invalidProvince;
+        this.invalidCoordinateIssues = invalidCoordinate;
+    }
+
+    public void setNearDuplicates(int nearDuplicates) {
+        this.nearDuplicates = nearDuplicates;
+    }
+
+    public void setPhases(long duplicateCountPassNanos, long rulePassNanos, long nearDuplicatePassNanos) {
+        this.duplicateCountPass = duplicateCountPassNanos;
+        this.rulePass = rulePassNanos;
+        this.nearDuplicatePass = nearDuplicatePassNanos;
+    }
+}
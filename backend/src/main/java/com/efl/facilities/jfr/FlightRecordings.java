@@ -0,0 +1,92 @@
+package com.efl.facilities.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * A flight recording kept running from startup with the JDK's "default"
+ * settings (made to stay on in production) plus the EFL events, holding the
+ * last efl.jfr.max-age-minutes of data up to efl.jfr.max-size-mb. A dump is
+ * a snapshot of everything the JVM is recording, so it also includes any
+ * recording started with -XX:StartFlightRecording.
+ */
+@Component
+public class FlightRecordings {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FlightRecordings.class);
+
+    private static final long BYTES_PER_MB = 1024L * 1024;
+
+    private final boolean enabled;
+    private final Duration maxAge;
+    private final long maxSizeBytes;
+
+    public FlightRecordings(
+            @Value("${efl.jfr.enabled:true}") boolean enabled,
+            @Value("${efl.jfr.max-age-minutes:60}") long maxAgeMinutes,
+            @Value("${efl.jfr.max-size-mb:100}") long maxSizeMb
+    ) {
+        this.enabled = enabled;
+        this.maxAge = Duration.ofMinutes(maxAgeMinutes);
+        this.maxSizeBytes = maxSizeMb * BYTES_PER_MB;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnStartup() {
+        if (!enabled || !FlightRecorder.isAvailable()) {
+            return;
+        }
+        try {
+            Recording recording = new Recording(Configuration.getConfiguration("default"));
+            recording.setName("efl");
+            recording.setToDisk(true);
+            recording.setMaxAge(maxAge);
+            recording.setMaxSize(maxSizeBytes);
+            recording.enable(FacilityQueryEvent.class);
+            recording.enable(FacilityValidationEvent.class);
+            recording.enable(GeoJsonServedEvent.class);
+            recording.start();
+            LOG.info("Started flight recording: last {} minutes, at most {} MB", maxAge.toMinutes(),
+                    maxSizeBytes / BYTES_PER_MB);
+        } catch (IOException | ParseException | IllegalStateException e) {
+            // A JVM without flight recording (some native images) still serves requests
+            LOG.warn("Could not start the flight recording: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Write what is recorded so far to a new temporary .jfr file, which the
+     * caller deletes. Null when nothing is being recorded.
+     */
+    public Path dump() throws IOException {
+        if (!FlightRecorder.isAvailable()) {
+            return null;
+        }
+        try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot()) {
+            if (snapshot.getSize() == 0) {
+                return null;
+            }
+            Path file = Files.createTempFile("efl-", ".jfr");
+            try {
+                snapshot.dump(file);
+            } catch (IOException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            return file;
+        }
+    }
+}
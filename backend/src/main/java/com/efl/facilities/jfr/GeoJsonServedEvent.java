@@ -0,0 +1,43 @@
+package com.efl.facilities.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One GeoJSON response: the municipality boundaries or catchment polygons.
+ * A cache hit is a body that existed before the request (the whole
+ * boundaries file, or a catchment map already built); filtered boundaries
+ * are assembled per request and never hit.
+ */
+@Name("com.efl.GeoJsonServed")
+@Label("GeoJSON Served")
+@Category({"EFL", "GeoJSON"})
+@Description("A GeoJSON response")
+@StackTrace(false)
+public class GeoJsonServedEvent extends Event {
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Query")
+    String query;
+
+    @Label("Bytes")
+    @DataAmount(DataAmount.BYTES)
+    long bytes;
+
+    @Label("Cache Hit")
+    boolean cacheHit;
+
+    public void setServed(String endpoint, String query, long bytes, boolean cacheHit) {
+        this.endpoint = endpoint;
+        this.query = query;
+        this.bytes = bytes;
+        this.cacheHit = cacheHit;
+    }
+}
@@ -0,0 +1,123 @@
+package com.efl.facilities.markers;
+
+import com.efl.facilities.models.Facility;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the map needs to draw facility markers, packed column by column so a
+ * browser can read each column as a typed array over the response buffer
+ * without copying. Little-endian throughout, every column 4-byte aligned:
+ *
+ * <pre>
+ * header   int32 magic "EFLM", int32 format, uint32 dataset version, uint32 count
+ * lat      float32[count]
+ * lon      float32[count]
+ * id       int32[count]
+ * flags    uint8[count], bit set when the facility's field is true (see FLAG_*)
+ * </pre>
+ *
+ * float32 keeps positions to about a metre, which is plenty for a marker.
+ * Facilities without coordinates are left out.
+ */
+public final class FacilityMarkers {
+
+    public static final String MEDIA_TYPE = "application/vnd.efl.facility-markers";
+
+    static final int MAGIC = 0x4D4C4645; // "EFLM" in little-endian byte order
+    static final int FORMAT = 1;
+    static final int HEADER_SIZE = 16;
+
+    public static final int FLAG_FRENCH_IMMERSION = 1;
+    public static final int FLAG_LANGUAGE_MINORITY = 1 << 1;
+    public static final int FLAG_EARLY_IMMERSION = 1 << 2;
+    public static final int FLAG_MIDDLE_IMMERSION = 1 << 3;
+    public static final int FLAG_LATE_IMMERSION = 1 << 4;
+
+    private final long datasetVersion;
+    private final int count;
+    private final byte[] bytes;
+
+    private FacilityMarkers(long datasetVersion, int count, byte[] bytes) {
+        this.datasetVersion = datasetVersion;
+        this.count = count;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Pack the given facilities, in order.
+     *
+     * @throws ArithmeticException if a facility id doesn't fit in an int32
+     */
+    public static FacilityMarkers encode(long datasetVersion, List<Facility> facilities) {
+        List<Facility> located = new ArrayList<>(facilities.size());
+        for (Facility facility : facilities) {
+            if (facility.getLatitude() != null && facility.getLongitude() != null) {
+                located.add(facility);
+            }
+        }
+        int count = located.size();
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + count * (3 * Integer.BYTES + 1))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(FORMAT).putInt((int) datasetVersion).putInt(count);
+
+        int latitudes = HEADER_SIZE;
+        int longitudes = latitudes + count * Float.BYTES;
+        int ids = longitudes + count * Float.BYTES;
+        int flags = ids + count * Integer.BYTES;
+        for (int i = 0; i < count; i++) {
+            Facility facility = located.get(i);
+            buffer.putFloat(latitudes + i * Float.BYTES, facility.getLatitude().floatValue());
+            buffer.putFloat(longitudes + i * Float.BYTES, facility.getLongitude().floatValue());
+            buffer.putInt(ids + i * Integer.BYTES, Math.toIntExact(facility.getId()));
+            buffer.put(flags + i, flags(facility));
+        }
+        return new FacilityMarkers(datasetVersion, count, buffer.array());
+    }
+
+    private static byte flags(Facility facility) {
+        int flags = 0;
+        if (Boolean.TRUE.equals(facility.getFrenchImmersion())) {
+            flags |= FLAG_FRENCH_IMMERSION;
+        }
+        if (Boolean.TRUE.equals(facility.getLanguageMinorityStatus())) {
+            flags |= FLAG_LANGUAGE_MINORITY;
+        }
+        if (Boolean.TRUE.equals(facility.getEarlyImmersion())) {
+            flags |= FLAG_EARLY_IMMERSION;
+        }
+        if (Boolean.TRUE.equals(facility.getMiddleImmersion())) {
+            flags |= FLAG_MIDDLE_IMMERSION;
+        }
+        if (Boolean.TRUE.equals(facility.getLateImmersion())) {
+            flags |= FLAG_LATE_IMMERSION;
+        }
+        return (byte) flags;
+    }
+
+    public long getDatasetVersion() {
+        return datasetVersion;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getSize() {
+        return bytes.length;
+    }
+
+    /**
+     * The payload as a resource for the response body. It reads the
+     * shared bytes in place; nothing writes to them after encoding.
+     */
+    public Resource asResource() {
+        return new ByteArrayResource(bytes);
+    }
+}
@@ -1,12 +1,26 @@
 package com.efl.facilities.models;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
 import java.time.LocalDate;
 import java.math.BigDecimal;
 
+/**
+ * Facilities are only ever written by an ingest run, so the entity is mapped
+ * read-only and kept in the second-level cache. The cache regions are evicted
+ * wholesale once an ingest completes (see FacilityCacheService).
+ */
 @Entity
+@Immutable
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = Facility.CACHE_REGION)
 @Table(name = "educational_facility")
 public class Facility {
+    public static final String CACHE_REGION = "facility";
+    public static final String QUERY_CACHE_REGION = "facility-queries";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
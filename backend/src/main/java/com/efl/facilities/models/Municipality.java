@@ -0,0 +1,46 @@
+package com.efl.facilities.models;
+
+import java.util.Objects;
+
+/**
+ * A census subdivision from the municipalities GeoJSON, without its geometry.
+ * Facilities refer to it by census_subdivision_id, which holds either id.
+ */
+public class Municipality {
+
+    private String id;
+    private String dguid;
+    private String name;
+    private String province;
+    private Double centroidLatitude;
+    private Double centroidLongitude;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getDguid() { return dguid; }
+    public void setDguid(String dguid) { this.dguid = dguid; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getProvince() { return province; }
+    public void setProvince(String province) { this.province = province; }
+
+    public Double getCentroidLatitude() { return centroidLatitude; }
+    public void setCentroidLatitude(Double centroidLatitude) { this.centroidLatitude = centroidLatitude; }
+
+    public Double getCentroidLongitude() { return centroidLongitude; }
+    public void setCentroidLongitude(Double centroidLongitude) { this.centroidLongitude = centroidLongitude; }
+
+    // Used as a data loader key, so equal by id
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Municipality other && Objects.equals(id, other.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+}
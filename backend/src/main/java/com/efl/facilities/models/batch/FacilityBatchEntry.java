@@ -0,0 +1,57 @@
+package com.efl.facilities.models.batch;
+
+import com.efl.facilities.models.Facility;
+
+/**
+ * One requested key and what it resolved to. Exactly one of id / uniqueId is set,
+ * echoing the key as it was requested; facility is null when found is false.
+ */
+public class FacilityBatchEntry {
+
+    private Long id;
+    private String uniqueId;
+    private boolean found;
+    private Facility facility;
+
+    public FacilityBatchEntry() {
+    }
+
+    public FacilityBatchEntry(Long id, String uniqueId, Facility facility) {
+        this.id = id;
+        this.uniqueId = uniqueId;
+        this.found = facility != null;
+        this.facility = facility;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUniqueId() {
+        return uniqueId;
+    }
+
+    public void setUniqueId(String uniqueId) {
+        this.uniqueId = uniqueId;
+    }
+
+    public boolean isFound() {
+        return found;
+    }
+
+    public void setFound(boolean found) {
+        this.found = found;
+    }
+
+    public Facility getFacility() {
+        return facility;
+    }
+
+    public void setFacility(Facility facility) {
+        this.facility = facility;
+    }
+}
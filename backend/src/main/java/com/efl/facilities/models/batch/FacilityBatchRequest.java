@@ -0,0 +1,26 @@
+package com.efl.facilities.models.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class FacilityBatchRequest {
+
+    private List<Long> ids = new ArrayList<>();
+    private List<String> uniqueIds = new ArrayList<>();
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public List<String> getUniqueIds() {
+        return uniqueIds;
+    }
+
+    public void setUniqueIds(List<String> uniqueIds) {
+        this.uniqueIds = uniqueIds;
+    }
+}
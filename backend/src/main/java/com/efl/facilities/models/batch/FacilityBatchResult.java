@@ -0,0 +1,45 @@
+package com.efl.facilities.models.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class FacilityBatchResult {
+
+    private int requestedCount;
+    private int foundCount;
+
+    // ids first, then uniqueIds, each in the order they were requested
+    private List<FacilityBatchEntry> results = new ArrayList<>();
+
+    public int getRequestedCount() {
+        return requestedCount;
+    }
+
+    public void setRequestedCount(int requestedCount) {
+        this.requestedCount = requestedCount;
+    }
+
+    public int getFoundCount() {
+        return foundCount;
+    }
+
+    public void setFoundCount(int foundCount) {
+        this.foundCount = foundCount;
+    }
+
+    public List<FacilityBatchEntry> getResults() {
+        return results;
+    }
+
+    public void setResults(List<FacilityBatchEntry> results) {
+        this.results = results;
+    }
+
+    public void addResult(FacilityBatchEntry entry) {
+        this.results.add(entry);
+        this.requestedCount++;
+        if (entry.isFound()) {
+            this.foundCount++;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.efl.facilities.models.cache;
+
+import java.time.Instant;
+
+public class FacilityCacheStatistics {
+
+    private long entityHitCount;
+    private long entityMissCount;
+    private long entityPutCount;
+
+    private long queryHitCount;
+    private long queryMissCount;
+    private long queryPutCount;
+
+    private long secondLevelCacheHitCount;
+    private long secondLevelCacheMissCount;
+
+    private Instant lastEvictedAt;
+
+    public long getEntityHitCount() {
+        return entityHitCount;
+    }
+
+    public void setEntityHitCount(long entityHitCount) {
+        this.entityHitCount = entityHitCount;
+    }
+
+    public long getEntityMissCount() {
+        return entityMissCount;
+    }
+
+    public void setEntityMissCount(long entityMissCount) {
+        this.entityMissCount = entityMissCount;
+    }
+
+    public long getEntityPutCount() {
+        return entityPutCount;
+    }
+
+    public void setEntityPutCount(long entityPutCount) {
+        this.entityPutCount = entityPutCount;
+    }
+
+    public long getQueryHitCount() {
+        return queryHitCount;
+    }
+
+    public void setQueryHitCount(long queryHitCount) {
+        this.queryHitCount = queryHitCount;
+    }
+
+    public long getQueryMissCount() {
+        return queryMissCount;
+    }
+
+    public void setQueryMissCount(long queryMissCount) {
+        this.queryMissCount = queryMissCount;
+    }
+
+    public long getQueryPutCount() {
+        return queryPutCount;
+    }
+
+    public void setQueryPutCount(long queryPutCount) {
+        this.queryPutCount = queryPutCount;
+    }
+
+    public long getSecondLevelCacheHitCount() {
+        return secondLevelCacheHitCount;
+    }
+
+    public void setSecondLevelCacheHitCount(long secondLevelCacheHitCount) {
+        this.secondLevelCacheHitCount = secondLevelCacheHitCount;
+    }
+
+    public long getSecondLevelCacheMissCount() {
+        return secondLevelCacheMissCount;
+    }
+
+    public void setSecondLevelCacheMissCount(long secondLevelCacheMissCount) {
+        this.secondLevelCacheMissCount = secondLevelCacheMissCount;
+    }
+
+    public Instant getLastEvictedAt() {
+        return lastEvictedAt;
+    }
+
+    public void setLastEvictedAt(Instant lastEvictedAt) {
+        this.lastEvictedAt = lastEvictedAt;
+    }
+}
@@ -0,0 +1,42 @@
+package com.efl.facilities.models.changes;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * One row per ingest that changed the facility table. Versions are assigned
+ * in increasing order, so clients can ask for everything that changed since
+ * the version they last saw.
+ */
+@Entity
+@Table(name = "dataset_version")
+public class DatasetVersion {
+    @Id
+    private Long version;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    private int insertedCount;
+    private int updatedCount;
+    private int deletedCount;
+    private int totalCount;
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public int getInsertedCount() { return insertedCount; }
+    public void setInsertedCount(int insertedCount) { this.insertedCount = insertedCount; }
+
+    public int getUpdatedCount() { return updatedCount; }
+    public void setUpdatedCount(int updatedCount) { this.updatedCount = updatedCount; }
+
+    public int getDeletedCount() { return deletedCount; }
+    public void setDeletedCount(int deletedCount) { this.deletedCount = deletedCount; }
+
+    public int getTotalCount() { return totalCount; }
+    public void setTotalCount(int totalCount) { this.totalCount = totalCount; }
+}
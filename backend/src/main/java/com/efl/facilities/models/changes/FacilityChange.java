@@ -0,0 +1,33 @@
+package com.efl.facilities.models.changes;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "facility_change", indexes = @Index(name = "idx_facility_change_version", columnList = "version"))
+public class FacilityChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(nullable = false)
+    private String uniqueId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private FacilityChangeType changeType;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
+    public String getUniqueId() { return uniqueId; }
+    public void setUniqueId(String uniqueId) { this.uniqueId = uniqueId; }
+
+    public FacilityChangeType getChangeType() { return changeType; }
+    public void setChangeType(FacilityChangeType changeType) { this.changeType = changeType; }
+}
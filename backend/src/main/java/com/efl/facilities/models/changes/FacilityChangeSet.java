@@ -0,0 +1,70 @@
+package com.efl.facilities.models.changes;
+
+import com.efl.facilities.models.Facility;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The net effect of every change after fromVersion, up to and including toVersion.
+ * When fullResync is true the change log no longer reaches back to fromVersion
+ * and the client should refetch the full facility list instead.
+ */
+public class FacilityChangeSet {
+
+    private long fromVersion;
+    private long toVersion;
+    private boolean fullResync;
+
+    private List<Facility> inserted = new ArrayList<>();
+    private List<Facility> updated = new ArrayList<>();
+    private List<String> deleted = new ArrayList<>();
+
+    public long getFromVersion() {
+        return fromVersion;
+    }
+
+    public void setFromVersion(long fromVersion) {
+        this.fromVersion = fromVersion;
+    }
+
+    public long getToVersion() {
+        return toVersion;
+    }
+
+    public void setToVersion(long toVersion) {
+        this.toVersion = toVersion;
+    }
+
+    public boolean isFullResync() {
+        return fullResync;
+    }
+
+    public void setFullResync(boolean fullResync) {
+        this.fullResync = fullResync;
+    }
+
+    public List<Facility> getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(List<Facility> inserted) {
+        this.inserted = inserted;
+    }
+
+    public List<Facility> getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(List<Facility> updated) {
+        this.updated = updated;
+    }
+
+    public List<String> getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(List<String> deleted) {
+        this.deleted = deleted;
+    }
+}
@@ -0,0 +1,7 @@
+package com.efl.facilities.models.changes;
+
+public enum FacilityChangeType {
+    INSERTED,
+    UPDATED,
+    DELETED
+}
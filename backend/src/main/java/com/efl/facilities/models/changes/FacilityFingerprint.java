@@ -0,0 +1,24 @@
+package com.efl.facilities.models.changes;
+
+import jakarta.persistence.*;
+
+/**
+ * Content hash of each facility as of the latest dataset version. The next
+ * ingest is diffed against these to find what was inserted, updated or deleted.
+ */
+@Entity
+@Table(name = "facility_fingerprint")
+public class FacilityFingerprint {
+    @Id
+    @Column(length = 100)
+    private String uniqueId;
+
+    @Column(nullable = false, length = 64)
+    private String contentHash;
+
+    public String getUniqueId() { return uniqueId; }
+    public void setUniqueId(String uniqueId) { this.uniqueId = uniqueId; }
+
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+}
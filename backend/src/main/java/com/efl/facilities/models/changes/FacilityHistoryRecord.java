@@ -0,0 +1,46 @@
+package com.efl.facilities.models.changes;
+
+import jakarta.persistence.*;
+
+/**
+ * One version of one facility record. It is valid from the dataset version
+ * that wrote it up to, but not including, validTo; validTo is null while the
+ * record is current.
+ */
+@Entity
+@Table(name = "facility_history", indexes = {
+        @Index(name = "idx_facility_history_from", columnList = "validFrom"),
+        @Index(name = "idx_facility_history_to", columnList = "validTo")
+})
+public class FacilityHistoryRecord {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String uniqueId;
+
+    @Column(nullable = false)
+    private Long validFrom;
+
+    private Long validTo;
+
+    // The facility as JSON, including the id it had at the time
+    @Column(nullable = false, columnDefinition = "text")
+    private String recordJson;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getUniqueId() { return uniqueId; }
+    public void setUniqueId(String uniqueId) { this.uniqueId = uniqueId; }
+
+    public Long getValidFrom() { return validFrom; }
+    public void setValidFrom(Long validFrom) { this.validFrom = validFrom; }
+
+    public Long getValidTo() { return validTo; }
+    public void setValidTo(Long validTo) { this.validTo = validTo; }
+
+    public String getRecordJson() { return recordJson; }
+    public void setRecordJson(String recordJson) { this.recordJson = recordJson; }
+}
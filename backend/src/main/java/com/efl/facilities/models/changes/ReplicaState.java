@@ -0,0 +1,30 @@
+package com.efl.facilities.models.changes;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Heartbeat of one backend replica: the dataset version its in-process caches
+ * were last rebuilt for. Comparing live rows gives the version skew across replicas.
+ */
+@Entity
+@Table(name = "replica_state")
+public class ReplicaState {
+    @Id
+    @Column(length = 64)
+    private String instanceId;
+
+    private long appliedVersion;
+
+    @Column(nullable = false)
+    private Instant lastSeenAt;
+
+    public String getInstanceId() { return instanceId; }
+    public void setInstanceId(String instanceId) { this.instanceId = instanceId; }
+
+    public long getAppliedVersion() { return appliedVersion; }
+    public void setAppliedVersion(long appliedVersion) { this.appliedVersion = appliedVersion; }
+
+    public Instant getLastSeenAt() { return lastSeenAt; }
+    public void setLastSeenAt(Instant lastSeenAt) { this.lastSeenAt = lastSeenAt; }
+}
@@ -0,0 +1,59 @@
+package com.efl.facilities.models.concurrency;
+
+public class BulkheadStatus {
+
+    private String name;
+    private int maxConcurrent;
+    private int maxQueued;
+    private int active;
+    private int queued;
+    private long rejected;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public void setMaxQueued(int maxQueued) {
+        this.maxQueued = maxQueued;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public void setActive(int active) {
+        this.active = active;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public void setQueued(int queued) {
+        this.queued = queued;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+}
@@ -0,0 +1,35 @@
+package com.efl.facilities.models.concurrency;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ConcurrencyStatistics {
+
+    private long coalescedExecutions;
+    private long coalescedCalls;
+    private List<BulkheadStatus> bulkheads = new ArrayList<>();
+
+    public long getCoalescedExecutions() {
+        return coalescedExecutions;
+    }
+
+    public void setCoalescedExecutions(long coalescedExecutions) {
+        this.coalescedExecutions = coalescedExecutions;
+    }
+
+    public long getCoalescedCalls() {
+        return coalescedCalls;
+    }
+
+    public void setCoalescedCalls(long coalescedCalls) {
+        this.coalescedCalls = coalescedCalls;
+    }
+
+    public List<BulkheadStatus> getBulkheads() {
+        return bulkheads;
+    }
+
+    public void setBulkheads(List<BulkheadStatus> bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+}
@@ -0,0 +1,63 @@
+package com.efl.facilities.models.concurrency;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class DeadlineStatistics {
+
+    private long defaultMs;
+    private Map<String, Long> endpointDeadlinesMs = new LinkedHashMap<>();
+    private int activeRequests;
+    private long cancelledByDeadline;
+    private long cancelledByDisconnect;
+    // Keyed by the configured endpoint prefix, or "default"
+    private Map<String, Long> cancelledByEndpoint = new LinkedHashMap<>();
+
+    public long getDefaultMs() {
+        return defaultMs;
+    }
+
+    public void setDefaultMs(long defaultMs) {
+        this.defaultMs = defaultMs;
+    }
+
+    public Map<String, Long> getEndpointDeadlinesMs() {
+        return endpointDeadlinesMs;
+    }
+
+    public void setEndpointDeadlinesMs(Map<String, Long> endpointDeadlinesMs) {
+        this.endpointDeadlinesMs = endpointDeadlinesMs;
+    }
+
+    public int getActiveRequests() {
+        return activeRequests;
+    }
+
+    public void setActiveRequests(int activeRequests) {
+        this.activeRequests = activeRequests;
+    }
+
+    public long getCancelledByDeadline() {
+        return cancelledByDeadline;
+    }
+
+    public void setCancelledByDeadline(long cancelledByDeadline) {
+        this.cancelledByDeadline = cancelledByDeadline;
+    }
+
+    public long getCancelledByDisconnect() {
+        return cancelledByDisconnect;
+    }
+
+    public void setCancelledByDisconnect(long cancelledByDisconnect) {
+        this.cancelledByDisconnect = cancelledByDisconnect;
+    }
+
+    public Map<String, Long> getCancelledByEndpoint() {
+        return cancelledByEndpoint;
+    }
+
+    public void setCancelledByEndpoint(Map<String, Long> cancelledByEndpoint) {
+        this.cancelledByEndpoint = cancelledByEndpoint;
+    }
+}
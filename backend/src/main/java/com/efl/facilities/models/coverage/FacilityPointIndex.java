@@ -0,0 +1,231 @@
+package com.efl.facilities.models.coverage;
+
+import com.efl.facilities.models.Facility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A kd-tree over facility locations for nearest-facility and within-radius
+ * queries. Points are stored as unit vectors on the sphere, so the tree splits
+ * on plain x/y/z and straight-line (chord) distance orders points exactly as
+ * great-circle distance does, with no special cases at the antimeridian.
+ *
+ * The tree is implicit: each range of the arrays has its splitting point in the
+ * middle, with smaller coordinates before it. Immutable once built, so any
+ * number of threads can query it at once.
+ */
+public final class FacilityPointIndex {
+
+    /** Mean Earth radius. */
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private static final int DIMENSIONS = 3;
+
+    private final double[] coords; // x, y, z per point
+    private final long[] ids;
+    private final String[] uniqueIds;
+
+    private FacilityPointIndex(double[] coords, long[] ids, String[] uniqueIds) {
+        this.coords = coords;
+        this.ids = ids;
+        this.uniqueIds = uniqueIds;
+    }
+
+    /**
+     * Index the facilities that match and have both coordinates.
+     */
+    public static FacilityPointIndex build(List<Facility> facilities, Predicate<Facility> include) {
+        List<Facility> located = new ArrayList<>();
+        for (Facility facility : facilities) {
+            if (facility.getLatitude() != null && facility.getLongitude() != null && include.test(facility)) {
+                located.add(facility);
+            }
+        }
+
+        int size = located.size();
+        double[] coords = new double[size * DIMENSIONS];
+        long[] ids = new long[size];
+        String[] uniqueIds = new String[size];
+        for (int i = 0; i < size; i++) {
+            Facility facility = located.get(i);
+            toUnitVector(facility.getLongitude().doubleValue(), facility.getLatitude().doubleValue(), coords, i);
+            ids[i] = facility.getId() == null ? 0 : facility.getId();
+            uniqueIds[i] = facility.getUniqueId();
+        }
+        FacilityPointIndex index = new FacilityPointIndex(coords, ids, uniqueIds);
+        index.arrange(0, size, 0);
+        return index;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public long getId(int point) {
+        return ids[point];
+    }
+
+    public String getUniqueId(int point) {
+        return uniqueIds[point];
+    }
+
+    /**
+     * The point closest to the given location, or -1 if the index is empty.
+     */
+    public int nearest(double lon, double lat) {
+        double[] query = new double[DIMENSIONS];
+        toUnitVector(lon, lat, query, 0);
+        Nearest best = new Nearest();
+        nearest(0, ids.length, 0, query, best);
+        return best.point;
+    }
+
+    /**
+     * Great-circle distance from the given location to a point, in km.
+     */
+    public double distanceKm(int point, double lon, double lat) {
+        double[] query = new double[DIMENSIONS];
+        toUnitVector(lon, lat, query, 0);
+        return chordToKm(Math.sqrt(squaredChord(point, query)));
+    }
+
+    /**
+     * Number of points within radiusKm (great-circle) of the given location.
+     */
+    public int countWithin(double lon, double lat, double radiusKm) {
+        if (radiusKm >= Math.PI * EARTH_RADIUS_KM) {
+            return ids.length;
+        }
+        double[] query = new double[DIMENSIONS];
+        toUnitVector(lon, lat, query, 0);
+        double chord = 2 * Math.sin(radiusKm / (2 * EARTH_RADIUS_KM));
+        return countWithin(0, ids.length, 0, query, chord * chord);
+    }
+
+    private void nearest(int from, int to, int axis, double[] query, Nearest best) {
+        if (from >= to) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        double distance = squaredChord(mid, query);
+        if (distance < best.squaredChord) {
+            best.squaredChord = distance;
+            best.point = mid;
+        }
+        double offset = query[axis] - coords[mid * DIMENSIONS + axis];
+        int next = (axis + 1) % DIMENSIONS;
+        if (offset < 0) {
+            nearest(from, mid, next, query, best);
+            if (offset * offset < best.squaredChord) {
+                nearest(mid + 1, to, next, query, best);
+            }
+        } else {
+            nearest(mid + 1, to, next, query, best);
+            if (offset * offset < best.squaredChord) {
+                nearest(from, mid, next, query, best);
+            }
+        }
+    }
+
+    private int countWithin(int from, int to, int axis, double[] query, double limit) {
+        if (from >= to) {
+            return 0;
+        }
+        int mid = (from + to) >>> 1;
+        int count = squaredChord(mid, query) <= limit ? 1 : 0;
+        double offset = query[axis] - coords[mid * DIMENSIONS + axis];
+        int next = (axis + 1) % DIMENSIONS;
+        if (offset <= 0 || offset * offset <= limit) {
+            count += countWithin(from, mid, next, query, limit);
+        }
+        if (offset >= 0 || offset * offset <= limit) {
+            count += countWithin(mid + 1, to, next, query, limit);
+        }
+        return count;
+    }
+
+    private double squaredChord(int point, double[] query) {
+        int p = point * DIMENSIONS;
+        double dx = coords[p] - query[0];
+        double dy = coords[p + 1] - query[1];
+        double dz = coords[p + 2] - query[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static double chordToKm(double chord) {
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, chord / 2));
+    }
+
+    private static void toUnitVector(double lon, double lat, double[] out, int point) {
+        double phi = Math.toRadians(lat);
+        double lambda = Math.toRadians(lon);
+        double cosPhi = Math.cos(phi);
+        out[point * DIMENSIONS] = cosPhi * Math.cos(lambda);
+        out[point * DIMENSIONS + 1] = cosPhi * Math.sin(lambda);
+        out[point * DIMENSIONS + 2] = Math.sin(phi);
+    }
+
+    // Put the median (on this axis) of [from, to) in the middle, then recurse into each half
+    private void arrange(int from, int to, int axis) {
+        if (to - from <= 1) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        select(from, to - 1, mid, axis);
+        int next = (axis + 1) % DIMENSIONS;
+        arrange(from, mid, next);
+        arrange(mid + 1, to, next);
+    }
+
+    // Quickselect: leave the k-th smallest coordinate at k, smaller ones before it and larger ones after
+    private void select(int left, int right, int k, int axis) {
+        int lo = left;
+        int hi = right;
+        while (lo < hi) {
+            double pivot = coords[((lo + hi) >>> 1) * DIMENSIONS + axis];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coords[i * DIMENSIONS + axis] < pivot) {
+                    i++;
+                }
+                while (coords[j * DIMENSIONS + axis] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        for (int d = 0; d < DIMENSIONS; d++) {
+            double coord = coords[a * DIMENSIONS + d];
+            coords[a * DIMENSIONS + d] = coords[b * DIMENSIONS + d];
+            coords[b * DIMENSIONS + d] = coord;
+        }
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        String uniqueId = uniqueIds[a];
+        uniqueIds[a] = uniqueIds[b];
+        uniqueIds[b] = uniqueId;
+    }
+
+    private static final class Nearest {
+        int point = -1;
+        double squaredChord = Double.POSITIVE_INFINITY;
+    }
+}
@@ -0,0 +1,77 @@
+package com.efl.facilities.models.coverage;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * French-immersion coverage of every census subdivision, keyed by CSDUID so a
+ * client can join it onto the municipalities GeoJSON for a choropleth.
+ */
+public class ImmersionCoverageResult {
+
+    private long datasetVersion;
+    private String program;
+    private double radiusKm;
+    private int facilityCount;
+    private Instant computedAt;
+    private long elapsedMs;
+    private List<SubdivisionCoverage> subdivisions = new ArrayList<>();
+
+    public long getDatasetVersion() {
+        return datasetVersion;
+    }
+
+    public void setDatasetVersion(long datasetVersion) {
+        this.datasetVersion = datasetVersion;
+    }
+
+    public String getProgram() {
+        return program;
+    }
+
+    public void setProgram(String program) {
+        this.program = program;
+    }
+
+    public double getRadiusKm() {
+        return radiusKm;
+    }
+
+    public void setRadiusKm(double radiusKm) {
+        this.radiusKm = radiusKm;
+    }
+
+    /** Facilities offering the program that have coordinates. */
+    public int getFacilityCount() {
+        return facilityCount;
+    }
+
+    public void setFacilityCount(int facilityCount) {
+        this.facilityCount = facilityCount;
+    }
+
+    public Instant getComputedAt() {
+        return computedAt;
+    }
+
+    public void setComputedAt(Instant computedAt) {
+        this.computedAt = computedAt;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public void setElapsedMs(long elapsedMs) {
+        this.elapsedMs = elapsedMs;
+    }
+
+    public List<SubdivisionCoverage> getSubdivisions() {
+        return subdivisions;
+    }
+
+    public void setSubdivisions(List<SubdivisionCoverage> subdivisions) {
+        this.subdivisions = subdivisions;
+    }
+}
@@ -0,0 +1,52 @@
+package com.efl.facilities.models.coverage;
+
+import com.efl.facilities.models.Facility;
+
+import java.util.function.Predicate;
+
+/**
+ * Which facilities count as offering French immersion for a coverage analysis,
+ * named as they appear in the API.
+ */
+public enum ImmersionProgram {
+    ANY("any", facility -> isTrue(facility.getFrenchImmersion())
+            || isTrue(facility.getEarlyImmersion())
+            || isTrue(facility.getMiddleImmersion())
+            || isTrue(facility.getLateImmersion())),
+    FRENCH_IMMERSION("frenchImmersion", facility -> isTrue(facility.getFrenchImmersion())),
+    EARLY_IMMERSION("earlyImmersion", facility -> isTrue(facility.getEarlyImmersion())),
+    MIDDLE_IMMERSION("middleImmersion", facility -> isTrue(facility.getMiddleImmersion())),
+    LATE_IMMERSION("lateImmersion", facility -> isTrue(facility.getLateImmersion()));
+
+    private final String paramName;
+    private final Predicate<Facility> offeredBy;
+
+    ImmersionProgram(String paramName, Predicate<Facility> offeredBy) {
+        this.paramName = paramName;
+        this.offeredBy = offeredBy;
+    }
+
+    public String getParamName() {
+        return paramName;
+    }
+
+    public boolean isOfferedBy(Facility facility) {
+        return offeredBy.test(facility);
+    }
+
+    private static boolean isTrue(Boolean flag) {
+        return Boolean.TRUE.equals(flag);
+    }
+
+    /**
+     * @throws IllegalArgumentException if no program has that API name
+     */
+    public static ImmersionProgram fromParamName(String paramName) {
+        for (ImmersionProgram program : values()) {
+            if (program.paramName.equals(paramName)) {
+                return program;
+            }
+        }
+        throw new IllegalArgumentException("Unknown immersion program: " + paramName);
+    }
+}
@@ -0,0 +1,90 @@
+package com.efl.facilities.models.coverage;
+
+/**
+ * Coverage of one census subdivision, measured from its centroid.
+ * The nearest* fields are null when no facility offers the program.
+ */
+public class SubdivisionCoverage {
+
+    private String csduid;
+    private String name;
+    private String province;
+    private double longitude;
+    private double latitude;
+    private Double nearestDistanceKm;
+    private Long nearestFacilityId;
+    private String nearestFacilityUniqueId;
+    private int facilitiesWithinRadius;
+
+    public String getCsduid() {
+        return csduid;
+    }
+
+    public void setCsduid(String csduid) {
+        this.csduid = csduid;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getProvince() {
+        return province;
+    }
+
+    public void setProvince(String province) {
+        this.province = province;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getNearestDistanceKm() {
+        return nearestDistanceKm;
+    }
+
+    public void setNearestDistanceKm(Double nearestDistanceKm) {
+        this.nearestDistanceKm = nearestDistanceKm;
+    }
+
+    public Long getNearestFacilityId() {
+        return nearestFacilityId;
+    }
+
+    public void setNearestFacilityId(Long nearestFacilityId) {
+        this.nearestFacilityId = nearestFacilityId;
+    }
+
+    public String getNearestFacilityUniqueId() {
+        return nearestFacilityUniqueId;
+    }
+
+    public void setNearestFacilityUniqueId(String nearestFacilityUniqueId) {
+        this.nearestFacilityUniqueId = nearestFacilityUniqueId;
+    }
+
+    public int getFacilitiesWithinRadius() {
+        return facilitiesWithinRadius;
+    }
+
+    public void setFacilitiesWithinRadius(int facilitiesWithinRadius) {
+        this.facilitiesWithinRadius = facilitiesWithinRadius;
+    }
+}
@@ -0,0 +1,191 @@
+package com.efl.facilities.models.stats;
+
+import com.efl.facilities.models.Facility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Facility counts for every combination of the {@link RollupDimension} values,
+ * held as one dense int array in row-major order. Text dimensions are dictionary
+ * encoded (sorted, with null first when present); flags are 0 = false/null, 1 = true.
+ *
+ * Immutable once built, so a rebuilt cube can be swapped in without locking.
+ */
+public final class FacilityRollupCube {
+
+    /** Filter code meaning "any value of this dimension". */
+    public static final int ANY = -1;
+    /** Code returned for a value that never occurs in the dataset. */
+    public static final int NO_MATCH = -2;
+
+    private static final int MAX_CELLS = 64 * 1024 * 1024;
+    private static final RollupDimension[] DIMENSIONS = RollupDimension.values();
+    private static final List<Object> FLAG_VALUES = List.of(Boolean.FALSE, Boolean.TRUE);
+
+    private final List<List<Object>> dictionaries;
+    private final List<Map<Object, Integer>> codes;
+    private final int[] radices;
+    private final int[] strides;
+    private final int[] counts;
+    private final int totalCount;
+
+    private FacilityRollupCube(List<List<Object>> dictionaries, int[] counts, int totalCount) {
+        this.dictionaries = dictionaries;
+        this.codes = new ArrayList<>(dictionaries.size());
+        this.radices = new int[DIMENSIONS.length];
+        this.strides = new int[DIMENSIONS.length];
+        for (int d = 0; d < DIMENSIONS.length; d++) {
+            List<Object> dictionary = dictionaries.get(d);
+            Map<Object, Integer> dimensionCodes = new HashMap<>();
+            for (int code = 0; code < dictionary.size(); code++) {
+                dimensionCodes.put(dictionary.get(code), code);
+            }
+            codes.add(dimensionCodes);
+            radices[d] = dictionary.size();
+        }
+        int stride = 1;
+        for (int d = DIMENSIONS.length - 1; d >= 0; d--) {
+            strides[d] = stride;
+            stride *= radices[d];
+        }
+        this.counts = counts;
+        this.totalCount = totalCount;
+    }
+
+    /**
+     * One pass over the facilities to build the dictionaries, one more to fill the cells.
+     *
+     * @throws IllegalStateException if the dimension cardinalities don't fit a dense cube
+     */
+    public static FacilityRollupCube build(List<Facility> facilities) {
+        List<List<Object>> dictionaries = new ArrayList<>(DIMENSIONS.length);
+        for (RollupDimension dimension : DIMENSIONS) {
+            dictionaries.add(dimension.isFlag() ? FLAG_VALUES : textDictionary(facilities, dimension));
+        }
+
+        long cells = 1;
+        for (List<Object> dictionary : dictionaries) {
+            cells *= dictionary.size();
+        }
+        if (cells > MAX_CELLS) {
+            throw new IllegalStateException("Rollup cube would need " + cells + " cells");
+        }
+
+        FacilityRollupCube cube = new FacilityRollupCube(dictionaries, new int[(int) cells], facilities.size());
+        for (Facility facility : facilities) {
+            cube.counts[cube.cellOf(facility)]++;
+        }
+        return cube;
+    }
+
+    private static List<Object> textDictionary(List<Facility> facilities, RollupDimension dimension) {
+        TreeSet<String> values = new TreeSet<>();
+        boolean hasNull = false;
+        for (Facility facility : facilities) {
+            Object value = dimension.extract(facility);
+            if (value == null) {
+                hasNull = true;
+            } else {
+                values.add((String) value);
+            }
+        }
+        List<Object> dictionary = new ArrayList<>(values.size() + 1);
+        if (hasNull || values.isEmpty()) {
+            dictionary.add(null);
+        }
+        dictionary.addAll(values);
+        return dictionary;
+    }
+
+    private int cellOf(Facility facility) {
+        int cell = 0;
+        for (int d = 0; d < DIMENSIONS.length; d++) {
+            Object value = DIMENSIONS[d].extract(facility);
+            int code = DIMENSIONS[d].isFlag()
+                    ? (Boolean.TRUE.equals(value) ? 1 : 0)
+                    : codes.get(d).get(value);
+            cell += code * strides[d];
+        }
+        return cell;
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public int getCellCount() {
+        return counts.length;
+    }
+
+    public int cardinality(RollupDimension dimension) {
+        return radices[dimension.ordinal()];
+    }
+
+    /** The dimension value behind a code, e.g. "ON" or Boolean.TRUE; null for missing text values. */
+    public Object decode(RollupDimension dimension, int code) {
+        return dictionaries.get(dimension.ordinal()).get(code);
+    }
+
+    /**
+     * The code for a filter value as given on the query string.
+     * Flags accept "true"/"false"; returns NO_MATCH for values not in the dataset.
+     */
+    public int encode(RollupDimension dimension, String value) {
+        Object key = dimension.isFlag() ? Boolean.valueOf(value) : value;
+        Integer code = codes.get(dimension.ordinal()).get(key);
+        return code == null ? NO_MATCH : code;
+    }
+
+    /**
+     * Sum the cube down to the grouped dimensions.
+     *
+     * @param groupBy dimensions to keep, in output order
+     * @param filter  one code per dimension (by ordinal), or ANY
+     * @return counts indexed row-major by the codes of the groupBy dimensions
+     */
+    public long[] rollUp(List<RollupDimension> groupBy, int[] filter) {
+        int[] outStrides = new int[DIMENSIONS.length];
+        int outSize = 1;
+        for (int g = groupBy.size() - 1; g >= 0; g--) {
+            int d = groupBy.get(g).ordinal();
+            outStrides[d] = outSize;
+            outSize *= radices[d];
+        }
+        long[] out = new long[outSize];
+        for (int code : filter) {
+            if (code == NO_MATCH) {
+                return out;
+            }
+        }
+        walk(0, 0, 0, filter, outStrides, out);
+        return out;
+    }
+
+    private void walk(int d, int cell, int outCell, int[] filter, int[] outStrides, long[] out) {
+        int from = filter[d] == ANY ? 0 : filter[d];
+        int to = filter[d] == ANY ? radices[d] : filter[d] + 1;
+
+        if (d == DIMENSIONS.length - 1) {
+            // innermost dimension: a contiguous run of cells
+            for (int v = from; v < to; v++) {
+                out[outCell + v * outStrides[d]] += counts[cell + v];
+            }
+            return;
+        }
+        for (int v = from; v < to; v++) {
+            walk(d + 1, cell + v * strides[d], outCell + v * outStrides[d], filter, outStrides, out);
+        }
+    }
+
+    /** A filter array that matches every cell. */
+    public static int[] anyFilter() {
+        int[] filter = new int[DIMENSIONS.length];
+        Arrays.fill(filter, ANY);
+        return filter;
+    }
+}
@@ -0,0 +1,50 @@
+package com.efl.facilities.models.stats;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class FacilityStatsResult {
+
+    private List<String> groupBy = new ArrayList<>();
+    private Map<String, String> filters = new LinkedHashMap<>();
+    private long total;
+    private List<FacilityStatsRow> rows = new ArrayList<>();
+
+    public List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    public void setGroupBy(List<String> groupBy) {
+        this.groupBy = groupBy;
+    }
+
+    public Map<String, String> getFilters() {
+        return filters;
+    }
+
+    public void setFilters(Map<String, String> filters) {
+        this.filters = filters;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public List<FacilityStatsRow> getRows() {
+        return rows;
+    }
+
+    public void setRows(List<FacilityStatsRow> rows) {
+        this.rows = rows;
+    }
+
+    public void addRow(FacilityStatsRow row) {
+        this.rows.add(row);
+    }
+}
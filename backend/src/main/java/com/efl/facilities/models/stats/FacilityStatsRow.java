@@ -0,0 +1,27 @@
+package com.efl.facilities.models.stats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class FacilityStatsRow {
+
+    // groupBy dimension name -> value, in the order they were requested
+    private Map<String, Object> dimensions = new LinkedHashMap<>();
+    private long count;
+
+    public Map<String, Object> getDimensions() {
+        return dimensions;
+    }
+
+    public void setDimensions(Map<String, Object> dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
@@ -0,0 +1,53 @@
+package com.efl.facilities.models.stats;
+
+import com.efl.facilities.models.Facility;
+
+import java.util.function.Function;
+
+/**
+ * The dimensions of the facility rollup cube, named as they appear in the API.
+ * Declaration order is also the cube's storage order: the last dimension varies
+ * fastest, so the widest one (authorityName) is kept last.
+ */
+public enum RollupDimension {
+    PROVINCE("province", Facility::getProvince),
+    FACILITY_TYPE("facilityType", Facility::getFacilityType),
+    LANGUAGE_MINORITY_STATUS("languageMinorityStatus", Facility::getLanguageMinorityStatus),
+    FRENCH_IMMERSION("frenchImmersion", Facility::getFrenchImmersion),
+    EARLY_IMMERSION("earlyImmersion", Facility::getEarlyImmersion),
+    MIDDLE_IMMERSION("middleImmersion", Facility::getMiddleImmersion),
+    LATE_IMMERSION("lateImmersion", Facility::getLateImmersion),
+    AUTHORITY_NAME("authorityName", Facility::getAuthorityName);
+
+    private final String paramName;
+    private final Function<Facility, ?> accessor;
+
+    RollupDimension(String paramName, Function<Facility, ?> accessor) {
+        this.paramName = paramName;
+        this.accessor = accessor;
+    }
+
+    public String getParamName() {
+        return paramName;
+    }
+
+    public boolean isFlag() {
+        return this != PROVINCE && this != FACILITY_TYPE && this != AUTHORITY_NAME;
+    }
+
+    Object extract(Facility facility) {
+        return accessor.apply(facility);
+    }
+
+    /**
+     * @throws IllegalArgumentException if no dimension has that API name
+     */
+    public static RollupDimension fromParamName(String paramName) {
+        for (RollupDimension dimension : values()) {
+            if (dimension.paramName.equals(paramName)) {
+                return dimension;
+            }
+        }
+        throw new IllegalArgumentException("Unknown stats dimension: " + paramName);
+    }
+}
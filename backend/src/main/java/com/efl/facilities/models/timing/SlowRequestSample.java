@@ -0,0 +1,140 @@
+package com.efl.facilities.models.timing;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One request that took longer than efl.timing.slow-request-ms, with where the time went.
+ */
+public class SlowRequestSample {
+
+    private Instant startedAt;
+    private String method;
+    private String path;
+    private String query;
+    private int status;
+
+    private double totalMs;
+    private double poolMs;      // waiting for pooled connections
+    private double dbMs;        // executing statements and fetching rows
+    private double appMs;       // rest of the handler: entity hydration, caches, logic
+    private double serializeMs; // writing the response body
+
+    private int connectionCount;
+    private int statementCount;
+    private long rowCount;
+    private List<SqlStatementSample> statements = new ArrayList<>();
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Instant startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public double getTotalMs() {
+        return totalMs;
+    }
+
+    public void setTotalMs(double totalMs) {
+        this.totalMs = totalMs;
+    }
+
+    public double getPoolMs() {
+        return poolMs;
+    }
+
+    public void setPoolMs(double poolMs) {
+        this.poolMs = poolMs;
+    }
+
+    public double getDbMs() {
+        return dbMs;
+    }
+
+    public void setDbMs(double dbMs) {
+        this.dbMs = dbMs;
+    }
+
+    public double getAppMs() {
+        return appMs;
+    }
+
+    public void setAppMs(double appMs) {
+        this.appMs = appMs;
+    }
+
+    public double getSerializeMs() {
+        return serializeMs;
+    }
+
+    public void setSerializeMs(double serializeMs) {
+        this.serializeMs = serializeMs;
+    }
+
+    public int getConnectionCount() {
+        return connectionCount;
+    }
+
+    public void setConnectionCount(int connectionCount) {
+        this.connectionCount = connectionCount;
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    public void setStatementCount(int statementCount) {
+        this.statementCount = statementCount;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public List<SqlStatementSample> getStatements() {
+        return statements;
+    }
+
+    public void setStatements(List<SqlStatementSample> statements) {
+        this.statements = statements;
+    }
+}
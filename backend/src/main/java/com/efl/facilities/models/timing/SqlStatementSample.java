@@ -0,0 +1,39 @@
+package com.efl.facilities.models.timing;
+
+public class SqlStatementSample {
+
+    private String sql;
+    private long rowCount;
+    private double durationMs;
+
+    public SqlStatementSample() {
+    }
+
+    public SqlStatementSample(String sql) {
+        this.sql = sql;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public void setSql(String sql) {
+        this.sql = sql;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public double getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(double durationMs) {
+        this.durationMs = durationMs;
+    }
+}
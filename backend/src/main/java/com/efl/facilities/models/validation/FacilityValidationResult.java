@@ -1,5 +1,6 @@
 package com.efl.facilities.models.validation;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -8,6 +9,11 @@ public class FacilityValidationResult {
     private boolean valid;
     private int totalRecords;
 
+    // Set when the result is the summary of an ingest run rather than a scan of the table
+    private Long ingestRunId;
+    private Instant validatedAt;
+    private int quarantinedRecords;
+
     private int missingFieldCount;
     private int duplicateUniqueIdCount;
     private int invalidProvinceCount;
@@ -15,6 +21,10 @@ public class FacilityValidationResult {
 
     private List<FacilityValidationIssue> issues = new ArrayList<>();
 
+    // Possible duplicates under different uniqueIds; advisory, they don't affect valid
+    private int nearDuplicateCount;
+    private List<NearDuplicateCandidate> nearDuplicates = new ArrayList<>();
+
     public boolean isValid() {
         return valid;
     }
@@ -31,6 +41,30 @@ public class FacilityValidationResult {
         this.totalRecords = totalRecords;
     }
 
+    public Long getIngestRunId() {
+        return ingestRunId;
+    }
+
+    public void setIngestRunId(Long ingestRunId) {
+        this.ingestRunId = ingestRunId;
+    }
+
+    public Instant getValidatedAt() {
+        return validatedAt;
+    }
+
+    public void setValidatedAt(Instant validatedAt) {
+        this.validatedAt = validatedAt;
+    }
+
+    public int getQuarantinedRecords() {
+        return quarantinedRecords;
+    }
+
+    public void setQuarantinedRecords(int quarantinedRecords) {
+        this.quarantinedRecords = quarantinedRecords;
+    }
+
     public int getMissingFieldCount() {
         return missingFieldCount;
     }
@@ -74,4 +108,20 @@ public class FacilityValidationResult {
     public void addIssue(FacilityValidationIssue issue) {
         this.issues.add(issue);
     }
+
+    public int getNearDuplicateCount() {
+        return nearDuplicateCount;
+    }
+
+    public void setNearDuplicateCount(int nearDuplicateCount) {
+        this.nearDuplicateCount = nearDuplicateCount;
+    }
+
+    public List<NearDuplicateCandidate> getNearDuplicates() {
+        return nearDuplicates;
+    }
+
+    public void setNearDuplicates(List<NearDuplicateCandidate> nearDuplicates) {
+        this.nearDuplicates = nearDuplicates;
+    }
 }
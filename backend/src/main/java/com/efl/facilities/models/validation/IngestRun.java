@@ -0,0 +1,66 @@
+package com.efl.facilities.models.validation;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * The validation summary of one ingest run, written by the ingestor in the
+ * same transaction as the facilities it loaded. Counts are of source
+ * records, so a record failing two rules counts once under each.
+ */
+@Entity
+@Table(name = "ingest_run")
+public class IngestRun {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String sourceFile;
+
+    @Column(nullable = false)
+    private Instant startedAt;
+
+    private Instant completedAt;
+
+    private int totalRecords;
+    private int acceptedRecords;
+    private int quarantinedRecords;
+
+    private int missingFieldCount;
+    private int duplicateUniqueIdCount;
+    private int invalidProvinceCount;
+    private int invalidCoordinateCount;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getSourceFile() { return sourceFile; }
+    public void setSourceFile(String sourceFile) { this.sourceFile = sourceFile; }
+
+    public Instant getStartedAt() { return startedAt; }
+    public void setStartedAt(Instant startedAt) { this.startedAt = startedAt; }
+
+    public Instant getCompletedAt() { return completedAt; }
+    public void setCompletedAt(Instant completedAt) { this.completedAt = completedAt; }
+
+    public int getTotalRecords() { return totalRecords; }
+    public void setTotalRecords(int totalRecords) { this.totalRecords = totalRecords; }
+
+    public int getAcceptedRecords() { return acceptedRecords; }
+    public void setAcceptedRecords(int acceptedRecords) { this.acceptedRecords = acceptedRecords; }
+
+    public int getQuarantinedRecords() { return quarantinedRecords; }
+    public void setQuarantinedRecords(int quarantinedRecords) { this.quarantinedRecords = quarantinedRecords; }
+
+    public int getMissingFieldCount() { return missingFieldCount; }
+    public void setMissingFieldCount(int missingFieldCount) { this.missingFieldCount = missingFieldCount; }
+
+    public int getDuplicateUniqueIdCount() { return duplicateUniqueIdCount; }
+    public void setDuplicateUniqueIdCount(int duplicateUniqueIdCount) { this.duplicateUniqueIdCount = duplicateUniqueIdCount; }
+
+    public int getInvalidProvinceCount() { return invalidProvinceCount; }
+    public void setInvalidProvinceCount(int invalidProvinceCount) { this.invalidProvinceCount = invalidProvinceCount; }
+
+    public int getInvalidCoordinateCount() { return invalidCoordinateCount; }
+    public void setInvalidCoordinateCount(int invalidCoordinateCount) { this.invalidCoordinateCount = invalidCoordinateCount; }
+}
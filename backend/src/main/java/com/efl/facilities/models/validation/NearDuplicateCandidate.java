@@ -0,0 +1,114 @@
+package com.efl.facilities.models.validation;
+
+import com.efl.facilities.models.Facility;
+
+/**
+ * Two facilities with different uniqueIds that look like the same school:
+ * similar names and either nearby coordinates or the same postal code.
+ */
+public class NearDuplicateCandidate {
+
+    private Long firstId;
+    private String firstUniqueId;
+    private String firstName;
+    private Long secondId;
+    private String secondUniqueId;
+    private String secondName;
+
+    private double nameSimilarity; // trigram Jaccard of the normalized names, 0..1
+    private Double distanceMeters; // null when either facility has no coordinates
+    private boolean samePostalCode;
+    private double score;          // 0..1, higher is more likely the same facility
+
+    public NearDuplicateCandidate() {
+    }
+
+    public NearDuplicateCandidate(Facility first, Facility second) {
+        this.firstId = first.getId();
+        this.firstUniqueId = first.getUniqueId();
+        this.firstName = first.getFacilityName();
+        this.secondId = second.getId();
+        this.secondUniqueId = second.getUniqueId();
+        this.secondName = second.getFacilityName();
+    }
+
+    public Long getFirstId() {
+        return firstId;
+    }
+
+    public void setFirstId(Long firstId) {
+        this.firstId = firstId;
+    }
+
+    public String getFirstUniqueId() {
+        return firstUniqueId;
+    }
+
+    public void setFirstUniqueId(String firstUniqueId) {
+        this.firstUniqueId = firstUniqueId;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public Long getSecondId() {
+        return secondId;
+    }
+
+    public void setSecondId(Long secondId) {
+        this.secondId = secondId;
+    }
+
+    public String getSecondUniqueId() {
+        return secondUniqueId;
+    }
+
+    public void setSecondUniqueId(String secondUniqueId) {
+        this.secondUniqueId = secondUniqueId;
+    }
+
+    public String getSecondName() {
+        return secondName;
+    }
+
+    public void setSecondName(String secondName) {
+        this.secondName = secondName;
+    }
+
+    public double getNameSimilarity() {
+        return nameSimilarity;
+    }
+
+    public void setNameSimilarity(double nameSimilarity) {
+        this.nameSimilarity = nameSimilarity;
+    }
+
+    public Double getDistanceMeters() {
+        return distanceMeters;
+    }
+
+    public void setDistanceMeters(Double distanceMeters) {
+        this.distanceMeters = distanceMeters;
+    }
+
+    public boolean isSamePostalCode() {
+        return samePostalCode;
+    }
+
+    public void setSamePostalCode(boolean samePostalCode) {
+        this.samePostalCode = samePostalCode;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public void setScore(double score) {
+        this.score = score;
+    }
+}
@@ -0,0 +1,61 @@
+package com.efl.facilities.models.validation;
+
+import jakarta.persistence.*;
+
+/**
+ * A source record the ingestor refused to load, with the rules it failed.
+ */
+@Entity
+@Table(name = "facility_quarantine", indexes = @Index(name = "idx_facility_quarantine_run", columnList = "ingestRunId"))
+public class QuarantinedFacility {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long ingestRunId;
+
+    @Column(length = 100)
+    private String uniqueId;
+
+    private String facilityName;
+
+    @Column(length = 50)
+    private String province;
+
+    // Distinct issue codes, comma separated, e.g. "MISSING_FIELD,INVALID_PROVINCE"
+    @Column(nullable = false)
+    private String issueCodes;
+
+    // JSON array of {"code": ..., "message": ...}
+    @Column(nullable = false, columnDefinition = "text")
+    private String issues;
+
+    // The cleaned source record as JSON
+    @Column(columnDefinition = "text")
+    private String sourceRecord;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getIngestRunId() { return ingestRunId; }
+    public void setIngestRunId(Long ingestRunId) { this.ingestRunId = ingestRunId; }
+
+    public String getUniqueId() { return uniqueId; }
+    public void setUniqueId(String uniqueId) { this.uniqueId = uniqueId; }
+
+    public String getFacilityName() { return facilityName; }
+    public void setFacilityName(String facilityName) { this.facilityName = facilityName; }
+
+    public String getProvince() { return province; }
+    public void setProvince(String province) { this.province = province; }
+
+    public String getIssueCodes() { return issueCodes; }
+    public void setIssueCodes(String issueCodes) { this.issueCodes = issueCodes; }
+
+    public String getIssues() { return issues; }
+    public void setIssues(String issues) { this.issues = issues; }
+
+    public String getSourceRecord() { return sourceRecord; }
+    public void setSourceRecord(String sourceRecord) { this.sourceRecord = sourceRecord; }
+}
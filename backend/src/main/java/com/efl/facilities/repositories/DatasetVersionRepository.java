@@ -0,0 +1,21 @@
+package com.efl.facilities.repositories;
+
+import com.efl.facilities.models.changes.DatasetVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface DatasetVersionRepository extends JpaRepository<DatasetVersion, Long> {
+    // The most recent dataset version, if any ingest has been recorded
+    Optional<DatasetVersion> findTopByOrderByVersionDesc();
+
+    // Just the latest version number (null before the first ingest); cheap enough to poll
+    @Query("select max(v.version) from DatasetVersion v")
+    Long findLatestVersion();
+
+    // The version that was current at the given time
+    Optional<DatasetVersion> findTopByCreatedAtLessThanEqualOrderByVersionDesc(Instant createdAt);
+}
@@ -0,0 +1,24 @@
+package com.efl.facilities.repositories;
+
+import com.efl.facilities.models.changes.FacilityChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface FacilityChangeRepository extends JpaRepository<FacilityChange, Long> {
+    // Every change recorded after the given version, oldest first
+    List<FacilityChange> findByVersionGreaterThanOrderByVersionAscIdAsc(Long version);
+
+    // Oldest version still present in the change log (null when empty)
+    @Query("select min(c.version) from FacilityChange c")
+    Long findOldestVersion();
+
+    // Trim the change log
+    @Modifying
+    @Query("delete from FacilityChange c where c.version < :version")
+    int deleteByVersionLessThan(@Param("version") Long version);
+}
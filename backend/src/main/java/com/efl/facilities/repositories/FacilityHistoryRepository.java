@@ -0,0 +1,26 @@
+package com.efl.facilities.repositories;
+
+import com.efl.facilities.models.changes.FacilityHistoryRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface FacilityHistoryRepository extends JpaRepository<FacilityHistoryRecord, Long> {
+    // Every record as it was at the given dataset version
+    @Query("select h from FacilityHistoryRecord h"
+            + " where h.validFrom <= :version and (h.validTo is null or h.validTo > :version)")
+    List<FacilityHistoryRecord> findValidAt(@Param("version") Long version);
+
+    // Records written by the given version
+    List<FacilityHistoryRecord> findByValidFrom(Long version);
+
+    // Records replaced or deleted by the given version
+    List<FacilityHistoryRecord> findByValidTo(Long version);
+
+    // First dataset version the history is complete from (null when there is none)
+    @Query("select min(h.validFrom) from FacilityHistoryRecord h")
+    Long findOldestVersion();
+}
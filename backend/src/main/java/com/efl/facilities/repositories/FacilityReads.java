@@ -0,0 +1,50 @@
+package com.efl.facilities.repositories;
+
+import com.efl.facilities.models.Facility;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Every read of educational_facility the facility services make, from
+ * wherever the facilities being served live: the table on the primary
+ * (TableFacilityReads) or the province shards (ShardedFacilityRepository).
+ * There is exactly one of these beans, so every read path sees the same rows.
+ */
+public interface FacilityReads {
+
+    List<Facility> findAll();
+
+    Optional<Facility> findById(Long id);
+
+    Facility findByUniqueId(String uniqueId);
+
+    List<Facility> findByProvince(String province);
+
+    List<Facility> findByMunicipalityName(String municipalityName);
+
+    List<Facility> findByFacilityType(String facilityType);
+
+    List<Facility> findByFrenchImmersionTrue();
+
+    List<Facility> findByIdIn(Collection<Long> ids);
+
+    List<Facility> findByUniqueIdIn(Collection<String> uniqueIds);
+
+    /**
+     * The rows of a select on educational_facility, in id order. Only the
+     * selected columns are set on the facilities.
+     */
+    List<Facility> select(String sql, Map<String, ?> parameters);
+
+    /**
+     * One page of a select on educational_facility that ends in
+     * {@code order by id limit :limit offset :offset}; the limit and offset
+     * parameters are added here.
+     *
+     * @param province the province the select is filtered to, or null
+     */
+    List<Facility> selectPage(String province, String sql, Map<String, ?> parameters, int limit, int offset);
+}
@@ -0,0 +1,21 @@
+package com.efl.facilities.repositories;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+/**
+ * The FacilityReads bean while sharding is off; with efl.sharding.enabled,
+ * ShardingConfig provides ShardedFacilityRepository instead.
+ */
+@Configuration
+public class FacilityReadsConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "efl.sharding.enabled", havingValue = "false", matchIfMissing = true)
+    public FacilityReads facilityReads(FacilityRepository facilityRepository,
+                                       NamedParameterJdbcTemplate jdbcTemplate) {
+        return new TableFacilityReads(facilityRepository, jdbcTemplate);
+    }
+}
@@ -1,24 +1,54 @@
 package com.efl.facilities.repositories;
 
 import com.efl.facilities.models.Facility;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface FacilityRepository extends JpaRepository<Facility, Long> {
     // Find by uniqueId
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Facility.QUERY_CACHE_REGION)
+    })
     Facility findByUniqueId(String uniqueId);
 
     // Find all facilities by province
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Facility.QUERY_CACHE_REGION)
+    })
     List<Facility> findByProvince(String province);
 
     // Find all facilities by municipality
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Facility.QUERY_CACHE_REGION)
+    })
     List<Facility> findByMunicipalityName(String municipalityName);
 
     // Find all facilities by facility type
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Facility.QUERY_CACHE_REGION)
+    })
     List<Facility> findByFacilityType(String facilityType);
 
     // Find all facilities with French Immersion
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Facility.QUERY_CACHE_REGION)
+    })
     List<Facility> findByFrenchImmersionTrue();
+
+    // Find all facilities whose id is in the given batch
+    List<Facility> findByIdIn(Collection<Long> ids);
+
+    // Find all facilities whose uniqueId is in the given batch
+    List<Facility> findByUniqueIdIn(Collection<String> uniqueIds);
 }
\ No newline at end of file
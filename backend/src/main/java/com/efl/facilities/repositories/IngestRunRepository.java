@@ -0,0 +1,12 @@
+package com.efl.facilities.repositories;
+
+import com.efl.facilities.models.validation.IngestRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.Optional;
+
+@Repository
+public interface IngestRunRepository extends JpaRepository<IngestRun, Long> {
+    // The most recent ingest run, if the ingestor has recorded any
+    Optional<IngestRun> findTopByOrderByIdDesc();
+}
@@ -0,0 +1,13 @@
+package com.efl.facilities.repositories;
+
+import com.efl.facilities.models.validation.QuarantinedFacility;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface QuarantinedFacilityRepository extends JpaRepository<QuarantinedFacility, Long> {
+    // Records quarantined by one ingest run, in source order
+    List<QuarantinedFacility> findByIngestRunIdOrderByIdAsc(Long ingestRunId, Pageable pageable);
+}
@@ -0,0 +1,26 @@
+package com.efl.facilities.repositories;
+
+import com.efl.facilities.models.changes.ReplicaState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface ReplicaStateRepository extends JpaRepository<ReplicaState, String> {
+    // Replicas that have sent a heartbeat since the given instant
+    List<ReplicaState> findByLastSeenAtGreaterThanEqualOrderByInstanceIdAsc(Instant since);
+
+    // Lowest version still being served by a live replica, or null if none
+    @Query("select min(r.appliedVersion) from ReplicaState r where r.lastSeenAt >= :since")
+    Long findMinAppliedVersionSince(@Param("since") Instant since);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ReplicaState r where r.lastSeenAt < :cutoff")
+    int deleteByLastSeenAtBefore(@Param("cutoff") Instant cutoff);
+}
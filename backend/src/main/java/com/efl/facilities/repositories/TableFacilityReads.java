@@ -0,0 +1,87 @@
+package com.efl.facilities.repositories;
+
+import com.efl.facilities.models.Facility;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Facility reads from the educational_facility table on the primary (or its
+ * replicas), when sharding is off.
+ */
+public class TableFacilityReads implements FacilityReads {
+
+    private static final RowMapper<Facility> ROW_MAPPER = new BeanPropertyRowMapper<>(Facility.class);
+
+    private final FacilityRepository facilityRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public TableFacilityReads(FacilityRepository facilityRepository, NamedParameterJdbcTemplate jdbcTemplate) {
+        this.facilityRepository = facilityRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Facility> findAll() {
+        return facilityRepository.findAll();
+    }
+
+    @Override
+    public Optional<Facility> findById(Long id) {
+        return facilityRepository.findById(id);
+    }
+
+    @Override
+    public Facility findByUniqueId(String uniqueId) {
+        return facilityRepository.findByUniqueId(uniqueId);
+    }
+
+    @Override
+    public List<Facility> findByProvince(String province) {
+        return facilityRepository.findByProvince(province);
+    }
+
+    @Override
+    public List<Facility> findByMunicipalityName(String municipalityName) {
+        return facilityRepository.findByMunicipalityName(municipalityName);
+    }
+
+    @Override
+    public List<Facility> findByFacilityType(String facilityType) {
+        return facilityRepository.findByFacilityType(facilityType);
+    }
+
+    @Override
+    public List<Facility> findByFrenchImmersionTrue() {
+        return facilityRepository.findByFrenchImmersionTrue();
+    }
+
+    @Override
+    public List<Facility> findByIdIn(Collection<Long> ids) {
+        return facilityRepository.findByIdIn(ids);
+    }
+
+    @Override
+    public List<Facility> findByUniqueIdIn(Collection<String> uniqueIds) {
+        return facilityRepository.findByUniqueIdIn(uniqueIds);
+    }
+
+    @Override
+    public List<Facility> select(String sql, Map<String, ?> parameters) {
+        return jdbcTemplate.query(sql, parameters, ROW_MAPPER);
+    }
+
+    @Override
+    public List<Facility> selectPage(String province, String sql, Map<String, ?> parameters, int limit, int offset) {
+        Map<String, Object> paged = new HashMap<>(parameters);
+        paged.put("limit", limit);
+        paged.put("offset", offset);
+        return jdbcTemplate.query(sql, paged, ROW_MAPPER);
+    }
+}
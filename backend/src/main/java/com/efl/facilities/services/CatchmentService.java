@@ -0,0 +1,204 @@
+package com.efl.facilities.services;
+
+import com.efl.facilities.MunicipalitiesService;
+import com.efl.facilities.MunicipalityFeatureIndex;
+import com.efl.facilities.catchments.CatchmentMap;
+import com.efl.facilities.catchments.LanguageStream;
+import com.efl.facilities.catchments.ProvinceCatchments;
+import com.efl.facilities.catchments.SubdivisionShapes;
+import com.efl.facilities.concurrency.Coalesce;
+import com.efl.facilities.deadline.RequestDeadline;
+import com.efl.facilities.events.DatasetChangedEvent;
+import com.efl.facilities.fallback.LastGoodResults;
+import com.efl.facilities.models.Facility;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Catchment polygons: the Voronoi cell of every facility of a type and
+ * language stream, clipped to the census subdivisions of its province.
+ * Provinces are independent, so each is triangulated and clipped as its own
+ * fork/join task, and its cells are split further across the pool. Maps are
+ * kept per dataset version, facility type and stream until the next ingest;
+ * the projected subdivision polygons never change and are kept for good.
+ *
+ * Only getAllFacilities takes a bulkhead permit. Taking one here as well would
+ * make each request hold two full-scan permits, and concurrent requests could
+ * wait on each other's until they time out.
+ */
+@Service
+public class CatchmentService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CatchmentService.class);
+
+    // Cells per fork/join leaf; clipping a cell against its subdivisions is tens of microseconds
+    private static final int CELLS_PER_TASK = 64;
+
+    @Autowired
+    private FacilityService facilityService;
+
+    @Autowired
+    private MunicipalitiesService municipalitiesService;
+
+    @Autowired
+    private DatasetVersionTracker datasetVersionTracker;
+
+    private final Map<CatchmentKey, CatchmentMap> maps = new ConcurrentHashMap<>();
+    private final Map<String, SubdivisionShapes> shapes = new ConcurrentHashMap<>();
+
+    @EventListener
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        maps.clear();
+    }
+
+    /**
+     * @param facilityType facility type to draw catchments for (exact match); null for every type
+     */
+    @Coalesce
+    public CatchmentMap getCatchments(String facilityType, LanguageStream stream) throws IOException {
+        CatchmentKey key = new CatchmentKey(datasetVersionTracker.getAppliedVersion(), facilityType, stream);
+        CatchmentMap map = maps.get(key);
+        if (map == null) {
+            long earlierVersions = LastGoodResults.earlierVersionsServed();
+            map = compute(key);
+            // A type no facility has would otherwise add an empty map per request, and a map
+            // built from the previous version's facilities during an outage isn't this version's
+            if (map.getFacilityCount() > 0 && LastGoodResults.earlierVersionsServed() == earlierVersions) {
+                maps.put(key, map);
+            }
+        }
+        return map;
+    }
+
+    private CatchmentMap compute(CatchmentKey key) throws IOException {
+        long started = System.nanoTime();
+        Map<String, List<Facility>> byProvince = new HashMap<>();
+        for (Facility facility : facilityService.getAllFacilities()) {
+            if (facility.getLatitude() == null || facility.getLongitude() == null || facility.getProvince() == null
+                    || key.facilityType() != null && !key.facilityType().equals(facility.getFacilityType())
+                    || !key.stream().includes(facility)) {
+                continue;
+            }
+            byProvince.computeIfAbsent(facility.getProvince().trim().toUpperCase(Locale.ROOT),
+                    province -> new ArrayList<>()).add(facility);
+        }
+
+        RequestDeadline deadline = RequestDeadline.current();
+        List<ProvinceTask> tasks = new ArrayList<>();
+        for (Map.Entry<String, List<Facility>> entry : byProvince.entrySet()) {
+            SubdivisionShapes provinceShapes = shapesFor(entry.getKey());
+            // Without subdivisions there is nothing to clip to; such facilities are left out
+            if (!provinceShapes.isEmpty()) {
+                tasks.add(new ProvinceTask(provinceShapes, entry.getValue(), deadline));
+            }
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        Map<String, byte[]> features = new HashMap<>();
+        int facilityCount = 0;
+        int cellCount = 0;
+        for (ProvinceTask task : tasks) {
+            features.put(task.shapes.getProvince(), CatchmentMap.join(Arrays.asList(task.features)));
+            facilityCount += task.facilities.size();
+            cellCount += (int) Arrays.stream(task.features).filter(feature -> feature != null).count();
+        }
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        LOG.info("Computed {} catchments for {} {} facilities in {} provinces in {} ms", cellCount,
+                key.facilityType() == null ? "all" : key.facilityType(), key.stream().getParamName(),
+                tasks.size(), elapsedMs);
+        return new CatchmentMap(key.datasetVersion(), key.facilityType(), key.stream(), features,
+                facilityCount, cellCount, elapsedMs);
+    }
+
+    private SubdivisionShapes shapesFor(String province) throws IOException {
+        SubdivisionShapes provinceShapes = shapes.get(province);
+        if (provinceShapes == null) {
+            MunicipalityFeatureIndex index = municipalitiesService.getIndex();
+            provinceShapes = SubdivisionShapes.of(index, province);
+            shapes.put(province, provinceShapes);
+        }
+        return provinceShapes;
+    }
+
+    private record CatchmentKey(long datasetVersion, String facilityType, LanguageStream stream) {
+    }
+
+    /**
+     * Triangulates one province, then writes its cells' features with a {@link CellTask}.
+     */
+    private static final class ProvinceTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient SubdivisionShapes shapes;
+        private final transient List<Facility> facilities;
+        private final transient RequestDeadline deadline;
+        private byte[][] features;
+
+        ProvinceTask(SubdivisionShapes shapes, List<Facility> facilities, RequestDeadline deadline) {
+            this.shapes = shapes;
+            this.facilities = facilities;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected void compute() {
+            RequestDeadline.checkpoint(deadline);
+            ProvinceCatchments catchments = ProvinceCatchments.build(shapes, facilities);
+            byte[][] written = new byte[catchments.getSiteCount()][];
+            new CellTask(catchments, written, 0, written.length, deadline).invoke();
+            features = written;
+        }
+    }
+
+    /**
+     * Fills features[from, to), splitting in half until a range is small
+     * enough to do directly. Cells that cover no land are left null.
+     */
+    private static final class CellTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient ProvinceCatchments catchments;
+        private final byte[][] features;
+        private final int from;
+        private final int to;
+        private final transient RequestDeadline deadline;
+
+        CellTask(ProvinceCatchments catchments, byte[][] features, int from, int to, RequestDeadline deadline) {
+            this.catchments = catchments;
+            this.features = features;
+            this.from = from;
+            this.to = to;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CELLS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new CellTask(catchments, features, from, mid, deadline),
+                        new CellTask(catchments, features, mid, to, deadline));
+                return;
+            }
+            RequestDeadline.checkpoint(deadline);
+            for (int site = from; site < to; site++) {
+                features[site] = catchments.feature(site);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.efl.facilities.services;
+
+import com.efl.facilities.events.DatasetChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Server-Sent Events stream of dataset versions. Each subscriber gets the
+ * current version straight away and a "version" event after every ingest,
+ * and can then pull /api/facilities/changes?since=... for the deltas.
+ */
+@Service
+public class DatasetVersionBroadcaster {
+
+    static final String EVENT_NAME = "version";
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L;
+
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    private FacilityChangeLogService facilityChangeLogService;
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> emitters.remove(emitter));
+        emitters.add(emitter);
+        send(emitter, facilityChangeLogService.getCurrentVersion());
+        return emitter;
+    }
+
+    @EventListener
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        for (SseEmitter emitter : emitters) {
+            send(emitter, event.getVersion());
+        }
+    }
+
+    int getSubscriberCount() {
+        return emitters.size();
+    }
+
+    private void send(SseEmitter emitter, long version) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name(EVENT_NAME)
+                    .id(Long.toString(version))
+                    .data(version));
+        } catch (IOException | IllegalStateException e) {
+            // client went away or the emitter already completed
+            emitters.remove(emitter);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.efl.facilities.services;
+
+import com.efl.facilities.events.DatasetChangedEvent;
+import com.efl.facilities.models.changes.ReplicaState;
+import com.efl.facilities.repositories.DatasetVersionRepository;
+import com.efl.facilities.repositories.ReplicaStateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps this replica's in-process caches in step with the dataset version in
+ * the database. Only the replica that receives /api/admin/ingest-complete sees
+ * the ingest directly; every other replica notices the new version on its next
+ * poll and republishes {@link DatasetChangedEvent} locally, so the caches and
+ * indexes rebuild on the scheduler thread and swap in when done.
+ *
+ * Each poll also records a heartbeat in replica_state, from which the version
+ * skew between live replicas is derived.
+ */
+@Service
+public class DatasetVersionTracker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DatasetVersionTracker.class);
+
+    /** Applied version before the first successful read of the database. */
+    public static final long UNKNOWN = -1L;
+
+    // A replica counts as live if it sent a heartbeat within this many poll intervals
+    private static final int LIVE_INTERVALS = 3;
+    // Rows of replicas gone for longer than this many intervals are removed
+    private static final int FORGET_INTERVALS = 100;
+
+    @Autowired
+    private DatasetVersionRepository datasetVersionRepository;
+
+    @Autowired
+    private ReplicaStateRepository replicaStateRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${efl.dataset-version.poll-interval-ms:5000}")
+    private long pollIntervalMs;
+
+    @Value("${efl.instance-id:}")
+    private String instanceId;
+
+    private final AtomicLong appliedVersion = new AtomicLong(UNKNOWN);
+    private volatile long latestVersion = UNKNOWN;
+    private volatile long skew;
+
+    /**
+     * Runs before the startup cache builders, so that any ingest finishing
+     * after this read shows up as a newer version on the next poll.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void initialize() {
+        if (instanceId == null || instanceId.isBlank()) {
+            instanceId = UUID.randomUUID().toString();
+        }
+        try {
+            long latest = readLatestVersion();
+            latestVersion = latest;
+            appliedVersion.set(latest);
+            heartbeat();
+        } catch (DataAccessException | TransactionException e) {
+            // Left UNKNOWN; the first successful poll refreshes everything.
+            LOG.warn("Could not read the dataset version at startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Runs after every other listener, so a rebuild that throws leaves the
+     * version unapplied and the next poll retries it.
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        appliedVersion.accumulateAndGet(event.getVersion(), Math::max);
+    }
+
+    @Scheduled(fixedDelayString = "${efl.dataset-version.poll-interval-ms:5000}",
+            initialDelayString = "${efl.dataset-version.poll-interval-ms:5000}")
+    public void scheduledPoll() {
+        try {
+            poll();
+        } catch (DataAccessException | TransactionException e) {
+            LOG.warn("Dataset version poll failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Read the latest version, refresh local caches if it is newer than the
+     * one applied, then record a heartbeat and recompute the skew.
+     */
+    public void poll() {
+        long latest = readLatestVersion();
+        latestVersion = latest;
+
+        long applied = appliedVersion.get();
+        if (applied == UNKNOWN || latest > applied) {
+            LOG.info("Dataset version {} is newer than applied version {}; refreshing caches", latest, applied);
+            eventPublisher.publishEvent(new DatasetChangedEvent(latest, Instant.now()));
+            // Nothing may have changed since an unknown start; still count it as applied.
+            appliedVersion.accumulateAndGet(latest, Math::max);
+        }
+
+        heartbeat();
+    }
+
+    private long readLatestVersion() {
+        Long latest = datasetVersionRepository.findLatestVersion();
+        return latest == null ? 0L : latest;
+    }
+
+    private void heartbeat() {
+        Instant now = Instant.now();
+
+        ReplicaState state = new ReplicaState();
+        state.setInstanceId(instanceId);
+        state.setAppliedVersion(Math.max(appliedVersion.get(), 0L));
+        state.setLastSeenAt(now);
+        replicaStateRepository.save(state);
+
+        replicaStateRepository.deleteByLastSeenAtBefore(now.minus(interval().multipliedBy(FORGET_INTERVALS)));
+
+        Long oldestLive = replicaStateRepository.findMinAppliedVersionSince(liveSince(now));
+        skew = oldestLive == null ? 0L : Math.max(latestVersion - oldestLive, 0L);
+    }
+
+    public List<ReplicaState> getLiveReplicas() {
+        return replicaStateRepository.findByLastSeenAtGreaterThanEqualOrderByInstanceIdAsc(liveSince(Instant.now()));
+    }
+
+    private Instant liveSince(Instant now) {
+        return now.minus(interval().multipliedBy(LIVE_INTERVALS));
+    }
+
+    private Duration interval() {
+        return Duration.ofMillis(pollIntervalMs);
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public long getAppliedVersion() {
+        return appliedVersion.get();
+    }
+
+    public long getLatestVersion() {
+        return latestVersion;
+    }
+
+    /** Latest version minus the oldest version applied by any live replica, as of the last poll. */
+    public long getSkew() {
+        return skew;
+    }
+}
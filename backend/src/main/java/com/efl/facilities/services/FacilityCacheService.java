@@ -0,0 +1,67 @@
+package com.efl.facilities.services;
+
+import com.efl.facilities.events.DatasetChangedEvent;
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.models.cache.FacilityCacheStatistics;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+
+@Service
+public class FacilityCacheService {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private volatile Instant lastEvictedAt;
+
+    /**
+     * Drop every cached facility and every cached query result. The entity is
+     * read-only, so nothing is invalidated piecemeal; a finished ingest simply
+     * replaces the whole dataset.
+     */
+    @EventListener
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        evictAll();
+    }
+
+    public void evictAll() {
+        sessionFactory().getCache().evictAllRegions();
+        lastEvictedAt = Instant.now();
+    }
+
+    public FacilityCacheStatistics getStatistics() {
+        Statistics statistics = sessionFactory().getStatistics();
+
+        FacilityCacheStatistics result = new FacilityCacheStatistics();
+        result.setSecondLevelCacheHitCount(statistics.getSecondLevelCacheHitCount());
+        result.setSecondLevelCacheMissCount(statistics.getSecondLevelCacheMissCount());
+
+        CacheRegionStatistics entityRegion = statistics.getCacheRegionStatistics(Facility.CACHE_REGION);
+        if (entityRegion != null) {
+            result.setEntityHitCount(entityRegion.getHitCount());
+            result.setEntityMissCount(entityRegion.getMissCount());
+            result.setEntityPutCount(entityRegion.getPutCount());
+        }
+
+        CacheRegionStatistics queryRegion = statistics.getCacheRegionStatistics(Facility.QUERY_CACHE_REGION);
+        if (queryRegion != null) {
+            result.setQueryHitCount(queryRegion.getHitCount());
+            result.setQueryMissCount(queryRegion.getMissCount());
+            result.setQueryPutCount(queryRegion.getPutCount());
+        }
+
+        result.setLastEvictedAt(lastEvictedAt);
+        return result;
+    }
+
+    private SessionFactory sessionFactory() {
+        return entityManagerFactory.unwrap(SessionFactory.class);
+    }
+}
@@ -0,0 +1,323 @@
+package com.efl.facilities.services;
+
+import com.efl.facilities.events.DatasetChangedEvent;
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.models.changes.DatasetVersion;
+import com.efl.facilities.models.changes.FacilityChange;
+import com.efl.facilities.models.changes.FacilityChangeSet;
+import com.efl.facilities.models.changes.FacilityChangeType;
+import com.efl.facilities.repositories.DatasetVersionRepository;
+import com.efl.facilities.repositories.FacilityChangeRepository;
+import com.efl.facilities.repositories.FacilityHistoryRepository;
+import com.efl.facilities.repositories.FacilityReads;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Turns each ingest into a numbered dataset version with a change log of the
+ * uniqueIds it inserted, updated and deleted, and keeps every version of each
+ * record in facility_history for queries as of an earlier version.
+ *
+ * The ingest itself only writes educational_facility; afterwards the
+ * facilities are diffed against the content hashes stored for the previous
+ * version. They are read through FacilityReads, like every other facility
+ * read, so with sharding on the versions, change log and history describe
+ * the shards being served rather than the table on the primary.
+ */
+@Service
+public class FacilityChangeLogService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FacilityChangeLogService.class);
+
+    private static final String INSERT_CHANGE =
+            "insert into facility_change (version, unique_id, change_type) values (?, ?, ?)";
+    private static final String INSERT_FINGERPRINT =
+            "insert into facility_fingerprint (unique_id, content_hash) values (?, ?)";
+    private static final String DELETE_FINGERPRINT =
+            "delete from facility_fingerprint where unique_id = ?";
+    private static final String INSERT_HISTORY =
+            "insert into facility_history (unique_id, valid_from, record_json) values (?, ?, ?)";
+    private static final String CLOSE_HISTORY =
+            "update facility_history set valid_to = ? where unique_id = ? and valid_to is null";
+    private static final char FIELD_SEPARATOR = '\u001f';
+    private static final int DEFAULT_RETAINED_VERSIONS = 50;
+
+    @Autowired
+    private FacilityReads facilityReads;
+
+    @Autowired
+    private DatasetVersionRepository datasetVersionRepository;
+
+    @Autowired
+    private FacilityChangeRepository facilityChangeRepository;
+
+    @Autowired
+    private FacilityHistoryRepository facilityHistoryRepository;
+
+    @Autowired
+    private FacilityService facilityService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${facilities.changes.retained-versions:50}")
+    private int retainedVersions = DEFAULT_RETAINED_VERSIONS;
+
+    /**
+     * Diff the facility table against the previous version and, if anything
+     * changed, record a new version with its change log. Listeners are told
+     * about the (possibly unchanged) current version once the transaction has
+     * committed, since rows may have been rewritten even when content wasn't.
+     */
+    public DatasetVersion recordIngest() {
+        DatasetVersion version = new TransactionTemplate(transactionManager).execute(status -> diffAndRecord());
+        long number = version == null || version.getVersion() == null ? 0L : version.getVersion();
+        eventPublisher.publishEvent(new DatasetChangedEvent(number, Instant.now()));
+        return version;
+    }
+
+    @Transactional(readOnly = true)
+    public long getCurrentVersion() {
+        return datasetVersionRepository.findTopByOrderByVersionDesc()
+                .map(DatasetVersion::getVersion)
+                .orElse(0L);
+    }
+
+    /**
+     * The net changes after the given version: a facility inserted and then
+     * updated is reported once as inserted, one inserted and then deleted not at all.
+     */
+    @Transactional(readOnly = true)
+    public FacilityChangeSet getChangesSince(long since) {
+        long current = getCurrentVersion();
+
+        FacilityChangeSet changeSet = new FacilityChangeSet();
+        changeSet.setFromVersion(since);
+        changeSet.setToVersion(current);
+        if (since >= current) {
+            return changeSet;
+        }
+
+        Long oldest = facilityChangeRepository.findOldestVersion();
+        if (oldest == null || oldest > since + 1) {
+            changeSet.setFullResync(true);
+            return changeSet;
+        }
+
+        Map<String, FacilityChangeType> net = new LinkedHashMap<>();
+        for (FacilityChange change : facilityChangeRepository.findByVersionGreaterThanOrderByVersionAscIdAsc(since)) {
+            FacilityChangeType merged = merge(net.get(change.getUniqueId()), change.getChangeType());
+            if (merged == null) {
+                net.remove(change.getUniqueId());
+            } else {
+                net.put(change.getUniqueId(), merged);
+            }
+        }
+
+        List<String> upserted = new ArrayList<>();
+        net.forEach((uniqueId, type) -> {
+            if (type == FacilityChangeType.DELETED) {
+                changeSet.getDeleted().add(uniqueId);
+            } else {
+                upserted.add(uniqueId);
+            }
+        });
+        for (Facility facility : facilityService.getFacilitiesByUniqueIds(upserted)) {
+            if (net.get(facility.getUniqueId()) == FacilityChangeType.INSERTED) {
+                changeSet.getInserted().add(facility);
+            } else {
+                changeSet.getUpdated().add(facility);
+            }
+        }
+        return changeSet;
+    }
+
+    /** Combine an earlier net change with a later one; null means "no net change". */
+    static FacilityChangeType merge(FacilityChangeType earlier, FacilityChangeType later) {
+        if (earlier == null) {
+            return later;
+        }
+        if (earlier == FacilityChangeType.INSERTED) {
+            return later == FacilityChangeType.DELETED ? null : FacilityChangeType.INSERTED;
+        }
+        // it existed before the window, so anything but a delete leaves it updated
+        return later == FacilityChangeType.DELETED ? FacilityChangeType.DELETED : FacilityChangeType.UPDATED;
+    }
+
+    private DatasetVersion diffAndRecord() {
+        Map<String, String> previous = new HashMap<>();
+        jdbcTemplate.query("select unique_id, content_hash from facility_fingerprint",
+                rs -> {
+                    previous.put(rs.getString(1), rs.getString(2));
+                });
+
+        Map<String, String> current = new HashMap<>();
+        Map<String, Facility> facilities = new HashMap<>();
+        for (Facility facility : facilityReads.findAll()) {
+            current.put(facility.getUniqueId(), fingerprint(facility));
+            facilities.put(facility.getUniqueId(), facility);
+        }
+
+        List<String> inserted = new ArrayList<>();
+        List<String> updated = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        current.forEach((uniqueId, hash) -> {
+            String before = previous.get(uniqueId);
+            if (before == null) {
+                inserted.add(uniqueId);
+            } else if (!before.equals(hash)) {
+                updated.add(uniqueId);
+            }
+        });
+        for (String uniqueId : previous.keySet()) {
+            if (!current.containsKey(uniqueId)) {
+                deleted.add(uniqueId);
+            }
+        }
+
+        if (inserted.isEmpty() && updated.isEmpty() && deleted.isEmpty()) {
+            LOG.info("Ingest left the dataset unchanged");
+            return datasetVersionRepository.findTopByOrderByVersionDesc().orElse(null);
+        }
+
+        long next = getCurrentVersion() + 1;
+        writeChanges(next, inserted, FacilityChangeType.INSERTED);
+        writeChanges(next, updated, FacilityChangeType.UPDATED);
+        writeChanges(next, deleted, FacilityChangeType.DELETED);
+
+        List<String> rewritten = new ArrayList<>(updated);
+        rewritten.addAll(deleted);
+        jdbcTemplate.batchUpdate(DELETE_FINGERPRINT, rewritten, rewritten.size(),
+                (ps, uniqueId) -> ps.setString(1, uniqueId));
+        List<String> written = new ArrayList<>(inserted);
+        written.addAll(updated);
+        jdbcTemplate.batchUpdate(INSERT_FINGERPRINT, written, written.size(),
+                (ps, uniqueId) -> {
+                    ps.setString(1, uniqueId);
+                    ps.setString(2, current.get(uniqueId));
+                });
+
+        writeHistory(next, facilities, inserted, updated, deleted);
+
+        facilityChangeRepository.deleteByVersionLessThan(next - retainedVersions + 1);
+
+        DatasetVersion version = new DatasetVersion();
+        version.setVersion(next);
+        version.setCreatedAt(Instant.now());
+        version.setInsertedCount(inserted.size());
+        version.setUpdatedCount(updated.size());
+        version.setDeletedCount(deleted.size());
+        version.setTotalCount(current.size());
+        LOG.info("Recorded dataset version {}: {} inserted, {} updated, {} deleted",
+                next, inserted.size(), updated.size(), deleted.size());
+        return datasetVersionRepository.save(version);
+    }
+
+    private void writeChanges(long version, List<String> uniqueIds, FacilityChangeType type) {
+        if (uniqueIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_CHANGE, uniqueIds, uniqueIds.size(),
+                (ps, uniqueId) -> {
+                    ps.setLong(1, version);
+                    ps.setString(2, uniqueId);
+                    ps.setString(3, type.name());
+                });
+    }
+
+    /**
+     * Close the history records of updated and deleted facilities and open
+     * new ones for inserted and updated facilities. If there is no history yet
+     * (the first ingest, or the first since history was added) every current
+     * facility is written, so history is complete from this version on.
+     */
+    private void writeHistory(long version, Map<String, Facility> facilities,
+                              List<String> inserted, List<String> updated, List<String> deleted) {
+        List<String> opened;
+        if (facilityHistoryRepository.findOldestVersion() == null) {
+            opened = new ArrayList<>(facilities.keySet());
+        } else {
+            List<String> closed = new ArrayList<>(updated);
+            closed.addAll(deleted);
+            jdbcTemplate.batchUpdate(CLOSE_HISTORY, closed, closed.size(),
+                    (ps, uniqueId) -> {
+                        ps.setLong(1, version);
+                        ps.setString(2, uniqueId);
+                    });
+            opened = new ArrayList<>(inserted);
+            opened.addAll(updated);
+        }
+        jdbcTemplate.batchUpdate(INSERT_HISTORY, opened, opened.size(),
+                (ps, uniqueId) -> {
+                    ps.setString(1, uniqueId);
+                    ps.setLong(2, version);
+                    ps.setString(3, toJson(facilities.get(uniqueId)));
+                });
+    }
+
+    private String toJson(Facility facility) {
+        try {
+            return objectMapper.writeValueAsString(facility);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode facility " + facility.getUniqueId(), e);
+        }
+    }
+
+    /** SHA-256 over every column except the generated id. */
+    static String fingerprint(Facility facility) {
+        StringBuilder content = new StringBuilder(512);
+        Object[] fields = {
+                facility.getUniqueId(), facility.getFacilityName(), facility.getFacilityType(),
+                facility.getAuthorityName(), facility.getAddress(), facility.getUnit(),
+                facility.getPostalCode(), facility.getMunicipalityName(), facility.getProvince(),
+                facility.getSourceId(), facility.getMinGrade(), facility.getMaxGrade(),
+                facility.getLanguageMinorityStatus(), facility.getFrenchImmersion(),
+                facility.getEarlyImmersion(), facility.getMiddleImmersion(), facility.getLateImmersion(),
+                facility.getCensusSubdivisionName(), facility.getCensusSubdivisionId(),
+                facility.getGeometry(),
+                facility.getLongitude() == null ? null : facility.getLongitude().stripTrailingZeros().toPlainString(),
+                facility.getLatitude() == null ? null : facility.getLatitude().stripTrailingZeros().toPlainString(),
+                facility.getDateUpdated()
+        };
+        for (Object field : fields) {
+            content.append(Objects.toString(field, "\u0000")).append(FIELD_SEPARATOR);
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.efl.facilities.services;
+
+import com.efl.facilities.concurrency.BulkheadLimited;
+import com.efl.facilities.concurrency.Coalesce;
+import com.efl.facilities.events.DatasetChangedEvent;
+import com.efl.facilities.history.FacilityVintage;
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.models.changes.DatasetVersion;
+import com.efl.facilities.models.changes.FacilityHistoryRecord;
+import com.efl.facilities.repositories.DatasetVersionRepository;
+import com.efl.facilities.repositories.FacilityHistoryRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Facilities as of an earlier dataset version, for the asOf parameter.
+ *
+ * The latest few versions are kept in memory as {@link FacilityVintage}s.
+ * Each new one is derived from the previous by applying just the records that
+ * version wrote, so they share every unchanged bucket. Older versions are
+ * rebuilt from facility_history on request.
+ */
+@Service
+@Transactional(readOnly = true)
+public class FacilityHistoryService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FacilityHistoryService.class);
+
+    private static final int DEFAULT_HOT_VERSIONS = 3;
+
+    @Autowired
+    private FacilityHistoryRepository facilityHistoryRepository;
+
+    @Autowired
+    private DatasetVersionRepository datasetVersionRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${efl.history.hot-versions:3}")
+    private int hotVersions = DEFAULT_HOT_VERSIONS;
+
+    private final ConcurrentNavigableMap<Long, FacilityVintage> hot = new ConcurrentSkipListMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            Long latest = datasetVersionRepository.findLatestVersion();
+            if (latest != null) {
+                makeHot(latest);
+            }
+        } catch (DataAccessException | TransactionException e) {
+            // The first asOf query reads history from the database instead
+            LOG.warn("Could not load facility history at startup: {}", e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        if (!hot.isEmpty() && event.getVersion() < hot.lastKey()) {
+            // Version numbers started over (the database was recreated), so the held vintages are unrelated
+            hot.clear();
+        }
+        if (event.getVersion() > 0 && !hot.containsKey(event.getVersion())) {
+            makeHot(event.getVersion());
+        }
+    }
+
+    private void makeHot(long version) {
+        Map.Entry<Long, FacilityVintage> previous = hot.lastEntry();
+        FacilityVintage vintage;
+        if (previous != null && previous.getKey() == version - 1) {
+            vintage = applyVersion(previous.getValue(), version);
+        } else {
+            vintage = load(version);
+            if (vintage == null) {
+                return;
+            }
+        }
+        hot.put(version, vintage);
+        while (hot.size() > Math.max(hotVersions, 1)) {
+            hot.pollFirstEntry();
+        }
+        LOG.info("Facility history for version {} is in memory: {} facilities, {} of {} buckets shared",
+                version, vintage.size(),
+                previous == null ? 0 : vintage.sharedBuckets(previous.getValue()), FacilityVintage.bucketCount());
+    }
+
+    // The previous vintage plus the records the version wrote, minus the ones it closed
+    private FacilityVintage applyVersion(FacilityVintage previous, long version) {
+        List<Facility> upserted = new ArrayList<>();
+        for (FacilityHistoryRecord record : facilityHistoryRepository.findByValidFrom(version)) {
+            upserted.add(fromJson(record));
+        }
+        Set<String> deleted = new HashSet<>();
+        for (FacilityHistoryRecord record : facilityHistoryRepository.findByValidTo(version)) {
+            deleted.add(record.getUniqueId());
+        }
+        return previous.apply(version, upserted, deleted);
+    }
+
+    /**
+     * Every facility as of the given version, read from facility_history, or
+     * null if history doesn't go back that far.
+     */
+    private FacilityVintage load(long version) {
+        Long oldest = facilityHistoryRepository.findOldestVersion();
+        if (oldest == null || version < oldest) {
+            return null;
+        }
+        List<Facility> facilities = new ArrayList<>();
+        for (FacilityHistoryRecord record : facilityHistoryRepository.findValidAt(version)) {
+            facilities.add(fromJson(record));
+        }
+        return FacilityVintage.of(version, facilities);
+    }
+
+    /**
+     * The facilities as of asOf: a dataset version number, a date
+     * (yyyy-MM-dd, meaning the end of that day in UTC) or an ISO-8601 instant.
+     * Empty if no version existed then or history doesn't go back that far.
+     *
+     * @throws IllegalArgumentException if asOf is none of those
+     */
+    @Coalesce
+    @BulkheadLimited("full-scan")
+    public Optional<FacilityVintage> getVintage(String asOf) {
+        Optional<Long> version = resolveVersion(asOf);
+        if (version.isEmpty()) {
+            return Optional.empty();
+        }
+        FacilityVintage cached = hot.get(version.get());
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Long latest = datasetVersionRepository.findLatestVersion();
+        if (latest == null || version.get() > latest) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(load(version.get()));
+    }
+
+    /** The versions currently held in memory, oldest first. */
+    public List<Long> getHotVersions() {
+        return new ArrayList<>(hot.keySet());
+    }
+
+    private Optional<Long> resolveVersion(String asOf) {
+        String value = asOf.trim();
+        if (!value.isEmpty() && value.chars().allMatch(Character::isDigit)) {
+            return Optional.of(Long.parseLong(value));
+        }
+        Instant at;
+        try {
+            at = value.contains("T")
+                    ? Instant.parse(value)
+                    : LocalDate.parse(value).plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().minusNanos(1);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("asOf must be a dataset version, a date or an ISO-8601 instant", e);
+        }
+        return datasetVersionRepository.findTopByCreatedAtLessThanEqualOrderByVersionDesc(at)
+                .map(DatasetVersion::getVersion);
+    }
+
+    private Facility fromJson(FacilityHistoryRecord record) {
+        try {
+            return objectMapper.readValue(record.getRecordJson(), Facility.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable history record " + record.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.efl.facilities.services;
+
+import com.efl.facilities.concurrency.Coalesce;
+import com.efl.facilities.events.DatasetChangedEvent;
+import com.efl.facilities.fallback.LastGoodResults;
+import com.efl.facilities.markers.FacilityMarkers;
+import com.efl.facilities.models.Facility;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Packed marker payloads for the map, one per dataset version and province
+ * (plus one for all of Canada), built on first request and kept until the
+ * next ingest.
+ */
+@Service
+public class FacilityMarkerService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FacilityMarkerService.class);
+
+    private static final String ALL_PROVINCES = "";
+
+    @Autowired
+    private FacilityService facilityService;
+
+    @Autowired
+    private DatasetVersionTracker datasetVersionTracker;
+
+    private final Map<MarkerKey, FacilityMarkers> payloads = new ConcurrentHashMap<>();
+
+    @EventListener
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        payloads.clear();
+    }
+
+    /**
+     * @param province two-letter code to narrow the markers to; null for all of Canada
+     */
+    @Coalesce
+    public FacilityMarkers getMarkers(String province) {
+        String code = province == null ? ALL_PROVINCES : province.trim().toUpperCase(Locale.ROOT);
+        MarkerKey key = new MarkerKey(datasetVersionTracker.getAppliedVersion(), code);
+        FacilityMarkers markers = payloads.get(key);
+        if (markers == null) {
+            long earlierVersions = LastGoodResults.earlierVersionsServed();
+            markers = encode(key);
+            // Markers built from the previous version's facilities during an outage aren't this version's
+            if (LastGoodResults.earlierVersionsServed() == earlierVersions) {
+                payloads.put(key, markers);
+            }
+        }
+        return markers;
+    }
+
+    private FacilityMarkers encode(MarkerKey key) {
+        List<Facility> facilities = facilityService.getAllFacilities();
+        if (!ALL_PROVINCES.equals(key.province())) {
+            facilities = facilities.stream().filter(facility -> key.province().equals(facility.getProvince())).toList();
+        }
+        FacilityMarkers markers = FacilityMarkers.encode(key.datasetVersion(), facilities);
+        LOG.info("Packed {} markers{} for dataset version {} into {} bytes", markers.getCount(),
+                ALL_PROVINCES.equals(key.province()) ? "" : " in " + key.province(), key.datasetVersion(),
+                markers.getSize());
+        return markers;
+    }
+
+    private record MarkerKey(long datasetVersion, String province) {
+    }
+}
@@ -0,0 +1,91 @@
+package com.efl.facilities.services;
+
+import com.efl.facilities.concurrency.BulkheadLimited;
+import com.efl.facilities.graphql.FacilityColumns;
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.repositories.FacilityReads;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Facility reads for the GraphQL endpoint, which name only the columns a
+ * query selected (see FacilityColumns). The returned facilities have just
+ * those fields set. They run in the same bulkheads as FacilityService, but
+ * aren't coalesced: two queries rarely select the same columns. They go
+ * through FacilityReads like FacilityService's, so with sharding on a page
+ * filtered to one province is read from its shard and anything else from
+ * every shard, merged in id order.
+ */
+@Service
+@Transactional(readOnly = true)
+public class FacilitySelectionService {
+
+    @Autowired
+    private FacilityReads facilityReads;
+
+    @BulkheadLimited("lookup")
+    public Optional<Facility> getFacility(long id, Set<String> columns) {
+        return facilityReads.select(select(columns) + " where id = :id", Map.of("id", id))
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * A page of facilities in id order.
+     *
+     * @param filters column to the value it must equal
+     */
+    @BulkheadLimited("full-scan")
+    public List<Facility> getFacilities(Set<String> columns, Map<String, Object> filters, int limit, int offset) {
+        FacilityColumns.check(filters.keySet());
+        StringBuilder sql = new StringBuilder(select(columns));
+        String conjunction = " where ";
+        for (String column : filters.keySet()) {
+            sql.append(conjunction).append(column).append(" = :").append(column);
+            conjunction = " and ";
+        }
+        sql.append(" order by id limit :limit offset :offset");
+        String province = filters.get(FacilityColumns.PROVINCE) instanceof String value ? value : null;
+        return facilityReads.selectPage(province, sql.toString(), filters, limit, offset);
+    }
+
+    /**
+     * Facilities in any of the given census subdivisions (CSDUIDs or DGUIDs),
+     * keyed by their census_subdivision_id. One query per
+     * {@link FacilityService#BATCH_QUERY_CHUNK_SIZE} ids.
+     */
+    @BulkheadLimited("full-scan")
+    public Map<String, List<Facility>> getFacilitiesBySubdivision(Collection<String> subdivisionIds,
+                                                                  Set<String> columns) {
+        Set<String> selected = new LinkedHashSet<>(columns);
+        selected.add(FacilityColumns.SUBDIVISION_ID);
+        String sql = select(selected) + " where " + FacilityColumns.SUBDIVISION_ID + " in (:ids) order by id";
+
+        List<String> ids = List.copyOf(subdivisionIds);
+        Map<String, List<Facility>> bySubdivision = new HashMap<>();
+        for (int start = 0; start < ids.size(); start += FacilityService.BATCH_QUERY_CHUNK_SIZE) {
+            List<String> chunk = ids.subList(start,
+                    Math.min(start + FacilityService.BATCH_QUERY_CHUNK_SIZE, ids.size()));
+            for (Facility facility : facilityReads.select(sql, Map.of("ids", chunk))) {
+                bySubdivision.computeIfAbsent(facility.getCensusSubdivisionId(), id -> new ArrayList<>())
+                        .add(facility);
+            }
+        }
+        return bySubdivision;
+    }
+
+    private static String select(Set<String> columns) {
+        FacilityColumns.check(columns);
+        return "select " + String.join(", ", columns) + " from educational_facility";
+    }
+}
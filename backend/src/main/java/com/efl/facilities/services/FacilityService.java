@@ -1,43 +1,171 @@
 package com.efl.facilities.services;
 
+import com.efl.facilities.concurrency.BulkheadLimited;
+import com.efl.facilities.concurrency.Coalesce;
+import com.efl.facilities.fallback.ServeStale;
 import com.efl.facilities.models.Facility;
-import com.efl.facilities.repositories.FacilityRepository;
+import com.efl.facilities.models.batch.FacilityBatchEntry;
+import com.efl.facilities.models.batch.FacilityBatchRequest;
+import com.efl.facilities.models.batch.FacilityBatchResult;
+import com.efl.facilities.repositories.FacilityReads;
+import com.efl.facilities.snapshot.FacilitySnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
+/**
+ * Reads are coalesced (identical concurrent calls share one query) and run in
+ * one of two bulkheads: "full-scan" for whole-table reads and "lookup" for
+ * point and filtered reads, so a burst of one kind can't starve the other.
+ * Everything here is read-only, so it is served by a read replica when one is
+ * configured (see ReadWriteRoutingDataSource). The whole-table read and id
+ * lookups come from the mapped facility snapshot when it is current; the rest
+ * go through FacilityReads, which reads the province shards when sharding is
+ * on. All but the batch reads also answer from their last good result while
+ * it is refreshed, and fall back on it when the database is unreachable (see
+ * LastGoodResults).
+ */
 @Service
+@Transactional(readOnly = true)
 public class FacilityService {
+
+    // Keeps each IN (...) list well under database parameter limits
+    static final int BATCH_QUERY_CHUNK_SIZE = 500;
+    private static final int DEFAULT_MAX_BATCH_KEYS = 1000;
     
     @Autowired
-    private FacilityRepository facilityRepository;
+    private FacilityReads facilityReads;
+
+    @Autowired
+    private FacilitySnapshotService facilitySnapshotService;
+
+    @Value("${facilities.batch.max-keys:1000}")
+    private int maxBatchKeys = DEFAULT_MAX_BATCH_KEYS;
 
+    @ServeStale
+    @Coalesce
+    @BulkheadLimited("full-scan")
     public List<Facility> getAllFacilities() {
-        return facilityRepository.findAll();
+        List<Facility> decoded = facilitySnapshotService.facilities();
+        if (decoded != null) {
+            return decoded;
+        }
+        return facilityReads.findAll();
     }
 
+    @ServeStale
+    @Coalesce
+    @BulkheadLimited("lookup")
     public Optional<Facility> getFacilityById(Long id) {
-        return facilityRepository.findById(id);
+        FacilitySnapshot snapshot = facilitySnapshotService.current();
+        if (snapshot == null || id == null) {
+            return facilityReads.findById(id);
+        }
+        int row = snapshot.indexOfId(id);
+        return row < 0 ? Optional.empty() : Optional.of(snapshot.toFacility(row));
     }
 
+    @ServeStale
+    @Coalesce
+    @BulkheadLimited("lookup")
     public Facility getFacilityByUniqueId(String uniqueId) {
-        return facilityRepository.findByUniqueId(uniqueId);
+        return facilityReads.findByUniqueId(uniqueId);
     }
 
+    @ServeStale
+    @Coalesce
+    @BulkheadLimited("lookup")
     public List<Facility> getFacilitiesByProvince(String province) {
-        return facilityRepository.findByProvince(province);
+        return facilityReads.findByProvince(province);
     }
 
+    @ServeStale
+    @Coalesce
+    @BulkheadLimited("lookup")
     public List<Facility> getFacilitiesByMunicipality(String municipalityName) {
-        return facilityRepository.findByMunicipalityName(municipalityName);
+        return facilityReads.findByMunicipalityName(municipalityName);
     }
 
+    @ServeStale
+    @Coalesce
+    @BulkheadLimited("lookup")
     public List<Facility> getFacilitiesByType(String facilityType) {
-        return facilityRepository.findByFacilityType(facilityType);
+        return facilityReads.findByFacilityType(facilityType);
     }
 
+    @ServeStale
+    @Coalesce
+    @BulkheadLimited("full-scan")
     public List<Facility> getFrenchImmersionFacilities() {
-        return facilityRepository.findByFrenchImmersionTrue();
+        return facilityReads.findByFrenchImmersionTrue();
+    }
+
+    /**
+     * Resolve many ids and uniqueIds at once. Distinct keys are looked up with
+     * chunked IN queries, and the answer lists every requested key in request
+     * order, with found = false for keys that don't exist.
+     *
+     * @throws IllegalArgumentException if more than the configured maximum number of keys is requested
+     */
+    @BulkheadLimited("lookup")
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops") // one result entry per requested key
+    public FacilityBatchResult getFacilitiesBatch(FacilityBatchRequest request) {
+        List<Long> ids = request.getIds() == null ? List.of() : request.getIds();
+        List<String> uniqueIds = request.getUniqueIds() == null ? List.of() : request.getUniqueIds();
+
+        if (ids.size() + uniqueIds.size() > maxBatchKeys) {
+            throw new IllegalArgumentException(
+                    "A batch may contain at most " + maxBatchKeys + " ids and uniqueIds combined");
+        }
+
+        Map<Long, Facility> byId = fetchInChunks(ids, facilityReads::findByIdIn, Facility::getId);
+        Map<String, Facility> byUniqueId =
+                fetchInChunks(uniqueIds, facilityReads::findByUniqueIdIn, Facility::getUniqueId);
+
+        FacilityBatchResult result = new FacilityBatchResult();
+        for (Long id : ids) {
+            result.addResult(new FacilityBatchEntry(id, null, id == null ? null : byId.get(id)));
+        }
+        for (String uniqueId : uniqueIds) {
+            result.addResult(new FacilityBatchEntry(null, uniqueId, uniqueId == null ? null : byUniqueId.get(uniqueId)));
+        }
+        return result;
+    }
+
+    /**
+     * The facilities with the given uniqueIds, looked up with chunked IN queries.
+     * Unknown uniqueIds are simply absent from the result.
+     */
+    public List<Facility> getFacilitiesByUniqueIds(Collection<String> uniqueIds) {
+        return new ArrayList<>(
+                fetchInChunks(new ArrayList<>(uniqueIds), facilityReads::findByUniqueIdIn, Facility::getUniqueId)
+                        .values());
+    }
+
+    private <K> Map<K, Facility> fetchInChunks(
+            List<K> keys,
+            Function<List<K>, List<Facility>> query,
+            Function<Facility, K> keyOf
+    ) {
+        List<K> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+        distinct.remove(null);
+
+        Map<K, Facility> found = new HashMap<>();
+        for (int start = 0; start < distinct.size(); start += BATCH_QUERY_CHUNK_SIZE) {
+            List<K> chunk = distinct.subList(start, Math.min(start + BATCH_QUERY_CHUNK_SIZE, distinct.size()));
+            for (Facility facility : query.apply(chunk)) {
+                found.put(keyOf.apply(facility), facility);
+            }
+        }
+        return found;
     }
-}
\ No newline at end of file
+}
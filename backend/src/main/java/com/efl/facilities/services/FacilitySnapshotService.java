@@ -0,0 +1,129 @@
+package com.efl.facilities.services;
+
+import com.efl.facilities.events.DatasetChangedEvent;
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.repositories.FacilityReads;
+import com.efl.facilities.snapshot.FacilitySnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Keeps a {@link FacilitySnapshot} of the current dataset version mapped, so
+ * startup and whole-table reads don't have to pull every facility over JDBC.
+ *
+ * Startup maps the existing file if it matches the version in the database,
+ * and only falls back to reading the table (and writing the file) if it
+ * doesn't. After an ingest the file is rewritten once per host: a replica that
+ * finds the file already at the new version, written by another backend
+ * sharing the directory, just maps it.
+ */
+@Service
+public class FacilitySnapshotService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FacilitySnapshotService.class);
+
+    @Autowired
+    private FacilityReads facilityReads;
+
+    @Autowired
+    private DatasetVersionTracker datasetVersionTracker;
+
+    @Value("${efl.snapshot.path:}")
+    private String snapshotPath;
+
+    private volatile FacilitySnapshot snapshot;
+
+    /**
+     * After DatasetVersionTracker has read the version and before the cache
+     * builders, which read from the snapshot when there is one.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 10)
+    public void loadOnStartup() {
+        long version = datasetVersionTracker.getAppliedVersion();
+        if (version == DatasetVersionTracker.UNKNOWN) {
+            return;
+        }
+        try {
+            refresh(version);
+        } catch (DataAccessException | TransactionException | IOException e) {
+            // Requests read from the database until the next ingest writes a snapshot
+            LOG.warn("Could not load the facility snapshot at startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Ahead of the other dataset listeners, so they rebuild from the new snapshot.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE + 10)
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        snapshot = null;
+        try {
+            refresh(event.getVersion());
+        } catch (DataAccessException | TransactionException | IOException e) {
+            // Like at startup: requests read from the database, and the other
+            // dataset listeners still run
+            LOG.warn("Could not write the facility snapshot for version {}: {}", event.getVersion(), e.getMessage());
+        }
+    }
+
+    /**
+     * The mapped snapshot of the dataset version being served, or null if
+     * there is none and callers should read the database.
+     */
+    public FacilitySnapshot current() {
+        return snapshot;
+    }
+
+    /**
+     * Every facility in the current snapshot as a read-only view over the
+     * mapped file, or null if there is no snapshot. Rows are decoded as the
+     * caller iterates, so a whole-table response streams from the page cache
+     * into the JSON converter without the table being held on the heap.
+     */
+    public List<Facility> facilities() {
+        FacilitySnapshot current = snapshot;
+        return current == null ? null : current.asList();
+    }
+
+    private void refresh(long version) throws IOException {
+        if (snapshotPath == null || snapshotPath.isBlank()) {
+            return;
+        }
+        Path path = Path.of(snapshotPath);
+        FacilitySnapshot existing = Files.exists(path) ? openQuietly(path) : null;
+        if (existing != null && existing.getVersion() == version) {
+            snapshot = existing;
+            LOG.info("Mapped facility snapshot {}: version {}, {} facilities", path, version, existing.size());
+            return;
+        }
+        FacilitySnapshot.write(path, version, facilityReads.findAll());
+        snapshot = FacilitySnapshot.open(path);
+        LOG.info("Wrote facility snapshot {}: version {}, {} facilities", path, version, snapshot.size());
+    }
+
+    private static FacilitySnapshot openQuietly(Path path) {
+        try {
+            return FacilitySnapshot.open(path);
+        } catch (IOException e) {
+            // Unreadable or an older format; it gets rewritten
+            LOG.info("Ignoring facility snapshot {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+}
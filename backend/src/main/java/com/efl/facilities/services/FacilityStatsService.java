@@ -0,0 +1,150 @@
+package com.efl.facilities.services;
+
+import com.efl.facilities.events.DatasetChangedEvent;
+import com.efl.facilities.history.FacilityVintage;
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.models.stats.FacilityRollupCube;
+import com.efl.facilities.models.stats.FacilityStatsResult;
+import com.efl.facilities.models.stats.FacilityStatsRow;
+import com.efl.facilities.models.stats.RollupDimension;
+import com.efl.facilities.repositories.FacilityReads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves facility counts grouped by any subset of province, facility type,
+ * authority and the language flags. Counts come from a {@link FacilityRollupCube}
+ * built once at startup and again after every ingest, so a query is a walk over
+ * an int array rather than a scan of the facility table.
+ */
+@Service
+public class FacilityStatsService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FacilityStatsService.class);
+
+    @Autowired
+    private FacilityReads facilityReads;
+
+    @Autowired
+    private FacilitySnapshotService facilitySnapshotService;
+
+    private volatile FacilityRollupCube cube;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        try {
+            rebuild();
+        } catch (DataAccessException | TransactionException e) {
+            // The database may not be up yet; the first stats query will build the cube instead.
+            LOG.warn("Could not build the facility rollup cube at startup: {}", e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        rebuild();
+    }
+
+    public void rebuild() {
+        List<Facility> facilities = facilitySnapshotService.facilities();
+        if (facilities == null) {
+            facilities = facilityReads.findAll();
+        }
+        FacilityRollupCube rebuilt = FacilityRollupCube.build(facilities);
+        cube = rebuilt;
+        LOG.info("Built facility rollup cube: {} facilities in {} cells",
+                rebuilt.getTotalCount(), rebuilt.getCellCount());
+    }
+
+    /**
+     * @param groupBy API names of the dimensions to group by, in output order; empty for a grand total
+     * @param filters API dimension name -> required value; unknown names are ignored
+     * @throws IllegalArgumentException if groupBy names an unknown dimension
+     */
+    public FacilityStatsResult getStats(List<String> groupBy, Map<String, String> filters) {
+        return getStats(currentCube(), groupBy, filters);
+    }
+
+    /**
+     * The same counts over an earlier dataset version. Its cube is built for
+     * the one query, which takes milliseconds.
+     */
+    public FacilityStatsResult getStats(FacilityVintage vintage, List<String> groupBy, Map<String, String> filters) {
+        return getStats(FacilityRollupCube.build(vintage.toList()), groupBy, filters);
+    }
+
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops") // one row per non-empty group
+    private FacilityStatsResult getStats(FacilityRollupCube current, List<String> groupBy, Map<String, String> filters) {
+        List<RollupDimension> dimensions = new ArrayList<>(groupBy.size());
+        for (String name : groupBy) {
+            RollupDimension dimension = RollupDimension.fromParamName(name);
+            if (!dimensions.contains(dimension)) {
+                dimensions.add(dimension);
+            }
+        }
+
+        int[] filterCodes = FacilityRollupCube.anyFilter();
+        Map<String, String> appliedFilters = new LinkedHashMap<>();
+        for (RollupDimension dimension : RollupDimension.values()) {
+            String value = filters.get(dimension.getParamName());
+            if (value != null) {
+                filterCodes[dimension.ordinal()] = current.encode(dimension, value);
+                appliedFilters.put(dimension.getParamName(), value);
+            }
+        }
+
+        long[] counts = current.rollUp(dimensions, filterCodes);
+
+        FacilityStatsResult result = new FacilityStatsResult();
+        result.setGroupBy(dimensions.stream().map(RollupDimension::getParamName).toList());
+        result.setFilters(appliedFilters);
+
+        long total = 0;
+        for (int cell = 0; cell < counts.length; cell++) {
+            if (counts[cell] == 0) {
+                continue;
+            }
+            total += counts[cell];
+
+            FacilityStatsRow row = new FacilityStatsRow();
+            int remainder = cell;
+            Object[] values = new Object[dimensions.size()];
+            for (int g = dimensions.size() - 1; g >= 0; g--) {
+                int cardinality = current.cardinality(dimensions.get(g));
+                values[g] = current.decode(dimensions.get(g), remainder % cardinality);
+                remainder /= cardinality;
+            }
+            for (int g = 0; g < values.length; g++) {
+                row.getDimensions().put(dimensions.get(g).getParamName(), values[g]);
+            }
+            row.setCount(counts[cell]);
+            result.addRow(row);
+        }
+        result.setTotal(total);
+        return result;
+    }
+
+    private FacilityRollupCube currentCube() {
+        FacilityRollupCube current = cube;
+        if (current == null) {
+            synchronized (this) {
+                if (cube == null) {
+                    rebuild();
+                }
+                current = cube;
+            }
+        }
+        return current;
+    }
+}
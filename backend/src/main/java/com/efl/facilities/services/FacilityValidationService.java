@@ -1,11 +1,25 @@
 package com.efl.facilities.services;
 
+import com.efl.facilities.concurrency.BulkheadLimited;
+import com.efl.facilities.concurrency.Coalesce;
+import com.efl.facilities.deadline.RequestDeadline;
+import com.efl.facilities.jfr.FacilityValidationEvent;
 import com.efl.facilities.models.Facility;
 import com.efl.facilities.models.validation.FacilityValidationIssue;
 import com.efl.facilities.models.validation.FacilityValidationResult;
-import com.efl.facilities.repositories.FacilityRepository;
+import com.efl.facilities.models.validation.IngestRun;
+import com.efl.facilities.models.validation.NearDuplicateCandidate;
+import com.efl.facilities.models.validation.QuarantinedFacility;
+import com.efl.facilities.repositories.FacilityReads;
+import com.efl.facilities.repositories.IngestRunRepository;
+import com.efl.facilities.repositories.QuarantinedFacilityRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.*;
@@ -41,21 +55,102 @@ public class FacilityValidationService {
             "ON", "PE", "QC", "SK", "YT"
     );
 
+    // Quarantined records listed in an ingest summary; the counts cover all of them
+    static final int MAX_REPORTED_QUARANTINED = 1000;
+
+    private static final TypeReference<List<Map<String, String>>> ISSUE_LIST = new TypeReference<>() { };
+
+    // Records validated between deadline checks
+    private static final int CHECKPOINT_INTERVAL = 1024;
+
+    @Autowired
+    private FacilityReads facilityReads;
+
+    @Autowired
+    private NearDuplicateDetector nearDuplicateDetector;
+
+    @Autowired
+    private IngestRunRepository ingestRunRepository;
+
     @Autowired
-    private FacilityRepository facilityRepository;
+    private QuarantinedFacilityRepository quarantinedFacilityRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * The summary the ingestor recorded for the latest ingest run: the same
+     * rules as {@link #validateFacilities()}, applied to the source records
+     * before loading, with an issue for each rule a quarantined record failed.
+     * Empty if no ingest run has been recorded.
+     */
+    @Transactional(readOnly = true)
+    public Optional<FacilityValidationResult> getLatestIngestValidation() {
+        return ingestRunRepository.findTopByOrderByIdDesc().map(this::toResult);
+    }
+
+    private FacilityValidationResult toResult(IngestRun run) {
+        FacilityValidationResult result = new FacilityValidationResult();
+        result.setIngestRunId(run.getId());
+        result.setValidatedAt(run.getCompletedAt() == null ? run.getStartedAt() : run.getCompletedAt());
+        result.setTotalRecords(run.getTotalRecords());
+        result.setQuarantinedRecords(run.getQuarantinedRecords());
+        result.setMissingFieldCount(run.getMissingFieldCount());
+        result.setDuplicateUniqueIdCount(run.getDuplicateUniqueIdCount());
+        result.setInvalidProvinceCount(run.getInvalidProvinceCount());
+        result.setInvalidCoordinateCount(run.getInvalidCoordinateCount());
+
+        List<QuarantinedFacility> quarantined = quarantinedFacilityRepository.findByIngestRunIdOrderByIdAsc(
+                run.getId(), PageRequest.of(0, MAX_REPORTED_QUARANTINED));
+        for (QuarantinedFacility record : quarantined) {
+            for (Map<String, String> issue : readIssues(record)) {
+                FacilityValidationIssue reported = new FacilityValidationIssue();
+                reported.setUniqueId(record.getUniqueId());
+                reported.setFacilityName(record.getFacilityName());
+                reported.setIssueType(issue.get("code"));
+                reported.setMessage(issue.get("message"));
+                result.addIssue(reported);
+            }
+        }
+        result.setValid(run.getQuarantinedRecords() == 0);
+        return result;
+    }
+
+    /**
+     * The record's issues; one per code, without messages, if the JSON can't be read.
+     */
+    private List<Map<String, String>> readIssues(QuarantinedFacility record) {
+        try {
+            return objectMapper.readValue(record.getIssues(), ISSUE_LIST);
+        } catch (JsonProcessingException e) {
+            return Arrays.stream(record.getIssueCodes().split(","))
+                    .map(code -> Map.of("code", code.trim()))
+                    .toList();
+        }
+    }
 
     /**
      * Run a full validation pass over all facilities currently in the database.
+     * Concurrent callers share one pass. The pass stops at the request's
+     * deadline, checking between chunks of records.
      */
+    @Coalesce
+    @BulkheadLimited("full-scan")
+    @Transactional(readOnly = true)
     public FacilityValidationResult validateFacilities() {
-        List<Facility> facilities = facilityRepository.findAll();
+        FacilityValidationEvent event = new FacilityValidationEvent();
+        event.begin();
+        List<Facility> facilities = facilityReads.findAll();
+        RequestDeadline.checkpoint();
 
         FacilityValidationResult result = new FacilityValidationResult();
         result.setTotalRecords(facilities.size());
 
+        long duplicateCountStart = System.nanoTime();
         Map<String, Integer> uniqueIdCounts = countUniqueIds(facilities);
         Set<String> duplicateUniqueIds = extractDuplicateUniqueIds(uniqueIdCounts);
 
+        long ruleStart = System.nanoTime();
         ValidationCounters counters =
                 validateFacilitiesAndCountIssues(facilities, duplicateUniqueIds, result);
 
@@ -64,11 +159,36 @@ public class FacilityValidationService {
         result.setInvalidProvinceCount(counters.invalidProvinceCount);
         result.setInvalidCoordinateCount(counters.invalidCoordinateCount);
 
+        long nearDuplicateStart = System.nanoTime();
+        reportNearDuplicates(facilities, result);
+
         result.setValid(result.getIssues().isEmpty());
 
+        event.end();
+        if (event.shouldCommit()) {
+            event.setRecords(facilities.size());
+            event.setIssues(counters.missingFieldCount, counters.duplicateCount,
+                    counters.invalidProvinceCount, counters.invalidCoordinateCount);
+            event.setNearDuplicates(result.getNearDuplicateCount());
+            event.setPhases(ruleStart - duplicateCountStart, nearDuplicateStart - ruleStart,
+                    System.nanoTime() - nearDuplicateStart);
+            event.commit();
+        }
         return result;
     }
 
+    /**
+     * Likely duplicates under different uniqueIds. These are only candidates
+     * for review, so they are listed separately and don't make the result invalid.
+     */
+    private void reportNearDuplicates(List<Facility> facilities, FacilityValidationResult result) {
+        List<NearDuplicateCandidate> candidates = nearDuplicateDetector.findCandidates(facilities);
+        int reported = Math.min(candidates.size(), nearDuplicateDetector.getMaxReported());
+
+        result.setNearDuplicateCount(candidates.size());
+        result.setNearDuplicates(new ArrayList<>(candidates.subList(0, reported)));
+    }
+
     private Map<String, Integer> countUniqueIds(List<Facility> facilities) {
         Map<String, Integer> uniqueIdCounts = new HashMap<>();
         for (Facility facility : facilities) {
@@ -94,7 +214,12 @@ public class FacilityValidationService {
     ) {
         ValidationCounters counters = new ValidationCounters();
 
+        int checked = 0;
         for (Facility facility : facilities) {
+            if (checked++ % CHECKPOINT_INTERVAL == 0) {
+                RequestDeadline.checkpoint();
+            }
+
             if (hasMissingCriticalFields(facility, result)) {
                 counters.missingFieldCount++;
             }
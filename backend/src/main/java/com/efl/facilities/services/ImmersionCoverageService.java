@@ -0,0 +1,207 @@
+package com.efl.facilities.services;
+
+import com.efl.facilities.MunicipalitiesService;
+import com.efl.facilities.MunicipalityFeatureIndex;
+import com.efl.facilities.concurrency.Coalesce;
+import com.efl.facilities.deadline.RequestDeadline;
+import com.efl.facilities.events.DatasetChangedEvent;
+import com.efl.facilities.fallback.LastGoodResults;
+import com.efl.facilities.models.coverage.FacilityPointIndex;
+import com.efl.facilities.models.coverage.ImmersionCoverageResult;
+import com.efl.facilities.models.coverage.ImmersionProgram;
+import com.efl.facilities.models.coverage.SubdivisionCoverage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * For every census subdivision, the distance from its centroid to the nearest
+ * facility offering a French immersion program and the number of such
+ * facilities within a radius. Subdivisions are split across the common
+ * fork/join pool and each one is two kd-tree queries, so a national run takes
+ * well under a second. The radius is rounded to whole kilometres, and the
+ * most recently used results are kept per dataset version, program and radius
+ * until the next ingest.
+ *
+ * There is no bulkhead here: reading the facilities takes a "full-scan" permit
+ * in FacilityService, and holding a second one around it could deadlock. The
+ * computation itself runs on the common fork/join pool, which is already
+ * bounded by the number of cores.
+ */
+@Service
+public class ImmersionCoverageService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImmersionCoverageService.class);
+
+    public static final double MAX_RADIUS_KM = 500;
+
+    private static final int MAX_CACHED_RESULTS = 16;
+
+    // Subdivisions per fork/join leaf; a leaf is a few hundred microseconds of kd-tree queries
+    private static final int SUBDIVISIONS_PER_TASK = 64;
+
+    @Autowired
+    private FacilityService facilityService;
+
+    @Autowired
+    private MunicipalitiesService municipalitiesService;
+
+    @Autowired
+    private DatasetVersionTracker datasetVersionTracker;
+
+    private final Map<CoverageKey, ImmersionCoverageResult> results =
+            Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<CoverageKey, ImmersionCoverageResult> eldest) {
+                    return size() > MAX_CACHED_RESULTS;
+                }
+            });
+
+    @EventListener
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        results.clear();
+    }
+
+    /**
+     * @param province two-letter code or PRUID to narrow the subdivisions to; null for all of Canada
+     * @param radiusKm rounded to whole kilometres, and to at least 1
+     * @throws IllegalArgumentException unless 0 &lt; radiusKm &lt;= {@link #MAX_RADIUS_KM}
+     */
+    @Coalesce
+    public ImmersionCoverageResult getCoverage(ImmersionProgram program, double radiusKm, String province)
+            throws IOException {
+        if (!(radiusKm > 0 && radiusKm <= MAX_RADIUS_KM)) {
+            throw new IllegalArgumentException("radiusKm must be greater than 0 and at most " + MAX_RADIUS_KM);
+        }
+        CoverageKey key = new CoverageKey(
+                datasetVersionTracker.getAppliedVersion(), program, Math.max(1, Math.round(radiusKm)));
+        ImmersionCoverageResult national = results.get(key);
+        if (national == null) {
+            long earlierVersions = LastGoodResults.earlierVersionsServed();
+            national = compute(key);
+            // Coverage of the previous version's facilities, served during an outage, isn't this version's
+            if (LastGoodResults.earlierVersionsServed() == earlierVersions) {
+                results.put(key, national);
+            }
+        }
+        return province == null ? national : forProvince(national, province);
+    }
+
+    private ImmersionCoverageResult compute(CoverageKey key) throws IOException {
+        long started = System.nanoTime();
+        MunicipalityFeatureIndex subdivisions = municipalitiesService.getIndex();
+        FacilityPointIndex facilities =
+                FacilityPointIndex.build(facilityService.getAllFacilities(), key.program()::isOfferedBy);
+
+        SubdivisionCoverage[] rows = new SubdivisionCoverage[subdivisions.getFeatureCount()];
+        ForkJoinPool.commonPool().invoke(new CoverageTask(
+                subdivisions, facilities, key.radiusKm(), rows, 0, rows.length, RequestDeadline.current()));
+
+        ImmersionCoverageResult result = new ImmersionCoverageResult();
+        result.setDatasetVersion(key.datasetVersion());
+        result.setProgram(key.program().getParamName());
+        result.setRadiusKm(key.radiusKm());
+        result.setFacilityCount(facilities.size());
+        result.setComputedAt(Instant.now());
+        result.setElapsedMs((System.nanoTime() - started) / 1_000_000);
+        result.setSubdivisions(Arrays.stream(rows).filter(row -> row != null).toList());
+        LOG.info("Computed {} coverage within {} km for {} subdivisions and {} facilities in {} ms",
+                result.getProgram(), key.radiusKm(), result.getSubdivisions().size(),
+                facilities.size(), result.getElapsedMs());
+        return result;
+    }
+
+    private static ImmersionCoverageResult forProvince(ImmersionCoverageResult national, String province) {
+        String code = province.trim().toUpperCase(Locale.ROOT);
+        ImmersionCoverageResult narrowed = new ImmersionCoverageResult();
+        narrowed.setDatasetVersion(national.getDatasetVersion());
+        narrowed.setProgram(national.getProgram());
+        narrowed.setRadiusKm(national.getRadiusKm());
+        narrowed.setFacilityCount(national.getFacilityCount());
+        narrowed.setComputedAt(national.getComputedAt());
+        narrowed.setElapsedMs(national.getElapsedMs());
+        narrowed.setSubdivisions(national.getSubdivisions().stream()
+                .filter(row -> code.equals(row.getProvince())
+                        || row.getCsduid() != null && row.getCsduid().startsWith(code))
+                .toList());
+        return narrowed;
+    }
+
+    private record CoverageKey(long datasetVersion, ImmersionProgram program, long radiusKm) {
+    }
+
+    /**
+     * Fills rows[from, to), splitting in half until a range is small enough to
+     * do directly. Subdivisions without coordinates are left null.
+     */
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops") // one row per subdivision
+    private static final class CoverageTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient MunicipalityFeatureIndex subdivisions;
+        private final transient FacilityPointIndex facilities;
+        private final double radiusKm;
+        private final SubdivisionCoverage[] rows;
+        private final int from;
+        private final int to;
+        private final transient RequestDeadline deadline;
+
+        CoverageTask(MunicipalityFeatureIndex subdivisions, FacilityPointIndex facilities, double radiusKm,
+                     SubdivisionCoverage[] rows, int from, int to, RequestDeadline deadline) {
+            this.subdivisions = subdivisions;
+            this.facilities = facilities;
+            this.radiusKm = radiusKm;
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SUBDIVISIONS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new CoverageTask(subdivisions, facilities, radiusKm, rows, from, mid, deadline),
+                        new CoverageTask(subdivisions, facilities, radiusKm, rows, mid, to, deadline));
+                return;
+            }
+            RequestDeadline.checkpoint(deadline);
+            for (int feature = from; feature < to; feature++) {
+                double lon = subdivisions.getCentroidLon(feature);
+                double lat = subdivisions.getCentroidLat(feature);
+                if (Double.isNaN(lon) || Double.isNaN(lat)) {
+                    continue;
+                }
+                SubdivisionCoverage row = new SubdivisionCoverage();
+                row.setCsduid(subdivisions.getSubdivisionId(feature));
+                row.setName(subdivisions.getName(feature));
+                row.setProvince(subdivisions.getProvince(feature));
+                row.setLongitude(lon);
+                row.setLatitude(lat);
+                int nearest = facilities.nearest(lon, lat);
+                if (nearest >= 0) {
+                    row.setNearestDistanceKm(facilities.distanceKm(nearest, lon, lat));
+                    row.setNearestFacilityId(facilities.getId(nearest));
+                    row.setNearestFacilityUniqueId(facilities.getUniqueId(nearest));
+                    row.setFacilitiesWithinRadius(facilities.countWithin(lon, lat, radiusKm));
+                }
+                rows[feature] = row;
+            }
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.efl.facilities.services;
+
+import com.efl.facilities.deadline.RequestDeadline;
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.models.validation.NearDuplicateCandidate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Finds the same school listed twice under different uniqueIds, e.g. once per
+ * source feed. A pair is a candidate when the normalized names have a trigram
+ * Jaccard similarity above the threshold and the two are either within a short
+ * distance of each other or share a postal code.
+ *
+ * Only pairs that share a block are compared. Facilities with coordinates are
+ * blocked by geohash cell (each one checks its own and the 8 surrounding cells),
+ * and every facility with a postal code also by its FSA, so two records with the
+ * same postal code are compared even when one of them is badly geocoded.
+ * Blocks are small, so the work is close to linear in the number of
+ * facilities, and it is split across the common fork-join pool by facility.
+ */
+@Component
+@SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops") // one prepared record per facility, one entry per candidate
+public class NearDuplicateDetector {
+
+    static final double DEFAULT_MIN_NAME_SIMILARITY = 0.6;
+    static final double DEFAULT_MAX_DISTANCE_METERS = 250;
+    static final int DEFAULT_MAX_REPORTED = 500;
+
+    // Geohash precision 6: 15 bits each of longitude and latitude, cells of about 1.2 km x 0.6 km
+    private static final int GEOHASH_BITS_PER_AXIS = 15;
+    private static final double LAT_CELL_DEGREES = 180.0 / (1 << GEOHASH_BITS_PER_AXIS);
+    private static final double LON_CELL_DEGREES = 360.0 / (1 << GEOHASH_BITS_PER_AXIS);
+    private static final double EARTH_RADIUS_METERS = 6_371_000;
+    private static final int FSA_LENGTH = 3;
+
+    // Weight of name similarity in the score; the rest comes from proximity
+    private static final double NAME_WEIGHT = 0.7;
+    // Proximity credited for a shared postal code when distance can't say more
+    private static final double SAME_POSTAL_CODE_PROXIMITY = 0.8;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "school", "ecole", "the", "of", "and", "et", "a",
+            "de", "la", "le", "les", "du", "des", "d", "l"
+    );
+    private static final Map<String, String> ABBREVIATIONS = Map.of(
+            "st", "saint",
+            "ste", "sainte",
+            "mt", "mount",
+            "elem", "elementary",
+            "sec", "secondary",
+            "sr", "senior",
+            "jr", "junior"
+    );
+
+    @Value("${efl.validation.near-duplicates.min-name-similarity:0.6}")
+    private double minNameSimilarity = DEFAULT_MIN_NAME_SIMILARITY;
+
+    @Value("${efl.validation.near-duplicates.max-distance-meters:250}")
+    private double maxDistanceMeters = DEFAULT_MAX_DISTANCE_METERS;
+
+    @Value("${efl.validation.near-duplicates.max-reported:500}")
+    private int maxReported = DEFAULT_MAX_REPORTED;
+
+    /**
+     * All candidate pairs, best score first. Each pair is reported once.
+     */
+    public List<NearDuplicateCandidate> findCandidates(List<Facility> facilities) {
+        Prepared[] prepared = new Prepared[facilities.size()];
+        Map<Long, List<Integer>> geoCells = new HashMap<>();
+        Map<String, List<Integer>> postalAreas = new HashMap<>();
+
+        for (int i = 0; i < prepared.length; i++) {
+            Prepared p = new Prepared(facilities.get(i));
+            prepared[i] = p;
+            if (p.hasCoordinates) {
+                geoCells.computeIfAbsent(geohash(p.latitude, p.longitude), k -> new ArrayList<>()).add(i);
+            }
+            if (p.fsa != null) {
+                postalAreas.computeIfAbsent(p.fsa, k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        // The workers don't have the request's thread-local deadline, so hand it over
+        RequestDeadline deadline = RequestDeadline.current();
+        return IntStream.range(0, prepared.length)
+                .parallel()
+                .mapToObj(i -> {
+                    RequestDeadline.checkpoint(deadline);
+                    return candidatesFor(i, prepared, geoCells, postalAreas);
+                })
+                .flatMap(List::stream)
+                .sorted(Comparator.comparingDouble(NearDuplicateCandidate::getScore).reversed()
+                        .thenComparing(NearDuplicateCandidate::getFirstUniqueId,
+                                Comparator.nullsLast(Comparator.naturalOrder())))
+                .collect(Collectors.toList());
+    }
+
+    public int getMaxReported() {
+        return maxReported;
+    }
+
+    /**
+     * Candidates between facility i and the facilities after it that share a
+     * block with it: a neighbouring geohash cell or the same FSA. Both relations
+     * are symmetric, so visiting each pair from its lower index alone covers it.
+     */
+    private List<NearDuplicateCandidate> candidatesFor(
+            int i,
+            Prepared[] prepared,
+            Map<Long, List<Integer>> geoCells,
+            Map<String, List<Integer>> postalAreas
+    ) {
+        Prepared a = prepared[i];
+        Set<Integer> compared = new HashSet<>();
+        List<NearDuplicateCandidate> found = new ArrayList<>();
+
+        if (a.hasCoordinates) {
+            for (long cell : neighbourCells(a.latitude, a.longitude)) {
+                for (int j : geoCells.getOrDefault(cell, List.of())) {
+                    if (j > i && compared.add(j)) {
+                        compare(a, prepared[j], found);
+                    }
+                }
+            }
+        }
+        if (a.fsa != null) {
+            for (int j : postalAreas.get(a.fsa)) {
+                if (j > i && compared.add(j)) {
+                    compare(a, prepared[j], found);
+                }
+            }
+        }
+        return found;
+    }
+
+    private void compare(Prepared a, Prepared b, List<NearDuplicateCandidate> found) {
+        if (a.uniqueId != null && a.uniqueId.equals(b.uniqueId)) {
+            return; // exact uniqueId collisions are reported by the duplicate rule
+        }
+
+        double similarity = jaccard(a.trigrams, b.trigrams);
+        if (similarity < minNameSimilarity) {
+            return;
+        }
+
+        boolean samePostalCode = a.postalCode != null && a.postalCode.equals(b.postalCode);
+        Double distance = a.hasCoordinates && b.hasCoordinates
+                ? haversineMeters(a.latitude, a.longitude, b.latitude, b.longitude)
+                : null;
+        boolean nearby = distance != null && distance <= maxDistanceMeters;
+        if (!nearby && !samePostalCode) {
+            return;
+        }
+
+        double proximity = nearby ? 1.0 - distance / maxDistanceMeters : 0.0;
+        if (samePostalCode) {
+            proximity = Math.max(proximity, SAME_POSTAL_CODE_PROXIMITY);
+        }
+
+        NearDuplicateCandidate candidate = new NearDuplicateCandidate(a.facility, b.facility);
+        candidate.setNameSimilarity(similarity);
+        candidate.setDistanceMeters(distance);
+        candidate.setSamePostalCode(samePostalCode);
+        candidate.setScore(NAME_WEIGHT * similarity + (1.0 - NAME_WEIGHT) * proximity);
+        found.add(candidate);
+    }
+
+    /**
+     * Lower-case, strip accents and punctuation, expand common abbreviations
+     * and drop words every school name has.
+     */
+    static String normalizeName(String name) {
+        if (name == null) {
+            return "";
+        }
+        String plain = Normalizer.normalize(name, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("[^a-z0-9]+", " ")
+                .trim();
+
+        StringBuilder normalized = new StringBuilder(plain.length());
+        for (String token : plain.split(" ")) {
+            if (token.isEmpty() || STOP_WORDS.contains(token)) {
+                continue;
+            }
+            if (normalized.length() > 0) {
+                normalized.append(' ');
+            }
+            normalized.append(ABBREVIATIONS.getOrDefault(token, token));
+        }
+        return normalized.toString();
+    }
+
+    /** Distinct character trigrams of " name ", each packed into a long, sorted. */
+    static long[] trigrams(String normalizedName) {
+        if (normalizedName.isEmpty()) {
+            return new long[0];
+        }
+        String padded = ' ' + normalizedName + ' ';
+        long[] grams = new long[Math.max(padded.length() - 2, 0)];
+        for (int k = 0; k < grams.length; k++) {
+            grams[k] = (long) padded.charAt(k) << 32 | (long) padded.charAt(k + 1) << 16 | padded.charAt(k + 2);
+        }
+        return Arrays.stream(grams).sorted().distinct().toArray();
+    }
+
+    /** Size of the intersection over size of the union, for two sorted, distinct arrays. */
+    static double jaccard(long[] a, long[] b) {
+        int shared = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        int union = a.length + b.length - shared;
+        return union == 0 ? 0.0 : (double) shared / union;
+    }
+
+    /** Geohash cell as its interleaved bits (longitude first), rather than base32 text. */
+    static long geohash(double latitude, double longitude) {
+        long lonBits = cellIndex(longitude, -180.0, LON_CELL_DEGREES);
+        long latBits = cellIndex(latitude, -90.0, LAT_CELL_DEGREES);
+        long hash = 0;
+        for (int bit = GEOHASH_BITS_PER_AXIS - 1; bit >= 0; bit--) {
+            hash = hash << 1 | (lonBits >> bit & 1);
+            hash = hash << 1 | (latBits >> bit & 1);
+        }
+        return hash;
+    }
+
+    private static long cellIndex(double value, double min, double cellSize) {
+        long index = (long) Math.floor((value - min) / cellSize);
+        return Math.max(0, Math.min(index, (1L << GEOHASH_BITS_PER_AXIS) - 1));
+    }
+
+    private static long[] neighbourCells(double latitude, double longitude) {
+        return IntStream.rangeClosed(-1, 1)
+                .boxed()
+                .flatMapToLong(dy -> IntStream.rangeClosed(-1, 1)
+                        .mapToLong(dx -> geohash(
+                                latitude + dy * LAT_CELL_DEGREES,
+                                wrapLongitude(longitude + dx * LON_CELL_DEGREES))))
+                .distinct()
+                .toArray();
+    }
+
+    private static double wrapLongitude(double longitude) {
+        if (longitude < -180.0) {
+            return longitude + 360.0;
+        }
+        return longitude >= 180.0 ? longitude - 360.0 : longitude;
+    }
+
+    static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(h)));
+    }
+
+    private static String normalizePostalCode(String postalCode) {
+        if (postalCode == null) {
+            return null;
+        }
+        String compact = postalCode.replaceAll("\\s+", "").toUpperCase(Locale.ROOT);
+        return compact.isEmpty() ? null : compact;
+    }
+
+    /** What the comparison needs from a facility, computed once. */
+    private static final class Prepared {
+        final Facility facility;
+        final String uniqueId;
+        final long[] trigrams;
+        final boolean hasCoordinates;
+        final double latitude;
+        final double longitude;
+        final String postalCode;
+        final String fsa;
+
+        Prepared(Facility facility) {
+            this.facility = facility;
+            this.uniqueId = facility.getUniqueId() == null ? null : facility.getUniqueId().trim();
+            this.trigrams = trigrams(normalizeName(facility.getFacilityName()));
+
+            BigDecimal lat = facility.getLatitude();
+            BigDecimal lon = facility.getLongitude();
+            this.hasCoordinates = lat != null && lon != null
+                    && Math.abs(lat.doubleValue()) <= 90.0 && Math.abs(lon.doubleValue()) <= 180.0;
+            this.latitude = hasCoordinates ? lat.doubleValue() : Double.NaN;
+            this.longitude = hasCoordinates ? lon.doubleValue() : Double.NaN;
+
+            this.postalCode = normalizePostalCode(facility.getPostalCode());
+            this.fsa = postalCode != null && postalCode.length() >= FSA_LENGTH
+                    ? postalCode.substring(0, FSA_LENGTH)
+                    : null;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.efl.facilities.sharding;
+
+import com.efl.facilities.deadline.DeadlineDataSource;
+import com.efl.facilities.deadline.RequestDeadline;
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.timing.TimingDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * The educational_facility shards and the provinces each one holds. A query
+ * against one shard runs on the calling thread; a query against several runs
+ * on all of them at once from a small fan-out pool, each worker under the
+ * request's deadline, and returns once every shard has answered. A failure on
+ * any shard fails the whole query rather than returning partial rows.
+ */
+public class FacilityShards implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FacilityShards.class);
+
+    private final Map<String, DataSource> dataSources;
+    private final Map<String, NamedParameterJdbcTemplate> templates = new LinkedHashMap<>();
+    private final Map<String, String> shardByProvince = new HashMap<>();
+    private final String defaultShard;
+    private final ExecutorService fanOut;
+
+    /**
+     * @param shards shard name to its datasource, in order; the first holds any province not listed
+     * @param provincesByShard shard name to the two-letter province codes it holds
+     * @throws IllegalArgumentException if there are no shards, or a province is given to two of them
+     */
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops") // one template per shard
+    public FacilityShards(Map<String, DataSource> shards, Map<String, List<String>> provincesByShard,
+                          int fanOutThreads) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("Sharding needs at least one shard");
+        }
+        this.dataSources = new LinkedHashMap<>(shards);
+        // Timed and bounded by the request's deadline like the primary's connections
+        shards.forEach((name, dataSource) -> templates.put(name,
+                new NamedParameterJdbcTemplate(new DeadlineDataSource(new TimingDataSource(dataSource)))));
+        provincesByShard.forEach((name, provinces) -> {
+            for (String province : provinces) {
+                String previous = shardByProvince.put(province.trim().toUpperCase(Locale.ROOT), name);
+                if (previous != null && !previous.equals(name)) {
+                    throw new IllegalArgumentException(
+                            "Province " + province + " is on both shard " + previous + " and shard " + name);
+                }
+            }
+        });
+        this.defaultShard = shards.keySet().iterator().next();
+        AtomicInteger threads = new AtomicInteger();
+        this.fanOut = Executors.newFixedThreadPool(Math.max(fanOutThreads, 1), task -> {
+            Thread thread = new Thread(task, "shard-fan-out-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        LOG.info("Facility shards {}, provinces {}", templates.keySet(), shardByProvince);
+    }
+
+    public List<String> getShardNames() {
+        return new ArrayList<>(templates.keySet());
+    }
+
+    /** The shard holding the province's facilities (the first shard for unlisted provinces and null). */
+    public String shardFor(String province) {
+        if (province == null) {
+            return defaultShard;
+        }
+        return shardByProvince.getOrDefault(province.trim().toUpperCase(Locale.ROOT), defaultShard);
+    }
+
+    /** Run the query against one shard, on this thread. */
+    public <T> T query(String shard, Function<NamedParameterJdbcTemplate, T> query) {
+        NamedParameterJdbcTemplate template = templates.get(shard);
+        if (template == null) {
+            throw new IllegalArgumentException("Unknown shard: " + shard);
+        }
+        return query.apply(template);
+    }
+
+    /** Run the query against every shard in parallel; the answers are in shard order. */
+    public <T> List<T> queryAll(Function<NamedParameterJdbcTemplate, T> query) {
+        return queryAll(templates.keySet(), query);
+    }
+
+    /**
+     * Run the query against the given shards in parallel; the answers are in
+     * the order the shards were given. Waits for all of them, and rethrows
+     * the first failure after cancelling the shards still running.
+     */
+    public <T> List<T> queryAll(Collection<String> shards, Function<NamedParameterJdbcTemplate, T> query) {
+        if (shards.size() == 1) {
+            return List.of(query(shards.iterator().next(), query));
+        }
+        RequestDeadline deadline = RequestDeadline.current();
+        List<Future<T>> futures = new ArrayList<>(shards.size());
+        for (String shard : shards) {
+            futures.add(fanOut.submit(() -> {
+                RequestDeadline previous = RequestDeadline.attach(deadline);
+                try {
+                    return query(shard, query);
+                } finally {
+                    RequestDeadline.attach(previous);
+                }
+            }));
+        }
+        List<T> answers = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                answers.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Shard query failed", e.getCause());
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for shards", e);
+        }
+        return answers;
+    }
+
+    /**
+     * Merge per-shard rows, each already in id order, into one list in id
+     * order. Ids are unique across shards (see README), so nothing is dropped.
+     */
+    public static List<Facility> mergeById(Collection<List<Facility>> perShard) {
+        List<Facility> merged = new ArrayList<>(perShard.stream().mapToInt(List::size).sum());
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(Comparator.comparing(Cursor::head,
+                Comparator.comparing(Facility::getId)));
+        for (List<Facility> rows : perShard) {
+            if (!rows.isEmpty()) {
+                heads.add(new Cursor(rows));
+            }
+        }
+        while (!heads.isEmpty()) {
+            Cursor cursor = heads.poll();
+            merged.add(cursor.head());
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public void close() {
+        fanOut.shutdownNow();
+        for (DataSource dataSource : dataSources.values()) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    LOG.warn("Could not close shard datasource: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static final class Cursor {
+        private final List<Facility> rows;
+        private int next;
+
+        Cursor(List<Facility> rows) {
+            this.rows = rows;
+        }
+
+        Facility head() {
+            return rows.get(next);
+        }
+
+        boolean advance() {
+            return ++next < rows.size();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.efl.facilities.sharding;
+
+import com.efl.facilities.events.DatasetChangedEvent;
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.repositories.FacilityReads;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The facility reads against province shards. Province lookups go to the one
+ * shard holding the province, and municipality lookups to the shards a
+ * municipality of that name is on; everything else is asked of every shard at
+ * once and the rows merged in id order.
+ */
+public class ShardedFacilityRepository implements FacilityReads {
+
+    private static final RowMapper<Facility> ROW_MAPPER = new BeanPropertyRowMapper<>(Facility.class);
+    private static final String SELECT = "select * from educational_facility";
+
+    private final FacilityShards shards;
+
+    // Lower-cased municipality name to the shards it has facilities on; loaded on first use per dataset version
+    private volatile Map<String, Set<String>> municipalityShards;
+
+    public ShardedFacilityRepository(FacilityShards shards) {
+        this.shards = shards;
+    }
+
+    public FacilityShards getShards() {
+        return shards;
+    }
+
+    @Override
+    public List<Facility> findAll() {
+        return FacilityShards.mergeById(shards.queryAll(jdbc ->
+                jdbc.query(SELECT + " order by id", ROW_MAPPER)));
+    }
+
+    @Override
+    public Optional<Facility> findById(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        return FacilityShards.mergeById(shards.queryAll(jdbc ->
+                jdbc.query(SELECT + " where id = :id", Map.of("id", id), ROW_MAPPER)))
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public Facility findByUniqueId(String uniqueId) {
+        if (uniqueId == null) {
+            return null;
+        }
+        return FacilityShards.mergeById(shards.queryAll(jdbc ->
+                jdbc.query(SELECT + " where unique_id = :uniqueId", Map.of("uniqueId", uniqueId), ROW_MAPPER)))
+                .stream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    public List<Facility> findByProvince(String province) {
+        if (province == null) {
+            return List.of();
+        }
+        return shards.query(shards.shardFor(province), jdbc ->
+                jdbc.query(SELECT + " where province = :province order by id", Map.of("province", province),
+                        ROW_MAPPER));
+    }
+
+    @Override
+    public List<Facility> findByMunicipalityName(String municipalityName) {
+        if (municipalityName == null) {
+            return List.of();
+        }
+        return FacilityShards.mergeById(shards.queryAll(shardsForMunicipality(municipalityName), jdbc ->
+                jdbc.query(SELECT + " where municipality_name = :name order by id", Map.of("name", municipalityName),
+                        ROW_MAPPER)));
+    }
+
+    @Override
+    public List<Facility> findByFacilityType(String facilityType) {
+        return FacilityShards.mergeById(shards.queryAll(jdbc ->
+                jdbc.query(SELECT + " where facility_type = :type order by id", Map.of("type", facilityType),
+                        ROW_MAPPER)));
+    }
+
+    @Override
+    public List<Facility> findByFrenchImmersionTrue() {
+        return FacilityShards.mergeById(shards.queryAll(jdbc ->
+                jdbc.query(SELECT + " where french_immersion = true order by id", ROW_MAPPER)));
+    }
+
+    @Override
+    public List<Facility> findByIdIn(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return FacilityShards.mergeById(shards.queryAll(jdbc ->
+                jdbc.query(SELECT + " where id in (:ids) order by id", Map.of("ids", ids), ROW_MAPPER)));
+    }
+
+    @Override
+    public List<Facility> findByUniqueIdIn(Collection<String> uniqueIds) {
+        if (uniqueIds.isEmpty()) {
+            return List.of();
+        }
+        return FacilityShards.mergeById(shards.queryAll(jdbc ->
+                jdbc.query(SELECT + " where unique_id in (:ids) order by id", Map.of("ids", uniqueIds),
+                        ROW_MAPPER)));
+    }
+
+    @Override
+    public List<Facility> select(String sql, Map<String, ?> parameters) {
+        return FacilityShards.mergeById(shards.queryAll(jdbc -> jdbc.query(sql, parameters, ROW_MAPPER)));
+    }
+
+    /**
+     * A page filtered to one province comes from its shard. Any other page
+     * could come from any mix of shards, so each gives its first offset +
+     * limit rows and the page is cut from the merged rows.
+     */
+    @Override
+    public List<Facility> selectPage(String province, String sql, Map<String, ?> parameters, int limit, int offset) {
+        Map<String, Object> paged = new HashMap<>(parameters);
+        if (province != null) {
+            paged.put("limit", limit);
+            paged.put("offset", offset);
+            return shards.query(shards.shardFor(province), jdbc -> jdbc.query(sql, paged, ROW_MAPPER));
+        }
+        int end = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+        paged.put("limit", end);
+        paged.put("offset", 0);
+        List<Facility> merged = FacilityShards.mergeById(shards.queryAll(jdbc -> jdbc.query(sql, paged, ROW_MAPPER)));
+        return new ArrayList<>(merged.subList(Math.min(offset, merged.size()), Math.min(end, merged.size())));
+    }
+
+    @EventListener
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        municipalityShards = null;
+    }
+
+    private Map<String, Set<String>> municipalityShards() {
+        Map<String, Set<String>> directory = municipalityShards;
+        if (directory == null) {
+            directory = loadMunicipalityShards();
+            municipalityShards = directory;
+        }
+        return directory;
+    }
+
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops") // one set per municipality
+    private Map<String, Set<String>> loadMunicipalityShards() {
+        List<String> names = shards.getShardNames();
+        List<List<String>> perShard = shards.queryAll(names, jdbc -> jdbc.queryForList(
+                "select distinct municipality_name from educational_facility where municipality_name is not null",
+                Map.of(), String.class));
+        Map<String, Set<String>> directory = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            for (String municipality : perShard.get(i)) {
+                directory.computeIfAbsent(municipality.toLowerCase(Locale.ROOT), m -> new LinkedHashSet<>())
+                        .add(names.get(i));
+            }
+        }
+        return directory;
+    }
+
+    /**
+     * The shards with facilities in the municipality; every shard for a name
+     * not in the directory, in case a facility was added there since it was loaded.
+     */
+    Collection<String> shardsForMunicipality(String municipalityName) {
+        Set<String> holding = municipalityShards().get(municipalityName.toLowerCase(Locale.ROOT));
+        return holding == null ? shards.getShardNames() : holding;
+    }
+}
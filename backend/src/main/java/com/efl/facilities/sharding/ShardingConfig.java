@@ -0,0 +1,63 @@
+package com.efl.facilities.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Province sharding of educational_facility, on when efl.sharding.enabled is
+ * true: one Hikari pool per configured shard, and ShardedFacilityRepository
+ * as the FacilityReads every facility read goes through (in place of
+ * TableFacilityReads, see FacilityReadsConfig).
+ */
+@Configuration
+@ConditionalOnProperty(name = "efl.sharding.enabled", havingValue = "true")
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    @Bean(destroyMethod = "close")
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops") // one pool per shard
+    public FacilityShards facilityShards(ShardingProperties properties) {
+        Map<String, DataSource> pools = new LinkedHashMap<>();
+        Map<String, List<String>> provinces = new LinkedHashMap<>();
+        List<ShardingProperties.Shard> configured = properties.getShards();
+        for (int i = 0; i < configured.size(); i++) {
+            ShardingProperties.Shard shard = configured.get(i);
+            String name = shard.getName() == null ? "shard-" + i : shard.getName();
+            if (pools.containsKey(name)) {
+                throw new IllegalArgumentException("Two shards are named " + name);
+            }
+            pools.put(name, shardPool(name, shard));
+            provinces.put(name, shard.getProvinces());
+        }
+        return new FacilityShards(pools, provinces, properties.getFanOutThreads());
+    }
+
+    private HikariDataSource shardPool(String name, ShardingProperties.Shard shard) {
+        HikariDataSource pool = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(shard.getUrl())
+                .username(shard.getUsername())
+                .password(shard.getPassword())
+                .driverClassName(shard.getDriverClassName())
+                .build();
+        pool.setPoolName(name);
+        pool.setMaximumPoolSize(shard.getMaximumPoolSize());
+        pool.setConnectionTimeout(shard.getConnectionTimeoutMs());
+        pool.setReadOnly(true);
+        return pool;
+    }
+
+    @Bean
+    public ShardedFacilityRepository shardedFacilityRepository(FacilityShards facilityShards) {
+        return new ShardedFacilityRepository(facilityShards);
+    }
+}
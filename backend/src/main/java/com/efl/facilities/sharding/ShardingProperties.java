@@ -0,0 +1,127 @@
+package com.efl.facilities.sharding;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Province shards of educational_facility, bound from efl.sharding.enabled
+ * and efl.sharding.shards[n].name / url / username / password / provinces
+ * (plus optional driver-class-name, maximum-pool-size,
+ * connection-timeout-ms). Provinces no shard lists, and facilities without a
+ * province, belong to the first shard. Everything else (dataset versions,
+ * ingest runs, history) stays in the spring.datasource database.
+ */
+@ConfigurationProperties(prefix = "efl.sharding")
+public class ShardingProperties {
+
+    private static final int DEFAULT_FAN_OUT_THREADS = 8;
+
+    private boolean enabled;
+    private int fanOutThreads = DEFAULT_FAN_OUT_THREADS;
+    private List<Shard> shards = new ArrayList<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getFanOutThreads() {
+        return fanOutThreads;
+    }
+
+    public void setFanOutThreads(int fanOutThreads) {
+        this.fanOutThreads = fanOutThreads;
+    }
+
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    public void setShards(List<Shard> shards) {
+        this.shards = shards;
+    }
+
+    public static class Shard {
+
+        private static final int DEFAULT_MAXIMUM_POOL_SIZE = 5;
+        private static final long DEFAULT_CONNECTION_TIMEOUT_MS = 10000;
+
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+        private List<String> provinces = new ArrayList<>();
+        private int maximumPoolSize = DEFAULT_MAXIMUM_POOL_SIZE;
+        private long connectionTimeoutMs = DEFAULT_CONNECTION_TIMEOUT_MS;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public String getDriverClassName() {
+            return driverClassName;
+        }
+
+        public void setDriverClassName(String driverClassName) {
+            this.driverClassName = driverClassName;
+        }
+
+        public List<String> getProvinces() {
+            return provinces;
+        }
+
+        public void setProvinces(List<String> provinces) {
+            this.provinces = provinces;
+        }
+
+        public int getMaximumPoolSize() {
+            return maximumPoolSize;
+        }
+
+        public void setMaximumPoolSize(int maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+        }
+
+        public long getConnectionTimeoutMs() {
+            return connectionTimeoutMs;
+        }
+
+        public void setConnectionTimeoutMs(long connectionTimeoutMs) {
+            this.connectionTimeoutMs = connectionTimeoutMs;
+        }
+    }
+}
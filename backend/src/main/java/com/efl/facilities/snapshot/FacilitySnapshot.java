@@ -0,0 +1,331 @@
+package com.efl.facilities.snapshot;
+
+import com.efl.facilities.models.Facility;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * All facilities of one dataset version in a memory-mapped file, read in
+ * place. Fields are stored column by column, one fixed-width slot per
+ * facility, sorted by id:
+ *
+ * <pre>
+ * header   magic "EFLS", format, dataset version, row count, heap offset
+ * id       int64
+ * lat, lon int64 unscaled value + int8 scale (NULL_DECIMAL when absent)
+ * updated  int32 epoch day (NULL_DATE when absent)
+ * flags    one int8 per Boolean field: 0 false, 1 true, -1 null
+ * strings  per String field: int32 heap offset (-1 for null) + int32 byte length
+ * heap     UTF-8 bytes of every distinct string value
+ * </pre>
+ *
+ * The file is written once per dataset version to a temporary name and moved
+ * into place, so a mapped snapshot never changes under its readers and every
+ * backend on the host shares the same page cache.
+ */
+public final class FacilitySnapshot {
+
+    static final int MAGIC = 0x534C4645; // "EFLS" in little-endian byte order
+    static final int FORMAT = 1;
+    static final int HEADER_SIZE = 32;
+
+    static final long NULL_DECIMAL = Long.MIN_VALUE;
+    static final int NULL_DATE = Integer.MIN_VALUE;
+    private static final byte NULL_FLAG = -1;
+    private static final int NULL_STRING = -1;
+
+    private static final List<Function<Facility, String>> STRING_GETTERS = List.of(
+            Facility::getUniqueId, Facility::getFacilityName, Facility::getFacilityType,
+            Facility::getAuthorityName, Facility::getAddress, Facility::getUnit, Facility::getPostalCode,
+            Facility::getMunicipalityName, Facility::getProvince, Facility::getSourceId,
+            Facility::getMinGrade, Facility::getMaxGrade, Facility::getCensusSubdivisionName,
+            Facility::getCensusSubdivisionId, Facility::getGeometry);
+    private static final List<BiConsumer<Facility, String>> STRING_SETTERS = List.of(
+            Facility::setUniqueId, Facility::setFacilityName, Facility::setFacilityType,
+            Facility::setAuthorityName, Facility::setAddress, Facility::setUnit, Facility::setPostalCode,
+            Facility::setMunicipalityName, Facility::setProvince, Facility::setSourceId,
+            Facility::setMinGrade, Facility::setMaxGrade, Facility::setCensusSubdivisionName,
+            Facility::setCensusSubdivisionId, Facility::setGeometry);
+    private static final List<Function<Facility, Boolean>> FLAG_GETTERS = List.of(
+            Facility::getLanguageMinorityStatus, Facility::getFrenchImmersion,
+            Facility::getEarlyImmersion, Facility::getMiddleImmersion, Facility::getLateImmersion);
+    private static final List<BiConsumer<Facility, Boolean>> FLAG_SETTERS = List.of(
+            Facility::setLanguageMinorityStatus, Facility::setFrenchImmersion,
+            Facility::setEarlyImmersion, Facility::setMiddleImmersion, Facility::setLateImmersion);
+
+    /** Column indexes into the string columns, for callers reading single fields. */
+    public static final int UNIQUE_ID = 0;
+    public static final int FACILITY_NAME = 1;
+    public static final int PROVINCE = 8;
+
+    private final ByteBuffer buffer;
+    private final long version;
+    private final int rowCount;
+
+    // Byte offsets of each column
+    private final int ids;
+    private final int latitudes;
+    private final int latitudeScales;
+    private final int longitudes;
+    private final int longitudeScales;
+    private final int dates;
+    private final int flags;
+    private final int strings;
+    private final int heap;
+
+    private FacilitySnapshot(ByteBuffer buffer, long version, int rowCount) {
+        this.buffer = buffer;
+        this.version = version;
+        this.rowCount = rowCount;
+        ids = HEADER_SIZE;
+        latitudes = ids + rowCount * Long.BYTES;
+        latitudeScales = latitudes + rowCount * Long.BYTES;
+        longitudes = latitudeScales + rowCount;
+        longitudeScales = longitudes + rowCount * Long.BYTES;
+        dates = longitudeScales + rowCount;
+        flags = dates + rowCount * Integer.BYTES;
+        strings = flags + rowCount * FLAG_GETTERS.size();
+        heap = strings + rowCount * STRING_GETTERS.size() * 2 * Integer.BYTES;
+    }
+
+    /**
+     * Map a snapshot file read-only.
+     *
+     * @throws IOException if the file can't be read or is not a snapshot in this format
+     */
+    public static FacilitySnapshot open(Path path) throws IOException {
+        ByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is not a facility snapshot");
+            }
+            // The mapping stays valid after the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return read(mapped.order(ByteOrder.LITTLE_ENDIAN), path.toString());
+    }
+
+    private static FacilitySnapshot read(ByteBuffer buffer, String source) throws IOException {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT) {
+            throw new IOException(source + " is not a facility snapshot in format " + FORMAT);
+        }
+        FacilitySnapshot snapshot = new FacilitySnapshot(buffer, buffer.getLong(8), buffer.getInt(16));
+        if (buffer.getInt(24) != snapshot.heap || snapshot.heap > buffer.capacity()) {
+            throw new IOException(source + " is truncated");
+        }
+        return snapshot;
+    }
+
+    /**
+     * Write the facilities as a snapshot of the given dataset version,
+     * replacing path atomically.
+     */
+    public static void write(Path path, long version, List<Facility> facilities) throws IOException {
+        List<Facility> sorted = new ArrayList<>(facilities);
+        sorted.sort(Comparator.comparing(Facility::getId));
+
+        // Each distinct string is stored once (provinces, types and authorities
+        // repeat a lot); the map holds heap offset << 32 | byte length
+        Map<String, Long> heapSlots = new HashMap<>();
+        List<byte[]> heapValues = new ArrayList<>();
+        int heapSize = 0;
+        for (Facility facility : sorted) {
+            for (Function<Facility, String> getter : STRING_GETTERS) {
+                String value = getter.apply(facility);
+                if (value != null && !heapSlots.containsKey(value)) {
+                    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                    heapSlots.put(value, (long) heapSize << 32 | utf8.length);
+                    heapValues.add(utf8);
+                    heapSize += utf8.length;
+                }
+            }
+        }
+
+        FacilitySnapshot layout = new FacilitySnapshot(null, version, sorted.size());
+        ByteBuffer out = ByteBuffer.allocate(layout.heap + heapSize).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(0, MAGIC).putInt(4, FORMAT).putLong(8, version).putInt(16, sorted.size()).putInt(24, layout.heap);
+
+        for (int row = 0; row < sorted.size(); row++) {
+            Facility facility = sorted.get(row);
+            out.putLong(layout.ids + row * Long.BYTES, facility.getId());
+            putDecimal(out, layout.latitudes, layout.latitudeScales, row, facility.getLatitude());
+            putDecimal(out, layout.longitudes, layout.longitudeScales, row, facility.getLongitude());
+            LocalDate updated = facility.getDateUpdated();
+            out.putInt(layout.dates + row * Integer.BYTES,
+                    updated == null ? NULL_DATE : Math.toIntExact(updated.toEpochDay()));
+            for (int f = 0; f < FLAG_GETTERS.size(); f++) {
+                Boolean flag = FLAG_GETTERS.get(f).apply(facility);
+                out.put(layout.flagSlot(row, f), flag == null ? NULL_FLAG : (byte) (flag ? 1 : 0));
+            }
+            for (int s = 0; s < STRING_GETTERS.size(); s++) {
+                String value = STRING_GETTERS.get(s).apply(facility);
+                int slot = layout.stringSlot(row, s);
+                if (value == null) {
+                    out.putInt(slot, NULL_STRING).putInt(slot + Integer.BYTES, 0);
+                } else {
+                    long heapSlot = heapSlots.get(value);
+                    out.putInt(slot, (int) (heapSlot >>> 32)).putInt(slot + Integer.BYTES, (int) heapSlot);
+                }
+            }
+        }
+        int position = layout.heap;
+        for (byte[] value : heapValues) {
+            out.put(position, value);
+            position += value.length;
+        }
+
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static void putDecimal(ByteBuffer out, int values, int scales, int row, BigDecimal value) {
+        if (value == null) {
+            out.putLong(values + row * Long.BYTES, NULL_DECIMAL);
+            return;
+        }
+        out.putLong(values + row * Long.BYTES, value.unscaledValue().longValueExact());
+        out.put(scales + row, (byte) value.scale());
+    }
+
+    private int flagSlot(int row, int field) {
+        return flags + row * FLAG_GETTERS.size() + field;
+    }
+
+    private int stringSlot(int row, int field) {
+        return strings + (row * STRING_GETTERS.size() + field) * 2 * Integer.BYTES;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return rowCount;
+    }
+
+    public long getId(int row) {
+        return buffer.getLong(ids + row * Long.BYTES);
+    }
+
+    /**
+     * The row of the facility with this id, or -1.
+     */
+    public int indexOfId(long id) {
+        int low = 0;
+        int high = rowCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = getId(mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * One string field of one row, decoded from the heap.
+     */
+    public String getString(int row, int field) {
+        int slot = stringSlot(row, field);
+        int offset = buffer.getInt(slot);
+        if (offset == NULL_STRING) {
+            return null;
+        }
+        byte[] utf8 = new byte[buffer.getInt(slot + Integer.BYTES)];
+        buffer.get(heap + offset, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private BigDecimal getDecimal(int values, int scales, int row) {
+        long unscaled = buffer.getLong(values + row * Long.BYTES);
+        return unscaled == NULL_DECIMAL ? null : BigDecimal.valueOf(unscaled, buffer.get(scales + row));
+    }
+
+    /**
+     * The row as a detached Facility, equal field for field to the entity it was written from.
+     */
+    public Facility toFacility(int row) {
+        Facility facility = new Facility();
+        facility.setId(getId(row));
+        for (int s = 0; s < STRING_SETTERS.size(); s++) {
+            STRING_SETTERS.get(s).accept(facility, getString(row, s));
+        }
+        for (int f = 0; f < FLAG_SETTERS.size(); f++) {
+            byte flag = buffer.get(flagSlot(row, f));
+            FLAG_SETTERS.get(f).accept(facility, flag == NULL_FLAG ? null : flag == 1);
+        }
+        facility.setLatitude(getDecimal(latitudes, latitudeScales, row));
+        facility.setLongitude(getDecimal(longitudes, longitudeScales, row));
+        int updated = buffer.getInt(dates + row * Integer.BYTES);
+        facility.setDateUpdated(updated == NULL_DATE ? null : LocalDate.ofEpochDay(updated));
+        return facility;
+    }
+
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops") // one entity per row
+    public List<Facility> toFacilities() {
+        List<Facility> facilities = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            facilities.add(toFacility(row));
+        }
+        return facilities;
+    }
+
+    /**
+     * The rows as a read-only list that decodes each facility from the mapped
+     * file as it is read, so iterating it keeps no copy of the table on the heap.
+     * Every read returns a new detached Facility.
+     */
+    public List<Facility> asList() {
+        return new Rows();
+    }
+
+    private final class Rows extends AbstractList<Facility> implements RandomAccess {
+
+        @Override
+        public Facility get(int row) {
+            return toFacility(Objects.checkIndex(row, rowCount));
+        }
+
+        @Override
+        public int size() {
+            return rowCount;
+        }
+    }
+}
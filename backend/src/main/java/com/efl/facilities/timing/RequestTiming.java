@@ -0,0 +1,187 @@
+package com.efl.facilities.timing;
+
+import com.efl.facilities.models.timing.SlowRequestSample;
+import com.efl.facilities.models.timing.SqlStatementSample;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Where one request's time went, accumulated on the request thread by
+ * {@link ServerTimingFilter}, {@link TimingDataSource} and
+ * {@link TimingResponseBodyAdvice}. Not thread-safe: it is only ever touched
+ * by the thread serving the request.
+ */
+public final class RequestTiming {
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    /** Statements kept with their SQL text; later ones still count towards the totals. */
+    static final int MAX_STATEMENT_SAMPLES = 50;
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final Instant startedAt = Instant.now();
+    private final long startNanos = System.nanoTime();
+
+    private int connectionCount;
+    private long poolNanos;
+    private int statementCount;
+    private long dbNanos;
+    private long rowCount;
+    private final List<StatementTiming> statements = new ArrayList<>();
+
+    private long bodyStartNanos;
+    private long firstWriteNanos;
+    private long endNanos;
+
+    private RequestTiming() {
+    }
+
+    /**
+     * Start timing a request on this thread.
+     */
+    public static RequestTiming begin() {
+        RequestTiming timing = new RequestTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    /**
+     * The request being timed on this thread, or null if there is none.
+     */
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    void addConnection(long waitNanos) {
+        connectionCount++;
+        poolNanos += waitNanos;
+    }
+
+    /**
+     * Count a statement about to execute. The returned handle accumulates its
+     * execution and fetch time and its row count.
+     */
+    StatementTiming statement(String sql) {
+        statementCount++;
+        StatementTiming statement = new StatementTiming(this, sql);
+        if (statements.size() < MAX_STATEMENT_SAMPLES) {
+            statements.add(statement);
+        }
+        return statement;
+    }
+
+    /** The response body is about to be serialized. */
+    void markBodyStart() {
+        if (bodyStartNanos == 0) {
+            bodyStartNanos = System.nanoTime();
+        }
+    }
+
+    /** The first byte of the response is about to be written. */
+    void markFirstWrite() {
+        if (firstWriteNanos == 0) {
+            firstWriteNanos = System.nanoTime();
+        }
+    }
+
+    void markEnd() {
+        endNanos = System.nanoTime();
+    }
+
+    public double getTotalMs() {
+        return millis((endNanos == 0 ? System.nanoTime() : endNanos) - startNanos);
+    }
+
+    /**
+     * The Server-Timing header value as of now. It is sent with the first
+     * byte of the body, so "ser" covers serialization done before that point:
+     * all of it for bodies whose length is computed up front (facility JSON
+     * fragments, municipality GeoJSON), the start of it for streamed ones.
+     */
+    public String toServerTimingHeader() {
+        long now = System.nanoTime();
+        long handlerEnd = bodyStartNanos != 0 ? bodyStartNanos : now;
+        long serializeNanos = bodyStartNanos != 0 ? now - bodyStartNanos : 0;
+        return String.format(Locale.ROOT,
+                "pool;dur=%.1f;desc=\"%d connections\", db;dur=%.1f;desc=\"%d statements, %d rows\", "
+                        + "app;dur=%.1f, ser;dur=%.1f, total;dur=%.1f",
+                millis(poolNanos), connectionCount,
+                millis(dbNanos), statementCount, rowCount,
+                millis(appNanos(handlerEnd)), millis(serializeNanos), millis(now - startNanos));
+    }
+
+    /**
+     * Handler time not spent waiting for connections or in JDBC: entity
+     * hydration, cache lookups and application logic.
+     */
+    private long appNanos(long handlerEnd) {
+        return Math.max(handlerEnd - startNanos - poolNanos - dbNanos, 0);
+    }
+
+    SlowRequestSample toSample() {
+        long end = endNanos == 0 ? System.nanoTime() : endNanos;
+        long handlerEnd = bodyStartNanos != 0 ? bodyStartNanos : firstWriteNanos != 0 ? firstWriteNanos : end;
+
+        SlowRequestSample sample = new SlowRequestSample();
+        sample.setStartedAt(startedAt);
+        sample.setTotalMs(millis(end - startNanos));
+        sample.setPoolMs(millis(poolNanos));
+        sample.setDbMs(millis(dbNanos));
+        sample.setAppMs(millis(appNanos(handlerEnd)));
+        sample.setSerializeMs(millis(end - handlerEnd));
+        sample.setConnectionCount(connectionCount);
+        sample.setStatementCount(statementCount);
+        sample.setRowCount(rowCount);
+        List<SqlStatementSample> sql = new ArrayList<>(statements.size());
+        for (StatementTiming statement : statements) {
+            sql.add(statement.toSample());
+        }
+        sample.setStatements(sql);
+        return sample;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * One statement's share of the request: the time spent executing it and
+     * fetching its rows.
+     */
+    static final class StatementTiming {
+        private final RequestTiming request;
+        private final String sql;
+        private long nanos;
+        private long rows;
+
+        private StatementTiming(RequestTiming request, String sql) {
+            this.request = request;
+            this.sql = sql;
+        }
+
+        void addTime(long elapsedNanos) {
+            nanos += elapsedNanos;
+            request.dbNanos += elapsedNanos;
+        }
+
+        void addRows(long count) {
+            rows += count;
+            request.rowCount += count;
+        }
+
+        SqlStatementSample toSample() {
+            SqlStatementSample sample = new SqlStatementSample(sql);
+            sample.setRowCount(rows);
+            sample.setDurationMs(millis(nanos));
+            return sample;
+        }
+    }
+}
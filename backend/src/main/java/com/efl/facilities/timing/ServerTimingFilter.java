@@ -0,0 +1,222 @@
+package com.efl.facilities.timing;
+
+import com.efl.facilities.models.timing.SlowRequestSample;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/**
+ * Times facility and municipality requests and reports the breakdown in a
+ * Server-Timing header. The header goes out just before the first byte of
+ * the body (or after the handler, for responses without one), since headers
+ * can't be changed once the response is committed. Requests slower than the
+ * configured threshold are sampled into {@link SlowRequestLog}.
+ */
+@Component
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ServerTimingFilter.class);
+
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    @Autowired
+    private SlowRequestLog slowRequestLog;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        if (uri.startsWith("/api/municipalities")) {
+            return false;
+        }
+        // The change stream is an open SSE connection, not a request with a duration
+        return !uri.startsWith("/api/facilities") || uri.startsWith("/api/facilities/changes/stream");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestTiming timing = RequestTiming.begin();
+        TimingResponse timedResponse = new TimingResponse(response, timing);
+        try {
+            chain.doFilter(request, timedResponse);
+        } finally {
+            RequestTiming.clear();
+            if (!request.isAsyncStarted()) {
+                timedResponse.sendServerTiming();
+                timing.markEnd();
+                sampleIfSlow(request, response, timing);
+            }
+        }
+    }
+
+    private void sampleIfSlow(HttpServletRequest request, HttpServletResponse response, RequestTiming timing) {
+        if (!slowRequestLog.isSlow(timing.getTotalMs())) {
+            return;
+        }
+        SlowRequestSample sample = timing.toSample();
+        sample.setMethod(request.getMethod());
+        sample.setPath(request.getRequestURI());
+        sample.setQuery(request.getQueryString());
+        sample.setStatus(response.getStatus());
+        slowRequestLog.record(sample);
+        LOG.info("Slow request {} {} took {} ms ({} statements, {} rows)", sample.getMethod(), sample.getPath(),
+                Math.round(sample.getTotalMs()), sample.getStatementCount(), sample.getRowCount());
+    }
+
+    /**
+     * Adds the Server-Timing header on the first write, flush or error.
+     */
+    private static final class TimingResponse extends HttpServletResponseWrapper {
+        private final RequestTiming timing;
+        private boolean timingSent;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        TimingResponse(HttpServletResponse response, RequestTiming timing) {
+            super(response);
+            this.timing = timing;
+        }
+
+        void sendServerTiming() {
+            if (timingSent) {
+                return;
+            }
+            timingSent = true;
+            timing.markFirstWrite();
+            if (!isCommitted()) {
+                setHeader(SERVER_TIMING_HEADER, timing.toServerTimingHeader());
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new TimingOutputStream(super.getOutputStream(), this);
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new TimingWriter(super.getWriter(), this));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            sendServerTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            sendServerTiming();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            sendServerTiming();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            sendServerTiming();
+            super.sendRedirect(location);
+        }
+    }
+
+    private static final class TimingOutputStream extends ServletOutputStream {
+        private final ServletOutputStream delegate;
+        private final TimingResponse response;
+
+        TimingOutputStream(ServletOutputStream delegate, TimingResponse response) {
+            this.delegate = delegate;
+            this.response = response;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            response.sendServerTiming();
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            response.sendServerTiming();
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            response.sendServerTiming();
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            response.sendServerTiming();
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+
+    private static final class TimingWriter extends FilterWriter {
+        private final TimingResponse response;
+
+        TimingWriter(Writer delegate, TimingResponse response) {
+            super(delegate);
+            this.response = response;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            response.sendServerTiming();
+            super.write(c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            response.sendServerTiming();
+            super.write(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            response.sendServerTiming();
+            super.write(str, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            response.sendServerTiming();
+            super.flush();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.efl.facilities.timing;
+
+import com.efl.facilities.models.timing.SlowRequestSample;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The most recent requests slower than efl.timing.slow-request-ms, kept in a
+ * fixed-size ring so sampling never grows the heap.
+ */
+@Component
+public class SlowRequestLog {
+
+    private final long thresholdMs;
+    private final SlowRequestSample[] ring;
+    private int next;
+    private long recorded;
+
+    public SlowRequestLog(
+            @Value("${efl.timing.slow-request-ms:500}") long thresholdMs,
+            @Value("${efl.timing.slow-request-samples:100}") int capacity
+    ) {
+        this.thresholdMs = thresholdMs;
+        this.ring = new SlowRequestSample[Math.max(capacity, 1)];
+    }
+
+    public long getThresholdMs() {
+        return thresholdMs;
+    }
+
+    public boolean isSlow(double totalMs) {
+        return totalMs >= thresholdMs;
+    }
+
+    public synchronized void record(SlowRequestSample sample) {
+        ring[next] = sample;
+        next = (next + 1) % ring.length;
+        recorded++;
+    }
+
+    /**
+     * Slow requests seen since startup, including those pushed out of the ring.
+     */
+    public synchronized long getRecordedCount() {
+        return recorded;
+    }
+
+    /**
+     * The retained samples, newest first.
+     */
+    public synchronized List<SlowRequestSample> recent() {
+        List<SlowRequestSample> samples = new ArrayList<>(ring.length);
+        for (int i = 1; i <= ring.length; i++) {
+            SlowRequestSample sample = ring[Math.floorMod(next - i, ring.length)];
+            if (sample == null) {
+                break;
+            }
+            samples.add(sample);
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,198 @@
+package com.efl.facilities.timing;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Charges pool checkout, statement execution and row fetching to the
+ * {@link RequestTiming} of the calling thread. Connections handed out with no
+ * request being timed (startup, scheduled jobs, ingest) are returned as-is.
+ */
+public class TimingDataSource extends DelegatingDataSource {
+
+    public TimingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        RequestTiming timing = RequestTiming.current();
+        if (timing == null) {
+            return super.getConnection();
+        }
+        long start = System.nanoTime();
+        Connection connection = super.getConnection();
+        timing.addConnection(System.nanoTime() - start);
+        return proxy(Connection.class, connection, new ConnectionHandler(connection, timing));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        RequestTiming timing = RequestTiming.current();
+        if (timing == null) {
+            return super.getConnection(username, password);
+        }
+        long start = System.nanoTime();
+        Connection connection = super.getConnection(username, password);
+        timing.addConnection(System.nanoTime() - start);
+        return proxy(Connection.class, connection, new ConnectionHandler(connection, timing));
+    }
+
+    private static <T> T proxy(Class<T> type, T target, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(TimingDataSource.class.getClassLoader(), new Class<?>[] {type}, handler));
+    }
+
+    /**
+     * Calls the target, rethrowing what it threw rather than the reflection wrapper.
+     */
+    private static Object invoke(Object target, Method method, Object... args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * Proxies keep identity semantics so Spring can match a connection it has
+     * bound to the transaction with the one Hibernate hands back.
+     */
+    private abstract static class Handler implements InvocationHandler {
+        private final Object target;
+
+        Handler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Timing proxy for " + target;
+                default:
+                    return handle(target, method, args);
+            }
+        }
+
+        abstract Object handle(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    private static final class ConnectionHandler extends Handler {
+        private final RequestTiming timing;
+
+        ConnectionHandler(Connection target, RequestTiming timing) {
+            super(target);
+            this.timing = timing;
+        }
+
+        @Override
+        Object handle(Object target, Method method, Object[] args) throws Throwable {
+            Object result = TimingDataSource.invoke(target, method, args);
+            if (result instanceof CallableStatement statement) {
+                return proxy(CallableStatement.class, statement,
+                        new StatementHandler(statement, timing, (String) args[0]));
+            }
+            if (result instanceof PreparedStatement statement) {
+                return proxy(PreparedStatement.class, statement,
+                        new StatementHandler(statement, timing, (String) args[0]));
+            }
+            if (result instanceof Statement statement) {
+                return proxy(Statement.class, statement, new StatementHandler(statement, timing, null));
+            }
+            return result;
+        }
+    }
+
+    private static final class StatementHandler extends Handler {
+        private final RequestTiming timing;
+        private final String preparedSql;
+        private RequestTiming.StatementTiming last;
+
+        StatementHandler(Statement target, RequestTiming timing, String preparedSql) {
+            super(target);
+            this.timing = timing;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        Object handle(Object target, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                Object result = TimingDataSource.invoke(target, method, args);
+                if (result instanceof ResultSet resultSet && last != null) {
+                    // getResultSet() after execute()
+                    return proxy(ResultSet.class, resultSet, new ResultSetHandler(resultSet, last));
+                }
+                return result;
+            }
+
+            String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+            RequestTiming.StatementTiming statement = timing.statement(sql);
+            last = statement;
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = TimingDataSource.invoke(target, method, args);
+            } finally {
+                statement.addTime(System.nanoTime() - start);
+            }
+
+            if (result instanceof ResultSet resultSet) {
+                return proxy(ResultSet.class, resultSet, new ResultSetHandler(resultSet, statement));
+            }
+            if (result instanceof Integer updated) {
+                statement.addRows(Math.max(updated, 0));
+            } else if (result instanceof Long updated) {
+                statement.addRows(Math.max(updated, 0));
+            } else if (result instanceof int[] batch) {
+                for (int updated : batch) {
+                    statement.addRows(Math.max(updated, 0));
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Counts rows and the time the driver takes to fetch them. The time
+     * between calls to next() is Hibernate building entities, which shows up
+     * as application time.
+     */
+    private static final class ResultSetHandler extends Handler {
+        private final RequestTiming.StatementTiming statement;
+
+        ResultSetHandler(ResultSet target, RequestTiming.StatementTiming statement) {
+            super(target);
+            this.statement = statement;
+        }
+
+        @Override
+        Object handle(Object target, Method method, Object[] args) throws Throwable {
+            if (!"next".equals(method.getName())) {
+                return TimingDataSource.invoke(target, method, args);
+            }
+            long start = System.nanoTime();
+            boolean more = (Boolean) TimingDataSource.invoke(target, method, args);
+            statement.addTime(System.nanoTime() - start);
+            if (more) {
+                statement.addRows(1);
+            }
+            return more;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.efl.facilities.web;
+
+import com.efl.facilities.services.DatasetVersionTracker;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Tags every API response with the dataset version this replica is serving,
+ * the latest version in the database and the skew across live replicas, so
+ * clients behind the load balancer can tell when they got a stale replica.
+ */
+@Component
+public class DatasetVersionHeaderFilter extends OncePerRequestFilter {
+
+    public static final String VERSION_HEADER = "X-Dataset-Version";
+    public static final String LATEST_VERSION_HEADER = "X-Dataset-Version-Latest";
+    public static final String SKEW_HEADER = "X-Dataset-Version-Skew";
+
+    @Autowired
+    private DatasetVersionTracker datasetVersionTracker;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long applied = datasetVersionTracker.getAppliedVersion();
+        if (applied != DatasetVersionTracker.UNKNOWN) {
+            response.setHeader(VERSION_HEADER, Long.toString(applied));
+            response.setHeader(LATEST_VERSION_HEADER, Long.toString(datasetVersionTracker.getLatestVersion()));
+            response.setHeader(SKEW_HEADER, Long.toString(datasetVersionTracker.getSkew()));
+        }
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,64 @@
+package com.efl.facilities.web;
+
+import com.efl.facilities.events.DatasetChangedEvent;
+import com.efl.facilities.models.Facility;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Each facility's JSON, encoded once per dataset version with the
+ * application's ObjectMapper and kept as UTF-8 bytes by facility id.
+ *
+ * An ingest replaces the whole map and bumps the generation. Callers pass the
+ * generation they started with, so a request that loaded its entities before
+ * an ingest never stores their old JSON in the new map.
+ */
+@Component
+public class FacilityJsonFragmentCache {
+
+    private final ObjectMapper objectMapper;
+
+    private volatile Map<Long, byte[]> fragments = new ConcurrentHashMap<>();
+    private volatile int generation;
+
+    public FacilityJsonFragmentCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener
+    public synchronized void onDatasetChanged(DatasetChangedEvent event) {
+        fragments = new ConcurrentHashMap<>();
+        generation++;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public int size() {
+        return fragments.size();
+    }
+
+    /**
+     * The facility's JSON. Served from the cache only if nothing has changed
+     * since startGeneration; otherwise freshly encoded and not stored.
+     */
+    public byte[] fragment(Facility facility, int startGeneration) throws JsonProcessingException {
+        Long id = facility.getId();
+        Map<Long, byte[]> current = fragments;
+        if (id == null || startGeneration != generation) {
+            return objectMapper.writeValueAsBytes(facility);
+        }
+        byte[] cached = current.get(id);
+        if (cached == null) {
+            cached = objectMapper.writeValueAsBytes(facility);
+            current.putIfAbsent(id, cached);
+        }
+        return cached;
+    }
+}
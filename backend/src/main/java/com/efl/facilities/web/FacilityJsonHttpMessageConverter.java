@@ -0,0 +1,138 @@
+package com.efl.facilities.web;
+
+import com.efl.facilities.models.Facility;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+/**
+ * Writes a Facility, or a collection of them, as JSON by copying each
+ * facility's cached fragment into the response with the array punctuation in
+ * between. The bytes are identical to what the Jackson converter would
+ * produce; only the per-request serialization work is gone.
+ */
+public class FacilityJsonHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    /** Request attribute holding the cache generation seen when the request started. */
+    public static final String START_GENERATION_ATTRIBUTE =
+            FacilityJsonHttpMessageConverter.class.getName() + ".startGeneration";
+    // Never equal to the cache's generation, so nothing is read from or stored in it
+    private static final int NO_GENERATION = -1;
+
+    private static final String WRITE_ONLY = "Facility JSON is write-only";
+    private static final byte[] OPEN = {'['};
+    private static final byte[] CLOSE = {']'};
+    private static final byte[] COMMA = {','};
+
+    private final FacilityJsonFragmentCache fragmentCache;
+
+    public FacilityJsonHttpMessageConverter(FacilityJsonFragmentCache fragmentCache) {
+        super(MediaType.APPLICATION_JSON);
+        this.fragmentCache = fragmentCache;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return canWrite(mediaType) && isFacilityType(type == null ? clazz : type);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Facility.class.equals(clazz);
+    }
+
+    private static boolean isFacilityType(Type type) {
+        ResolvableType resolved = ResolvableType.forType(type);
+        if (Facility.class.equals(resolved.resolve())) {
+            return true;
+        }
+        return Collection.class.isAssignableFrom(resolved.toClass())
+                && Facility.class.equals(resolved.asCollection().resolveGeneric(0));
+    }
+
+    @Override
+    protected Long getContentLength(Object value, MediaType contentType) throws IOException {
+        int startGeneration = startGeneration();
+        if (value instanceof Facility facility) {
+            return (long) fragmentCache.fragment(facility, startGeneration).length;
+        }
+        Collection<?> facilities = (Collection<?>) value;
+        long length = OPEN.length + CLOSE.length + (long) Math.max(facilities.size() - 1, 0) * COMMA.length;
+        for (Object facility : facilities) {
+            length += fragmentCache.fragment((Facility) facility, startGeneration).length;
+        }
+        return length;
+    }
+
+    @Override
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        int startGeneration = startGeneration();
+        OutputStream out = outputMessage.getBody();
+        if (value instanceof Facility facility) {
+            out.write(fragmentCache.fragment(facility, startGeneration));
+            return;
+        }
+        out.write(OPEN);
+        boolean first = true;
+        for (Object facility : (Collection<?>) value) {
+            if (!first) {
+                out.write(COMMA);
+            }
+            out.write(fragmentCache.fragment((Facility) facility, startGeneration));
+            first = false;
+        }
+        out.write(CLOSE);
+    }
+
+    /**
+     * Encode the current request's facilities afresh rather than from cached
+     * fragments, for responses that aren't the current dataset version.
+     */
+    public static void bypassCache() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(START_GENERATION_ATTRIBUTE, NO_GENERATION, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    /**
+     * The generation recorded by {@link FacilityJsonWebConfig} before the
+     * handler ran; the current one outside a request.
+     */
+    private int startGeneration() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        Object recorded = attributes == null
+                ? null
+                : attributes.getAttribute(START_GENERATION_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        return recorded instanceof Integer generation ? generation : fragmentCache.getGeneration();
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        throw new HttpMessageNotReadableException(WRITE_ONLY, inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        throw new HttpMessageNotReadableException(WRITE_ONLY, inputMessage);
+    }
+}
@@ -0,0 +1,42 @@
+package com.efl.facilities.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Puts {@link FacilityJsonHttpMessageConverter} ahead of the Jackson converter
+ * and records the fragment cache generation at the start of every request.
+ */
+@Configuration
+public class FacilityJsonWebConfig implements WebMvcConfigurer {
+
+    private final FacilityJsonFragmentCache fragmentCache;
+
+    public FacilityJsonWebConfig(FacilityJsonFragmentCache fragmentCache) {
+        this.fragmentCache = fragmentCache;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new FacilityJsonHttpMessageConverter(fragmentCache));
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                request.setAttribute(FacilityJsonHttpMessageConverter.START_GENERATION_ATTRIBUTE,
+                        fragmentCache.getGeneration());
+                return true;
+            }
+        });
+    }
+}
@@ -0,0 +1,119 @@
+package com.efl.facilities;
+
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.repositories.FacilityRepository;
+import com.efl.facilities.services.DatasetVersionTracker;
+import com.efl.facilities.services.FacilityChangeLogService;
+import com.efl.facilities.services.FacilityStatsService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two backend "replicas" sharing one file-based H2 database: an ingest
+ * recorded through one must reach the other through version polling alone.
+ */
+class MultiInstanceDatasetVersionTest {
+
+    @TempDir
+    Path databaseDir;
+
+    private ConfigurableApplicationContext replicaA;
+    private ConfigurableApplicationContext replicaB;
+
+    @BeforeEach
+    void startReplicas() {
+        String url = "jdbc:h2:file:" + databaseDir.resolve("shared").toAbsolutePath() + ";DB_CLOSE_DELAY=-1";
+        replicaA = startReplica(url, "replica-a");
+        replicaB = startReplica(url, "replica-b");
+    }
+
+    @AfterEach
+    void stopReplicas() {
+        if (replicaB != null) {
+            replicaB.close();
+        }
+        if (replicaA != null) {
+            replicaA.close();
+        }
+    }
+
+    private ConfigurableApplicationContext startReplica(String url, String instanceId) {
+        return new SpringApplicationBuilder(FacilitiesApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + url,
+                        "--spring.jpa.hibernate.ddl-auto=update",
+                        // The JCache manager is per JVM, so the replicas would otherwise share one L2 cache
+                        "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                        "--spring.jpa.properties.hibernate.cache.use_query_cache=false",
+                        // Polls are driven by the test
+                        "--efl.dataset-version.poll-interval-ms=3600000",
+                        "--efl.instance-id=" + instanceId);
+    }
+
+    private Facility facility(String uniqueId) {
+        Facility f = new Facility();
+        f.setUniqueId(uniqueId);
+        f.setFacilityName("School " + uniqueId);
+        f.setProvince("ON");
+        return f;
+    }
+
+    private long totalFacilities(ConfigurableApplicationContext replica) {
+        return replica.getBean(FacilityStatsService.class).getStats(List.of(), Map.of()).getTotal();
+    }
+
+    @Test
+    @DisplayName("an ingest on one replica is picked up by the other on its next poll")
+    void ingestPropagatesThroughPolling() {
+        DatasetVersionTracker trackerA = replicaA.getBean(DatasetVersionTracker.class);
+        DatasetVersionTracker trackerB = replicaB.getBean(DatasetVersionTracker.class);
+        assertThat(trackerA.getAppliedVersion()).isZero();
+        assertThat(trackerB.getAppliedVersion()).isZero();
+
+        replicaA.getBean(FacilityRepository.class).save(facility("SCH-1"));
+        replicaA.getBean(FacilityChangeLogService.class).recordIngest();
+
+        assertThat(trackerA.getAppliedVersion()).isEqualTo(1L);
+        assertThat(totalFacilities(replicaA)).isEqualTo(1L);
+        assertThat(trackerB.getAppliedVersion()).isZero();
+        assertThat(totalFacilities(replicaB)).isZero();
+
+        // A sees that B still serves version 0
+        trackerA.poll();
+        assertThat(trackerA.getSkew()).isEqualTo(1L);
+
+        trackerB.poll();
+        assertThat(trackerB.getAppliedVersion()).isEqualTo(1L);
+        assertThat(totalFacilities(replicaB)).isEqualTo(1L);
+        assertThat(trackerB.getSkew()).isZero();
+
+        trackerA.poll();
+        assertThat(trackerA.getSkew()).isZero();
+        assertThat(trackerA.getLiveReplicas()).extracting(r -> r.getInstanceId())
+                .containsExactly("replica-a", "replica-b");
+    }
+
+    @Test
+    @DisplayName("a poll with no new version leaves the replica's caches alone")
+    void pollWithoutChangeDoesNothing() {
+        DatasetVersionTracker trackerB = replicaB.getBean(DatasetVersionTracker.class);
+
+        trackerB.poll();
+
+        assertThat(trackerB.getAppliedVersion()).isZero();
+        assertThat(trackerB.getLatestVersion()).isZero();
+        assertThat(trackerB.getSkew()).isZero();
+    }
+}
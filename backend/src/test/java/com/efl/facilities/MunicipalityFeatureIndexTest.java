@@ -0,0 +1,139 @@
+package com.efl.facilities;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class MunicipalityFeatureIndexTest {
+
+    private static final String OTTAWA = "{ \"type\": \"Feature\", "
+            + "\"properties\": { \"CSDUID\": \"3506008\", \"CSDNAME\": \"Ottawa\", \"PRUID\": \"35\", "
+            + "\"DGUID\": \"2021A00053506008\" }, "
+            + "\"geometry\": { \"type\": \"Polygon\", \"coordinates\": "
+            + "[[[-76.35, 44.96], [-75.24, 44.96], [-75.24, 45.54], [-76.35, 45.54], [-76.35, 44.96]]] } }";
+    private static final String MONTREAL = "{\"type\":\"Feature\","
+            + "\"properties\":{\"CSDUID\":\"2466023\",\"CSDNAME\":\"Montréal\"},"
+            + "\"geometry\":{\"type\":\"MultiPolygon\",\"coordinates\":"
+            + "[[[[-73.97,45.41],[-73.47,45.41],[-73.47,45.70],[-73.97,45.41]]]]}}";
+    private static final String TORONTO = "{\"type\":\"Feature\","
+            + "\"properties\":{\"CSDUID\":\"3520005\",\"CSDNAME\":\"Toronto\",\"PRUID\":35},\"geometry\":null}";
+
+    private static final String GEOJSON = "{\n  \"type\": \"FeatureCollection\",\n  \"name\": \"csd\",\n"
+            + "  \"features\": [\n    " + OTTAWA + ",\n    " + MONTREAL + ",\n    " + TORONTO + "\n  ]\n}\n";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MunicipalityFeatureIndex index;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        index = MunicipalityFeatureIndex.build(GEOJSON.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String write(int[] features) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.writeCollection(features, out);
+        assertThat((long) out.size()).isEqualTo(index.collectionLength(features));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("features are indexed by PRUID, or by the CSDUID prefix when PRUID is missing")
+    void indexesByProvince() {
+        assertThat(index.getFeatureCount()).isEqualTo(3);
+        assertThat(index.featuresInProvince("ON")).containsExactly(0, 2);
+        assertThat(index.featuresInProvince("qc")).containsExactly(1);
+        assertThat(index.featuresInProvince("24")).containsExactly(1);
+        assertThat(index.featuresInProvince("BC")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("a subset is the original feature bytes wrapped in a valid FeatureCollection")
+    void writesOriginalBytes() throws IOException {
+        String json = write(index.featuresInProvince("ON"));
+
+        assertThat(json).isEqualTo("{\"type\":\"FeatureCollection\",\"features\":[" + OTTAWA + "," + TORONTO + "]}");
+        JsonNode parsed = objectMapper.readTree(json);
+        assertThat(parsed.get("features")).hasSize(2);
+        assertThat(parsed.get("features").get(0).get("properties").get("CSDNAME").asText()).isEqualTo("Ottawa");
+    }
+
+    @Test
+    @DisplayName("lookups by CSDUID or DGUID and by bounding box")
+    void indexesByIdAndBoundingBox() throws IOException {
+        assertThat(index.featuresWithIds(List.of("2466023", "2021A00053506008", "unknown"))).containsExactly(0, 1);
+        assertThat(index.featuresIntersecting(-76.0, 45.0, -75.5, 45.2)).containsExactly(0);
+        assertThat(index.featuresIntersecting(-80.0, 40.0, -70.0, 50.0)).containsExactly(0, 1);
+
+        assertThat(objectMapper.readTree(write(new int[0])).get("features")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("centroids are area-weighted over the rings, with names and ids alongside")
+    void centroidsAndNames() {
+        assertThat(index.getSubdivisionId(0)).isEqualTo("3506008");
+        assertThat(index.getName(1)).isEqualTo("Montréal");
+        assertThat(index.getProvince(1)).isEqualTo("QC");
+
+        assertThat(index.getCentroidLon(0)).isCloseTo(-75.795, within(1e-9));
+        assertThat(index.getCentroidLat(0)).isCloseTo(45.25, within(1e-9));
+        // Triangle: the mean of its corners
+        assertThat(index.getCentroidLon(1)).isCloseTo((-73.97 - 73.47 - 73.47) / 3, within(1e-9));
+        assertThat(index.getCentroidLat(1)).isCloseTo((45.41 + 45.41 + 45.70) / 3, within(1e-9));
+        assertThat(index.getCentroidLon(2)).isNaN();
+    }
+
+    @Test
+    @DisplayName("holes pull the centroid away from them")
+    void centroidWithHole() throws IOException {
+        // 4x4 square with the 2x2 lower-left quarter cut out, plus a bbox that must be ignored
+        String feature = "{\"type\":\"Feature\",\"properties\":{\"CSDUID\":\"1001101\"},"
+                + "\"geometry\":{\"type\":\"Polygon\",\"bbox\":[0,0,4,4],\"coordinates\":["
+                + "[[0,0],[4,0],[4,4],[0,4],[0,0]],"
+                + "[[0,0],[0,2],[2,2],[2,0],[0,0]]]}}";
+        MunicipalityFeatureIndex holed = MunicipalityFeatureIndex.build(
+                ("{\"type\":\"FeatureCollection\",\"features\":[" + feature + "]}").getBytes(StandardCharsets.UTF_8));
+
+        // (16 * 2 - 4 * 1) / 12
+        assertThat(holed.getCentroidLon(0)).isCloseTo(7.0 / 3, within(1e-9));
+        assertThat(holed.getCentroidLat(0)).isCloseTo(7.0 / 3, within(1e-9));
+        assertThat(holed.getProvince(0)).isEqualTo("NL");
+    }
+
+    @Test
+    @DisplayName("polygons are re-read per feature, holes after their outer ring")
+    void readsPolygons() throws IOException {
+        List<double[][]> ottawa = index.getPolygons(0);
+        assertThat(ottawa).hasSize(1);
+        assertThat(ottawa.get(0)).hasNumberOfRows(1);
+        assertThat(ottawa.get(0)[0]).startsWith(-76.35, 44.96, -75.24, 44.96).hasSize(10);
+
+        assertThat(index.getPolygons(1)).singleElement().satisfies(polygon -> assertThat(polygon[0]).hasSize(8));
+        assertThat(index.getPolygons(2)).isEmpty();
+
+        String feature = "{\"type\":\"Feature\",\"geometry\":{\"coordinates\":["
+                + "[[[0,0],[4,0],[4,4],[0,0]],[[1,1],[2,1],[2,2],[1,1]]],"
+                + "[[[5,5],[6,5],[6,6],[5,5]]]],\"type\":\"MultiPolygon\"}}";
+        MunicipalityFeatureIndex multi = MunicipalityFeatureIndex.build(
+                ("{\"type\":\"FeatureCollection\",\"features\":[" + feature + "]}").getBytes(StandardCharsets.UTF_8));
+        List<double[][]> polygons = multi.getPolygons(0);
+        assertThat(polygons).hasSize(2);
+        assertThat(polygons.get(0)).hasNumberOfRows(2);
+        assertThat(polygons.get(0)[1]).containsExactly(1, 1, 2, 1, 2, 2, 1, 1);
+        assertThat(polygons.get(1)[0]).startsWith(5, 5);
+    }
+
+    @Test
+    void intersectKeepsFeaturesInBothLists() {
+        assertThat(MunicipalityFeatureIndex.intersect(new int[] {0, 2, 5}, new int[] {1, 2, 5, 7})).containsExactly(2, 5);
+    }
+}
@@ -0,0 +1,132 @@
+package com.efl.facilities.capture;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrafficCaptureFilterTest {
+
+    @TempDir
+    private Path directory;
+
+    private Path file;
+    private TrafficLog trafficLog;
+    private TrafficCaptureFilter filter;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = directory.resolve("capture.eflt");
+        trafficLog = TrafficLog.create(file, 1024 * 1024);
+        filter = new TrafficCaptureFilter(trafficLog);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        trafficLog.close();
+    }
+
+    private static MockHttpServletRequest get(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setRequestURI(uri);
+        return request;
+    }
+
+    private List<TrafficRecord> records() throws IOException {
+        trafficLog.flush();
+        try (InputStream in = Files.newInputStream(file)) {
+            return TrafficLog.read(in);
+        }
+    }
+
+    @Test
+    void recordsRouteTimingAndBodySize() throws Exception {
+        MockHttpServletRequest request = get("/api/facilities/province/ON");
+        request.setQueryString("fields=id");
+        FilterChain handler = (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/facilities/province/{province}");
+            res.getOutputStream().write("[1,2,3]".getBytes(StandardCharsets.UTF_8));
+        };
+        filter.doFilter(request, new MockHttpServletResponse(), handler);
+
+        filter.doFilter(get("/api/facilities/nope"), new MockHttpServletResponse(),
+                (req, res) -> ((HttpServletResponse) res).setStatus(404));
+
+        assertThat(records()).satisfiesExactly(
+                first -> {
+                    assertThat(first.method()).isEqualTo("GET");
+                    assertThat(first.route()).isEqualTo("/api/facilities/province/{province}");
+                    assertThat(first.path()).isEqualTo("/api/facilities/province/ON");
+                    assertThat(first.query()).isEqualTo("fields=id");
+                    assertThat(first.status()).isEqualTo(200);
+                    assertThat(first.responseBytes()).isEqualTo(7);
+                },
+                second -> {
+                    assertThat(second.route()).isNull();
+                    assertThat(second.query()).isNull();
+                    assertThat(second.status()).isEqualTo(404);
+                    assertThat(second.responseBytes()).isZero();
+                    assertThat(second.startMicros()).isGreaterThanOrEqualTo(0);
+                });
+    }
+
+    @Test
+    void countsEncodedBytesOfCharacterBodies() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCharacterEncoding("UTF-8");
+        filter.doFilter(get("/api/municipalities"), response, (req, res) -> res.getWriter().write("Montréal"));
+
+        assertThat(response.getContentAsString(StandardCharsets.UTF_8)).isEqualTo("Montréal");
+        assertThat(records()).singleElement().extracting(TrafficRecord::responseBytes).isEqualTo(9L);
+    }
+
+    @Test
+    void skipsOtherPathsAndTheChangeStream() throws Exception {
+        filter.doFilter(get("/api/admin/slow-requests"), new MockHttpServletResponse(), (req, res) -> { });
+        filter.doFilter(get("/api/facilities/changes/stream"), new MockHttpServletResponse(), (req, res) -> { });
+
+        assertThat(records()).isEmpty();
+    }
+
+    @Test
+    void repeatedStringsAreWrittenOnce() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            filter.doFilter(get("/api/facilities/province/ON"), new MockHttpServletResponse(), (req, res) -> { });
+        }
+
+        assertThat(records()).hasSize(100).allSatisfy(record ->
+                assertThat(record.path()).isEqualTo("/api/facilities/province/ON"));
+        // Header plus a few bytes per request once the path is in the table
+        assertThat(Files.size(file)).isLessThan(13 + 100 * 16);
+    }
+
+    @Test
+    void stopsAtTheSizeLimit() throws Exception {
+        trafficLog.close();
+        trafficLog = TrafficLog.create(file, 200);
+        filter = new TrafficCaptureFilter(trafficLog);
+        for (int i = 0; i < 50; i++) {
+            filter.doFilter(get("/api/facilities/" + i), new MockHttpServletResponse(), (req, res) -> { });
+        }
+
+        List<TrafficRecord> records = records();
+        assertThat(records).isNotEmpty().hasSizeLessThan(50);
+        assertThat(records.get(records.size() - 1).path()).isEqualTo("/api/facilities/" + (records.size() - 1));
+        assertThat(trafficLog.getDroppedCount()).isEqualTo(50 - records.size());
+        assertThat(Files.size(file)).isLessThanOrEqualTo(200);
+    }
+}
@@ -0,0 +1,189 @@
+package com.efl.facilities.catchments;
+
+import com.efl.facilities.MunicipalityFeatureIndex;
+import com.efl.facilities.models.Facility;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ProvinceCatchmentsTest {
+
+    // A 1°x1° subdivision with a 0.2°x0.2° hole, and a neighbour made of a square and a triangle
+    private static final String GEOJSON = "{\"type\":\"FeatureCollection\",\"features\":["
+            + "{\"type\":\"Feature\",\"properties\":{\"CSDUID\":\"3500001\"},\"geometry\":{\"type\":\"Polygon\","
+            + "\"coordinates\":[[[-80,44],[-79,44],[-79,45],[-80,45],[-80,44]],"
+            + "[[-79.6,44.4],[-79.4,44.4],[-79.4,44.6],[-79.6,44.6],[-79.6,44.4]]]}},"
+            + "{\"type\":\"Feature\",\"properties\":{\"CSDUID\":\"3500002\"},\"geometry\":{\"type\":\"MultiPolygon\","
+            + "\"coordinates\":[[[[-79,44],[-78,44],[-78,45],[-79,45],[-79,44]]],"
+            + "[[[-77,44],[-76.5,44],[-76.5,44.5],[-77,44]]]]}}"
+            + "]}";
+    private static final double LAND_AREA = 1 - 0.04 + 1 + 0.125;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static Facility facility(long id, String lon, String lat) {
+        Facility f = new Facility();
+        f.setId(id);
+        f.setProvince("ON");
+        f.setLongitude(new BigDecimal(lon));
+        f.setLatitude(new BigDecimal(lat));
+        return f;
+    }
+
+    private static SubdivisionShapes shapes() throws IOException {
+        return SubdivisionShapes.of(MunicipalityFeatureIndex.build(GEOJSON.getBytes(StandardCharsets.UTF_8)), "ON");
+    }
+
+    private static double area(double[] ring) {
+        double twice = 0;
+        for (int i = 0, n = ring.length / 2; i < n; i++) {
+            int j = (i + 1) % n;
+            twice += ring[2 * i] * ring[2 * j + 1] - ring[2 * j] * ring[2 * i + 1];
+        }
+        return twice / 2;
+    }
+
+    // Shoelace over a GeoJSON ring, which repeats its first position
+    private static double area(JsonNode ring) {
+        double twice = 0;
+        for (int i = 0; i + 1 < ring.size(); i++) {
+            twice += ring.get(i).get(0).asDouble() * ring.get(i + 1).get(1).asDouble()
+                    - ring.get(i + 1).get(0).asDouble() * ring.get(i).get(1).asDouble();
+        }
+        return Math.abs(twice / 2);
+    }
+
+    private static boolean contains(double[] convex, double x, double y) {
+        for (int i = 0, n = convex.length / 2; i < n; i++) {
+            int j = (i + 1) % n;
+            if (Delaunay.cross(convex[2 * i], convex[2 * i + 1], convex[2 * j], convex[2 * j + 1], x, y) < -1e-9) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    @DisplayName("cells tile the plane and every point lies in its nearest site's cell")
+    void cellsMatchNearestSite() throws IOException {
+        Random random = new Random(42);
+        List<Facility> facilities = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            facilities.add(facility(i, String.valueOf(-80 + 2 * random.nextDouble()),
+                    String.valueOf(44 + random.nextDouble())));
+        }
+        // Cocircular points on a grid are the classic degenerate case
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 10; j++) {
+                facilities.add(facility(1000 + i * 10 + j,
+                        String.valueOf(-77 + i * 0.05), String.valueOf(44 + j * 0.05)));
+            }
+        }
+        ProvinceCatchments catchments = ProvinceCatchments.build(shapes(), facilities);
+        int sites = catchments.getSiteCount();
+        assertThat(sites).isEqualTo(600);
+
+        double[][] cells = new double[sites][];
+        double total = 0;
+        for (int site = 0; site < sites; site++) {
+            cells[site] = catchments.cell(site);
+            total += area(cells[site]);
+        }
+        double[] box = bounds(cells);
+        assertThat(total).isCloseTo((box[2] - box[0]) * (box[3] - box[1]), within(1e-6));
+
+        for (int k = 0; k < 5000; k++) {
+            double x = box[0] + (box[2] - box[0]) * random.nextDouble();
+            double y = box[1] + (box[3] - box[1]) * random.nextDouble();
+            int nearest = nearest(catchments, x, y);
+            assertThat(contains(cells[nearest], x, y)).as("point %s,%s", x, y).isTrue();
+        }
+    }
+
+    private static double[] bounds(double[][] cells) {
+        double[] box = Polygons.bounds(cells[0]);
+        for (double[] cell : cells) {
+            double[] b = Polygons.bounds(cell);
+            box[0] = Math.min(box[0], b[0]);
+            box[1] = Math.min(box[1], b[1]);
+            box[2] = Math.max(box[2], b[2]);
+            box[3] = Math.max(box[3], b[3]);
+        }
+        return box;
+    }
+
+    // Brute force over the sites, which each sit inside their own cell
+    private static int nearest(ProvinceCatchments catchments, double x, double y) {
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int site = 0; site < catchments.getSiteCount(); site++) {
+            double[] at = catchments.position(site);
+            double d = (at[0] - x) * (at[0] - x) + (at[1] - y) * (at[1] - y);
+            if (d < bestDistance) {
+                best = site;
+                bestDistance = d;
+            }
+        }
+        return best;
+    }
+
+    @Test
+    @DisplayName("collinear and too few sites are neighbours along the line")
+    void degenerateSites() {
+        int[][] line = Delaunay.neighbours(new double[] {0, 0, 2, 1, 4, 2, 6, 3});
+        assertThat(line).isDeepEqualTo(new int[][] {{1}, {0, 2}, {1, 3}, {2}});
+        assertThat(Delaunay.neighbours(new double[] {0, 0, 1, 1})).isDeepEqualTo(new int[][] {{1}, {0}});
+        assertThat(Delaunay.neighbours(new double[] {0, 0})).isDeepEqualTo(new int[][] {{}});
+    }
+
+    @Test
+    @DisplayName("features are clipped to the subdivisions and together cover all of them")
+    void clipsToSubdivisions() throws IOException {
+        ProvinceCatchments catchments = ProvinceCatchments.build(shapes(), List.of(
+                facility(1, "-79.5", "44.5"),
+                facility(2, "-78.5", "44.2"),
+                facility(3, "-78.5", "44.2"),
+                facility(4, "-79.8", "44.9")));
+
+        assertThat(catchments.getSiteCount()).isEqualTo(3);
+        double total = 0;
+        for (int site = 0; site < 3; site++) {
+            JsonNode feature = objectMapper.readTree(catchments.feature(site));
+            assertThat(feature.get("type").asText()).isEqualTo("Feature");
+            assertThat(feature.get("properties").get("province").asText()).isEqualTo("ON");
+            assertThat(feature.get("geometry").get("type").asText()).isEqualTo("MultiPolygon");
+            for (JsonNode polygon : feature.get("geometry").get("coordinates")) {
+                for (int r = 0; r < polygon.size(); r++) {
+                    JsonNode ring = polygon.get(r);
+                    assertThat(ring.get(0)).isEqualTo(ring.get(ring.size() - 1));
+                    total += r == 0 ? area(ring) : -area(ring);
+                }
+            }
+        }
+        assertThat(total).isCloseTo(LAND_AREA, within(1e-4));
+        assertThat(objectMapper.readTree(catchments.feature(1)).get("properties").get("facilityIds"))
+                .extracting(JsonNode::asLong).containsExactly(2L, 3L);
+    }
+
+    @Test
+    @DisplayName("a site whose cell misses every subdivision has no feature")
+    void offshoreSite() throws IOException {
+        ProvinceCatchments catchments = ProvinceCatchments.build(shapes(), List.of(
+                facility(1, "-79.5", "44.5"),
+                facility(2, "-70", "44.5")));
+
+        assertThat(catchments.feature(0)).isNotNull();
+        assertThat(catchments.feature(1)).isNull();
+    }
+}
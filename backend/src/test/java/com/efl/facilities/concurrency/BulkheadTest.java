@@ -0,0 +1,107 @@
+package com.efl.facilities.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkheadTest {
+
+    @Test
+    public void testRunsWorkWithinBudget() {
+        Bulkhead bulkhead = new Bulkhead("lookup", 2, 0, 0);
+
+        assertEquals("ok", bulkhead.execute(() -> "ok"));
+        assertEquals(0, bulkhead.getActive());
+        assertEquals(0, bulkhead.getRejected());
+    }
+
+    @Test
+    public void testRejectsImmediatelyWhenBudgetAndQueueAreFull() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("full-scan", 1, 0, 1000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> running = pool.submit(() -> bulkhead.execute(() -> {
+                started.countDown();
+                await(release);
+                return "done";
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            BulkheadFullException e = assertThrows(BulkheadFullException.class,
+                    () -> bulkhead.execute(() -> "rejected"));
+            assertEquals("full-scan", e.getBulkhead());
+            assertEquals(1, bulkhead.getRejected());
+
+            release.countDown();
+            assertEquals("done", running.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testQueuedCallerRunsOnceSlotFrees() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("full-scan", 1, 1, 5000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            pool.submit(() -> bulkhead.execute(() -> {
+                started.countDown();
+                await(release);
+                return "first";
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<String> queued = pool.submit(() -> bulkhead.execute(() -> "second"));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (bulkhead.getQueued() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(1, bulkhead.getQueued());
+            assertThrows(BulkheadFullException.class, () -> bulkhead.execute(() -> "over queue"));
+
+            release.countDown();
+            assertEquals("second", queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testQueuedCallerGivesUpAfterMaxWait() {
+        Bulkhead bulkhead = new Bulkhead("full-scan", 1, 1, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> bulkhead.execute(() -> {
+            await(release);
+            return null;
+        }));
+        holder.start();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (bulkhead.getActive() == 0 && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            assertThrows(BulkheadFullException.class, () -> bulkhead.execute(() -> "late"));
+            assertEquals(0, bulkhead.getQueued());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.efl.facilities.concurrency;
+
+import com.efl.facilities.deadline.RequestCancelledException;
+import com.efl.facilities.deadline.RequestDeadline;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    @Test
+    public void testConcurrentCallsWithSameKeyShareOneExecution() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(pool.submit(() -> singleFlight.execute("all", () -> {
+                    runs.incrementAndGet();
+                    await(release);
+                    return "facilities";
+                })));
+            }
+            waitUntil(() -> singleFlight.getCoalesced() == CALLERS - 1);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("facilities", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, runs.get());
+            assertEquals(1, singleFlight.getExecutions());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailureIsSharedAndNotRemembered() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> leader = pool.submit(() -> singleFlight.execute("key", () -> {
+                await(release);
+                throw new IllegalStateException("db down");
+            }));
+            waitUntil(() -> singleFlight.getExecutions() == 1);
+            Future<Object> follower = pool.submit(() -> singleFlight.execute("key", () -> "unused"));
+            waitUntil(() -> singleFlight.getCoalesced() == 1);
+            release.countDown();
+
+            Exception leaderError = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+            Exception followerError = assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, leaderError.getCause());
+            assertInstanceOf(IllegalStateException.class, followerError.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals("fresh", singleFlight.execute("key", () -> "fresh"));
+    }
+
+    @Test
+    public void testDifferentKeysRunIndependently() {
+        SingleFlight singleFlight = new SingleFlight();
+
+        assertEquals("ON", singleFlight.execute(List.of("province", "ON"), () -> "ON"));
+        assertEquals("QC", singleFlight.execute(List.of("province", "QC"), () -> "QC"));
+        assertEquals(2, singleFlight.getExecutions());
+        assertEquals(0, singleFlight.getCoalesced());
+    }
+
+    @Test
+    public void testWaiterRerunsWorkWhenTheLeadersRequestIsCancelled() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> leader = pool.submit(() -> {
+                RequestDeadline deadline = RequestDeadline.begin("leader", 60_000, d -> { });
+                try {
+                    return singleFlight.execute("key", () -> {
+                        await(release);
+                        deadline.cancel(RequestDeadline.Reason.CLIENT_DISCONNECTED);
+                        deadline.check();
+                        return "unused";
+                    });
+                } finally {
+                    RequestDeadline.clear();
+                }
+            });
+            waitUntil(() -> singleFlight.getExecutions() == 1);
+            Future<Object> follower = pool.submit(() -> singleFlight.execute("key", () -> "rerun"));
+            waitUntil(() -> singleFlight.getCoalesced() == 1);
+            release.countDown();
+
+            Exception leaderError = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(RequestCancelledException.class, leaderError.getCause());
+            assertEquals("rerun", follower.get(5, TimeUnit.SECONDS));
+            assertEquals(2, singleFlight.getExecutions());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWaiterGivesUpAtItsOwnDeadline() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(1);
+        try {
+            pool.submit(() -> singleFlight.execute("key", () -> {
+                await(release);
+                return "slow";
+            }));
+            waitUntil(() -> singleFlight.getExecutions() == 1);
+
+            RequestDeadline deadline = RequestDeadline.begin("follower", 50, d -> { });
+            try {
+                RequestCancelledException e = assertThrows(RequestCancelledException.class,
+                        () -> singleFlight.execute("key", () -> "unused"));
+                assertEquals(RequestDeadline.Reason.DEADLINE_EXCEEDED, e.getReason());
+                assertTrue(e.isFor(deadline));
+            } finally {
+                RequestDeadline.clear();
+            }
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Timed out waiting for callers");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
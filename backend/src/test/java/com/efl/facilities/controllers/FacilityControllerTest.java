@@ -1,7 +1,24 @@
 package com.efl.facilities.controllers;
 
+import com.efl.facilities.catchments.CatchmentMap;
+import com.efl.facilities.catchments.LanguageStream;
+import com.efl.facilities.history.FacilityVintage;
+import com.efl.facilities.markers.FacilityMarkers;
 import com.efl.facilities.models.Facility;
+import com.efl.facilities.models.batch.FacilityBatchEntry;
+import com.efl.facilities.models.batch.FacilityBatchRequest;
+import com.efl.facilities.models.batch.FacilityBatchResult;
+import com.efl.facilities.models.changes.FacilityChangeSet;
+import com.efl.facilities.models.stats.FacilityStatsResult;
+import com.efl.facilities.models.stats.FacilityStatsRow;
+import com.efl.facilities.models.validation.FacilityValidationResult;
+import com.efl.facilities.services.CatchmentService;
+import com.efl.facilities.services.FacilityHistoryService;
+import com.efl.facilities.services.FacilityMarkerService;
 import com.efl.facilities.services.FacilityService;
+import com.efl.facilities.services.FacilityStatsService;
+import com.efl.facilities.services.FacilityChangeLogService;
+import com.efl.facilities.services.FacilityValidationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,14 +32,20 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -44,6 +67,12 @@ class FacilityControllerTest {
     private MockMvc mockMvc;
 
     @Mock private FacilityService facilityService;
+    @Mock private FacilityStatsService facilityStatsService;
+    @Mock private FacilityChangeLogService facilityChangeLogService;
+    @Mock private FacilityValidationService facilityValidationService;
+    @Mock private FacilityHistoryService facilityHistoryService;
+    @Mock private FacilityMarkerService facilityMarkerService;
+    @Mock private CatchmentService catchmentService;
     @InjectMocks private FacilityController facilityController;
 
     @BeforeEach
@@ -212,4 +241,203 @@ class FacilityControllerTest {
         verify(facilityService).getFacilityByUniqueId(UID_040);
         verifyNoMoreInteractions(facilityService);
     }
+
+    @Test
+    @DisplayName("POST batch -> entries in request order")
+    void getFacilitiesBatchReturnsEntries() throws Exception {
+        FacilityBatchResult data = new FacilityBatchResult();
+        data.addResult(new FacilityBatchEntry(30L, null, sampleFacility(30L, UID_030, "Delta", TYPE_ELEMENTARY, "Waterloo")));
+        data.addResult(new FacilityBatchEntry(null, "SCH-404", null));
+        when(facilityService.getFacilitiesBatch(any(FacilityBatchRequest.class))).thenReturn(data);
+
+        mockMvc.perform(post(BASE + "/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[30],\"uniqueIds\":[\"SCH-404\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requestedCount", is(2)))
+                .andExpect(jsonPath("$.foundCount", is(1)))
+                .andExpect(jsonPath("$.results[0].facility.uniqueId", is(UID_030)))
+                .andExpect(jsonPath("$.results[1].uniqueId", is("SCH-404")))
+                .andExpect(jsonPath("$.results[1].found", is(false)));
+
+        verify(facilityService).getFacilitiesBatch(any(FacilityBatchRequest.class));
+        verifyNoMoreInteractions(facilityService);
+    }
+
+    @Test
+    @DisplayName("POST batch over the key limit -> 400")
+    void getFacilitiesBatchRejectsOversizedBatch() throws Exception {
+        when(facilityService.getFacilitiesBatch(any(FacilityBatchRequest.class)))
+                .thenThrow(new IllegalArgumentException("too many keys"));
+
+        mockMvc.perform(post(BASE + "/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[1,2,3]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET stats -> grouped counts")
+    void getStatsReturnsGroupedCounts() throws Exception {
+        FacilityStatsRow row = new FacilityStatsRow();
+        row.getDimensions().put("province", PROVINCE_ON);
+        row.setCount(42);
+        FacilityStatsResult data = new FacilityStatsResult();
+        data.setGroupBy(List.of("province"));
+        data.setTotal(42);
+        data.addRow(row);
+        when(facilityStatsService.getStats(eq(List.of("province")), anyMap())).thenReturn(data);
+
+        mockMvc.perform(get(BASE + "/stats").param("groupBy", "province").param("frenchImmersion", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total", is(42)))
+                .andExpect(jsonPath("$.rows[0].dimensions.province", is(PROVINCE_ON)))
+                .andExpect(jsonPath("$.rows[0].count", is(42)));
+
+        verify(facilityStatsService).getStats(eq(List.of("province")),
+                eq(Map.of("groupBy", "province", "frenchImmersion", "true")));
+    }
+
+    @Test
+    @DisplayName("GET stats with an unknown dimension -> 400")
+    void getStatsRejectsUnknownDimension() throws Exception {
+        when(facilityStatsService.getStats(eq(List.of("colour")), anyMap()))
+                .thenThrow(new IllegalArgumentException("Unknown stats dimension: colour"));
+
+        mockMvc.perform(get(BASE + "/stats").param("groupBy", "colour"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET changes since a version -> deltas")
+    void getChangesReturnsDeltas() throws Exception {
+        FacilityChangeSet data = new FacilityChangeSet();
+        data.setFromVersion(3);
+        data.setToVersion(5);
+        data.getUpdated().add(sampleFacility(30L, UID_030, "Delta", TYPE_ELEMENTARY, "Waterloo"));
+        data.getDeleted().add(UID_040);
+        when(facilityChangeLogService.getChangesSince(3L)).thenReturn(data);
+
+        mockMvc.perform(get(BASE + "/changes").param("since", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.toVersion", is(5)))
+                .andExpect(jsonPath("$.fullResync", is(false)))
+                .andExpect(jsonPath("$.inserted", hasSize(0)))
+                .andExpect(jsonPath("$.updated[0].uniqueId", is(UID_030)))
+                .andExpect(jsonPath("$.deleted[0]", is(UID_040)));
+
+        verify(facilityChangeLogService).getChangesSince(3L);
+        verifyNoMoreInteractions(facilityChangeLogService);
+    }
+
+    @Test
+    @DisplayName("GET changes with a negative version -> 400")
+    void getChangesRejectsNegativeVersion() throws Exception {
+        mockMvc.perform(get(BASE + "/changes").param("since", "-1"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(facilityChangeLogService);
+    }
+
+    @Test
+    @DisplayName("GET validate -> latest ingest summary, or a full scan when asked")
+    void validateReturnsTheIngestSummaryUnlessAScanIsRequested() throws Exception {
+        FacilityValidationResult summary = new FacilityValidationResult();
+        summary.setIngestRunId(7L);
+        summary.setTotalRecords(100);
+        summary.setQuarantinedRecords(2);
+        FacilityValidationResult scan = new FacilityValidationResult();
+        scan.setTotalRecords(98);
+        scan.setValid(true);
+        when(facilityValidationService.getLatestIngestValidation()).thenReturn(Optional.of(summary));
+        when(facilityValidationService.validateFacilities()).thenReturn(scan);
+
+        mockMvc.perform(get(BASE + "/validate"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ingestRunId", is(7)))
+                .andExpect(jsonPath("$.quarantinedRecords", is(2)));
+        verify(facilityValidationService, never()).validateFacilities();
+
+        mockMvc.perform(get(BASE + "/validate").param("scan", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ingestRunId", nullValue()))
+                .andExpect(jsonPath("$.totalRecords", is(98)));
+    }
+
+    @Test
+    @DisplayName("GET with asOf -> facilities as of that version, 404 before history, 400 when malformed")
+    void asOfReadsHistory() throws Exception {
+        Facility oldName = sampleFacility(1L, UID_001, "Central PS (old)", TYPE_ELEMENTARY, CITY_GUELPH);
+        Facility elsewhere = sampleFacility(2L, UID_002, "Northview SS", TYPE_SECONDARY, CITY_GUELPH);
+        elsewhere.setProvince("QC");
+        FacilityVintage vintage = FacilityVintage.of(3, List.of(oldName, elsewhere));
+        when(facilityHistoryService.getVintage("3")).thenReturn(Optional.of(vintage));
+        when(facilityHistoryService.getVintage("2001-01-01")).thenReturn(Optional.empty());
+        when(facilityHistoryService.getVintage("soon")).thenThrow(new IllegalArgumentException("bad asOf"));
+
+        mockMvc.perform(get(BASE + "/province/{province}", PROVINCE_ON).param("asOf", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].facilityName", is("Central PS (old)")));
+        mockMvc.perform(get(BASE + "/unique/{uniqueId}", UID_002).param("asOf", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.province", is("QC")));
+        mockMvc.perform(get(BASE + "/{id}", 1L).param("asOf", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.uniqueId", is(UID_001)));
+        mockMvc.perform(get(BASE + "/{id}", 3L).param("asOf", "3"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get(BASE).param("asOf", "2001-01-01"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get(BASE + "/french-immersion").param("asOf", "soon"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(facilityService);
+    }
+
+    @Test
+    @DisplayName("GET markers -> packed binary, revalidated by ETag")
+    void markersArePackedBinary() throws Exception {
+        FacilityMarkers markers = FacilityMarkers.encode(4, List.of(
+                sampleFacility(1L, UID_001, "Central PS", TYPE_ELEMENTARY, CITY_GUELPH),
+                sampleFacility(2L, UID_002, "Northview SS", TYPE_SECONDARY, CITY_GUELPH)));
+        when(facilityMarkerService.getMarkers(PROVINCE_ON)).thenReturn(markers);
+
+        var result = mockMvc.perform(get(BASE + "/markers").param("province", PROVINCE_ON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(FacilityMarkers.MEDIA_TYPE))
+                .andExpect(header().string("ETag", "\"markers-4-ON\""))
+                .andReturn();
+        assertEquals(16 + 2 * 13, result.getResponse().getContentAsByteArray().length);
+
+        mockMvc.perform(get(BASE + "/markers").param("province", PROVINCE_ON)
+                        .header("If-None-Match", "\"markers-4-ON\""))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get(BASE + "/markers").param("province", "Ontario"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET catchments -> GeoJSON for the stream and province, revalidated by ETag")
+    void catchmentsAreGeoJson() throws Exception {
+        byte[] feature = ("{\"type\":\"Feature\",\"properties\":{\"province\":\"ON\",\"facilityIds\":[1]},"
+                + "\"geometry\":{\"type\":\"MultiPolygon\",\"coordinates\":[]}}").getBytes(StandardCharsets.UTF_8);
+        CatchmentMap map = new CatchmentMap(4, null, LanguageStream.FRENCH_IMMERSION,
+                Map.of(PROVINCE_ON, feature), 1, 1, 0);
+        when(catchmentService.getCatchments(null, LanguageStream.FRENCH_IMMERSION)).thenReturn(map);
+
+        mockMvc.perform(get(BASE + "/catchments").param("stream", "frenchImmersion").param("province", PROVINCE_ON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(CatchmentMap.MEDIA_TYPE))
+                .andExpect(header().string("ETag", "\"catchments-4-frenchImmersion-ON\""))
+                .andExpect(jsonPath("$.type").value("FeatureCollection"))
+                .andExpect(jsonPath("$.features[0].properties.facilityIds[0]").value(1));
+        mockMvc.perform(get(BASE + "/catchments").param("stream", "frenchImmersion").param("province", "QC"))
+                .andExpect(jsonPath("$.features", hasSize(0)));
+
+        mockMvc.perform(get(BASE + "/catchments").param("stream", "bilingual"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get(BASE + "/catchments").param("province", "Ontario"))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -0,0 +1,167 @@
+package com.efl.facilities.controllers;
+
+import com.efl.facilities.MunicipalitiesService;
+import com.efl.facilities.MunicipalityFeatureIndex;
+import com.efl.facilities.graphql.GraphQlLimits;
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.services.FacilitySelectionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.graphql.GraphQlTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.graphql.execution.ErrorType;
+import org.springframework.graphql.test.tester.GraphQlTester;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@GraphQlTest(FacilityGraphQlController.class)
+@Import(GraphQlLimits.class)
+class FacilityGraphQlControllerTest {
+
+    @Autowired
+    private GraphQlTester graphQlTester;
+
+    @MockBean
+    private FacilitySelectionService facilitySelectionService;
+
+    @MockBean
+    private MunicipalitiesService municipalitiesService;
+
+    private static String feature(String csduid, String dguid, String name, String pruid) {
+        return "{\"type\":\"Feature\",\"properties\":{\"CSDUID\":\"" + csduid + "\",\"DGUID\":\"" + dguid
+                + "\",\"CSDNAME\":\"" + name + "\",\"PRUID\":\"" + pruid + "\"},"
+                + "\"geometry\":{\"type\":\"Point\",\"coordinates\":[-75.7,45.4]}}";
+    }
+
+    private static Facility facility(long id, String name, String subdivision) {
+        Facility f = new Facility();
+        f.setId(id);
+        f.setFacilityName(name);
+        f.setCensusSubdivisionId(subdivision);
+        return f;
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        List<String> features = new ArrayList<>();
+        features.add(feature("3506008", "2021A00053506008", "Ottawa", "35"));
+        features.add(feature("3520005", "2021A00053520005", "Toronto", "35"));
+        features.add(feature("2466023", "2021A00052466023", "Montréal", "24"));
+        byte[] geojson = ("{\"type\":\"FeatureCollection\",\"features\":[" + String.join(",", features) + "]}")
+                .getBytes(StandardCharsets.UTF_8);
+        when(municipalitiesService.getIndex()).thenReturn(MunicipalityFeatureIndex.build(geojson));
+    }
+
+    @Test
+    void selectedFieldsBecomeTheColumnList() {
+        when(facilitySelectionService.getFacilities(anySet(), anyMap(), anyInt(), anyInt()))
+                .thenReturn(List.of(facility(7, "Lisgar CI", null)));
+
+        graphQlTester.document("{ facilities(province: \"ON\", first: 5) { facilityName latitude } }")
+                .execute()
+                .path("facilities[0].facilityName").entity(String.class).isEqualTo("Lisgar CI");
+
+        verify(facilitySelectionService).getFacilities(
+                eq(Set.of("id", "facility_name", "latitude")), eq(Map.of("province", "ON")), eq(5), eq(0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void facilitiesOfEveryMunicipalityComeFromOneQuery() {
+        when(facilitySelectionService.getFacilitiesBySubdivision(anyCollection(), anySet())).thenReturn(Map.of(
+                "3506008", List.of(facility(1, "Lisgar CI", "3506008")),
+                "2021A00053506008", List.of(facility(2, "École Gisèle-Lalonde", "2021A00053506008")),
+                "2466023", List.of(facility(3, "École Jeanne-Mance", "2466023"))));
+
+        graphQlTester.document("{ municipalities { name facilities { facilityName } } }")
+                .execute()
+                .path("municipalities[*].name").entityList(String.class)
+                .containsExactly("Ottawa", "Toronto", "Montréal")
+                .path("municipalities[0].facilities[*].facilityName").entityList(String.class)
+                .containsExactly("Lisgar CI", "École Gisèle-Lalonde")
+                .path("municipalities[1].facilities").entityList(Object.class).hasSize(0);
+
+        ArgumentCaptor<Collection<String>> ids = ArgumentCaptor.forClass(Collection.class);
+        verify(facilitySelectionService, times(1)).getFacilitiesBySubdivision(ids.capture(),
+                eq(Set.of("id", "facility_name")));
+        assertThat(ids.getValue()).containsExactlyInAnyOrder("3506008", "2021A00053506008", "3520005",
+                "2021A00053520005", "2466023", "2021A00052466023");
+    }
+
+    @Test
+    void municipalitiesNarrowByProvince() {
+        graphQlTester.document("{ municipalities(province: \"QC\") { id dguid name province } }")
+                .execute()
+                .path("municipalities[*].id").entityList(String.class).containsExactly("2466023")
+                .path("municipalities[0].province").entity(String.class).isEqualTo("QC");
+    }
+
+    @Test
+    void municipalitiesArePaged() {
+        graphQlTester.document("{ municipalities(province: \"ON\", first: 1, offset: 1) { name } }")
+                .execute()
+                .path("municipalities[*].name").entityList(String.class).containsExactly("Toronto");
+    }
+
+    @Test
+    void pagesAreCapped() {
+        graphQlTester.document("{ facilities(first: 5000) { id } }")
+                .execute()
+                .errors()
+                .expect(error -> error.getErrorType() == ErrorType.BAD_REQUEST);
+        graphQlTester.document("{ municipalities(first: 5000) { id } }")
+                .execute()
+                .errors()
+                .expect(error -> error.getErrorType() == ErrorType.BAD_REQUEST);
+
+        verify(facilitySelectionService, never()).getFacilities(anySet(), anyMap(), anyInt(), anyInt());
+    }
+
+    @Test
+    void expensiveQueriesAreRejectedBeforeTheyRun() {
+        // 1000 rows of 24 fields is allowed, but not three such lists in one request
+        String allFields = "id uniqueId facilityName facilityType authorityName address unit postalCode "
+                + "municipalityName province sourceId minGrade maxGrade languageMinorityStatus frenchImmersion "
+                + "earlyImmersion middleImmersion lateImmersion censusSubdivisionName censusSubdivisionId "
+                + "geometry longitude latitude dateUpdated";
+        graphQlTester.document("{ a: facilities(first: 1000) { " + allFields + " } "
+                        + "b: facilities(first: 1000, offset: 1000) { " + allFields + " } "
+                        + "c: facilities(first: 1000, offset: 2000) { " + allFields + " } }")
+                .execute()
+                .errors()
+                .expect(error -> error.getMessage().contains("maximum query complexity"));
+
+        verify(facilitySelectionService, never()).getFacilities(anySet(), anyMap(), anyInt(), anyInt());
+    }
+
+    @Test
+    void deepQueriesAreRejectedBeforeTheyRun() {
+        graphQlTester.document("{ __schema { types { fields { type { ofType { ofType { ofType { name } } } } } } } }")
+                .execute()
+                .errors()
+                .expect(error -> error.getMessage().contains("maximum query depth"));
+
+        verify(facilitySelectionService, never()).getFacility(anyLong(), anySet());
+    }
+}
@@ -0,0 +1,119 @@
+package com.efl.facilities.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routing between two in-memory H2 databases standing in for a primary and a replica.
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private static final String WHICH_DATABASE = "select name from marker";
+
+    private DriverManagerDataSource primary;
+    private DriverManagerDataSource replica;
+    private ReadWriteRoutingDataSource routing;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    private static DriverManagerDataSource h2(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table marker (name varchar(20))");
+        jdbc.update("insert into marker values (?)", name);
+        jdbc.execute("create table dataset_version (version bigint primary key)");
+        return dataSource;
+    }
+
+    @BeforeEach
+    void setUp() {
+        primary = h2("routing_primary");
+        replica = h2("routing_replica");
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", replica);
+        routing = new ReadWriteRoutingDataSource(primary, replicas);
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(primary).execute("drop all objects");
+        new JdbcTemplate(replica).execute("drop all objects");
+    }
+
+    private String readOnlyTarget() {
+        return readOnly.execute(status -> jdbcTemplate.queryForObject(WHICH_DATABASE, String.class));
+    }
+
+    @Test
+    @DisplayName("read-only transactions go to the replica, read-write ones and bare statements to the primary")
+    void routesByTransactionReadOnlyFlag() {
+        assertThat(readOnlyTarget()).isEqualTo("routing_replica");
+        assertThat(readWrite.execute(status -> jdbcTemplate.queryForObject(WHICH_DATABASE, String.class)))
+                .isEqualTo("routing_primary");
+        assertThat(jdbcTemplate.queryForObject(WHICH_DATABASE, String.class)).isEqualTo("routing_primary");
+    }
+
+    @Test
+    @DisplayName("a replica marked down is skipped until it is marked up again")
+    void fallsBackToPrimaryWhenReplicaDown() {
+        routing.markDown("replica-0", "test");
+        assertThat(readOnlyTarget()).isEqualTo("routing_primary");
+
+        routing.markUp("replica-0");
+        assertThat(readOnlyTarget()).isEqualTo("routing_replica");
+    }
+
+    @Test
+    @DisplayName("the health monitor takes a lagging replica out of rotation until it catches up")
+    void healthMonitorChecksReplicaVersion() {
+        ReplicaHealthMonitor monitor = new ReplicaHealthMonitor(routing);
+        new JdbcTemplate(primary).update("insert into dataset_version values (1)");
+
+        monitor.checkReplicas();
+        assertThat(routing.isUp("replica-0")).isFalse();
+        assertThat(readOnlyTarget()).isEqualTo("routing_primary");
+
+        new JdbcTemplate(replica).update("insert into dataset_version values (1)");
+        monitor.checkReplicas();
+        assertThat(routing.isUp("replica-0")).isTrue();
+        assertThat(readOnlyTarget()).isEqualTo("routing_replica");
+    }
+
+    @Test
+    @DisplayName("an unreachable replica is taken out of rotation on the first failed connection")
+    void unreachableReplicaFailsOver() {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/nowhere", "sa", ""));
+        routing = new ReadWriteRoutingDataSource(primary, replicas);
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readOnly = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readOnly.setReadOnly(true);
+
+        assertThat(readOnlyTarget()).isEqualTo("routing_primary");
+        assertThat(routing.isUp("replica-0")).isFalse();
+    }
+}
@@ -0,0 +1,187 @@
+package com.efl.facilities.deadline;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+class DeadlineFilterTest {
+
+    private static final String VALIDATE = "/api/facilities/validate";
+
+    // Ten billion rows: never finishes on its own
+    private static final String ENDLESS_QUERY =
+            "select sum(a.x * b.x) from system_range(1, 100000) a, system_range(1, 100000) b";
+
+    @Spy
+    private DeadlineWatchdog deadlineWatchdog = new DeadlineWatchdog(properties(30_000, Map.of(VALIDATE, 300L)));
+
+    @InjectMocks
+    private DeadlineFilter filter;
+
+    private DeadlineDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    private static DeadlineProperties properties(long defaultMs, Map<String, Long> endpoints) {
+        DeadlineProperties properties = new DeadlineProperties();
+        properties.setDefaultMs(defaultMs);
+        properties.setEndpoints(endpoints);
+        return properties;
+    }
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DeadlineDataSource(new DriverManagerDataSource(
+                "jdbc:h2:mem:deadlines;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    private static MockHttpServletRequest get(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setRequestURI(uri);
+        return request;
+    }
+
+    @Test
+    void statementsGetTheTimeLeftAsTheirQueryTimeout() throws Exception {
+        List<Integer> timeouts = new ArrayList<>();
+        FilterChain handler = (req, res) -> {
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement("select 1")) {
+                statement.execute();
+                timeouts.add(statement.getQueryTimeout());
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+        filter.doFilter(get("/api/facilities/province/ON"), new MockHttpServletResponse(), handler);
+        filter.doFilter(get(VALIDATE), new MockHttpServletResponse(), handler);
+
+        // Whole seconds, rounded up
+        assertThat(timeouts).containsExactly(30, 1);
+        assertThat(RequestDeadline.current()).isNull();
+    }
+
+    @Test
+    void theWatchdogCancelsAQueryRunningPastTheDeadline() {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleWithFixedDelay(deadlineWatchdog::cancelExpired, 50, 50, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        try {
+            assertThatThrownBy(() -> filter.doFilter(get(VALIDATE), new MockHttpServletResponse(),
+                    (req, res) -> jdbcTemplate.queryForObject(ENDLESS_QUERY, Long.class)))
+                    .isInstanceOf(RequestCancelledException.class)
+                    .extracting(e -> ((RequestCancelledException) e).getReason())
+                    .isEqualTo(RequestDeadline.Reason.DEADLINE_EXCEEDED);
+        } finally {
+            scheduler.shutdownNow();
+        }
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5_000);
+        assertThat(deadlineWatchdog.getStatistics().getCancelledByDeadline()).isEqualTo(1);
+        assertThat(deadlineWatchdog.getStatistics().getCancelledByEndpoint()).containsEntry(VALIDATE, 1L);
+        assertThat(deadlineWatchdog.getStatistics().getActiveRequests()).isZero();
+        // The connection is usable again once the request is over
+        assertThat(jdbcTemplate.queryForObject("select 1", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void aFailedWriteCancelsTheRestOfTheRequest() {
+        MockHttpServletResponse gone = new MockHttpServletResponse() {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return new BrokenPipe();
+            }
+        };
+        FilterChain handler = (req, res) -> {
+            try {
+                res.getOutputStream().write("[".getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                // Keep going, as a handler that doesn't write again until later would
+            }
+            jdbcTemplate.queryForObject("select 1", Integer.class);
+        };
+
+        assertThatThrownBy(() -> filter.doFilter(get("/api/municipalities"), gone, handler))
+                .isInstanceOf(RequestCancelledException.class)
+                .extracting(e -> ((RequestCancelledException) e).getReason())
+                .isEqualTo(RequestDeadline.Reason.CLIENT_DISCONNECTED);
+        assertThat(deadlineWatchdog.getStatistics().getCancelledByDisconnect()).isEqualTo(1);
+        assertThat(deadlineWatchdog.getStatistics().getCancelledByEndpoint())
+                .containsEntry(DeadlineWatchdog.DEFAULT_ENDPOINT, 1L);
+    }
+
+    @Test
+    void onlyFacilityAndMunicipalityRequestsGetADeadline() throws Exception {
+        RequestDeadline[] seen = new RequestDeadline[2];
+        filter.doFilter(get("/api/facilities/changes/stream"), new MockHttpServletResponse(),
+                (req, res) -> seen[0] = RequestDeadline.current());
+        filter.doFilter(get("/api/admin/cache"), new MockHttpServletResponse(),
+                (req, res) -> seen[1] = RequestDeadline.current());
+
+        assertThat(seen).containsOnlyNulls();
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(Proxy.isProxyClass(connection.getClass())).isFalse();
+        }
+    }
+
+    @Test
+    void checkpointsThrowOnceTheTimeIsUp() throws Exception {
+        RequestDeadline deadline = RequestDeadline.begin("test", 0, d -> { });
+        try {
+            assertThat(deadline.isExpired()).isTrue();
+            assertThatThrownBy(RequestDeadline::checkpoint).isInstanceOf(RequestCancelledException.class);
+            assertThat(deadline.getCancelReason()).isEqualTo(RequestDeadline.Reason.DEADLINE_EXCEEDED);
+            // A later cancellation doesn't change the reason
+            assertThat(deadline.cancel(RequestDeadline.Reason.CLIENT_DISCONNECTED)).isFalse();
+            assertThatThrownBy(dataSource::getConnection).isInstanceOf(RequestCancelledException.class);
+        } finally {
+            RequestDeadline.clear();
+        }
+        RequestDeadline.checkpoint();
+    }
+
+    private static final class BrokenPipe extends ServletOutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            throw new IOException("Broken pipe");
+        }
+
+        @Override
+        public boolean isReady() {
+            return false;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            // Not used by blocking writes
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.efl.facilities.fallback;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker("primary", 3, 1000, now::get);
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            assertThat(breaker.tryAcquire()).isTrue();
+            breaker.onFailure();
+        }
+    }
+
+    private void advanceMillis(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    void opensAfterTheThresholdOfFailuresInARow() {
+        fail(2);
+        assertThat(breaker.tryAcquire()).isTrue();
+        breaker.onSuccess();
+        fail(2);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        fail(1);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(breaker.getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    void letsOneTrialThroughOnceTheOpenPeriodIsOver() {
+        fail(3);
+        advanceMillis(999);
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        advanceMillis(1);
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        breaker.onSuccess();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void aFailedTrialReopensForAnotherPeriod() {
+        fail(3);
+        advanceMillis(1000);
+        fail(1);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        advanceMillis(999);
+        assertThat(breaker.tryAcquire()).isFalse();
+        advanceMillis(1);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void anInconclusiveTrialLetsAnotherThrough() {
+        fail(3);
+        advanceMillis(1000);
+        assertThat(breaker.tryAcquire()).isTrue();
+        breaker.onInconclusive();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isTrue();
+        breaker.onSuccess();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    /** What Hikari throws when its connection-timeout runs out while the database can't be reached. */
+    private static SQLException unreachable() {
+        return new SQLTransientConnectionException("timed out", "08001",
+                new SQLException("Connection refused", "08001"));
+    }
+
+    @Test
+    void dataSourceFailsFastWhileOpen() throws SQLException {
+        DataSource pool = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(pool.getConnection())
+                .thenThrow(unreachable())
+                .thenThrow(unreachable())
+                .thenThrow(unreachable())
+                .thenReturn(connection);
+        CircuitBreakerDataSource dataSource = new CircuitBreakerDataSource(pool, breaker);
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(dataSource::getConnection).hasMessage("timed out");
+        }
+        assertThatThrownBy(dataSource::getConnection)
+                .isInstanceOf(SQLTransientConnectionException.class)
+                .hasMessageContaining("Circuit primary is open");
+        verify(pool, times(3)).getConnection();
+
+        advanceMillis(1000);
+        assertThat(dataSource.getConnection()).isSameAs(connection);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void waitingOnABusyPoolIsNotAFailure() throws SQLException {
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenThrow(new SQLTransientConnectionException("timed out"));
+        CircuitBreakerDataSource dataSource = new CircuitBreakerDataSource(pool, breaker);
+
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(dataSource::getConnection).hasMessage("timed out");
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        verify(pool, times(5)).getConnection();
+
+        assertThat(CircuitBreakerDataSource.isConnectionFailure(unreachable())).isTrue();
+        assertThat(CircuitBreakerDataSource.isConnectionFailure(new SQLException("password", "28000"))).isTrue();
+    }
+}
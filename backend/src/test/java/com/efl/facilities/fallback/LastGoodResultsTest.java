@@ -0,0 +1,176 @@
+package com.efl.facilities.fallback;
+
+import com.efl.facilities.concurrency.BulkheadFullException;
+import com.efl.facilities.events.DatasetChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LastGoodResultsTest {
+
+    private LastGoodResults results;
+
+    private LastGoodResults create(long refreshAfterMs) {
+        FallbackProperties properties = new FallbackProperties();
+        properties.setRefreshAfterMs(refreshAfterMs);
+        properties.setMaxEntries(2);
+        results = new LastGoodResults(properties);
+        return results;
+    }
+
+    @AfterEach
+    void tearDown() {
+        results.close();
+    }
+
+    private static Supplier<Object> down() {
+        return () -> {
+            throw new DataAccessResourceFailureException("Communications link failure");
+        };
+    }
+
+    private void changeDataset() {
+        results.onDatasetChanged(new DatasetChangedEvent(2, Instant.now()));
+    }
+
+    @Test
+    void servesTheStoredAnswerWithoutLoadingAgain() {
+        create(60_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        LastGoodResults.Served first = results.serve("ON", () -> "facilities-" + loads.incrementAndGet());
+        LastGoodResults.Served second = results.serve("ON", () -> "facilities-" + loads.incrementAndGet());
+
+        assertThat(first.isStored()).isFalse();
+        assertThat(second.value()).isEqualTo("facilities-1");
+        assertThat(second.isStored()).isTrue();
+        assertThat(second.stale()).isFalse();
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void refreshesAStaleAnswerInTheBackground() throws InterruptedException {
+        create(0);
+        results.serve("ON", () -> "old");
+        CountDownLatch refreshed = new CountDownLatch(1);
+
+        LastGoodResults.Served served = results.serve("ON", () -> {
+            refreshed.countDown();
+            return "new";
+        });
+
+        assertThat(served.value()).isEqualTo("old");
+        assertThat(served.stale()).isTrue();
+        assertThat(refreshed.await(5, TimeUnit.SECONDS)).isTrue();
+        awaitValue("ON", "new");
+    }
+
+    @Test
+    void marksTheAnswerWhenItCannotBeRefreshed() throws InterruptedException {
+        create(0);
+        results.serve("ON", () -> "old");
+        results.serve("ON", down());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (results.getRefreshFailures() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        LastGoodResults.Served served = results.serve("ON", down());
+        assertThat(served.value()).isEqualTo("old");
+        assertThat(served.revalidationFailed()).isTrue();
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        StaleWhileRevalidateAspect.describe(response, served);
+        StaleWhileRevalidateAspect.describe(response, served);
+        assertThat(response.getHeader("Age")).isEqualTo("0");
+        assertThat(response.getHeaders(StaleWhileRevalidateAspect.WARNING_HEADER)).containsExactly(
+                StaleWhileRevalidateAspect.STALE, StaleWhileRevalidateAspect.REVALIDATION_FAILED);
+    }
+
+    @Test
+    void loadsAfreshAfterADatasetChangeAndFallsBackOnlyWhenUnavailable() {
+        create(60_000);
+        results.serve("ON", () -> "version 1");
+        changeDataset();
+
+        LastGoodResults.Served fallback = results.serve("ON", down());
+        assertThat(fallback.value()).isEqualTo("version 1");
+        assertThat(fallback.stale()).isTrue();
+        assertThat(fallback.revalidationFailed()).isTrue();
+        assertThat(fallback.earlierVersion()).isTrue();
+        assertThat(results.serve("ON", () -> {
+            throw new BulkheadFullException("lookup");
+        }).value()).isEqualTo("version 1");
+        assertThat(results.getFallbacks()).isEqualTo(2);
+
+        assertThatThrownBy(() -> results.serve("ON", () -> {
+            throw new IllegalArgumentException("bad province");
+        })).hasMessage("bad province");
+
+        assertThat(results.serve("ON", () -> "version 2").isStored()).isFalse();
+        assertThat(results.serve("ON", down()).value()).isEqualTo("version 2");
+    }
+
+    @Test
+    void countsTheAnswersFromEarlierVersionsServedOnThisThread() {
+        create(0);
+        results.serve("ON", () -> "version 1");
+        long before = LastGoodResults.earlierVersionsServed();
+
+        // Stale, but still this version's answer
+        assertThat(results.serve("ON", down()).earlierVersion()).isFalse();
+        assertThat(LastGoodResults.earlierVersionsServed()).isEqualTo(before);
+
+        changeDataset();
+        assertThat(results.serve("ON", down()).earlierVersion()).isTrue();
+        assertThat(LastGoodResults.earlierVersionsServed()).isEqualTo(before + 1);
+        results.serve("ON", () -> "version 2");
+        assertThat(LastGoodResults.earlierVersionsServed()).isEqualTo(before + 1);
+    }
+
+    @Test
+    void failsWhenThereIsNothingToFallBackOn() {
+        create(60_000);
+
+        assertThatThrownBy(() -> results.serve("QC", down()))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+        assertThat(results.size()).isZero();
+    }
+
+    @Test
+    void keepsTheMostRecentlyUsedAnswers() {
+        create(60_000);
+        results.serve("ON", () -> "on");
+        results.serve("QC", () -> "qc");
+        results.serve("ON", () -> "unused");
+        results.serve("BC", () -> "bc");
+
+        assertThat(results.size()).isEqualTo(2);
+        assertThat(results.serve("ON", down()).value()).isEqualTo("on");
+        assertThatThrownBy(() -> results.serve("QC", down()))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+    }
+
+    private void awaitValue(String key, Object expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Object value = null;
+        while (System.nanoTime() < deadline) {
+            value = results.serve(key, () -> expected).value();
+            if (expected.equals(value)) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        assertThat(value).isEqualTo(expected);
+    }
+}
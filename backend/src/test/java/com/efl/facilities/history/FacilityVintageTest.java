@@ -0,0 +1,65 @@
+package com.efl.facilities.history;
+
+import com.efl.facilities.models.Facility;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FacilityVintageTest {
+
+    private Facility fac(long id, String uniqueId, String name) {
+        Facility f = new Facility();
+        f.setId(id);
+        f.setUniqueId(uniqueId);
+        f.setFacilityName(name);
+        return f;
+    }
+
+    private List<Facility> dataset(int count) {
+        List<Facility> facilities = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            facilities.add(fac(i, "SCH-" + i, "School " + i));
+        }
+        return facilities;
+    }
+
+    @Test
+    @DisplayName("a vintage finds facilities by uniqueId and lists them by id")
+    void lookups() {
+        FacilityVintage vintage = FacilityVintage.of(1, dataset(5000));
+
+        assertThat(vintage.getVersion()).isEqualTo(1);
+        assertThat(vintage.size()).isEqualTo(5000);
+        assertThat(vintage.get("SCH-4321").getFacilityName()).isEqualTo("School 4321");
+        assertThat(vintage.get("SCH-5000")).isNull();
+        assertThat(vintage.toList()).hasSize(5000).isSortedAccordingTo((a, b) -> Long.compare(a.getId(), b.getId()));
+    }
+
+    @Test
+    @DisplayName("applying a change copies only the touched buckets and leaves the old vintage as it was")
+    void applySharesUnchangedBuckets() {
+        FacilityVintage first = FacilityVintage.of(1, dataset(5000));
+
+        FacilityVintage second = first.apply(2,
+                List.of(fac(7, "SCH-7", "Renamed"), fac(9000, "SCH-9000", "New")),
+                Set.of("SCH-12", "SCH-13"));
+
+        assertThat(second.getVersion()).isEqualTo(2);
+        assertThat(second.size()).isEqualTo(4999);
+        assertThat(second.get("SCH-7").getFacilityName()).isEqualTo("Renamed");
+        assertThat(second.get("SCH-9000")).isNotNull();
+        assertThat(second.get("SCH-12")).isNull();
+        assertThat(second.sharedBuckets(first)).isGreaterThanOrEqualTo(FacilityVintage.bucketCount() - 4);
+        assertThat(second.get("SCH-100")).isSameAs(first.get("SCH-100"));
+
+        assertThat(first.size()).isEqualTo(5000);
+        assertThat(first.get("SCH-7").getFacilityName()).isEqualTo("School 7");
+        assertThat(first.get("SCH-12")).isNotNull();
+        assertThat(first.get("SCH-9000")).isNull();
+    }
+}
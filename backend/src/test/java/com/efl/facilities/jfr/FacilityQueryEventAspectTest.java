@@ -0,0 +1,130 @@
+package com.efl.facilities.jfr;
+
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.models.batch.FacilityBatchRequest;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FacilityQueryEventAspectTest {
+
+    @Mock private ProceedingJoinPoint joinPoint;
+    @Mock private Signature signature;
+
+    private final FacilityQueryEventAspect aspect = new FacilityQueryEventAspect();
+    private Recording recording;
+
+    @BeforeEach
+    void setUp() {
+        recording = new Recording();
+        recording.enable(FacilityQueryEvent.class);
+        recording.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        recording.close();
+    }
+
+    private List<RecordedEvent> recorded() throws IOException {
+        recording.stop();
+        Path file = Files.createTempFile("facility-query", ".jfr");
+        try {
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals("com.efl.FacilityQuery"))
+                    .toList();
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private void call(String method, Object... args) {
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(signature.getName()).thenReturn(method);
+        when(joinPoint.getArgs()).thenReturn(args);
+    }
+
+    @Test
+    void recordsMethodArgumentAndRows() throws Throwable {
+        call("getFacilitiesByProvince", "ON");
+        when(joinPoint.proceed()).thenReturn(List.of(new Facility(), new Facility(), new Facility()));
+
+        assertThat(aspect.record(joinPoint)).asList().hasSize(3);
+
+        assertThat(recorded()).singleElement().satisfies(event -> {
+            assertThat(event.getString("method")).isEqualTo("getFacilitiesByProvince");
+            assertThat(event.getString("argument")).isEqualTo("ON");
+            assertThat(event.getInt("rows")).isEqualTo(3);
+            assertThat(event.getDuration()).isPositive();
+        });
+    }
+
+    @Test
+    void failedCallsHaveNoRows() throws Throwable {
+        call("getFacilityById", 7L);
+        when(joinPoint.proceed()).thenThrow(new IllegalStateException("down"));
+
+        assertThatThrownBy(() -> aspect.record(joinPoint)).hasMessage("down");
+
+        assertThat(recorded()).singleElement().satisfies(event -> {
+            assertThat(event.getString("argument")).isEqualTo("7");
+            assertThat(event.getInt("rows")).isEqualTo(-1);
+        });
+    }
+
+    @Test
+    void summarisesBatchesAndCountsEachKindOfAnswer() {
+        FacilityBatchRequest batch = new FacilityBatchRequest();
+        batch.setIds(List.of(1L, 2L));
+        assertThat(FacilityQueryEventAspect.describe(new Object[] {batch})).isEqualTo("2 ids, 0 uniqueIds");
+        assertThat(FacilityQueryEventAspect.describe(new Object[] {List.of("a", "b", "c")})).isEqualTo("3 keys");
+        assertThat(FacilityQueryEventAspect.describe(new Object[] {"x".repeat(500)})).hasSize(200);
+        assertThat(FacilityQueryEventAspect.describe(new Object[0])).isNull();
+
+        assertThat(FacilityQueryEventAspect.rows(Optional.of(new Facility()))).isEqualTo(1);
+        assertThat(FacilityQueryEventAspect.rows(Optional.empty())).isZero();
+        assertThat(FacilityQueryEventAspect.rows(new Facility())).isEqualTo(1);
+        assertThat(FacilityQueryEventAspect.rows(null)).isZero();
+    }
+
+    @Test
+    void dumpsARunningRecording() throws IOException {
+        GeoJsonServedEvent event = new GeoJsonServedEvent();
+        event.begin();
+        event.setServed("/api/municipalities", "province=ON", 1234, true);
+        event.commit();
+
+        // The recording started in setUp is running; custom events are on unless disabled
+        Path dump = new FlightRecordings(false, 60, 100).dump();
+        assertThat(dump).isNotNull();
+        try {
+            assertThat(RecordingFile.readAllEvents(dump)).anySatisfy(recorded -> {
+                assertThat(recorded.getEventType().getName()).isEqualTo("com.efl.GeoJsonServed");
+                assertThat(recorded.getLong("bytes")).isEqualTo(1234);
+                assertThat(recorded.getBoolean("cacheHit")).isTrue();
+            });
+        } finally {
+            Files.delete(dump);
+        }
+    }
+}
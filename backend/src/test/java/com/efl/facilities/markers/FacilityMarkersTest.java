@@ -0,0 +1,106 @@
+package com.efl.facilities.markers;
+
+import com.efl.facilities.models.Facility;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class FacilityMarkersTest {
+
+    private static Facility facility(long id, String lat, String lon) {
+        Facility f = new Facility();
+        f.setId(id);
+        f.setUniqueId("SCH-" + id);
+        f.setFacilityName("École élémentaire " + id);
+        f.setFacilityType("Elementary School");
+        f.setAuthorityName("Conseil des écoles publiques de l'Est de l'Ontario");
+        f.setAddress(id + " Rideau Street");
+        f.setPostalCode("K1N 5Y3");
+        f.setMunicipalityName("Ottawa");
+        f.setProvince("ON");
+        f.setMinGrade("JK");
+        f.setMaxGrade("6");
+        f.setCensusSubdivisionName("Ottawa");
+        f.setCensusSubdivisionId("3506008");
+        f.setDateUpdated(LocalDate.of(2025, 1, 15));
+        if (lat != null) {
+            f.setLatitude(new BigDecimal(lat));
+            f.setLongitude(new BigDecimal(lon));
+            f.setGeometry("POINT (" + lon + " " + lat + ")");
+        }
+        return f;
+    }
+
+    private static ByteBuffer read(FacilityMarkers markers) throws IOException {
+        try (InputStream in = markers.asResource().getInputStream()) {
+            return ByteBuffer.wrap(in.readAllBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    @Test
+    void packsColumnsAfterAHeader() throws IOException {
+        Facility immersion = facility(7, "45.4215296", "-75.6971931");
+        immersion.setFrenchImmersion(true);
+        immersion.setLateImmersion(true);
+        immersion.setEarlyImmersion(false);
+        Facility minority = facility(9, "46.8138783", "-71.2079809");
+        minority.setLanguageMinorityStatus(true);
+        Facility unlocated = facility(8, null, null);
+
+        FacilityMarkers markers = FacilityMarkers.encode(12, List.of(immersion, unlocated, minority));
+        ByteBuffer buffer = read(markers);
+
+        assertThat(markers.getCount()).isEqualTo(2);
+        assertThat(buffer.capacity()).isEqualTo(FacilityMarkers.HEADER_SIZE + 2 * 13);
+        assertThat(buffer.getInt(0)).isEqualTo(FacilityMarkers.MAGIC);
+        assertThat(new String(buffer.array(), 0, 4, StandardCharsets.US_ASCII)).isEqualTo("EFLM");
+        assertThat(buffer.getInt(4)).isEqualTo(FacilityMarkers.FORMAT);
+        assertThat(buffer.getInt(8)).isEqualTo(12);
+        assertThat(buffer.getInt(12)).isEqualTo(2);
+
+        // lat[2], lon[2], id[2], flags[2]
+        assertThat(buffer.getFloat(16)).isCloseTo(45.4215296f, within(1e-5f));
+        assertThat(buffer.getFloat(20)).isCloseTo(46.8138783f, within(1e-5f));
+        assertThat(buffer.getFloat(24)).isCloseTo(-75.6971931f, within(1e-5f));
+        assertThat(buffer.getFloat(28)).isCloseTo(-71.2079809f, within(1e-5f));
+        assertThat(buffer.getInt(32)).isEqualTo(7);
+        assertThat(buffer.getInt(36)).isEqualTo(9);
+        assertThat(buffer.get(40)).isEqualTo((byte) (FacilityMarkers.FLAG_FRENCH_IMMERSION
+                | FacilityMarkers.FLAG_LATE_IMMERSION));
+        assertThat(buffer.get(41)).isEqualTo((byte) FacilityMarkers.FLAG_LANGUAGE_MINORITY);
+    }
+
+    @Test
+    void isAFractionOfTheJson() throws IOException {
+        List<Facility> facilities = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            facilities.add(facility(i, "45." + (1000 + i), "-75." + (2000 + i)));
+        }
+
+        int binary = FacilityMarkers.encode(1, facilities).getSize();
+        int json = new ObjectMapper().findAndRegisterModules().writeValueAsBytes(facilities).length;
+
+        assertThat(json / binary).isGreaterThanOrEqualTo(10);
+    }
+
+    @Test
+    void rejectsIdsTooLargeForInt32() {
+        Facility facility = facility(1L << 31, "45.0", "-75.0");
+
+        assertThatThrownBy(() -> FacilityMarkers.encode(1, List.of(facility)))
+                .isInstanceOf(ArithmeticException.class);
+    }
+}
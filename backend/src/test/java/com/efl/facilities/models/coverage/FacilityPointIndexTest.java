@@ -0,0 +1,90 @@
+package com.efl.facilities.models.coverage;
+
+import com.efl.facilities.models.Facility;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class FacilityPointIndexTest {
+
+    private Facility fac(long id, double lon, double lat, boolean frenchImmersion) {
+        Facility f = new Facility();
+        f.setId(id);
+        f.setUniqueId("F" + id);
+        f.setLongitude(BigDecimal.valueOf(lon));
+        f.setLatitude(BigDecimal.valueOf(lat));
+        f.setFrenchImmersion(frenchImmersion);
+        return f;
+    }
+
+    private static double haversineKm(double lon1, double lat1, double lon2, double lat2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.pow(Math.sin(dLat / 2), 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+        return 2 * FacilityPointIndex.EARTH_RADIUS_KM * Math.asin(Math.sqrt(a));
+    }
+
+    @Test
+    @DisplayName("only matching facilities with coordinates are indexed")
+    void filtersFacilities() {
+        Facility unlocated = fac(3, 0, 0, true);
+        unlocated.setLatitude(null);
+        FacilityPointIndex index = FacilityPointIndex.build(
+                List.of(fac(1, -75.7, 45.4, true), fac(2, -79.4, 43.7, false), unlocated),
+                ImmersionProgram.FRENCH_IMMERSION::isOfferedBy);
+
+        assertThat(index.size()).isEqualTo(1);
+        int nearest = index.nearest(-79.4, 43.7);
+        assertThat(index.getUniqueId(nearest)).isEqualTo("F1");
+        // Toronto to Ottawa
+        assertThat(index.distanceKm(nearest, -79.4, 43.7)).isCloseTo(349, within(2.0));
+        assertThat(FacilityPointIndex.build(List.of(), f -> true).nearest(0, 0)).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("nearest and within-radius agree with a brute-force scan")
+    void matchesBruteForce() {
+        Random random = new Random(40);
+        List<Facility> facilities = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            facilities.add(fac(i, -141 + random.nextDouble() * 89, 42 + random.nextDouble() * 41, true));
+        }
+        FacilityPointIndex index = FacilityPointIndex.build(facilities, f -> true);
+
+        for (int q = 0; q < 200; q++) {
+            double lon = -141 + random.nextDouble() * 89;
+            double lat = 42 + random.nextDouble() * 41;
+            double best = Double.POSITIVE_INFINITY;
+            int within = 0;
+            for (Facility f : facilities) {
+                double d = haversineKm(lon, lat, f.getLongitude().doubleValue(), f.getLatitude().doubleValue());
+                best = Math.min(best, d);
+                if (d <= 100) {
+                    within++;
+                }
+            }
+            assertThat(index.distanceKm(index.nearest(lon, lat), lon, lat)).isCloseTo(best, within(1e-6));
+            assertThat(index.countWithin(lon, lat, 100)).isEqualTo(within);
+        }
+    }
+
+    @Test
+    @DisplayName("distances wrap across the antimeridian")
+    void antimeridian() {
+        FacilityPointIndex index = FacilityPointIndex.build(
+                List.of(fac(1, 179.9, 0, true), fac(2, 170, 0, true)), f -> true);
+
+        int nearest = index.nearest(-179.9, 0);
+        assertThat(index.getId(nearest)).isEqualTo(1);
+        assertThat(index.distanceKm(nearest, -179.9, 0)).isCloseTo(22.2, within(0.1));
+        assertThat(index.countWithin(-179.9, 0, 50)).isEqualTo(1);
+    }
+}
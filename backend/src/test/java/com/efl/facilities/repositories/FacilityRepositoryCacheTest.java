@@ -0,0 +1,89 @@
+package com.efl.facilities.repositories;
+
+import com.efl.facilities.datasource.DataSourceConfig;
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.timing.RequestTiming;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against the application's own DataSource chain, so the pool checkouts
+ * counted here are the ones a request would make.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(DataSourceConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FacilityRepositoryCacheTest {
+
+    @Autowired
+    private FacilityRepository facilityRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnly;
+    private Long id;
+
+    @BeforeEach
+    void setUp() {
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        Facility facility = new Facility();
+        facility.setUniqueId("SCH-900");
+        facility.setFacilityName("Cached PS");
+        facility.setProvince("NS");
+        facility.setMunicipalityName("Truro");
+        id = facilityRepository.save(facility).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestTiming.clear();
+        facilityRepository.deleteAll();
+    }
+
+    /** The Server-Timing header of a request that only runs the read, in its own read-only transaction. */
+    private <T> String timed(Supplier<T> read) {
+        RequestTiming timing = RequestTiming.begin();
+        try {
+            readOnly.execute(status -> read.get());
+            return timing.toServerTimingHeader();
+        } finally {
+            RequestTiming.clear();
+        }
+    }
+
+    @Test
+    @DisplayName("a query cache hit doesn't check out a pool connection")
+    void queryCacheHitTakesNoConnection() {
+        Supplier<List<Facility>> read = () -> facilityRepository.findByProvince("NS");
+
+        assertThat(timed(read)).contains("\"1 connections\"");
+        assertThat(timed(read)).contains("\"0 connections\"", "\"0 statements, 0 rows\"");
+    }
+
+    @Test
+    @DisplayName("an entity cache hit doesn't check out a pool connection")
+    void entityCacheHitTakesNoConnection() {
+        timed(() -> facilityRepository.findById(id));
+
+        assertThat(timed(() -> facilityRepository.findById(id))).contains("\"0 connections\"");
+    }
+}
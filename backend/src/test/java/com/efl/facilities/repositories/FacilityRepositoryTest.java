@@ -109,4 +109,20 @@ class FacilityRepositoryTest {
                 .extracting(Facility::getUniqueId)
                 .isEqualTo("SCH-500");
     }
+
+    @Test
+    @DisplayName("findByIdIn and findByUniqueIdIn return only the requested facilities")
+    void findByIdInAndUniqueIdInReturnRequested() {
+        Facility a = facilityRepository.save(facility("SCH-600", "Alpha", "ON", "Guelph", TYPE_ELEMENTARY, false));
+        Facility b = facilityRepository.save(facility("SCH-601", "Beta", "ON", "Guelph", TYPE_SECONDARY, true));
+        facilityRepository.save(facility("SCH-602", "Gamma", "ON", "Guelph", TYPE_SECONDARY, false));
+
+        List<Facility> byId = facilityRepository.findByIdIn(List.of(a.getId(), b.getId(), -1L));
+        List<Facility> byUniqueId = facilityRepository.findByUniqueIdIn(List.of("SCH-602", "SCH-999"));
+
+        assertThat(byId).extracting(Facility::getUniqueId)
+                .containsExactlyInAnyOrder("SCH-600", "SCH-601");
+        assertThat(byUniqueId).extracting(Facility::getUniqueId)
+                .containsExactly("SCH-602");
+    }
 }
@@ -0,0 +1,136 @@
+package com.efl.facilities.services;
+
+import com.efl.facilities.MunicipalitiesService;
+import com.efl.facilities.MunicipalityFeatureIndex;
+import com.efl.facilities.catchments.CatchmentMap;
+import com.efl.facilities.catchments.LanguageStream;
+import com.efl.facilities.events.DatasetChangedEvent;
+import com.efl.facilities.models.Facility;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CatchmentServiceTest {
+
+    @Mock private FacilityService facilityService;
+    @Mock private MunicipalitiesService municipalitiesService;
+    @Mock private DatasetVersionTracker datasetVersionTracker;
+    @InjectMocks private CatchmentService catchmentService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static String square(String csduid, double lon, double lat) {
+        return "{\"type\":\"Feature\",\"properties\":{\"CSDUID\":\"" + csduid + "\"},"
+                + "\"geometry\":{\"type\":\"Polygon\",\"coordinates\":[[[" + (lon - 0.5) + "," + (lat - 0.5) + "],["
+                + (lon + 0.5) + "," + (lat - 0.5) + "],[" + (lon + 0.5) + "," + (lat + 0.5) + "],["
+                + (lon - 0.5) + "," + (lat + 0.5) + "],[" + (lon - 0.5) + "," + (lat - 0.5) + "]]]}}";
+    }
+
+    private static Facility fac(long id, String province, String type, double lon, double lat, Boolean immersion) {
+        Facility f = new Facility();
+        f.setId(id);
+        f.setProvince(province);
+        f.setFacilityType(type);
+        f.setLongitude(BigDecimal.valueOf(lon));
+        f.setLatitude(BigDecimal.valueOf(lat));
+        f.setFrenchImmersion(immersion);
+        return f;
+    }
+
+    private JsonNode features(CatchmentMap map, String province) throws IOException {
+        try (InputStream in = map.asResource(province).getInputStream()) {
+            return objectMapper.readTree(in).get("features");
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        List<String> features = new ArrayList<>();
+        features.add(square("3506008", -75.7, 45.4));
+        features.add(square("2466023", -73.6, 45.5));
+        byte[] geojson = ("{\"type\":\"FeatureCollection\",\"features\":[" + String.join(",", features) + "]}")
+                .getBytes(StandardCharsets.UTF_8);
+        lenient().when(municipalitiesService.getIndex()).thenReturn(MunicipalityFeatureIndex.build(geojson));
+        lenient().when(datasetVersionTracker.getAppliedVersion()).thenReturn(7L);
+        List<Facility> facilities = new ArrayList<>();
+        // Enough Ontario schools that the cells are split across fork/join tasks
+        for (int i = 0; i < 150; i++) {
+            facilities.add(fac(i + 1, "ON", "School", -76.1 + (i % 15) * 0.05, 45.0 + (i / 15) * 0.08, i % 2 == 0));
+        }
+        facilities.add(fac(500, "QC", "School", -73.6, 45.5, true));
+        facilities.add(fac(501, "QC", "Daycare", -73.7, 45.6, null));
+        facilities.add(fac(502, "QC", "School", -73.5, 45.4, null));
+        // No coordinates, or a province without subdivisions: left out
+        Facility unlocated = fac(600, "ON", "School", 0, 0, true);
+        unlocated.setLatitude(null);
+        facilities.add(unlocated);
+        facilities.add(fac(601, "BC", "School", -123.1, 49.3, true));
+        lenient().when(facilityService.getAllFacilities()).thenReturn(facilities);
+    }
+
+    @Test
+    @DisplayName("one feature per located site, grouped by province")
+    void computesCatchments() throws IOException {
+        CatchmentMap map = catchmentService.getCatchments("School", LanguageStream.ALL);
+
+        assertThat(map.getDatasetVersion()).isEqualTo(7);
+        assertThat(map.getFacilityCount()).isEqualTo(152);
+        assertThat(map.getCellCount()).isEqualTo(152);
+        assertThat(features(map, null)).hasSize(152);
+        assertThat(features(map, "qc")).hasSize(2).allSatisfy(feature ->
+                assertThat(feature.get("properties").get("province").asText()).isEqualTo("QC"));
+        assertThat(features(map, "BC")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("the type and stream narrow the facilities")
+    void typeAndStream() throws IOException {
+        CatchmentMap immersion = catchmentService.getCatchments(null, LanguageStream.FRENCH_IMMERSION);
+        assertThat(immersion.getFacilityCount()).isEqualTo(76);
+
+        CatchmentMap daycares = catchmentService.getCatchments("Daycare", LanguageStream.ALL);
+        assertThat(features(daycares, null)).singleElement().satisfies(feature ->
+                assertThat(feature.get("properties").get("facilityIds").get(0).asLong()).isEqualTo(501));
+    }
+
+    @Test
+    @DisplayName("maps are reused until the dataset changes, except empty ones")
+    void cachedPerDatasetVersion() throws IOException {
+        CatchmentMap first = catchmentService.getCatchments("School", LanguageStream.ALL);
+        assertThat(catchmentService.getCatchments("School", LanguageStream.ALL)).isSameAs(first);
+        catchmentService.getCatchments("Library", LanguageStream.ALL);
+        catchmentService.getCatchments("Library", LanguageStream.ALL);
+        verify(facilityService, times(3)).getAllFacilities();
+
+        catchmentService.onDatasetChanged(new DatasetChangedEvent(8, Instant.now()));
+        assertThat(catchmentService.getCatchments("School", LanguageStream.ALL)).isNotSameAs(first);
+        verify(facilityService, times(4)).getAllFacilities();
+        // The subdivision polygons are read once, not per map
+        verify(municipalitiesService, times(2)).getIndex();
+    }
+
+    @Test
+    void rejectsUnknownStream() {
+        assertThatThrownBy(() -> LanguageStream.fromParamName("bilingual"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,74 @@
+package com.efl.facilities.services;
+
+import com.efl.facilities.events.DatasetChangedEvent;
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.models.cache.FacilityCacheStatistics;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FacilityCacheServiceTest {
+
+    @Mock private EntityManagerFactory entityManagerFactory;
+    @Mock private SessionFactory sessionFactory;
+    @InjectMocks private FacilityCacheService facilityCacheService;
+
+    @BeforeEach
+    void setup() {
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+    }
+
+    @Test
+    @DisplayName("a finished ingest evicts every cache region")
+    void datasetChangedEvictsAllRegions() {
+        Cache cache = mock(Cache.class);
+        when(sessionFactory.getCache()).thenReturn(cache);
+
+        facilityCacheService.onDatasetChanged(new DatasetChangedEvent(1L, Instant.now()));
+
+        verify(cache).evictAllRegions();
+        verifyNoMoreInteractions(cache);
+    }
+
+    @Test
+    @DisplayName("getStatistics reports hits and misses for the entity and query regions")
+    void getStatisticsReportsRegionCounts() {
+        Statistics statistics = mock(Statistics.class);
+        CacheRegionStatistics entityRegion = mock(CacheRegionStatistics.class);
+        CacheRegionStatistics queryRegion = mock(CacheRegionStatistics.class);
+        when(sessionFactory.getStatistics()).thenReturn(statistics);
+        when(statistics.getSecondLevelCacheHitCount()).thenReturn(12L);
+        when(statistics.getSecondLevelCacheMissCount()).thenReturn(3L);
+        when(statistics.getCacheRegionStatistics(Facility.CACHE_REGION)).thenReturn(entityRegion);
+        when(statistics.getCacheRegionStatistics(Facility.QUERY_CACHE_REGION)).thenReturn(queryRegion);
+        when(entityRegion.getHitCount()).thenReturn(10L);
+        when(entityRegion.getMissCount()).thenReturn(2L);
+        when(queryRegion.getHitCount()).thenReturn(4L);
+        when(queryRegion.getMissCount()).thenReturn(1L);
+
+        FacilityCacheStatistics result = facilityCacheService.getStatistics();
+
+        assertThat(result.getSecondLevelCacheHitCount()).isEqualTo(12L);
+        assertThat(result.getSecondLevelCacheMissCount()).isEqualTo(3L);
+        assertThat(result.getEntityHitCount()).isEqualTo(10L);
+        assertThat(result.getEntityMissCount()).isEqualTo(2L);
+        assertThat(result.getQueryHitCount()).isEqualTo(4L);
+        assertThat(result.getQueryMissCount()).isEqualTo(1L);
+        assertThat(result.getLastEvictedAt()).isNull();
+    }
+}
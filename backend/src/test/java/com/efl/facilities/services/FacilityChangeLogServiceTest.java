@@ -0,0 +1,117 @@
+package com.efl.facilities.services;
+
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.models.changes.DatasetVersion;
+import com.efl.facilities.models.changes.FacilityChangeSet;
+import com.efl.facilities.models.changes.FacilityChangeType;
+import com.efl.facilities.repositories.FacilityReadsConfig;
+import com.efl.facilities.repositories.FacilityRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureJson
+@Import({FacilityChangeLogService.class, FacilityService.class, FacilityReadsConfig.class})
+class FacilityChangeLogServiceTest {
+
+    @Autowired
+    private FacilityRepository facilityRepository;
+
+    @Autowired
+    private FacilityChangeLogService facilityChangeLogService;
+
+    // No snapshot, so FacilityService reads the table
+    @MockBean
+    private FacilitySnapshotService facilitySnapshotService;
+
+    private Facility facility(String uniqueId, String name) {
+        Facility f = new Facility();
+        f.setUniqueId(uniqueId);
+        f.setFacilityName(name);
+        f.setProvince("ON");
+        return f;
+    }
+
+    @Test
+    @DisplayName("the first ingest records every facility as inserted")
+    void firstIngestInsertsEverything() {
+        facilityRepository.save(facility("SCH-1", "Alpha"));
+        facilityRepository.save(facility("SCH-2", "Beta"));
+
+        DatasetVersion version = facilityChangeLogService.recordIngest();
+
+        assertThat(version.getVersion()).isEqualTo(1L);
+        assertThat(version.getInsertedCount()).isEqualTo(2);
+        assertThat(facilityChangeLogService.getCurrentVersion()).isEqualTo(1L);
+
+        FacilityChangeSet changes = facilityChangeLogService.getChangesSince(0);
+        assertThat(changes.getToVersion()).isEqualTo(1L);
+        assertThat(changes.getInserted()).extracting(Facility::getUniqueId)
+                .containsExactlyInAnyOrder("SCH-1", "SCH-2");
+        assertThat(changes.getUpdated()).isEmpty();
+        assertThat(changes.getDeleted()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("a later ingest records inserts, updates and deletes, and deltas are netted across versions")
+    void laterIngestRecordsDeltas() {
+        Facility alpha = facilityRepository.save(facility("SCH-1", "Alpha"));
+        Facility beta = facilityRepository.save(facility("SCH-2", "Beta"));
+        facilityChangeLogService.recordIngest();
+
+        facilityRepository.delete(alpha);
+        facilityRepository.delete(beta);
+        facilityRepository.flush();
+        facilityRepository.save(facility("SCH-2", "Beta Renamed"));
+        facilityRepository.save(facility("SCH-3", "Gamma"));
+
+        DatasetVersion version = facilityChangeLogService.recordIngest();
+
+        assertThat(version.getVersion()).isEqualTo(2L);
+        assertThat(version.getInsertedCount()).isEqualTo(1);
+        assertThat(version.getUpdatedCount()).isEqualTo(1);
+        assertThat(version.getDeletedCount()).isEqualTo(1);
+
+        FacilityChangeSet sinceOne = facilityChangeLogService.getChangesSince(1);
+        assertThat(sinceOne.getInserted()).extracting(Facility::getUniqueId).containsExactly("SCH-3");
+        assertThat(sinceOne.getUpdated()).extracting(Facility::getFacilityName).containsExactly("Beta Renamed");
+        assertThat(sinceOne.getDeleted()).containsExactly("SCH-1");
+
+        FacilityChangeSet sinceZero = facilityChangeLogService.getChangesSince(0);
+        assertThat(sinceZero.getInserted()).extracting(Facility::getUniqueId)
+                .containsExactlyInAnyOrder("SCH-2", "SCH-3");
+        assertThat(sinceZero.getUpdated()).isEmpty();
+        assertThat(sinceZero.getDeleted()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("an ingest that changes nothing does not create a version")
+    void unchangedIngestKeepsVersion() {
+        facilityRepository.save(facility("SCH-1", "Alpha"));
+        facilityChangeLogService.recordIngest();
+
+        DatasetVersion version = facilityChangeLogService.recordIngest();
+
+        assertThat(version.getVersion()).isEqualTo(1L);
+        assertThat(facilityChangeLogService.getChangesSince(1).getInserted()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("merge nets consecutive changes to the same facility")
+    void mergeNetsChanges() {
+        assertThat(FacilityChangeLogService.merge(FacilityChangeType.INSERTED, FacilityChangeType.UPDATED))
+                .isEqualTo(FacilityChangeType.INSERTED);
+        assertThat(FacilityChangeLogService.merge(FacilityChangeType.INSERTED, FacilityChangeType.DELETED)).isNull();
+        assertThat(FacilityChangeLogService.merge(FacilityChangeType.DELETED, FacilityChangeType.INSERTED))
+                .isEqualTo(FacilityChangeType.UPDATED);
+        assertThat(FacilityChangeLogService.merge(FacilityChangeType.UPDATED, FacilityChangeType.DELETED))
+                .isEqualTo(FacilityChangeType.DELETED);
+    }
+}
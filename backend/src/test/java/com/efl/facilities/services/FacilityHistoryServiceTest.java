@@ -0,0 +1,110 @@
+package com.efl.facilities.services;
+
+import com.efl.facilities.history.FacilityVintage;
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.repositories.FacilityReadsConfig;
+import com.efl.facilities.repositories.FacilityRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@AutoConfigureJson
+@Import({FacilityHistoryService.class, FacilityChangeLogService.class, FacilityService.class,
+        FacilityReadsConfig.class})
+class FacilityHistoryServiceTest {
+
+    @Autowired
+    private FacilityRepository facilityRepository;
+
+    @Autowired
+    private FacilityChangeLogService facilityChangeLogService;
+
+    @Autowired
+    private FacilityHistoryService facilityHistoryService;
+
+    // No snapshot, so FacilityService reads the table
+    @MockBean
+    private FacilitySnapshotService facilitySnapshotService;
+
+    private Facility facility(String uniqueId, String name, boolean frenchImmersion) {
+        Facility f = new Facility();
+        f.setUniqueId(uniqueId);
+        f.setFacilityName(name);
+        f.setProvince("ON");
+        f.setFrenchImmersion(frenchImmersion);
+        f.setDateUpdated(LocalDate.of(2025, 1, 15));
+        return f;
+    }
+
+    // Version 1: Alpha, Beta. Version 2: Alpha deleted, Beta renamed, Gamma added.
+    @BeforeEach
+    void twoVersions() {
+        Facility alpha = facilityRepository.save(facility("SCH-1", "Alpha", true));
+        Facility beta = facilityRepository.save(facility("SCH-2", "Beta", false));
+        facilityChangeLogService.recordIngest();
+
+        facilityRepository.delete(alpha);
+        facilityRepository.delete(beta);
+        facilityRepository.flush();
+        facilityRepository.save(facility("SCH-2", "Beta Renamed", true));
+        facilityRepository.save(facility("SCH-3", "Gamma", true));
+        facilityChangeLogService.recordIngest();
+    }
+
+    @Test
+    @DisplayName("each version reads back as it was, and the latest ones are kept in memory")
+    void readsEachVersion() {
+        FacilityVintage first = facilityHistoryService.getVintage("1").orElseThrow();
+        assertThat(first.toList()).extracting(Facility::getFacilityName).containsExactly("Alpha", "Beta");
+        assertThat(first.get("SCH-1").getDateUpdated()).isEqualTo(LocalDate.of(2025, 1, 15));
+
+        FacilityVintage second = facilityHistoryService.getVintage("2").orElseThrow();
+        assertThat(second.toList()).extracting(Facility::getFacilityName)
+                .containsExactlyInAnyOrder("Beta Renamed", "Gamma");
+        assertThat(second.get("SCH-1")).isNull();
+
+        assertThat(facilityHistoryService.getHotVersions()).containsExactly(1L, 2L);
+        assertThat(second.sharedBuckets(first)).isGreaterThanOrEqualTo(FacilityVintage.bucketCount() - 3);
+    }
+
+    @Test
+    @DisplayName("versions that fall out of memory are rebuilt from the history table")
+    void rebuildsColdVersions() {
+        for (int v = 3; v <= 5; v++) {
+            facilityRepository.save(facility("SCH-" + (v + 1), "School " + v, false));
+            facilityChangeLogService.recordIngest();
+        }
+        assertThat(facilityHistoryService.getHotVersions()).containsExactly(3L, 4L, 5L);
+
+        FacilityVintage first = facilityHistoryService.getVintage("1").orElseThrow();
+        assertThat(first.size()).isEqualTo(2);
+        assertThat(first.get("SCH-2").getFacilityName()).isEqualTo("Beta");
+        assertThat(facilityHistoryService.getVintage("5").orElseThrow().size()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("asOf takes a date or an instant, and versions outside history are empty")
+    void resolvesAsOf() {
+        String today = LocalDate.now(ZoneOffset.UTC).toString();
+        assertThat(facilityHistoryService.getVintage(today).orElseThrow().getVersion()).isEqualTo(2);
+        assertThat(facilityHistoryService.getVintage("2000-01-01")).isEmpty();
+        assertThat(facilityHistoryService.getVintage("2000-01-01T00:00:00Z")).isEmpty();
+        assertThat(facilityHistoryService.getVintage("0")).isEmpty();
+        assertThat(facilityHistoryService.getVintage("99")).isEmpty();
+
+        assertThatThrownBy(() -> facilityHistoryService.getVintage("last year"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,108 @@
+package com.efl.facilities.services;
+
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.repositories.FacilityReadsConfig;
+import com.efl.facilities.repositories.FacilityRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({FacilitySelectionService.class, FacilityReadsConfig.class})
+class FacilitySelectionServiceTest {
+
+    @Autowired
+    private FacilityRepository facilityRepository;
+
+    @Autowired
+    private FacilitySelectionService facilitySelectionService;
+
+    private static Facility facility(String uniqueId, String name, String province, String subdivision) {
+        Facility f = new Facility();
+        f.setUniqueId(uniqueId);
+        f.setFacilityName(name);
+        f.setProvince(province);
+        f.setCensusSubdivisionId(subdivision);
+        f.setFrenchImmersion(true);
+        f.setLatitude(new BigDecimal("45.4215296"));
+        f.setLongitude(new BigDecimal("-75.6971931"));
+        return f;
+    }
+
+    private static Set<String> columns(String... columns) {
+        return new LinkedHashSet<>(List.of(columns));
+    }
+
+    @BeforeEach
+    void setUp() {
+        facilityRepository.save(facility("SCH-1", "Lisgar CI", "ON", "3506008"));
+        facilityRepository.save(facility("SCH-2", "École Gisèle-Lalonde", "ON", "2021A00053506008"));
+        facilityRepository.save(facility("SCH-3", "Kelvin HS", "MB", "4611040"));
+        facilityRepository.save(facility("SCH-4", "École Jeanne-Mance", "QC", "2466023"));
+    }
+
+    @Test
+    void readsOnlyTheSelectedColumns() {
+        List<Facility> facilities = facilitySelectionService.getFacilities(
+                columns("id", "facility_name", "latitude"), Map.of("province", "ON"), 10, 0);
+
+        assertThat(facilities).extracting(Facility::getFacilityName)
+                .containsExactly("Lisgar CI", "École Gisèle-Lalonde");
+        assertThat(facilities).allSatisfy(facility -> {
+            assertThat(facility.getId()).isNotNull();
+            assertThat(facility.getLatitude()).isEqualByComparingTo("45.4215296");
+            assertThat(facility.getProvince()).isNull();
+            assertThat(facility.getUniqueId()).isNull();
+            assertThat(facility.getFrenchImmersion()).isNull();
+        });
+    }
+
+    @Test
+    void pagesInIdOrder() {
+        List<Facility> all = facilitySelectionService.getFacilities(columns("id"), Map.of(), 10, 0);
+        List<Facility> page = facilitySelectionService.getFacilities(columns("id", "unique_id"), Map.of(), 2, 1);
+
+        assertThat(all).extracting(Facility::getId).isSorted().hasSize(4);
+        assertThat(page).extracting(Facility::getUniqueId).containsExactly("SCH-2", "SCH-3");
+    }
+
+    @Test
+    void groupsFacilitiesBySubdivision() {
+        // More ids than fit in one query
+        List<String> ids = new ArrayList<>(IntStream.range(0, FacilityService.BATCH_QUERY_CHUNK_SIZE)
+                .mapToObj(i -> "99" + i)
+                .toList());
+        ids.add("3506008");
+        ids.add("2021A00053506008");
+        ids.add("4611040");
+
+        Map<String, List<Facility>> bySubdivision =
+                facilitySelectionService.getFacilitiesBySubdivision(ids, columns("id", "facility_name"));
+
+        assertThat(bySubdivision).containsOnlyKeys("3506008", "2021A00053506008", "4611040");
+        assertThat(bySubdivision.get("4611040")).extracting(Facility::getFacilityName).containsExactly("Kelvin HS");
+    }
+
+    @Test
+    void rejectsAnythingButFacilityColumns() {
+        assertThatThrownBy(() -> facilitySelectionService.getFacilities(
+                columns("id", "facility_name from educational_facility; --"), Map.of(), 10, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> facilitySelectionService.getFacilities(
+                columns("id"), Map.of("1 = 1 or province", "ON"), 10, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
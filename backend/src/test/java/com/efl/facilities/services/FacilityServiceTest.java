@@ -1,18 +1,28 @@
 package com.efl.facilities.services;
 
 import com.efl.facilities.models.Facility;
-import com.efl.facilities.repositories.FacilityRepository;
+import com.efl.facilities.models.batch.FacilityBatchRequest;
+import com.efl.facilities.models.batch.FacilityBatchResult;
+import com.efl.facilities.repositories.FacilityReads;
+import com.efl.facilities.snapshot.FacilitySnapshot;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -20,7 +30,8 @@ class FacilityServiceTest {
 
     private static final String UID_011 = "SCH-011";
 
-    @Mock private FacilityRepository facilityRepository;
+    @Mock private FacilityReads facilityReads;
+    @Mock private FacilitySnapshotService facilitySnapshotService;
     @InjectMocks private FacilityService facilityService;
 
     private Facility fac(long id, String uid, String name) {
@@ -35,77 +46,144 @@ class FacilityServiceTest {
     @DisplayName("getFacilityById delegates to repository.findById")
     void getFacilityByIdDelegates() {
         Facility expected = fac(10L, "SCH-010", "Central");
-        when(facilityRepository.findById(10L)).thenReturn(Optional.of(expected));
+        when(facilityReads.findById(10L)).thenReturn(Optional.of(expected));
 
         Optional<Facility> result = facilityService.getFacilityById(10L);
 
         assertThat(result).isPresent().contains(expected);
-        verify(facilityRepository).findById(10L);
-        verifyNoMoreInteractions(facilityRepository);
+        verify(facilityReads).findById(10L);
+        verifyNoMoreInteractions(facilityReads);
+    }
+
+    @Test
+    @DisplayName("getAllFacilities and getFacilityById read the mapped snapshot when there is one")
+    void readsTheSnapshotWhenCurrent(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("facilities.snapshot");
+        FacilitySnapshot.write(file, 3, List.of(fac(12L, "SCH-012", "Pine"), fac(10L, "SCH-010", "Central")));
+        FacilitySnapshot snapshot = FacilitySnapshot.open(file);
+        when(facilitySnapshotService.current()).thenReturn(snapshot);
+        when(facilitySnapshotService.facilities()).thenReturn(snapshot.asList());
+
+        assertThat(facilityService.getAllFacilities())
+                .extracting(Facility::getUniqueId).containsExactly("SCH-010", "SCH-012");
+        assertThat(facilityService.getFacilityById(12L)).get()
+                .extracting(Facility::getFacilityName).isEqualTo("Pine");
+        assertThat(facilityService.getFacilityById(11L)).isEmpty();
+        verifyNoInteractions(facilityReads);
     }
 
     @Test
     @DisplayName("getFacilityByUniqueId delegates to repository.findByUniqueId")
     void getFacilityByUniqueIdDelegates() {
         Facility expected = fac(11L, UID_011, "Maple");
-        when(facilityRepository.findByUniqueId(UID_011)).thenReturn(expected);
+        when(facilityReads.findByUniqueId(UID_011)).thenReturn(expected);
 
         Facility result = facilityService.getFacilityByUniqueId(UID_011);
 
         assertThat(result).isEqualTo(expected);
-        verify(facilityRepository).findByUniqueId(UID_011);
-        verifyNoMoreInteractions(facilityRepository);
+        verify(facilityReads).findByUniqueId(UID_011);
+        verifyNoMoreInteractions(facilityReads);
     }
 
     @Test
     @DisplayName("getFacilitiesByProvince delegates to repository.findByProvince")
     void getFacilitiesByProvinceDelegates() {
         List<Facility> expected = List.of(fac(1L, "SCH-001", "A"), fac(2L, "SCH-002", "B"));
-        when(facilityRepository.findByProvince("ON")).thenReturn(expected);
+        when(facilityReads.findByProvince("ON")).thenReturn(expected);
 
         List<Facility> result = facilityService.getFacilitiesByProvince("ON");
 
         assertThat(result).isEqualTo(expected);
-        verify(facilityRepository).findByProvince("ON");
-        verifyNoMoreInteractions(facilityRepository);
+        verify(facilityReads).findByProvince("ON");
+        verifyNoMoreInteractions(facilityReads);
     }
 
     @Test
     @DisplayName("getFacilitiesByMunicipality delegates to repository.findByMunicipalityName")
     void getFacilitiesByMunicipalityDelegates() {
         List<Facility> expected = List.of(fac(3L, "SCH-003", "C"));
-        when(facilityRepository.findByMunicipalityName("Guelph")).thenReturn(expected);
+        when(facilityReads.findByMunicipalityName("Guelph")).thenReturn(expected);
 
         List<Facility> result = facilityService.getFacilitiesByMunicipality("Guelph");
 
         assertThat(result).isEqualTo(expected);
-        verify(facilityRepository).findByMunicipalityName("Guelph");
-        verifyNoMoreInteractions(facilityRepository);
+        verify(facilityReads).findByMunicipalityName("Guelph");
+        verifyNoMoreInteractions(facilityReads);
     }
 
     @Test
     @DisplayName("getFacilitiesByType delegates to repository.findByFacilityType")
     void getFacilitiesByTypeDelegates() {
         List<Facility> expected = List.of(fac(4L, "SCH-004", "D"));
-        when(facilityRepository.findByFacilityType("Secondary School")).thenReturn(expected);
+        when(facilityReads.findByFacilityType("Secondary School")).thenReturn(expected);
 
         List<Facility> result = facilityService.getFacilitiesByType("Secondary School");
 
         assertThat(result).isEqualTo(expected);
-        verify(facilityRepository).findByFacilityType("Secondary School");
-        verifyNoMoreInteractions(facilityRepository);
+        verify(facilityReads).findByFacilityType("Secondary School");
+        verifyNoMoreInteractions(facilityReads);
     }
 
     @Test
     @DisplayName("getFrenchImmersionFacilities delegates to repository.findByFrenchImmersionTrue")
     void getFrenchImmersionFacilitiesDelegates() {
         List<Facility> expected = List.of(fac(5L, "SCH-005", "École Est"));
-        when(facilityRepository.findByFrenchImmersionTrue()).thenReturn(expected);
+        when(facilityReads.findByFrenchImmersionTrue()).thenReturn(expected);
 
         List<Facility> result = facilityService.getFrenchImmersionFacilities();
 
         assertThat(result).isEqualTo(expected);
-        verify(facilityRepository).findByFrenchImmersionTrue();
-        verifyNoMoreInteractions(facilityRepository);
+        verify(facilityReads).findByFrenchImmersionTrue();
+        verifyNoMoreInteractions(facilityReads);
+    }
+
+    @Test
+    @DisplayName("getFacilitiesBatch answers in request order with not-found markers")
+    void getFacilitiesBatchKeepsRequestOrder() {
+        Facility a = fac(1L, "SCH-001", "A");
+        Facility b = fac(2L, "SCH-002", "B");
+        when(facilityReads.findByIdIn(List.of(2L, 99L, 1L))).thenReturn(List.of(a, b));
+        when(facilityReads.findByUniqueIdIn(List.of("SCH-404", UID_011))).thenReturn(List.of(fac(11L, UID_011, "Maple")));
+
+        FacilityBatchRequest request = new FacilityBatchRequest();
+        request.setIds(List.of(2L, 99L, 1L, 2L));
+        request.setUniqueIds(List.of("SCH-404", UID_011));
+
+        FacilityBatchResult result = facilityService.getFacilitiesBatch(request);
+
+        assertThat(result.getRequestedCount()).isEqualTo(6);
+        assertThat(result.getFoundCount()).isEqualTo(4);
+        assertThat(result.getResults())
+                .extracting(e -> e.isFound() ? e.getFacility().getUniqueId() : null)
+                .containsExactly("SCH-002", null, "SCH-001", "SCH-002", null, UID_011);
+        assertThat(result.getResults().get(1).getId()).isEqualTo(99L);
+        assertThat(result.getResults().get(4).getUniqueId()).isEqualTo("SCH-404");
+    }
+
+    @Test
+    @DisplayName("getFacilitiesBatch splits large batches into chunked IN queries")
+    void getFacilitiesBatchChunksQueries() {
+        when(facilityReads.findByIdIn(anyCollection())).thenReturn(List.of());
+
+        FacilityBatchRequest request = new FacilityBatchRequest();
+        request.setIds(LongStream.rangeClosed(1, 1000).boxed().collect(Collectors.toList()));
+
+        FacilityBatchResult result = facilityService.getFacilitiesBatch(request);
+
+        assertThat(result.getRequestedCount()).isEqualTo(1000);
+        assertThat(result.getFoundCount()).isZero();
+        verify(facilityReads, times(1000 / FacilityService.BATCH_QUERY_CHUNK_SIZE)).findByIdIn(anyCollection());
+        verifyNoMoreInteractions(facilityReads);
+    }
+
+    @Test
+    @DisplayName("getFacilitiesBatch rejects batches over the key limit")
+    void getFacilitiesBatchRejectsOversizedBatch() {
+        FacilityBatchRequest request = new FacilityBatchRequest();
+        request.setIds(LongStream.rangeClosed(1, 1001).boxed().collect(Collectors.toList()));
+
+        assertThatThrownBy(() -> facilityService.getFacilitiesBatch(request))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(facilityReads);
     }
 }
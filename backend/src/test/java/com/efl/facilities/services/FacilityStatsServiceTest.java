@@ -0,0 +1,111 @@
+package com.efl.facilities.services;
+
+import com.efl.facilities.events.DatasetChangedEvent;
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.models.stats.FacilityStatsResult;
+import com.efl.facilities.repositories.FacilityReads;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FacilityStatsServiceTest {
+
+    private static final String BOARD_A = "Board A";
+    private static final String BOARD_B = "Board B";
+
+    @Mock private FacilityReads facilityReads;
+    @Mock private FacilitySnapshotService facilitySnapshotService;
+    @InjectMocks private FacilityStatsService facilityStatsService;
+
+    private Facility fac(String province, String type, String authority, boolean frenchImmersion) {
+        Facility f = new Facility();
+        f.setProvince(province);
+        f.setFacilityType(type);
+        f.setAuthorityName(authority);
+        f.setFrenchImmersion(frenchImmersion);
+        return f;
+    }
+
+    private List<Facility> dataset() {
+        return List.of(
+                fac("ON", "Elementary", BOARD_A, true),
+                fac("ON", "Elementary", BOARD_A, false),
+                fac("ON", "Secondary", BOARD_B, true),
+                fac("QC", "Elementary", null, true)
+        );
+    }
+
+    @Test
+    @DisplayName("grouping by province and immersion counts every combination present")
+    void groupByProvinceAndImmersion() {
+        when(facilityReads.findAll()).thenReturn(dataset());
+
+        FacilityStatsResult result = facilityStatsService.getStats(List.of("province", "frenchImmersion"), Map.of());
+
+        assertThat(result.getTotal()).isEqualTo(4);
+        assertThat(result.getGroupBy()).containsExactly("province", "frenchImmersion");
+        assertThat(result.getRows()).hasSize(3);
+        assertThat(result.getRows().get(0).getDimensions()).containsEntry("province", "ON").containsEntry("frenchImmersion", false);
+        assertThat(result.getRows().get(0).getCount()).isEqualTo(1);
+        assertThat(result.getRows().get(1).getDimensions()).containsEntry("province", "ON").containsEntry("frenchImmersion", true);
+        assertThat(result.getRows().get(1).getCount()).isEqualTo(2);
+        assertThat(result.getRows().get(2).getDimensions()).containsEntry("province", "QC");
+        assertThat(result.getRows().get(2).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("filters restrict the counts before grouping")
+    void filtersRestrictCounts() {
+        when(facilityReads.findAll()).thenReturn(dataset());
+
+        FacilityStatsResult result = facilityStatsService.getStats(
+                List.of("authorityName"), Map.of("province", "ON", "frenchImmersion", "true"));
+
+        assertThat(result.getTotal()).isEqualTo(2);
+        assertThat(result.getRows()).extracting(r -> r.getDimensions().get("authorityName"))
+                .containsExactly(BOARD_A, BOARD_B);
+    }
+
+    @Test
+    @DisplayName("a filter value absent from the dataset yields no rows")
+    void unknownFilterValueYieldsNothing() {
+        when(facilityReads.findAll()).thenReturn(dataset());
+
+        FacilityStatsResult result = facilityStatsService.getStats(List.of(), Map.of("province", "ZZ"));
+
+        assertThat(result.getTotal()).isZero();
+        assertThat(result.getRows()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("the cube is built once and rebuilt only when the dataset changes")
+    void cubeIsReusedUntilDatasetChanges() {
+        when(facilityReads.findAll()).thenReturn(dataset());
+
+        facilityStatsService.getStats(List.of("province"), Map.of());
+        facilityStatsService.getStats(List.of("facilityType"), Map.of());
+        verify(facilityReads, times(1)).findAll();
+
+        facilityStatsService.onDatasetChanged(new DatasetChangedEvent(1L, Instant.now()));
+        verify(facilityReads, times(2)).findAll();
+    }
+
+    @Test
+    @DisplayName("an unknown groupBy dimension is rejected")
+    void unknownDimensionRejected() {
+        assertThatThrownBy(() -> facilityStatsService.getStats(List.of("colour"), Map.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
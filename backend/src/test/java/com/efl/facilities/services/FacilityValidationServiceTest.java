@@ -1,25 +1,50 @@
 package com.efl.facilities.services;
 
 import com.efl.facilities.models.Facility;
+import com.efl.facilities.models.validation.FacilityValidationIssue;
 import com.efl.facilities.models.validation.FacilityValidationResult;
-import com.efl.facilities.repositories.FacilityRepository;
+import com.efl.facilities.models.validation.IngestRun;
+import com.efl.facilities.models.validation.QuarantinedFacility;
+import com.efl.facilities.repositories.FacilityReads;
+import com.efl.facilities.repositories.IngestRunRepository;
+import com.efl.facilities.repositories.QuarantinedFacilityRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 public class FacilityValidationServiceTest {
 
     @Mock
-    private FacilityRepository facilityRepository;
+    private FacilityReads facilityReads;
+
+    @Spy
+    private NearDuplicateDetector nearDuplicateDetector = new NearDuplicateDetector();
+
+    @Mock
+    private IngestRunRepository ingestRunRepository;
+
+    @Mock
+    private QuarantinedFacilityRepository quarantinedFacilityRepository;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
 
     @InjectMocks
     private FacilityValidationService facilityValidationService;
@@ -34,7 +59,7 @@ public class FacilityValidationServiceTest {
         f.setLatitude(BigDecimal.valueOf(45.0));
         f.setLongitude(BigDecimal.valueOf(-75.0));
 
-        when(facilityRepository.findAll()).thenReturn(List.of(f));
+        when(facilityReads.findAll()).thenReturn(List.of(f));
 
         FacilityValidationResult result = facilityValidationService.validateFacilities();
 
@@ -74,7 +99,7 @@ public class FacilityValidationServiceTest {
         f4.setLatitude(BigDecimal.valueOf(95.0)); // invalid latitude
         f4.setLongitude(BigDecimal.valueOf(-75.0));
 
-        when(facilityRepository.findAll()).thenReturn(List.of(f1, f2, f3, f4));
+        when(facilityReads.findAll()).thenReturn(List.of(f1, f2, f3, f4));
 
         FacilityValidationResult result = facilityValidationService.validateFacilities();
 
@@ -86,4 +111,86 @@ public class FacilityValidationServiceTest {
         assertThat(result.getInvalidProvinceCount()).isGreaterThan(0);
         assertThat(result.getInvalidCoordinateCount()).isGreaterThan(0);
     }
-}
\ No newline at end of file
+
+    @Test
+    void validateFacilitiesNearDuplicatesAreReportedWithoutInvalidating() {
+        Facility f1 = new Facility();
+        f1.setId(1L);
+        f1.setUniqueId("FEED-A-17");
+        f1.setFacilityName("St. Mary's Catholic Elementary School");
+        f1.setProvince("ON");
+        f1.setLatitude(BigDecimal.valueOf(45.4215));
+        f1.setLongitude(BigDecimal.valueOf(-75.6972));
+
+        Facility f2 = new Facility();
+        f2.setId(2L);
+        f2.setUniqueId("FEED-B-903");
+        f2.setFacilityName("Saint Marys Catholic Elementary");
+        f2.setProvince("ON");
+        f2.setLatitude(BigDecimal.valueOf(45.4218));
+        f2.setLongitude(BigDecimal.valueOf(-75.6969));
+
+        when(facilityReads.findAll()).thenReturn(List.of(f1, f2));
+
+        FacilityValidationResult result = facilityValidationService.validateFacilities();
+
+        assertThat(result.isValid()).isTrue();
+        assertThat(result.getNearDuplicateCount()).isEqualTo(1);
+        assertThat(result.getNearDuplicates().get(0).getFirstUniqueId()).isEqualTo("FEED-A-17");
+        assertThat(result.getNearDuplicates().get(0).getSecondUniqueId()).isEqualTo("FEED-B-903");
+    }
+
+    private static QuarantinedFacility quarantined(String uniqueId, String issueCodes, String issues) {
+        QuarantinedFacility record = new QuarantinedFacility();
+        record.setIngestRunId(7L);
+        record.setUniqueId(uniqueId);
+        record.setFacilityName("School " + uniqueId);
+        record.setIssueCodes(issueCodes);
+        record.setIssues(issues);
+        return record;
+    }
+
+    @Test
+    void latestIngestValidationIsReadFromTheRecordedRunWithoutScanning() {
+        IngestRun run = new IngestRun();
+        run.setId(7L);
+        run.setStartedAt(Instant.parse("2024-09-01T10:00:00Z"));
+        run.setCompletedAt(Instant.parse("2024-09-01T10:00:05Z"));
+        run.setTotalRecords(100);
+        run.setAcceptedRecords(98);
+        run.setQuarantinedRecords(2);
+        run.setMissingFieldCount(1);
+        run.setInvalidProvinceCount(1);
+        run.setInvalidCoordinateCount(1);
+        when(ingestRunRepository.findTopByOrderByIdDesc()).thenReturn(Optional.of(run));
+        when(quarantinedFacilityRepository.findByIngestRunIdOrderByIdAsc(eq(7L), any())).thenReturn(List.of(
+                quarantined("SCH-1", "INVALID_PROVINCE,INVALID_COORDINATES",
+                        "[{\"code\":\"INVALID_PROVINCE\",\"message\":\"Invalid province code: XX\"},"
+                                + "{\"code\":\"INVALID_COORDINATES\",\"message\":\"Invalid or incomplete latitude/longitude\"}]"),
+                quarantined("SCH-2", "MISSING_FIELD", "not json")));
+
+        FacilityValidationResult result = facilityValidationService.getLatestIngestValidation().orElseThrow();
+
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.getIngestRunId()).isEqualTo(7L);
+        assertThat(result.getValidatedAt()).isEqualTo(Instant.parse("2024-09-01T10:00:05Z"));
+        assertThat(result.getTotalRecords()).isEqualTo(100);
+        assertThat(result.getQuarantinedRecords()).isEqualTo(2);
+        assertThat(result.getInvalidProvinceCount()).isEqualTo(1);
+        assertThat(result.getIssues())
+                .extracting(FacilityValidationIssue::getUniqueId, FacilityValidationIssue::getIssueType)
+                .containsExactly(
+                        tuple("SCH-1", "INVALID_PROVINCE"),
+                        tuple("SCH-1", "INVALID_COORDINATES"),
+                        tuple("SCH-2", "MISSING_FIELD"));
+        assertThat(result.getIssues().get(0).getMessage()).isEqualTo("Invalid province code: XX");
+        verifyNoInteractions(facilityReads);
+    }
+
+    @Test
+    void latestIngestValidationIsEmptyBeforeAnyRunIsRecorded() {
+        when(ingestRunRepository.findTopByOrderByIdDesc()).thenReturn(Optional.empty());
+
+        assertThat(facilityValidationService.getLatestIngestValidation()).isEmpty();
+    }
+}
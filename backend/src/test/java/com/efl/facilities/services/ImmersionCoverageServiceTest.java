@@ -0,0 +1,180 @@
+package com.efl.facilities.services;
+
+import com.efl.facilities.MunicipalitiesService;
+import com.efl.facilities.MunicipalityFeatureIndex;
+import com.efl.facilities.events.DatasetChangedEvent;
+import com.efl.facilities.fallback.FallbackProperties;
+import com.efl.facilities.fallback.LastGoodResults;
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.models.coverage.ImmersionCoverageResult;
+import com.efl.facilities.models.coverage.ImmersionProgram;
+import com.efl.facilities.models.coverage.SubdivisionCoverage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImmersionCoverageServiceTest {
+
+    @Mock private FacilityService facilityService;
+    @Mock private MunicipalitiesService municipalitiesService;
+    @Mock private DatasetVersionTracker datasetVersionTracker;
+    @InjectMocks private ImmersionCoverageService immersionCoverageService;
+
+    private static String square(String csduid, String name, double lon, double lat) {
+        return "{\"type\":\"Feature\",\"properties\":{\"CSDUID\":\"" + csduid + "\",\"CSDNAME\":\"" + name + "\"},"
+                + "\"geometry\":{\"type\":\"Polygon\",\"coordinates\":[[[" + (lon - 0.1) + "," + (lat - 0.1) + "],["
+                + (lon + 0.1) + "," + (lat - 0.1) + "],[" + (lon + 0.1) + "," + (lat + 0.1) + "],["
+                + (lon - 0.1) + "," + (lat + 0.1) + "],[" + (lon - 0.1) + "," + (lat - 0.1) + "]]]}}";
+    }
+
+    private Facility fac(long id, double lon, double lat, Boolean earlyImmersion, Boolean lateImmersion) {
+        Facility f = new Facility();
+        f.setId(id);
+        f.setUniqueId("F" + id);
+        f.setLongitude(BigDecimal.valueOf(lon));
+        f.setLatitude(BigDecimal.valueOf(lat));
+        f.setEarlyImmersion(earlyImmersion);
+        f.setLateImmersion(lateImmersion);
+        return f;
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        List<String> features = new ArrayList<>();
+        features.add(square("3506008", "Ottawa", -75.7, 45.4));
+        features.add(square("2466023", "Montréal", -73.6, 45.5));
+        // Enough subdivisions that the fork/join task splits
+        for (int i = 0; i < 150; i++) {
+            features.add(square(String.valueOf(4800000 + i), "Prairie " + i, -115 + i * 0.05, 53));
+        }
+        byte[] geojson = ("{\"type\":\"FeatureCollection\",\"features\":[" + String.join(",", features) + "]}")
+                .getBytes(StandardCharsets.UTF_8);
+        lenient().when(municipalitiesService.getIndex()).thenReturn(MunicipalityFeatureIndex.build(geojson));
+        lenient().when(datasetVersionTracker.getAppliedVersion()).thenReturn(7L);
+        lenient().when(facilityService.getAllFacilities()).thenReturn(List.of(
+                fac(1, -75.69, 45.42, true, null),
+                fac(2, -75.80, 45.35, false, true),
+                fac(3, -73.57, 45.50, null, true)));
+    }
+
+    @Test
+    @DisplayName("each subdivision gets its nearest matching facility and a count within the radius")
+    void computesCoverage() throws IOException {
+        ImmersionCoverageResult result = immersionCoverageService.getCoverage(ImmersionProgram.ANY, 20, null);
+
+        assertThat(result.getDatasetVersion()).isEqualTo(7);
+        assertThat(result.getProgram()).isEqualTo("any");
+        assertThat(result.getFacilityCount()).isEqualTo(3);
+        assertThat(result.getSubdivisions()).hasSize(152);
+
+        SubdivisionCoverage ottawa = result.getSubdivisions().get(0);
+        assertThat(ottawa.getCsduid()).isEqualTo("3506008");
+        assertThat(ottawa.getName()).isEqualTo("Ottawa");
+        assertThat(ottawa.getProvince()).isEqualTo("ON");
+        assertThat(ottawa.getNearestFacilityUniqueId()).isEqualTo("F1");
+        assertThat(ottawa.getNearestDistanceKm()).isLessThan(3);
+        assertThat(ottawa.getFacilitiesWithinRadius()).isEqualTo(2);
+
+        SubdivisionCoverage prairie = result.getSubdivisions().get(151);
+        assertThat(prairie.getCsduid()).isEqualTo("4800149");
+        assertThat(prairie.getNearestFacilityUniqueId()).isEqualTo("F2");
+        assertThat(prairie.getNearestDistanceKm()).isGreaterThan(2000);
+        assertThat(prairie.getFacilitiesWithinRadius()).isZero();
+    }
+
+    @Test
+    @DisplayName("a program narrows the facilities, and a province narrows the rows")
+    void programAndProvince() throws IOException {
+        ImmersionCoverageResult early = immersionCoverageService.getCoverage(ImmersionProgram.EARLY_IMMERSION, 20, "QC");
+
+        assertThat(early.getFacilityCount()).isEqualTo(1);
+        assertThat(early.getSubdivisions()).singleElement().satisfies(montreal -> {
+            assertThat(montreal.getName()).isEqualTo("Montréal");
+            assertThat(montreal.getNearestFacilityId()).isEqualTo(1L);
+            assertThat(montreal.getNearestDistanceKm()).isCloseTo(160, within(15.0));
+        });
+
+        when(facilityService.getAllFacilities()).thenReturn(List.of());
+        SubdivisionCoverage none = immersionCoverageService.getCoverage(ImmersionProgram.MIDDLE_IMMERSION, 20, "35")
+                .getSubdivisions().get(0);
+        assertThat(none.getNearestDistanceKm()).isNull();
+        assertThat(none.getFacilitiesWithinRadius()).isZero();
+    }
+
+    @Test
+    @DisplayName("results are reused until the dataset changes")
+    void cachedPerDatasetVersion() throws IOException {
+        ImmersionCoverageResult first = immersionCoverageService.getCoverage(ImmersionProgram.ANY, 10, null);
+        assertThat(immersionCoverageService.getCoverage(ImmersionProgram.ANY, 10, null)).isSameAs(first);
+        immersionCoverageService.getCoverage(ImmersionProgram.ANY, 25, null);
+        verify(facilityService, times(2)).getAllFacilities();
+
+        immersionCoverageService.onDatasetChanged(new DatasetChangedEvent(8, Instant.now()));
+        assertThat(immersionCoverageService.getCoverage(ImmersionProgram.ANY, 10, null)).isNotSameAs(first);
+        verify(facilityService, times(3)).getAllFacilities();
+    }
+
+    @Test
+    @DisplayName("a result built from the previous version's facilities during an outage isn't kept")
+    void resultsFromAnEarlierVersionAreNotCached() throws IOException {
+        List<Facility> facilities = List.of(fac(1, -75.69, 45.42, true, null));
+        try (LastGoodResults lastGood = new LastGoodResults(new FallbackProperties())) {
+            lastGood.serve("all", () -> facilities);
+            lastGood.onDatasetChanged(new DatasetChangedEvent(8, Instant.now()));
+            when(facilityService.getAllFacilities()).thenAnswer(invocation -> lastGood.serve("all", () -> {
+                throw new DataAccessResourceFailureException("Communications link failure");
+            }).value());
+
+            ImmersionCoverageResult fallback = immersionCoverageService.getCoverage(ImmersionProgram.ANY, 10, null);
+            assertThat(fallback.getFacilityCount()).isEqualTo(1);
+            assertThat(immersionCoverageService.getCoverage(ImmersionProgram.ANY, 10, null)).isNotSameAs(fallback);
+
+            // Once the database is back, the new version's result is kept
+            when(facilityService.getAllFacilities()).thenReturn(facilities);
+            ImmersionCoverageResult current = immersionCoverageService.getCoverage(ImmersionProgram.ANY, 10, null);
+            assertThat(immersionCoverageService.getCoverage(ImmersionProgram.ANY, 10, null)).isSameAs(current);
+        }
+    }
+
+    @Test
+    @DisplayName("radii are rounded to whole kilometres and only the most recent results are kept")
+    void cachedResultsAreBounded() throws IOException {
+        ImmersionCoverageResult ten = immersionCoverageService.getCoverage(ImmersionProgram.ANY, 10.2, null);
+        assertThat(ten.getRadiusKm()).isEqualTo(10);
+        assertThat(immersionCoverageService.getCoverage(ImmersionProgram.ANY, 9.8, null)).isSameAs(ten);
+        assertThat(immersionCoverageService.getCoverage(ImmersionProgram.ANY, 0.1, null).getRadiusKm()).isEqualTo(1);
+
+        for (int radius = 100; radius < 120; radius++) {
+            immersionCoverageService.getCoverage(ImmersionProgram.ANY, radius, null);
+        }
+        assertThat(immersionCoverageService.getCoverage(ImmersionProgram.ANY, 10, null)).isNotSameAs(ten);
+    }
+
+    @Test
+    void rejectsRadiusOutOfRange() {
+        assertThatThrownBy(() -> immersionCoverageService.getCoverage(ImmersionProgram.ANY, 0, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> immersionCoverageService.getCoverage(ImmersionProgram.ANY, 501, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ImmersionProgram.fromParamName("bilingual"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
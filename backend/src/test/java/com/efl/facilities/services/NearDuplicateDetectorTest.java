@@ -0,0 +1,121 @@
+package com.efl.facilities.services;
+
+import com.efl.facilities.models.Facility;
+import com.efl.facilities.models.validation.NearDuplicateCandidate;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NearDuplicateDetectorTest {
+
+    private final NearDuplicateDetector detector = new NearDuplicateDetector();
+
+    private Facility facility(long id, String uniqueId, String name, Double lat, Double lon, String postalCode) {
+        Facility f = new Facility();
+        f.setId(id);
+        f.setUniqueId(uniqueId);
+        f.setFacilityName(name);
+        f.setProvince("ON");
+        if (lat != null) {
+            f.setLatitude(BigDecimal.valueOf(lat));
+            f.setLongitude(BigDecimal.valueOf(lon));
+        }
+        f.setPostalCode(postalCode);
+        return f;
+    }
+
+    @Test
+    void normalizeNameExpandsAbbreviationsAndDropsAccentsAndStopWords() {
+        assertThat(NearDuplicateDetector.normalizeName("École Ste-Anne")).isEqualTo("sainte anne");
+        assertThat(NearDuplicateDetector.normalizeName("St. Mary's School")).isEqualTo("saint mary s");
+        assertThat(NearDuplicateDetector.normalizeName(null)).isEmpty();
+    }
+
+    @Test
+    void jaccardOfIdenticalNamesIsOneAndOfUnrelatedNamesIsLow() {
+        long[] a = NearDuplicateDetector.trigrams(NearDuplicateDetector.normalizeName("Riverside Public"));
+        long[] b = NearDuplicateDetector.trigrams(NearDuplicateDetector.normalizeName("Riverside Public School"));
+        long[] c = NearDuplicateDetector.trigrams(NearDuplicateDetector.normalizeName("Lakeview Secondary"));
+
+        assertThat(NearDuplicateDetector.jaccard(a, b)).isEqualTo(1.0);
+        assertThat(NearDuplicateDetector.jaccard(a, c)).isLessThan(0.2);
+    }
+
+    @Test
+    void findsSimilarNamesAcrossAGeohashCellBoundary() {
+        // About 40 m apart, on either side of a cell edge at longitude -75.69580
+        Facility a = facility(1, "A-1", "Riverside Public School", 45.4200, -75.69585, null);
+        Facility b = facility(2, "B-1", "Riverside Public", 45.4200, -75.69535, null);
+
+        assertThat(NearDuplicateDetector.geohash(45.4200, -75.69585))
+                .isNotEqualTo(NearDuplicateDetector.geohash(45.4200, -75.69535));
+
+        List<NearDuplicateCandidate> candidates = detector.findCandidates(List.of(a, b));
+
+        assertThat(candidates).hasSize(1);
+        assertThat(candidates.get(0).getDistanceMeters()).isLessThan(50.0);
+        assertThat(candidates.get(0).getScore()).isGreaterThan(0.9);
+    }
+
+    @Test
+    void ignoresSimilarNamesFarApartAndDifferentNamesNearby() {
+        Facility ottawa = facility(1, "A-1", "Central Public School", 45.4215, -75.6972, "K1P 1J1");
+        Facility toronto = facility(2, "B-1", "Central Public School", 43.6532, -79.3832, "M5H 2N2");
+        Facility neighbour = facility(3, "C-1", "Lakeview Secondary", 45.4216, -75.6971, "K1P 1J1");
+
+        assertThat(detector.findCandidates(List.of(ottawa, toronto, neighbour))).isEmpty();
+    }
+
+    @Test
+    void matchesUnlocatedFacilitiesByPostalCode() {
+        Facility located = facility(1, "A-1", "Westmount Elementary", 45.4215, -75.6972, "K1P 1J1");
+        Facility unlocated = facility(2, "B-1", "Westmount Elem.", null, null, "k1p1j1");
+        Facility sameFsaOnly = facility(3, "C-1", "Westmount Elementary", null, null, "K1P 5G4");
+
+        List<NearDuplicateCandidate> candidates = detector.findCandidates(List.of(located, unlocated, sameFsaOnly));
+
+        assertThat(candidates).hasSize(1);
+        assertThat(candidates.get(0).isSamePostalCode()).isTrue();
+        assertThat(candidates.get(0).getDistanceMeters()).isNull();
+    }
+
+    @Test
+    void matchesLocatedFacilitiesByPostalCodeWhenOneIsMisplaced() {
+        // Same school, but one record was geocoded to the wrong side of town
+        Facility right = facility(1, "A-1", "Westmount Elementary", 45.4215, -75.6972, "K1P 1J1");
+        Facility misplaced = facility(2, "B-1", "Westmount Elem.", 45.3500, -75.8000, "K1P 1J1");
+        Facility sameFsaAndGeo = facility(3, "C-1", "Westmount Elementary School", 45.4216, -75.6971, "K1P 5G4");
+
+        List<NearDuplicateCandidate> candidates =
+                detector.findCandidates(List.of(right, misplaced, sameFsaAndGeo));
+
+        assertThat(candidates).extracting(c -> c.getFirstUniqueId() + "/" + c.getSecondUniqueId())
+                .containsExactlyInAnyOrder("A-1/B-1", "A-1/C-1");
+        assertThat(candidates).filteredOn(NearDuplicateCandidate::isSamePostalCode).singleElement()
+                .satisfies(c -> assertThat(c.getDistanceMeters()).isGreaterThan(1000.0));
+    }
+
+    @Test
+    void sameUniqueIdIsLeftToTheExactDuplicateRule() {
+        Facility a = facility(1, "SAME", "Hillcrest School", 45.0, -75.0, null);
+        Facility b = facility(2, "SAME", "Hillcrest School", 45.0, -75.0, null);
+
+        assertThat(detector.findCandidates(List.of(a, b))).isEmpty();
+    }
+
+    @Test
+    void reportsEachPairOnceInLargeInputs() {
+        List<Facility> facilities = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            // Pairs of near-identical schools, spread out so pairs don't meet each other
+            double lat = 42.0 + (i / 2) * 0.02;
+            facilities.add(facility(i, "U-" + i, "School number " + (i / 2), lat, -80.0 + (i % 2) * 0.0001, null));
+        }
+
+        assertThat(detector.findCandidates(facilities)).hasSize(1000);
+    }
+}
@@ -0,0 +1,158 @@
+package com.efl.facilities.sharding;
+
+import com.efl.facilities.events.DatasetChangedEvent;
+import com.efl.facilities.models.Facility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardedFacilityRepositoryTest {
+
+    private static final String DDL = "create table educational_facility (id bigint primary key, "
+            + "unique_id varchar(64) not null unique, facility_name varchar(255) not null, "
+            + "facility_type varchar(64), municipality_name varchar(255), province varchar(2), "
+            + "french_immersion boolean, census_subdivision_id varchar(16), "
+            + "latitude decimal(10, 7), longitude decimal(10, 7))";
+
+    private FacilityShards shards;
+    private ShardedFacilityRepository repository;
+    private JdbcTemplate east;
+    private JdbcTemplate west;
+
+    private static DataSource database(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private static void insert(JdbcTemplate shard, long id, String municipality, String province,
+                               String type, boolean immersion) {
+        shard.update("insert into educational_facility (id, unique_id, facility_name, facility_type, "
+                        + "municipality_name, province, french_immersion) values (?, ?, ?, ?, ?, ?, ?)",
+                id, "F" + id, "Facility " + id, type, municipality, province, immersion);
+    }
+
+    @BeforeEach
+    void setUp() {
+        Map<String, DataSource> databases = new LinkedHashMap<>();
+        databases.put("east", database("shard-east"));
+        databases.put("west", database("shard-west"));
+        east = new JdbcTemplate(databases.get("east"));
+        west = new JdbcTemplate(databases.get("west"));
+        east.execute(DDL);
+        west.execute(DDL);
+        // Ids interleave across the shards, as with auto_increment_offset / auto_increment_increment
+        insert(east, 1, "Ottawa", "ON", "School", true);
+        insert(west, 2, "Vancouver", "BC", "School", true);
+        insert(east, 3, "Montréal", "QC", "Daycare", false);
+        insert(west, 4, "Calgary", "AB", "School", false);
+        insert(east, 5, "Ottawa", "ON", "Library", false);
+        insert(west, 6, "Victoria", "BC", "School", true);
+        // A municipality name found in two provinces on different shards
+        insert(east, 7, "Springfield", "MB", "School", false);
+        insert(west, 8, "Springfield", "AB", "School", false);
+
+        shards = new FacilityShards(databases,
+                Map.of("east", List.of("ON", "QC", "MB"), "west", List.of("BC", "AB")), 2);
+        repository = new ShardedFacilityRepository(shards);
+    }
+
+    @AfterEach
+    void tearDown() {
+        east.execute("drop table educational_facility");
+        west.execute("drop table educational_facility");
+        shards.close();
+    }
+
+    @Test
+    @DisplayName("provinces route to their shard, unlisted ones to the first")
+    void routesProvinces() {
+        assertThat(shards.shardFor("bc")).isEqualTo("west");
+        assertThat(shards.shardFor("QC")).isEqualTo("east");
+        assertThat(shards.shardFor("NU")).isEqualTo("east");
+        assertThat(shards.shardFor(null)).isEqualTo("east");
+
+        assertThat(repository.findByProvince("BC")).extracting(Facility::getId).containsExactly(2L, 6L);
+        assertThat(repository.findByProvince("ON")).extracting(Facility::getId).containsExactly(1L, 5L);
+    }
+
+    @Test
+    @DisplayName("fanned-out reads are merged in id order")
+    void mergesShards() {
+        assertThat(repository.findAll()).extracting(Facility::getId).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L);
+        assertThat(repository.findByFrenchImmersionTrue()).extracting(Facility::getId).containsExactly(1L, 2L, 6L);
+        assertThat(repository.findByFacilityType("School")).extracting(Facility::getId)
+                .containsExactly(1L, 2L, 4L, 6L, 7L, 8L);
+        assertThat(repository.findByIdIn(List.of(6L, 3L, 99L))).extracting(Facility::getId).containsExactly(3L, 6L);
+        assertThat(repository.findByUniqueIdIn(List.of("F4", "F5"))).extracting(Facility::getId)
+                .containsExactly(4L, 5L);
+        assertThat(repository.findById(4L)).hasValueSatisfying(facility ->
+                assertThat(facility.getMunicipalityName()).isEqualTo("Calgary"));
+        assertThat(repository.findByUniqueId("F3").getProvince()).isEqualTo("QC");
+        assertThat(repository.findById(99L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("municipalities are looked up only on the shards they are on")
+    void municipalityDirectory() {
+        assertThat(repository.shardsForMunicipality("ottawa")).containsExactly("east");
+        assertThat(repository.shardsForMunicipality("Springfield")).containsExactly("east", "west");
+        assertThat(repository.findByMunicipalityName("Springfield")).extracting(Facility::getId)
+                .containsExactly(7L, 8L);
+
+        // A municipality added after the directory was loaded is still found, and listed once the dataset changes
+        insert(west, 10, "Whitehorse", "YT", "School", false);
+        assertThat(repository.shardsForMunicipality("Whitehorse")).containsExactly("east", "west");
+        assertThat(repository.findByMunicipalityName("Whitehorse")).extracting(Facility::getId).containsExactly(10L);
+        repository.onDatasetChanged(new DatasetChangedEvent(2, Instant.now()));
+        assertThat(repository.shardsForMunicipality("Whitehorse")).containsExactly("west");
+    }
+
+    @Test
+    @DisplayName("pages are cut from the merged rows, or read from one shard when filtered to its province")
+    void pagesAcrossShards() {
+        String sql = "select id, province from educational_facility order by id limit :limit offset :offset";
+        assertThat(repository.selectPage(null, sql, Map.of(), 3, 2))
+                .extracting(Facility::getId).containsExactly(3L, 4L, 5L);
+        assertThat(repository.selectPage(null, sql, Map.of(), 5, 6))
+                .extracting(Facility::getId).containsExactly(7L, 8L);
+
+        String inProvince = "select id from educational_facility where province = :province "
+                + "order by id limit :limit offset :offset";
+        assertThat(repository.selectPage("BC", inProvince, Map.of("province", "BC"), 1, 1))
+                .extracting(Facility::getId).containsExactly(6L);
+    }
+
+    @Test
+    @DisplayName("a failing shard fails the whole read")
+    void shardFailure() {
+        west.execute("alter table educational_facility rename to educational_facility_moved");
+        try {
+            assertThatThrownBy(() -> repository.findAll()).isInstanceOf(BadSqlGrammarException.class);
+            assertThat(repository.findByProvince("ON")).hasSize(2);
+        } finally {
+            west.execute("alter table educational_facility_moved rename to educational_facility");
+        }
+    }
+
+    @Test
+    void rejectsProvinceOnTwoShards() {
+        Map<String, DataSource> databases = new LinkedHashMap<>();
+        databases.put("a", database("shard-a"));
+        databases.put("b", database("shard-b"));
+        assertThatThrownBy(() -> new FacilityShards(databases,
+                Map.of("a", List.of("ON"), "b", List.of("on")), 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,124 @@
+package com.efl.facilities.snapshot;
+
+import com.efl.facilities.models.Facility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FacilitySnapshotTest {
+
+    @TempDir
+    private Path directory;
+
+    private static Facility facility(long id) {
+        Facility f = new Facility();
+        f.setId(id);
+        f.setUniqueId("SCH-" + id);
+        f.setFacilityName("École secondaire " + id);
+        f.setFacilityType("Secondary");
+        f.setAuthorityName("Conseil des écoles publiques de l'Est de l'Ontario");
+        f.setAddress(id + " Rue Principale");
+        f.setPostalCode("K1P 1J1");
+        f.setMunicipalityName("Ottawa");
+        f.setProvince("ON");
+        f.setCensusSubdivisionId("3506008");
+        f.setLanguageMinorityStatus(true);
+        f.setFrenchImmersion(false);
+        f.setLatitude(new BigDecimal("45.4215000"));
+        f.setLongitude(new BigDecimal("-75.6972000"));
+        f.setDateUpdated(LocalDate.of(2024, 9, 1));
+        return f;
+    }
+
+    @Test
+    void roundTripsEveryFieldIncludingNulls() throws IOException {
+        Facility full = facility(7);
+        Facility sparse = new Facility();
+        sparse.setId(3L);
+        sparse.setUniqueId("SCH-3");
+        sparse.setFacilityName("Emoji 🏫 school");
+        Path file = directory.resolve("facilities.snapshot");
+
+        FacilitySnapshot.write(file, 42, List.of(full, sparse));
+        FacilitySnapshot snapshot = FacilitySnapshot.open(file);
+
+        assertThat(snapshot.getVersion()).isEqualTo(42);
+        assertThat(snapshot.size()).isEqualTo(2);
+        assertThat(snapshot.getId(0)).isEqualTo(3);
+        assertThat(snapshot.toFacility(1)).usingRecursiveComparison().isEqualTo(full);
+        assertThat(snapshot.toFacility(0)).usingRecursiveComparison().isEqualTo(sparse);
+        assertThat(snapshot.toFacility(1).getLatitude()).hasToString("45.4215000");
+        assertThat(snapshot.getString(0, FacilitySnapshot.FACILITY_NAME)).isEqualTo("Emoji 🏫 school");
+        assertThat(snapshot.getString(0, FacilitySnapshot.PROVINCE)).isNull();
+    }
+
+    @Test
+    void findsRowsByIdAndStoresRepeatedStringsOnce() throws IOException {
+        List<Facility> facilities = new ArrayList<>();
+        for (long id = 1000; id > 0; id--) {
+            facilities.add(facility(id * 2));
+        }
+        Path file = directory.resolve("facilities.snapshot");
+
+        FacilitySnapshot.write(file, 1, facilities);
+        FacilitySnapshot snapshot = FacilitySnapshot.open(file);
+
+        assertThat(snapshot.indexOfId(2)).isZero();
+        assertThat(snapshot.indexOfId(1000)).isEqualTo(499);
+        assertThat(snapshot.indexOfId(999)).isEqualTo(-1);
+        assertThat(snapshot.getString(snapshot.indexOfId(1000), FacilitySnapshot.UNIQUE_ID)).isEqualTo("SCH-1000");
+        // About 200 KB; the repeated type, authority, city and province values
+        // would add another 80 KB if they were stored once per row
+        assertThat(Files.size(file)).isLessThan(230_000);
+    }
+
+    @Test
+    void listViewDecodesRowsOnReadAndCannotBeModified() throws IOException {
+        Path file = directory.resolve("facilities.snapshot");
+        FacilitySnapshot.write(file, 5, List.of(facility(2), facility(1)));
+        FacilitySnapshot snapshot = FacilitySnapshot.open(file);
+
+        List<Facility> view = snapshot.asList();
+
+        assertThat(view).hasSize(2);
+        assertThat(view).usingRecursiveFieldByFieldElementComparator().containsExactly(facility(1), facility(2));
+        assertThat(view.get(0)).isNotSameAs(view.get(0));
+        assertThatThrownBy(() -> view.get(2)).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> view.remove(0)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void rewritingReplacesTheFileWithoutDisturbingAnOpenSnapshot() throws IOException {
+        Path file = directory.resolve("facilities.snapshot");
+        FacilitySnapshot.write(file, 1, List.of(facility(1)));
+        FacilitySnapshot first = FacilitySnapshot.open(file);
+
+        FacilitySnapshot.write(file, 2, List.of(facility(1), facility(2)));
+
+        assertThat(first.getVersion()).isEqualTo(1);
+        assertThat(first.toFacilities()).hasSize(1);
+        assertThat(FacilitySnapshot.open(file).size()).isEqualTo(2);
+        try (var files = Files.list(directory)) {
+            assertThat(files).containsExactly(file);
+        }
+    }
+
+    @Test
+    void rejectsFilesThatAreNotSnapshots() throws IOException {
+        Path empty = Files.writeString(directory.resolve("empty"), "");
+        Path text = Files.writeString(directory.resolve("text"), "not a snapshot, just some text here");
+
+        assertThatThrownBy(() -> FacilitySnapshot.open(empty)).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> FacilitySnapshot.open(text)).isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,126 @@
+package com.efl.facilities.timing;
+
+import com.efl.facilities.models.timing.SlowRequestSample;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class ServerTimingFilterTest {
+
+    private static final String SELECT_NAMES = "select name from school order by name";
+
+    @Spy
+    private SlowRequestLog slowRequestLog = new SlowRequestLog(0, 2);
+
+    @InjectMocks
+    private ServerTimingFilter filter;
+
+    private TimingDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new TimingDataSource(new DriverManagerDataSource(
+                "jdbc:h2:mem:server_timing;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("drop table if exists school");
+        jdbcTemplate.execute("create table school (name varchar(40))");
+        jdbcTemplate.update("insert into school values ('Alta Vista'), ('Brookfield'), ('Connaught')");
+    }
+
+    private static MockHttpServletRequest get(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setRequestURI(uri);
+        return request;
+    }
+
+    @Test
+    void reportsSqlTimeAndRowsInTheHeaderAndTheSlowRequestSample() throws Exception {
+        MockHttpServletRequest request = get("/api/facilities/province/ON");
+        request.setQueryString("page=1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain handler = (req, res) -> {
+            List<String> names = jdbcTemplate.queryForList(SELECT_NAMES, String.class);
+            res.getOutputStream().write(String.join(",", names).getBytes(StandardCharsets.UTF_8));
+        };
+
+        filter.doFilter(request, response, handler);
+
+        assertThat(response.getContentAsString()).isEqualTo("Alta Vista,Brookfield,Connaught");
+        assertThat(response.getHeader(ServerTimingFilter.SERVER_TIMING_HEADER))
+                .contains("pool;dur=", "1 connections", "db;dur=", "1 statements, 3 rows", "app;dur=", "total;dur=");
+
+        List<SlowRequestSample> samples = slowRequestLog.recent();
+        assertThat(samples).hasSize(1);
+        SlowRequestSample sample = samples.get(0);
+        assertThat(sample.getPath()).isEqualTo("/api/facilities/province/ON");
+        assertThat(sample.getQuery()).isEqualTo("page=1");
+        assertThat(sample.getStatus()).isEqualTo(200);
+        assertThat(sample.getStatementCount()).isEqualTo(1);
+        assertThat(sample.getRowCount()).isEqualTo(3);
+        assertThat(sample.getStatements()).singleElement().satisfies(statement -> {
+            assertThat(statement.getSql()).isEqualTo(SELECT_NAMES);
+            assertThat(statement.getRowCount()).isEqualTo(3);
+        });
+        assertThat(RequestTiming.current()).isNull();
+    }
+
+    @Test
+    void sendsTheHeaderOnResponsesWithoutABody() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(get("/api/municipalities"), response, (req, res) -> { });
+
+        assertThat(response.getHeader(ServerTimingFilter.SERVER_TIMING_HEADER)).contains("0 statements, 0 rows");
+    }
+
+    @Test
+    void onlyTimesFacilityAndMunicipalityRequests() throws Exception {
+        MockHttpServletResponse stream = new MockHttpServletResponse();
+        filter.doFilter(get("/api/facilities/changes/stream"), stream, (req, res) -> { });
+        MockHttpServletResponse admin = new MockHttpServletResponse();
+        filter.doFilter(get("/api/admin/cache"), admin, (req, res) -> { });
+
+        assertThat(stream.getHeader(ServerTimingFilter.SERVER_TIMING_HEADER)).isNull();
+        assertThat(admin.getHeader(ServerTimingFilter.SERVER_TIMING_HEADER)).isNull();
+        assertThat(slowRequestLog.recent()).isEmpty();
+    }
+
+    @Test
+    void connectionsOutsideARequestAreNotWrapped() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(Proxy.isProxyClass(connection.getClass())).isFalse();
+        }
+    }
+
+    @Test
+    void theSlowRequestRingKeepsTheNewestSamples() {
+        SlowRequestLog log = new SlowRequestLog(500, 2);
+        for (String path : List.of("/first", "/second", "/third")) {
+            SlowRequestSample sample = new SlowRequestSample();
+            sample.setPath(path);
+            log.record(sample);
+        }
+
+        assertThat(log.recent()).extracting(SlowRequestSample::getPath).containsExactly("/third", "/second");
+        assertThat(log.getRecordedCount()).isEqualTo(3);
+        assertThat(log.isSlow(499.9)).isFalse();
+        assertThat(log.isSlow(500)).isTrue();
+    }
+}
@@ -0,0 +1,191 @@
+package com.efl.facilities.web;
+
+import com.efl.facilities.events.DatasetChangedEvent;
+import com.efl.facilities.models.Facility;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FacilityJsonHttpMessageConverterTest {
+
+    private static final Type FACILITY_LIST = new ParameterizedTypeReference<List<Facility>>() { }.getType();
+    private static final int FACILITY_COUNT = 5000;
+
+    private ObjectMapper objectMapper;
+    private FacilityJsonFragmentCache fragmentCache;
+    private FacilityJsonHttpMessageConverter converter;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        fragmentCache = new FacilityJsonFragmentCache(objectMapper);
+        converter = new FacilityJsonHttpMessageConverter(fragmentCache);
+    }
+
+    private static Facility facility(long id) {
+        Facility f = new Facility();
+        f.setId(id);
+        f.setUniqueId("SCH-" + id);
+        f.setFacilityName("School " + id);
+        f.setFacilityType("Elementary");
+        f.setAuthorityName("District School Board " + id % 40);
+        f.setAddress(id + " Main Street");
+        f.setPostalCode("K1P 1J1");
+        f.setMunicipalityName("Ottawa");
+        f.setProvince("ON");
+        f.setFrenchImmersion(id % 2 == 0);
+        f.setLatitude(new BigDecimal("45.4215000").add(BigDecimal.valueOf(id, 7)));
+        f.setLongitude(new BigDecimal("-75.6972000"));
+        f.setDateUpdated(LocalDate.of(2024, 9, 1));
+        return f;
+    }
+
+    private static List<Facility> facilities() {
+        List<Facility> facilities = new ArrayList<>(FACILITY_COUNT);
+        for (long id = 1; id <= FACILITY_COUNT; id++) {
+            facilities.add(facility(id));
+        }
+        return facilities;
+    }
+
+    @Test
+    @DisplayName("writes byte-for-byte what Jackson writes, for lists, single facilities and empty lists")
+    void writesTheSameBytesAsJackson() throws IOException {
+        List<Facility> facilities = facilities().subList(0, 3);
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+
+        converter.write(facilities, FACILITY_LIST, MediaType.APPLICATION_JSON, message);
+
+        assertThat(message.getBodyAsString(StandardCharsets.UTF_8))
+                .isEqualTo(objectMapper.writeValueAsString(facilities));
+        assertThat(message.getHeaders().getContentLength())
+                .isEqualTo(objectMapper.writeValueAsBytes(facilities).length);
+
+        MockHttpOutputMessage single = new MockHttpOutputMessage();
+        converter.write(facilities.get(0), Facility.class, MediaType.APPLICATION_JSON, single);
+        assertThat(single.getBodyAsString(StandardCharsets.UTF_8))
+                .isEqualTo(objectMapper.writeValueAsString(facilities.get(0)));
+
+        MockHttpOutputMessage empty = new MockHttpOutputMessage();
+        converter.write(List.of(), FACILITY_LIST, MediaType.APPLICATION_JSON, empty);
+        assertThat(empty.getBodyAsString(StandardCharsets.UTF_8)).isEqualTo("[]");
+    }
+
+    @Test
+    @DisplayName("only handles facilities and collections of them, as JSON")
+    void onlyHandlesFacilitiesAndCollectionsOfThem() {
+        Type strings = new ParameterizedTypeReference<List<String>>() { }.getType();
+
+        assertThat(converter.canWrite(FACILITY_LIST, List.class, MediaType.APPLICATION_JSON)).isTrue();
+        assertThat(converter.canWrite(Facility.class, Facility.class, MediaType.APPLICATION_JSON)).isTrue();
+        assertThat(converter.canWrite(strings, List.class, MediaType.APPLICATION_JSON)).isFalse();
+        assertThat(converter.canWrite(FACILITY_LIST, List.class, MediaType.APPLICATION_XML)).isFalse();
+        assertThat(converter.canRead(FACILITY_LIST, null, MediaType.APPLICATION_JSON)).isFalse();
+    }
+
+    @Test
+    @DisplayName("an ingest drops cached fragments and refuses ones encoded from older entities")
+    void anIngestDropsFragmentsAndRefusesOnesEncodedFromOlderEntities() throws IOException {
+        Facility original = facility(1);
+        int before = fragmentCache.getGeneration();
+        fragmentCache.fragment(original, before);
+        assertThat(fragmentCache.size()).isEqualTo(1);
+
+        fragmentCache.onDatasetChanged(new DatasetChangedEvent(2, Instant.now()));
+        assertThat(fragmentCache.size()).isZero();
+
+        // A request that started before the ingest still gets correct JSON, but nothing is cached
+        fragmentCache.fragment(original, before);
+        assertThat(fragmentCache.size()).isZero();
+
+        Facility renamed = facility(1);
+        renamed.setFacilityName("Renamed");
+        byte[] json = fragmentCache.fragment(renamed, fragmentCache.getGeneration());
+        assertThat(new String(json, StandardCharsets.UTF_8)).contains("Renamed");
+        assertThat(fragmentCache.size()).isEqualTo(1);
+    }
+
+    /**
+     * Bytes allocated on this thread while writing the list 20 times, after 5
+     * warm-up rounds (which also fill the fragment cache). Every round gets
+     * fresh entity instances, as each request does from Hibernate, and the
+     * output goes nowhere so only serialization is measured.
+     */
+    private long allocatedWriting(boolean useConverter) throws IOException {
+        List<List<Facility>> rounds = new ArrayList<>();
+        for (int round = 0; round < 25; round++) {
+            rounds.add(facilities());
+        }
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int round = 0; round < 5; round++) {
+            write(rounds.get(round), useConverter);
+        }
+        long start = threads.getThreadAllocatedBytes(threadId);
+        for (int round = 5; round < 25; round++) {
+            write(rounds.get(round), useConverter);
+        }
+        return threads.getThreadAllocatedBytes(threadId) - start;
+    }
+
+    private void write(List<Facility> facilities, boolean useConverter) throws IOException {
+        OutputStream sink = OutputStream.nullOutputStream();
+        if (useConverter) {
+            converter.write(facilities, FACILITY_LIST, MediaType.APPLICATION_JSON, new SinkMessage(sink));
+        } else {
+            objectMapper.writeValue(sink, facilities);
+        }
+    }
+
+    @Test
+    @DisplayName("writing cached fragments allocates far less than Jackson")
+    void cachedFragmentsAllocateFarLessThanJackson() throws IOException {
+        long jackson = allocatedWriting(false);
+        long fragments = allocatedWriting(true);
+
+        assertThat(fragments)
+                .as("bytes allocated per list: Jackson %,d, fragments %,d", jackson / 20, fragments / 20)
+                .isLessThan(jackson / 100);
+    }
+
+    private static final class SinkMessage implements HttpOutputMessage {
+        private final OutputStream body;
+        private final HttpHeaders headers = new HttpHeaders();
+
+        SinkMessage(OutputStream body) {
+            this.body = body;
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
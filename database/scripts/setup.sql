@@ -36,3 +36,149 @@ create index idx_facility_type on educational_facility(facility_type);
 create index idx_municipality on educational_facility(municipality_name);
 create index idx_province on educational_facility(province);
 create index idx_authority on educational_facility(authority_name);
+
+-- Dataset versions: one row per ingest that changed educational_facility
+create table if not exists dataset_version
+(
+    version bigint primary key,
+    created_at timestamp not null default current_timestamp,
+    inserted_count int not null default 0,
+    updated_count int not null default 0,
+    deleted_count int not null default 0,
+    total_count int not null default 0
+);
+
+-- Change log: which unique_ids each dataset version inserted, updated or deleted
+create table if not exists facility_change
+(
+    id bigint auto_increment primary key,
+    version bigint not null,
+    unique_id varchar(100) not null,
+    change_type varchar(10) not null
+);
+
+create index idx_facility_change_version on facility_change(version);
+
+-- Content hash of each facility as of the latest dataset version
+create table if not exists facility_fingerprint
+(
+    unique_id varchar(100) primary key,
+    content_hash char(64) not null
+);
+
+-- Every version of every facility record, as JSON. A row is valid from the
+-- dataset version that wrote it until valid_to, the version that replaced or
+-- deleted it (null while it is current).
+create table if not exists facility_history
+(
+    id bigint auto_increment primary key,
+    unique_id varchar(100) not null,
+    valid_from bigint not null,
+    valid_to bigint null,
+    record_json text not null
+);
+
+create index idx_facility_history_from on facility_history(valid_from);
+create index idx_facility_history_to on facility_history(valid_to);
+
+-- Heartbeats from backend replicas: the dataset version each one is serving
+create table if not exists replica_state
+(
+    instance_id varchar(64) primary key,
+    applied_version bigint not null default 0,
+    last_seen_at timestamp not null
+);
+
+-- One row per ingest run: how many source records were loaded or quarantined, by rule
+create table if not exists ingest_run
+(
+    id bigint auto_increment primary key,
+    source_file varchar(255),
+    source_hash char(64) null,
+    chunk_rows int null,
+    started_at timestamp not null default current_timestamp,
+    completed_at timestamp null,
+    total_records int not null default 0,
+    accepted_records int not null default 0,
+    quarantined_records int not null default 0,
+    missing_field_count int not null default 0,
+    duplicate_unique_id_count int not null default 0,
+    invalid_province_count int not null default 0,
+    invalid_coordinate_count int not null default 0
+);
+
+-- Source records that failed validation during an ingest and were not loaded.
+-- issues is a JSON array of {code, message}; source_record the cleaned record as JSON.
+create table if not exists facility_quarantine
+(
+    id bigint auto_increment primary key,
+    ingest_run_id bigint not null,
+    unique_id varchar(100),
+    facility_name varchar(255),
+    province varchar(50),
+    issue_codes varchar(255) not null,
+    issues text not null,
+    source_record text
+);
+
+create index idx_facility_quarantine_run on facility_quarantine(ingest_run_id);
+
+-- One row per chunk of the source file committed by an unfinished ingest run.
+-- An interrupted run resumes after the chunks listed here; the rows are removed
+-- when the run completes. accepted_unique_ids and quarantined_unique_ids are
+-- JSON arrays; together they are the ids the chunk's records carry, and the
+-- facilities with any other id are removed when the run is published.
+create table if not exists ingest_checkpoint
+(
+    source_hash char(64) not null,
+    chunk_no int not null,
+    ingest_run_id bigint not null,
+    byte_start bigint not null,
+    byte_end bigint not null,
+    first_row int not null,
+    row_count int not null,
+    accepted_records int not null default 0,
+    quarantined_records int not null default 0,
+    missing_field_count int not null default 0,
+    duplicate_unique_id_count int not null default 0,
+    invalid_province_count int not null default 0,
+    invalid_coordinate_count int not null default 0,
+    accepted_unique_ids mediumtext not null,
+    quarantined_unique_ids mediumtext not null,
+    committed_at timestamp not null default current_timestamp,
+    primary key (source_hash, chunk_no)
+);
+
+-- Accepted records of an unfinished ingest run, committed chunk by chunk with
+-- their checkpoints. The run publishes them to educational_facility in one
+-- transaction once every chunk is in, so readers never see half an ingest.
+create table if not exists facility_staging
+(
+    ingest_run_id bigint not null,
+    unique_id varchar(100) not null,
+    facility_name varchar(255) not null,
+    facility_type varchar(100),
+    authority_name varchar(255),
+    address varchar(255),
+    unit varchar(100),
+    postal_code varchar(10),
+    municipality_name varchar(255),
+    province varchar(2),
+    source_id varchar(100),
+    min_grade varchar(50),
+    max_grade varchar(50),
+    language_minority_status boolean default false,
+    french_immersion boolean default false,
+    early_immersion boolean default false,
+    middle_immersion boolean default false,
+    late_immersion boolean default false,
+    census_subdivision_name varchar(255),
+    census_subdivision_id varchar(50),
+    geometry varchar(255),
+    longitude decimal(10, 7),
+    latitude decimal(10, 7),
+    date_updated date,
+    primary key (ingest_run_id, unique_id)
+);
+
+create index idx_ingest_run_source_hash on ingest_run(source_hash);
@@ -1,3 +1,5 @@
+import { FacilityMarkers, decodeFacilityMarkers } from '../types/facilityMarkers';
+
 // FIRST API_BASE IS FOR DEPLOYMENT
 // SECOND API_BASE IS FOR LOCAL TESTING
 
@@ -22,3 +24,19 @@ export async function getFacilitiesByProvince(province: string) {
 
   return response.json();
 }
+
+/**
+ * Marker positions, ids and program flags for the map, in the packed binary
+ * layout. Pass a province code (e.g. "ON") for that province only.
+ */
+export async function getFacilityMarkers(province?: string): Promise<FacilityMarkers> {
+  const url = province
+    ? `${API_BASE}/markers?province=${encodeURIComponent(province)}`
+    : `${API_BASE}/markers`;
+  const response = await fetch(url);
+  if (!response.ok) {
+    throw new Error(`HTTP error! status: ${response.status}`);
+  }
+
+  return decodeFacilityMarkers(await response.arrayBuffer());
+}
@@ -1,7 +1,12 @@
 const API_BASE = 'http://localhost:8080/api/municipalities';
 
-export default async function getMunicipalities() {
-  const response = await fetch(API_BASE);
+/**
+ * Municipality boundaries as GeoJSON. Pass a province code (e.g. "ON") to
+ * download only that province's features instead of the whole country.
+ */
+export default async function getMunicipalities(province?: string) {
+  const url = province ? `${API_BASE}?province=${encodeURIComponent(province)}` : API_BASE;
+  const response = await fetch(url);
   if (!response.ok) {
     throw new Error(`HTTP error! status: ${response.status}`);
   }
@@ -0,0 +1,49 @@
+/**
+ * The packed payload from /api/facilities/markers. Each column is a typed
+ * array over the response buffer itself, so decoding copies nothing.
+ * Entry i of every column describes the same facility.
+ */
+export interface FacilityMarkers {
+  datasetVersion: number;
+  count: number;
+  latitudes: Float32Array;
+  longitudes: Float32Array;
+  ids: Int32Array;
+  flags: Uint8Array;
+}
+
+export const MARKER_FLAGS = {
+  frenchImmersion: 1,
+  languageMinorityStatus: 2,
+  earlyImmersion: 4,
+  middleImmersion: 8,
+  lateImmersion: 16,
+} as const;
+
+const MAGIC = 0x4d4c4645; // "EFLM"
+const FORMAT = 1;
+const HEADER_SIZE = 16;
+
+export function hasMarkerFlag(flags: number, flag: number): boolean {
+  // eslint-disable-next-line no-bitwise
+  return (flags & flag) !== 0;
+}
+
+export function decodeFacilityMarkers(buffer: ArrayBuffer): FacilityMarkers {
+  const header = new DataView(buffer, 0, HEADER_SIZE);
+  if (header.getInt32(0, true) !== MAGIC || header.getInt32(4, true) !== FORMAT) {
+    throw new Error('Not a facility marker payload');
+  }
+  const datasetVersion = header.getUint32(8, true);
+  const count = header.getUint32(12, true);
+
+  // Typed arrays use the platform's byte order, which is little-endian on every browser we support
+  const latitudes = new Float32Array(buffer, HEADER_SIZE, count);
+  const longitudes = new Float32Array(buffer, HEADER_SIZE + count * 4, count);
+  const ids = new Int32Array(buffer, HEADER_SIZE + count * 8, count);
+  const flags = new Uint8Array(buffer, HEADER_SIZE + count * 12, count);
+
+  return {
+    datasetVersion, count, latitudes, longitudes, ids, flags,
+  };
+}
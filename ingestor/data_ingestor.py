@@ -1,14 +1,159 @@
 import pandas as pd
 import mysql.connector
 import os
-from typing import Dict, Any
+from typing import Dict, Any, List, NamedTuple, Optional, Tuple
+import hashlib
+import io
 import logging
 import math
+import json
+import time
+import requests
+from concurrent.futures import ThreadPoolExecutor, as_completed
+from datetime import datetime, timezone
 
 # Configure logging
 logging.basicConfig(level=logging.INFO)
 logger = logging.getLogger(__name__)
 
+# Validation rules, kept in step with the backend's FacilityValidationService
+# so a record is quarantined here for exactly the reasons /validate would report.
+VALID_PROVINCES = {
+    "AB", "BC", "MB", "NB", "NL", "NS", "NT", "NU",
+    "ON", "PE", "QC", "SK", "YT"
+}
+MISSING_FIELD = 'MISSING_FIELD'
+DUPLICATE_UNIQUE_ID = 'DUPLICATE_UNIQUE_ID'
+INVALID_PROVINCE = 'INVALID_PROVINCE'
+INVALID_COORDINATES = 'INVALID_COORDINATES'
+ISSUE_CODES = (MISSING_FIELD, DUPLICATE_UNIQUE_ID, INVALID_PROVINCE, INVALID_COORDINATES)
+
+# Large files are loaded in chunks of this many records, each committed with a
+# checkpoint so an interrupted ingest picks up at the first unfinished chunk.
+CHUNK_ROWS = int(os.environ.get('INGEST_CHUNK_ROWS', '10000'))
+# Chunks loaded at once, each on its own connection
+WORKERS = int(os.environ.get('INGEST_WORKERS', '4'))
+# Tries per chunk before the ingest gives up (and can be resumed later)
+CHUNK_ATTEMPTS = 3
+
+ER_DUP_ENTRY = 1062
+
+# Columns written to facility_staging and published to educational_facility
+FACILITY_COLUMNS = (
+    'unique_id', 'facility_name', 'facility_type', 'authority_name',
+    'address', 'unit', 'postal_code', 'municipality_name', 'province',
+    'source_id', 'min_grade', 'max_grade', 'language_minority_status',
+    'french_immersion', 'early_immersion', 'middle_immersion', 'late_immersion',
+    'census_subdivision_name', 'census_subdivision_id', 'geometry', 'longitude', 'latitude', 'date_updated'
+)
+
+
+class Chunk(NamedTuple):
+    number: int
+    byte_start: int
+    byte_end: int
+    first_row: int
+    row_count: Optional[int]
+
+
+def file_sha256(file_path: str) -> str:
+    """The hex SHA-256 of the file, which identifies it across restarts."""
+    digest = hashlib.sha256()
+    with open(file_path, 'rb') as f:
+        for block in iter(lambda: f.read(1 << 20), b''):
+            digest.update(block)
+    return digest.hexdigest()
+
+
+def split_records(file_path: str, chunk_rows: int) -> Tuple[bytes, List[Chunk]]:
+    """
+    Split a CSV file into chunks of whole records without parsing it. Returns
+    the header line and each chunk's byte range and first row number (0-based,
+    as pandas numbers the rows). A newline inside a quoted field doesn't end a
+    record, and blank lines aren't records, as in pandas.
+    """
+    header = b''
+    chunks = []
+    offset = 0
+    row = 0
+    in_quotes = False
+    record_start = 0
+    record_blank = True
+    chunk_start = None
+    chunk_first_row = 0
+    with open(file_path, 'rb') as f:
+        for line in f:
+            if not in_quotes:
+                record_start = offset
+                record_blank = True
+            offset += len(line)
+            record_blank = record_blank and not line.rstrip(b'\r\n')
+            # A doubled quote inside a field leaves the count even
+            if line.count(b'"') % 2:
+                in_quotes = not in_quotes
+            if in_quotes or record_blank:
+                continue
+            if not header:
+                header = line if line.endswith(b'\n') else line + b'\n'
+                continue
+            if chunk_start is None:
+                chunk_start = record_start
+                chunk_first_row = row
+            row += 1
+            if row - chunk_first_row == chunk_rows:
+                chunks.append(Chunk(len(chunks), chunk_start, offset, chunk_first_row, chunk_rows))
+                chunk_start = None
+    if chunk_start is not None:
+        chunks.append(Chunk(len(chunks), chunk_start, offset, chunk_first_row, row - chunk_first_row))
+    return header, chunks
+
+
+def _text(value):
+    """The value as a stripped string, or None if it is missing or blank."""
+    if value is None or (isinstance(value, float) and math.isnan(value)):
+        return None
+    text = str(value).strip()
+    return text if text and text.lower() != 'nan' else None
+
+
+def _number(value):
+    if value is None or (isinstance(value, float) and math.isnan(value)):
+        return None
+    try:
+        return float(value)
+    except (TypeError, ValueError):
+        return None
+
+
+def validate_record(row, seen_unique_ids) -> List[Tuple[str, str]]:
+    """
+    The (issue code, message) pairs for one cleaned record. The first record
+    with a given unique_id is kept; later ones are reported as duplicates.
+    """
+    issues = []
+    unique_id = _text(row.get('unique_id'))
+    for column, field in (('unique_id', 'uniqueId'), ('facility_name', 'facilityName'), ('province', 'province')):
+        if _text(row.get(column)) is None:
+            issues.append((MISSING_FIELD, f"Missing {field}"))
+
+    if unique_id is not None:
+        if unique_id in seen_unique_ids:
+            issues.append((DUPLICATE_UNIQUE_ID, f"Duplicate uniqueId: {unique_id}"))
+        seen_unique_ids.add(unique_id)
+
+    province = _text(row.get('province'))
+    if province is not None and province not in VALID_PROVINCES:
+        issues.append((INVALID_PROVINCE, f"Invalid province code: {province}"))
+
+    # Both coordinates missing is allowed; one missing or either out of range is not
+    lat = _number(row.get('latitude'))
+    lon = _number(row.get('longitude'))
+    if (lat is None) != (lon is None) or (
+            lat is not None and (lat < -90.0 or lat > 90.0 or lon < -180.0 or lon > 180.0)):
+        issues.append((INVALID_COORDINATES, "Invalid or incomplete latitude/longitude"))
+    return issues
+
+
 class EducationalFacilityIngestor:
     def __init__(self):
         db_host = os.environ.get('DB_HOST') or os.environ.get('DB_ADDRESS') or 'database'
@@ -28,6 +173,9 @@ class EducationalFacilityIngestor:
             'database': db_database
         }
 
+        # Optional: backend to notify once an ingest has been committed
+        self.backend_url = os.environ.get('BACKEND_URL')
+
     def table_exists(self, conn, table_name):
         """Check if the specified table exists in the database."""
         cursor = conn.cursor()
@@ -78,28 +226,173 @@ class EducationalFacilityIngestor:
     def process_dataset(self, file_path: str) -> None:
         """
         Process the educational facilities dataset and load it into the database.
+
+        The file is loaded in numbered chunks, several at a time. Each chunk's
+        records are staged, and committed with its quarantined records and a
+        checkpoint, so after a crash or a lost connection, running the ingest
+        again on the same file skips the chunks that were already committed.
+        Once every chunk is in, the staged records replace educational_facility
+        in a single transaction, so readers see either the previous dataset or
+        the whole new one.
         """
         try:
-            # Read dataset (supports CSV, Excel)
-            df = pd.read_csv(file_path) if file_path.endswith('.csv') else pd.read_excel(file_path)
-            
-            # Debug: Print column names
-            logger.info("Available columns in the dataset:")
-            for col in df.columns:
-                logger.info(f"  - {col}")
-            
-            # Clean and validate data
-            df = self._clean_data(df)
-            
-            # Insert into database
-            self._insert_data(df)
-            
-            logger.info(f"Successfully processed {len(df)} records")
+            source_hash = file_sha256(file_path)
+            started_at = datetime.now(timezone.utc).replace(tzinfo=None)
+            conn = self.connect_to_db()
+            try:
+                run_id, chunk_rows, committed = self._start_run(
+                    conn, os.path.basename(file_path), source_hash, started_at)
+            finally:
+                conn.close()
+
+            if file_path.endswith('.csv'):
+                header, chunks = split_records(file_path, chunk_rows)
+                logger.info(f"Columns in the dataset: {header.decode('utf-8', 'replace').strip()}")
+            else:
+                # Excel can't be split without reading it, so it's a single chunk
+                header, chunks = b'', [Chunk(0, 0, os.path.getsize(file_path), 0, None)]
+            first_rows = self._first_rows(file_path)
+
+            pending = [chunk for chunk in chunks if chunk.number not in committed]
+            if committed:
+                logger.info(f"Resuming ingest run {run_id}: {len(chunks) - len(pending)} of "
+                            f"{len(chunks)} chunks already committed")
+            logger.info(f"Loading {len(pending)} chunks of up to {chunk_rows} records with {WORKERS} workers")
+
+            with ThreadPoolExecutor(max_workers=WORKERS) as pool:
+                futures = [pool.submit(self._load_chunk, file_path, header, chunk, first_rows, run_id, source_hash)
+                           for chunk in pending]
+                # The first failure is raised once the other chunks have finished,
+                # so everything that could be committed is there for the next run
+                for future in as_completed(futures):
+                    future.result()
+
+            summary = self._finish_run(run_id, source_hash, len(chunks))
+            logger.info(f"Successfully processed {summary['total_records']} records: "
+                        f"{summary['accepted_records']} loaded, {summary['quarantined_records']} quarantined")
+
+            # Let the backend drop its cached view of the previous dataset
+            self._notify_backend()
             
         except Exception as e:
             logger.error(f"Error processing dataset: {e}")
             raise
 
+    def _read(self, file_path: str, header: bytes, chunk: Chunk) -> pd.DataFrame:
+        """
+        Read one chunk's records, numbered by their row in the whole file.
+        """
+        if not file_path.endswith('.csv'):
+            return pd.read_excel(file_path, dtype={'unique_id': str})
+        with open(file_path, 'rb') as f:
+            f.seek(chunk.byte_start)
+            data = f.read(chunk.byte_end - chunk.byte_start)
+        # unique_id is read as text so it compares the same in every chunk
+        df = pd.read_csv(io.BytesIO(header + data), dtype={'unique_id': str})
+        df.index = range(chunk.first_row, chunk.first_row + len(df))
+        return df
+
+    def _first_rows(self, file_path: str) -> Dict[str, int]:
+        """
+        The row of each unique_id's first record in the file. A chunk uses it to
+        recognise duplicates of records in other chunks, so the same record is
+        kept however the file is split.
+        """
+        def is_unique_id(col):
+            return col.strip() == 'unique_id'
+        if file_path.endswith('.csv'):
+            ids = pd.read_csv(file_path, usecols=is_unique_id, dtype=str)
+        else:
+            ids = pd.read_excel(file_path, usecols=is_unique_id, dtype=str)
+        first_rows = {}
+        if ids.empty:
+            return first_rows
+        for row, value in enumerate(ids.iloc[:, 0]):
+            unique_id = _text(value)
+            if unique_id is not None:
+                first_rows.setdefault(unique_id, row)
+        return first_rows
+
+    def _load_chunk(self, file_path: str, header: bytes, chunk: Chunk, first_rows, run_id, source_hash) -> None:
+        """
+        Validate and commit one chunk, retrying on a fresh connection if the
+        database goes away or the transaction is rolled back under us.
+        """
+        df = self._clean_data(self._read(file_path, header, chunk))
+        # Ids whose first record is in an earlier chunk are duplicates here
+        seen_unique_ids = {uid for uid in (_text(value) for value in df.get('unique_id', []))
+                           if uid is not None and first_rows.get(uid, chunk.first_row) < chunk.first_row}
+        accepted, quarantined, summary = self._validate(df, seen_unique_ids)
+        summary['total_records'] = len(df)
+
+        for attempt in range(1, CHUNK_ATTEMPTS + 1):
+            try:
+                conn = self.connect_to_db(max_retries=5, delay=1)
+            except mysql.connector.Error:
+                if attempt == CHUNK_ATTEMPTS:
+                    raise
+                continue
+            try:
+                if self._write_chunk(conn, run_id, source_hash, chunk, accepted, quarantined, summary):
+                    logger.info(f"Committed chunk {chunk.number} (rows {chunk.first_row}-"
+                                f"{chunk.first_row + len(df) - 1}): {len(accepted)} loaded, "
+                                f"{len(quarantined)} quarantined")
+                return
+            except mysql.connector.Error as err:
+                if attempt == CHUNK_ATTEMPTS:
+                    logger.error(f"Giving up on chunk {chunk.number} after {attempt} attempts: {err}")
+                    raise
+                wait_time = 2 ** attempt
+                logger.warning(f"Chunk {chunk.number} failed: {err}. Retrying in {wait_time} seconds...")
+                time.sleep(wait_time)
+            finally:
+                conn.close()
+
+    def _write_chunk(self, conn, run_id, source_hash, chunk: Chunk, accepted, quarantined, summary) -> bool:
+        """
+        Commit a chunk's staged records, quarantined records and checkpoint in
+        one transaction. Returns False, having written nothing, if another worker
+        or an earlier run already committed the chunk.
+        """
+        cursor = conn.cursor()
+        try:
+            # The checkpoint goes first: a second writer of the same chunk waits
+            # on its key and then fails without having done the work twice
+            try:
+                cursor.execute("""
+                    INSERT INTO ingest_checkpoint
+                    (source_hash, chunk_no, ingest_run_id, byte_start, byte_end, first_row, row_count,
+                     accepted_records, quarantined_records, missing_field_count, duplicate_unique_id_count,
+                     invalid_province_count, invalid_coordinate_count, accepted_unique_ids,
+                     quarantined_unique_ids, committed_at)
+                    VALUES (%s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s)
+                """, (
+                    source_hash, chunk.number, run_id, chunk.byte_start, chunk.byte_end, chunk.first_row,
+                    summary['total_records'], summary['accepted_records'], summary['quarantined_records'],
+                    summary['missing_field_count'], summary['duplicate_unique_id_count'],
+                    summary['invalid_province_count'], summary['invalid_coordinate_count'],
+                    json.dumps([str(uid) for uid in accepted.get('unique_id', []) if _text(uid) is not None]),
+                    json.dumps([uid for uid in (_text(row.get('unique_id')) for row, _ in quarantined)
+                                if uid is not None]),
+                    datetime.now(timezone.utc).replace(tzinfo=None)
+                ))
+            except mysql.connector.IntegrityError as err:
+                if err.errno != ER_DUP_ENTRY:
+                    raise
+                conn.rollback()
+                logger.info(f"Chunk {chunk.number} was already committed")
+                return False
+
+            self._stage_data(cursor, run_id, accepted)
+            self._record_quarantine(cursor, run_id, quarantined)
+            conn.commit()
+            return True
+        except Exception:
+            conn.rollback()
+            raise
+        finally:
+            cursor.close()
+
     def _clean_data(self, df: pd.DataFrame) -> pd.DataFrame:
         """
         Clean and validate the dataset.
@@ -117,8 +410,7 @@ class EducationalFacilityIngestor:
                 break
         
         if unique_id_col:
-            # Remove duplicates based on found unique ID column
-            df = df.drop_duplicates(subset=[unique_id_col])
+            # Duplicates are quarantined by _validate rather than silently dropped
             logger.info(f"Using '{unique_id_col}' as the unique identifier")
         
         # Map the CSV columns to database columns
@@ -170,103 +462,278 @@ class EducationalFacilityIngestor:
         
         return df
 
-    def _insert_data(self, df: pd.DataFrame) -> None:
+    def _validate(self, df: pd.DataFrame, seen_unique_ids=None):
         """
-        Insert the processed data into the database.
+        Apply the validation rules to every record. Returns the records to load,
+        the quarantined ones (with their issues) and the counts. seen_unique_ids
+        holds ids whose first record came before these.
+        """
+        seen_unique_ids = set() if seen_unique_ids is None else seen_unique_ids
+        keep = []
+        quarantined = []
+        counts = {code: 0 for code in ISSUE_CODES}
+
+        for _, row in df.iterrows():
+            issues = validate_record(row, seen_unique_ids)
+            keep.append(not issues)
+            if not issues:
+                continue
+            # Counts are of records, so a record missing two fields counts once
+            for code in {code for code, _ in issues}:
+                counts[code] += 1
+            quarantined.append((row, issues))
+
+        accepted = df[keep]
+        summary = {
+            'total_records': len(df),
+            'accepted_records': len(accepted),
+            'quarantined_records': len(quarantined),
+            'missing_field_count': counts[MISSING_FIELD],
+            'duplicate_unique_id_count': counts[DUPLICATE_UNIQUE_ID],
+            'invalid_province_count': counts[INVALID_PROVINCE],
+            'invalid_coordinate_count': counts[INVALID_COORDINATES],
+        }
+        if quarantined:
+            logger.warning(f"Quarantined {len(quarantined)} records: " +
+                           ", ".join(f"{code}={counts[code]}" for code in ISSUE_CODES if counts[code]))
+        return accepted, quarantined, summary
+
+    def _start_run(self, conn, source_file, source_hash, started_at):
+        """
+        Continue the unfinished run of this file if there is one, or start a
+        new run. Returns the run id, its chunk size and the chunks it has
+        committed. A resumed run keeps its chunk size so its checkpoints still
+        line up with the chunks.
         """
-        conn = self.connect_to_db()
         cursor = conn.cursor()
-        
-        insert_query = """
-        INSERT INTO educational_facility 
-        (unique_id, facility_name, facility_type, authority_name, 
-         address, unit, postal_code, municipality_name, province,
-         source_id, min_grade, max_grade, language_minority_status,
-         french_immersion, early_immersion, middle_immersion, late_immersion,
-         census_subdivision_name, census_subdivision_id, geometry, longitude, latitude, date_updated)
-        VALUES (%s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s)
+        try:
+            cursor.execute("""
+                SELECT id, chunk_rows FROM ingest_run
+                WHERE source_hash = %s AND completed_at IS NULL
+                ORDER BY id DESC LIMIT 1
+            """, (source_hash,))
+            run = cursor.fetchone()
+            if run is not None and run[1]:
+                run_id, chunk_rows = run
+                cursor.execute("SELECT chunk_no FROM ingest_checkpoint WHERE source_hash = %s AND ingest_run_id = %s",
+                               (source_hash, run_id))
+                return run_id, chunk_rows, {chunk_no for (chunk_no,) in cursor.fetchall()}
+
+            cursor.execute("""
+                INSERT INTO ingest_run (source_file, source_hash, chunk_rows, started_at)
+                VALUES (%s, %s, %s, %s)
+            """, (source_file, source_hash, CHUNK_ROWS, started_at))
+            run_id = cursor.lastrowid
+            # Checkpoints of an abandoned run of the same file would block this one's
+            cursor.execute("DELETE FROM ingest_checkpoint WHERE source_hash = %s", (source_hash,))
+            cursor.execute("""
+                DELETE s FROM facility_staging s JOIN ingest_run r ON r.id = s.ingest_run_id
+                WHERE r.source_hash = %s AND r.id <> %s
+            """, (source_hash, run_id))
+            conn.commit()
+            return run_id, CHUNK_ROWS, set()
+        finally:
+            cursor.close()
+
+    def _finish_run(self, run_id, source_hash, chunk_count):
         """
-        
+        Once every chunk is committed, publish the run in one transaction:
+        upsert the staged records into educational_facility, remove the
+        facilities that weren't in the file, write the run's totals and drop
+        its checkpoints and staged records.
+        """
+        conn = self.connect_to_db()
+        cursor = conn.cursor()
         try:
-            for _, row in df.iterrows():
-                # Use safe lookups (row.get) because we've renamed columns
-                # Convert string-like boolean values to actual booleans (accept '1' or 1 or True)
-                def to_bool(val):
-                    if pd.isna(val):
-                        return False
-                    if isinstance(val, str):
-                        return val.strip() == '1' or val.strip().lower() in ('true', 't', 'yes', 'y')
-                    return bool(val)
-
-                is_olms = to_bool(row.get('language_minority_status') or row.get('is_OLMS'))
-                french_imm = to_bool(row.get('french_immersion'))
-                early_imm = to_bool(row.get('early_immersion'))
-                middle_imm = to_bool(row.get('middle_immersion'))
-                late_imm = to_bool(row.get('late_immersion'))
-
-                def clean_grade(grade):
-                    if pd.isna(grade):
-                        return None
-                    grade_str = str(grade).strip().lower()
-                    if grade_str in ('', 'nan', '.', 'none', 'null', '..'):
-                        return None
-                    return grade_str[:50]  # Enforce max length
-                
-                values = (
-                    row.get('unique_id'),
-                    row.get('facility_name'),
-                    row.get('facility_type') or row.get('provider'),
-                    row.get('authority_name'),
-                    row.get('address'),
-                    row.get('unit'),
-                    row.get('postal_code') or row.get('postalCode'),
-                    row.get('municipality_name') or row.get('addressLocality'),
-                    row.get('province'),
-                    row.get('source_id'),
-                    clean_grade(row.get('min_grade')),
-                    clean_grade(row.get('max_grade')),
-                    is_olms,
-                    french_imm,
-                    early_imm,
-                    middle_imm,
-                    late_imm,
-                    row.get('census_subdivision_name') or row.get('csdname'),
-                    row.get('census_subdivision_id') or row.get('dguid'),
-                    row.get('geometry'),
-                    row.get('longitude'),
-                    row.get('latitude'),
-                    row.get('date_updated')
-                )
-                # Sanitize values: convert pandas NaN / numpy.nan to None so MySQL gets NULL
-                sanitized = []
-                for v in values:
-                    try:
-                        if v is None:
-                            sanitized.append(None)
-                        elif isinstance(v, float) and math.isnan(v):
-                            sanitized.append(None)
-                        elif isinstance(v, (str, bytes)) and str(v).lower() == 'nan':
-                            sanitized.append(None)
-                        else:
-                            sanitized.append(v)
-                    except Exception:
-                        # fallback: if any check fails, insert None to avoid SQL errors
-                        sanitized.append(None)
+            cursor.execute("""
+                SELECT row_count, accepted_records, quarantined_records, missing_field_count,
+                       duplicate_unique_id_count, invalid_province_count, invalid_coordinate_count,
+                       accepted_unique_ids, quarantined_unique_ids
+                FROM ingest_checkpoint WHERE source_hash = %s AND ingest_run_id = %s
+            """, (source_hash, run_id))
+            checkpoints = cursor.fetchall()
+            if len(checkpoints) != chunk_count:
+                raise RuntimeError(f"Ingest run {run_id} has {len(checkpoints)} of {chunk_count} chunks committed")
 
-                cursor.execute(insert_query, tuple(sanitized))
-            
+            keys = ('total_records', 'accepted_records', 'quarantined_records', 'missing_field_count',
+                    'duplicate_unique_id_count', 'invalid_province_count', 'invalid_coordinate_count')
+            summary = {key: sum(checkpoint[i] for checkpoint in checkpoints) for i, key in enumerate(keys)}
+            # A facility whose new record was quarantined keeps its current row
+            # until a valid record for it arrives
+            seen_unique_ids = set()
+            for checkpoint in checkpoints:
+                seen_unique_ids.update(json.loads(checkpoint[7]))
+                seen_unique_ids.update(json.loads(checkpoint[8]))
+
+            self._publish_staged(cursor, run_id)
+            self._delete_missing(cursor, seen_unique_ids)
+            cursor.execute("""
+                UPDATE ingest_run SET completed_at = %s, total_records = %s, accepted_records = %s,
+                    quarantined_records = %s, missing_field_count = %s, duplicate_unique_id_count = %s,
+                    invalid_province_count = %s, invalid_coordinate_count = %s
+                WHERE id = %s
+            """, (datetime.now(timezone.utc).replace(tzinfo=None), *(summary[key] for key in keys), run_id))
+            cursor.execute("DELETE FROM ingest_checkpoint WHERE source_hash = %s AND ingest_run_id = %s",
+                           (source_hash, run_id))
+            cursor.execute("DELETE FROM facility_staging WHERE ingest_run_id = %s", (run_id,))
             conn.commit()
             logger.info("Data successfully inserted into database")
-            
+            return summary
         except Exception as e:
             conn.rollback()
-            logger.error(f"Error inserting data: {e}")
+            logger.error(f"Error completing ingest run {run_id}: {e}")
             raise
-        
         finally:
             cursor.close()
             conn.close()
 
+    def _record_quarantine(self, cursor, run_id, quarantined) -> None:
+        """
+        Write quarantined records against their run.
+        """
+        rows = []
+        for row, issues in quarantined:
+            record = {key: (None if isinstance(value, float) and math.isnan(value) else value)
+                      for key, value in row.items()}
+            rows.append((
+                run_id,
+                (_text(row.get('unique_id')) or '')[:100] or None,
+                (_text(row.get('facility_name')) or '')[:255] or None,
+                (_text(row.get('province')) or '')[:50] or None,
+                ",".join(dict.fromkeys(code for code, _ in issues)),
+                json.dumps([{'code': code, 'message': message} for code, message in issues]),
+                json.dumps(record, default=str)
+            ))
+        if rows:
+            cursor.executemany("""
+                INSERT INTO facility_quarantine
+                (ingest_run_id, unique_id, facility_name, province, issue_codes, issues, source_record)
+                VALUES (%s, %s, %s, %s, %s, %s, %s)
+            """, rows)
+
+    def _stage_data(self, cursor, run_id, df: pd.DataFrame) -> None:
+        """
+        Stage the accepted records against their run; nothing is visible to
+        readers until the run is published.
+        """
+        columns = ", ".join(FACILITY_COLUMNS)
+        placeholders = ", ".join(["%s"] * (len(FACILITY_COLUMNS) + 1))
+        insert_query = f"INSERT INTO facility_staging (ingest_run_id, {columns}) VALUES ({placeholders})"
+        rows = []
+        for _, row in df.iterrows():
+            # Use safe lookups (row.get) because we've renamed columns
+            # Convert string-like boolean values to actual booleans (accept '1' or 1 or True)
+            def to_bool(val):
+                if pd.isna(val):
+                    return False
+                if isinstance(val, str):
+                    return val.strip() == '1' or val.strip().lower() in ('true', 't', 'yes', 'y')
+                return bool(val)
+
+            is_olms = to_bool(row.get('language_minority_status') or row.get('is_OLMS'))
+            french_imm = to_bool(row.get('french_immersion'))
+            early_imm = to_bool(row.get('early_immersion'))
+            middle_imm = to_bool(row.get('middle_immersion'))
+            late_imm = to_bool(row.get('late_immersion'))
+
+            def clean_grade(grade):
+                if pd.isna(grade):
+                    return None
+                grade_str = str(grade).strip().lower()
+                if grade_str in ('', 'nan', '.', 'none', 'null', '..'):
+                    return None
+                return grade_str[:50]  # Enforce max length
+            
+            values = (
+                run_id,
+                row.get('unique_id'),
+                row.get('facility_name'),
+                row.get('facility_type') or row.get('provider'),
+                row.get('authority_name'),
+                row.get('address'),
+                row.get('unit'),
+                row.get('postal_code') or row.get('postalCode'),
+                row.get('municipality_name') or row.get('addressLocality'),
+                row.get('province'),
+                row.get('source_id'),
+                clean_grade(row.get('min_grade')),
+                clean_grade(row.get('max_grade')),
+                is_olms,
+                french_imm,
+                early_imm,
+                middle_imm,
+                late_imm,
+                row.get('census_subdivision_name') or row.get('csdname'),
+                row.get('census_subdivision_id') or row.get('dguid'),
+                row.get('geometry'),
+                row.get('longitude'),
+                row.get('latitude'),
+                row.get('date_updated')
+            )
+            # Sanitize values: convert pandas NaN / numpy.nan to None so MySQL gets NULL
+            sanitized = []
+            for v in values:
+                try:
+                    if v is None:
+                        sanitized.append(None)
+                    elif isinstance(v, float) and math.isnan(v):
+                        sanitized.append(None)
+                    elif isinstance(v, (str, bytes)) and str(v).lower() == 'nan':
+                        sanitized.append(None)
+                    else:
+                        sanitized.append(v)
+                except Exception:
+                    # fallback: if any check fails, insert None to avoid SQL errors
+                    sanitized.append(None)
+            rows.append(tuple(sanitized))
+        if rows:
+            cursor.executemany(insert_query, rows)
+
+    def _publish_staged(self, cursor, run_id) -> None:
+        """
+        Upsert the run's staged records into educational_facility. Existing
+        rows are updated in place, keeping their ids, so the backend can diff
+        the result into a change log.
+        """
+        columns = ", ".join(FACILITY_COLUMNS)
+        updates = ", ".join(f"{column} = VALUES({column})" for column in FACILITY_COLUMNS[1:])
+        cursor.execute(f"""
+            INSERT INTO educational_facility ({columns})
+            SELECT {columns} FROM facility_staging WHERE ingest_run_id = %s
+            ON DUPLICATE KEY UPDATE {updates}
+        """, (run_id,))
+        logger.info(f"Published the staged records of ingest run {run_id}")
+
+    def _delete_missing(self, cursor, seen_unique_ids) -> None:
+        """
+        Delete facilities whose unique_id is on no record of this ingest,
+        accepted or quarantined.
+        """
+        cursor.execute("SELECT unique_id FROM educational_facility")
+        missing = [uid for (uid,) in cursor.fetchall() if uid not in seen_unique_ids]
+        batch_size = 500
+        for start in range(0, len(missing), batch_size):
+            batch = missing[start:start + batch_size]
+            placeholders = ", ".join(["%s"] * len(batch))
+            cursor.execute(f"DELETE FROM educational_facility WHERE unique_id IN ({placeholders})", tuple(batch))
+        if missing:
+            logger.info(f"Removed {len(missing)} facilities no longer in the source file")
+
+    def _notify_backend(self) -> None:
+        """
+        Tell the backend that the ingest has been committed so it can evict its caches.
+        Failure to notify is logged but does not fail the ingest.
+        """
+        if not self.backend_url:
+            return
+        url = f"{self.backend_url.rstrip('/')}/api/admin/ingest-complete"
+        try:
+            response = requests.post(url, timeout=10)
+            response.raise_for_status()
+            logger.info("Notified backend that the ingest completed")
+        except requests.exceptions.RequestException as e:
+            logger.warning(f"Could not notify backend at {url}: {e}")
+
 if __name__ == "__main__":
     import time
     
@@ -0,0 +1,197 @@
+"""
+Tests for the chunked, resumable ingest. The database is mocked, so they run
+without MySQL: python -m unittest in this directory.
+"""
+import json
+import os
+import tempfile
+import unittest
+from unittest import mock
+
+import mysql.connector
+
+import data_ingestor
+from data_ingestor import EducationalFacilityIngestor, file_sha256
+
+HEADER = "unique_id,facility_name,province\n"
+SUMMARY = dict.fromkeys(('total_records', 'accepted_records', 'quarantined_records', 'missing_field_count',
+                         'duplicate_unique_id_count', 'invalid_province_count', 'invalid_coordinate_count'), 0)
+
+
+def checkpoint(row_count, unique_ids, quarantined_ids=()):
+    """An ingest_checkpoint row as _finish_run selects it."""
+    return (row_count, len(unique_ids), len(quarantined_ids), 0, 0, 0, 0,
+            json.dumps(unique_ids), json.dumps(list(quarantined_ids)))
+
+
+class IngestorTestCase(unittest.TestCase):
+
+    def setUp(self):
+        environment = mock.patch.dict(os.environ, {'DB_USER': 'ingestor', 'DB_PASSWORD': 'secret'})
+        environment.start()
+        self.addCleanup(environment.stop)
+        self.ingestor = EducationalFacilityIngestor()
+
+        # Five records, two per chunk
+        source = tempfile.NamedTemporaryFile('w', suffix='.csv', delete=False)
+        source.write(HEADER + "".join(f"SCH-{n},School {n},ON\n" for n in range(5)))
+        source.close()
+        self.addCleanup(os.remove, source.name)
+        self.path = source.name
+
+    def patch(self, name, **kwargs):
+        patcher = mock.patch.object(self.ingestor, name, **kwargs)
+        self.addCleanup(patcher.stop)
+        return patcher.start()
+
+
+class ProcessDatasetTest(IngestorTestCase):
+
+    def setUp(self):
+        super().setUp()
+        self.patch('connect_to_db')
+        self.patch('_first_rows', return_value={})
+        self.finish_run = self.patch('_finish_run', return_value=SUMMARY)
+        self.notify_backend = self.patch('_notify_backend')
+        self.loaded = []
+
+    def test_resume_loads_only_the_chunks_without_a_checkpoint(self):
+        self.patch('_start_run', return_value=(7, 2, {0, 2}))
+        self.patch('_load_chunk', side_effect=lambda path, header, chunk, *args: self.loaded.append(chunk.number))
+
+        self.ingestor.process_dataset(self.path)
+
+        self.assertEqual(self.loaded, [1])
+        self.finish_run.assert_called_once_with(7, file_sha256(self.path), 3)
+        self.notify_backend.assert_called_once()
+
+    def test_a_failed_chunk_stops_the_run_before_it_is_published(self):
+        def load(path, header, chunk, *args):
+            self.loaded.append(chunk.number)
+            if chunk.number == 1:
+                raise mysql.connector.Error("Lost connection to MySQL server during query")
+
+        self.patch('_start_run', return_value=(8, 2, set()))
+        self.patch('_load_chunk', side_effect=load)
+
+        with self.assertRaises(mysql.connector.Error):
+            self.ingestor.process_dataset(self.path)
+
+        # The other chunks were still loaded, so a rerun only has the failed one left
+        self.assertEqual(sorted(self.loaded), [0, 1, 2])
+        self.finish_run.assert_not_called()
+        self.notify_backend.assert_not_called()
+
+
+class LoadChunkTest(IngestorTestCase):
+
+    def setUp(self):
+        super().setUp()
+        self.chunk = data_ingestor.Chunk(1, 0, 0, 2, 2)
+        self.patch('_read')
+        self.patch('_clean_data', return_value={'unique_id': ['SCH-2', 'SCH-3']})
+        self.patch('_validate', return_value=([], [], dict(SUMMARY)))
+        self.connections = [mock.MagicMock() for _ in range(data_ingestor.CHUNK_ATTEMPTS)]
+        self.patch('connect_to_db', side_effect=self.connections)
+        sleep = mock.patch.object(data_ingestor.time, 'sleep')
+        sleep.start()
+        self.addCleanup(sleep.stop)
+
+    def test_a_failed_chunk_is_retried_on_a_new_connection(self):
+        write_chunk = self.patch('_write_chunk', side_effect=[mysql.connector.Error("Deadlock found"), True])
+
+        self.ingestor._load_chunk(self.path, b'', self.chunk, {}, 9, 'hash')
+
+        self.assertEqual(write_chunk.call_count, 2)
+        self.assertIs(write_chunk.call_args_list[1].args[0], self.connections[1])
+        self.connections[0].close.assert_called_once()
+        self.connections[1].close.assert_called_once()
+
+    def test_a_chunk_that_keeps_failing_fails_the_ingest(self):
+        write_chunk = self.patch('_write_chunk', side_effect=mysql.connector.Error("Deadlock found"))
+
+        with self.assertRaises(mysql.connector.Error):
+            self.ingestor._load_chunk(self.path, b'', self.chunk, {}, 9, 'hash')
+
+        self.assertEqual(write_chunk.call_count, data_ingestor.CHUNK_ATTEMPTS)
+
+    def test_a_chunk_committed_by_an_earlier_run_is_skipped(self):
+        conn = mock.MagicMock()
+        conn.cursor.return_value.execute.side_effect = mysql.connector.IntegrityError(
+            msg="Duplicate entry", errno=data_ingestor.ER_DUP_ENTRY)
+
+        written = self.ingestor._write_chunk(conn, 9, 'hash', self.chunk, {}, [], dict(SUMMARY))
+
+        self.assertFalse(written)
+        conn.rollback.assert_called()
+        conn.commit.assert_not_called()
+
+    def test_the_checkpoint_lists_the_quarantined_ids(self):
+        conn = mock.MagicMock()
+        self.patch('_stage_data')
+        self.patch('_record_quarantine')
+        quarantined = [({'unique_id': 'SCH-3'}, [(data_ingestor.INVALID_PROVINCE, "Unknown province")]),
+                       ({'unique_id': None}, [(data_ingestor.MISSING_FIELD, "unique_id is missing")])]
+
+        self.ingestor._write_chunk(conn, 9, 'hash', self.chunk, {'unique_id': ['SCH-2']}, quarantined, dict(SUMMARY))
+
+        values = conn.cursor.return_value.execute.call_args_list[0].args[1]
+        self.assertEqual(json.loads(values[13]), ['SCH-2'])
+        self.assertEqual(json.loads(values[14]), ['SCH-3'])
+        conn.commit.assert_called_once()
+
+
+class FinishRunTest(IngestorTestCase):
+
+    def setUp(self):
+        super().setUp()
+        self.conn = mock.MagicMock()
+        self.cursor = self.conn.cursor.return_value
+        self.patch('connect_to_db', return_value=self.conn)
+
+    def statements(self):
+        return [" ".join(call.args[0].split()) for call in self.cursor.execute.call_args_list]
+
+    def test_an_incomplete_run_is_not_published(self):
+        self.cursor.fetchall.return_value = [checkpoint(2, ['SCH-0', 'SCH-1']), checkpoint(2, ['SCH-2', 'SCH-3'])]
+
+        with self.assertRaises(RuntimeError):
+            self.ingestor._finish_run(9, 'hash', 3)
+
+        self.assertFalse(any('educational_facility' in statement for statement in self.statements()))
+        self.conn.commit.assert_not_called()
+        self.conn.rollback.assert_called_once()
+
+    def test_a_complete_run_is_published_in_one_transaction(self):
+        self.cursor.fetchall.side_effect = [
+            [checkpoint(2, ['SCH-0', 'SCH-1']), checkpoint(1, ['SCH-2'])],
+            [('SCH-0',), ('SCH-1',), ('SCH-2',), ('SCH-9',)],
+        ]
+
+        summary = self.ingestor._finish_run(9, 'hash', 2)
+
+        self.assertEqual(summary['total_records'], 3)
+        statements = self.statements()
+        publish = next(i for i, s in enumerate(statements) if s.startswith('INSERT INTO educational_facility'))
+        delete = next(i for i, s in enumerate(statements) if s.startswith('DELETE FROM educational_facility'))
+        self.assertLess(publish, delete)
+        self.assertIn('FROM facility_staging WHERE ingest_run_id = %s', statements[publish])
+        self.assertEqual(self.cursor.execute.call_args_list[delete].args[1], ('SCH-9',))
+        self.assertIn('DELETE FROM facility_staging WHERE ingest_run_id = %s', statements)
+        self.conn.commit.assert_called_once()
+
+    def test_a_facility_whose_new_record_is_quarantined_is_kept(self):
+        self.cursor.fetchall.side_effect = [
+            [checkpoint(2, ['SCH-0'], ['SCH-1'])],
+            [('SCH-0',), ('SCH-1',), ('SCH-9',)],
+        ]
+
+        self.ingestor._finish_run(9, 'hash', 1)
+
+        deleted = [call.args[1] for call in self.cursor.execute.call_args_list
+                   if call.args[0].startswith('DELETE FROM educational_facility')]
+        self.assertEqual(deleted, [('SCH-9',)])
+
+
+if __name__ == '__main__':
+    unittest.main()
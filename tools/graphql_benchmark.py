@@ -0,0 +1,126 @@
+#!/usr/bin/env python3
+"""
+GraphQL vs REST benchmark for the two things clients most often fetch.
+
+  markers   the fields a map needs for every facility in a province:
+            GET /api/facilities/province/{p} (every field) against
+            facilities(province: p) { id facilityName latitude longitude frenchImmersion },
+            paged 1000 at a time
+  nested    the facilities in each of a province's municipalities:
+            GET /api/facilities/municipality/{name} once per municipality against
+            one municipalities(ids: [...]) { name facilities { ... } } query
+
+Reports, per scenario and API, the median and 95th percentile wall time and
+the bytes received. Run against a backend with data loaded, e.g.
+    python tools/graphql_benchmark.py --base-url http://localhost:8080 --province ON
+"""
+
+import argparse
+import statistics
+import time
+
+import requests
+from tabulate import tabulate
+
+PAGE_SIZE = 1000
+MARKER_FIELDS = "id facilityName latitude longitude frenchImmersion"
+
+
+def timed(run):
+    """Run once; returns (seconds, bytes received)."""
+    started = time.perf_counter()
+    received = run()
+    return time.perf_counter() - started, received
+
+
+def graphql(session, args, query, variables):
+    response = session.post(f"{args.base_url}/graphql", json={"query": query, "variables": variables},
+                            timeout=args.timeout)
+    response.raise_for_status()
+    body = response.json()
+    if body.get("errors"):
+        raise RuntimeError(f"GraphQL errors: {body['errors']}")
+    return body["data"], len(response.content)
+
+
+def rest_markers(session, args):
+    response = session.get(f"{args.base_url}/api/facilities/province/{args.province}", timeout=args.timeout)
+    response.raise_for_status()
+    return len(response.content)
+
+
+def graphql_markers(session, args):
+    query = (f"query($province: String, $offset: Int) {{ facilities(province: $province, first: {PAGE_SIZE}, "
+             f"offset: $offset) {{ {MARKER_FIELDS} }} }}")
+    received = 0
+    offset = 0
+    while True:
+        data, size = graphql(session, args, query, {"province": args.province, "offset": offset})
+        received += size
+        if len(data["facilities"]) < PAGE_SIZE:
+            return received
+        offset += PAGE_SIZE
+
+
+def rest_nested(session, args, municipalities):
+    received = 0
+    for municipality in municipalities:
+        response = session.get(f"{args.base_url}/api/facilities/municipality/{municipality['name']}",
+                               timeout=args.timeout)
+        response.raise_for_status()
+        received += len(response.content)
+    return received
+
+
+def graphql_nested(session, args, municipalities):
+    query = ("query($ids: [String!], $first: Int) { municipalities(ids: $ids, first: $first) "
+             f"{{ name facilities {{ {MARKER_FIELDS} }} }} }}")
+    _, received = graphql(session, args, query,
+                          {"ids": [m["id"] for m in municipalities], "first": len(municipalities)})
+    return received
+
+
+def sample(run, runs):
+    run()  # warm-up, not counted
+    return [timed(run) for _ in range(runs)]
+
+
+def summarize(scenario, api, samples):
+    seconds = sorted(s for s, _ in samples)
+    p95 = seconds[min(len(seconds) - 1, int(round(0.95 * (len(seconds) - 1))))]
+    return [scenario, api, f"{statistics.median(seconds) * 1000:.0f}", f"{p95 * 1000:.0f}",
+            f"{samples[-1][1] / 1024:.0f}"]
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__, formatter_class=argparse.RawDescriptionHelpFormatter)
+    parser.add_argument("--base-url", default="http://localhost:8080")
+    parser.add_argument("--province", default="ON")
+    parser.add_argument("--municipalities", type=int, default=50,
+                        help="how many of the province's municipalities the nested scenario covers")
+    parser.add_argument("--runs", type=int, default=20)
+    parser.add_argument("--timeout", type=float, default=60.0)
+    args = parser.parse_args()
+
+    session = requests.Session()
+    data, _ = graphql(session, args,
+                      "query($province: String) { municipalities(province: $province, first: 1000) { id name } }",
+                      {"province": args.province})
+    municipalities = [m for m in data["municipalities"] if m["name"]][:args.municipalities]
+    print(f"{args.province}: nested scenario over {len(municipalities)} municipalities")
+
+    rows = [
+        summarize("markers", "REST", sample(lambda: rest_markers(session, args), args.runs)),
+        summarize("markers", "GraphQL", sample(lambda: graphql_markers(session, args), args.runs)),
+        summarize("nested", f"REST ({len(municipalities)} requests)",
+                  sample(lambda: rest_nested(session, args, municipalities), args.runs)),
+        summarize("nested", "GraphQL (1 request)",
+                  sample(lambda: graphql_nested(session, args, municipalities), args.runs)),
+    ]
+    print()
+    print(tabulate(rows, headers=["scenario", "api", "median (ms)", "p95 (ms)", "received (KiB)"],
+                   tablefmt="grid"))
+
+
+if __name__ == "__main__":
+    main()
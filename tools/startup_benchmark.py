@@ -0,0 +1,106 @@
+#!/usr/bin/env python3
+"""
+Startup benchmark for the backend run modes defined in backend/Dockerfile.
+
+Measures, per mode:
+  - time from `docker run` until the first HTTP response (startup)
+  - latency of that first request, and of the request after it (warm)
+
+Build the images first, e.g.
+    docker build --target jar    -t efl-backend:jar    backend
+    docker build --target cds    -t efl-backend:cds    backend
+    docker build --target native -t efl-backend:native backend
+
+then, with the compose database running:
+    python tools/startup_benchmark.py --network <project>_backend-database --env-file .env
+"""
+
+import argparse
+import statistics
+import subprocess
+import time
+
+import requests
+from tabulate import tabulate
+
+DEFAULT_MODES = ["jar", "cds", "native"]
+POLL_INTERVAL_SECONDS = 0.05
+
+
+def run_once(image: str, args) -> dict:
+    """Start one container, wait for its first response, then stop it."""
+    command = [
+        "docker", "run", "-d", "--rm",
+        "-p", f"{args.port}:8080",
+        "--env-file", args.env_file,
+        "-e", f"DB_ADDRESS={args.db_address}",
+    ]
+    if args.network:
+        command += ["--network", args.network]
+    command.append(image)
+
+    url = f"http://localhost:{args.port}{args.path}"
+    started = time.perf_counter()
+    container = subprocess.run(command, check=True, capture_output=True, text=True).stdout.strip()
+    try:
+        deadline = started + args.timeout
+        while time.perf_counter() < deadline:
+            request_start = time.perf_counter()
+            try:
+                requests.get(url, timeout=args.timeout)
+            except requests.exceptions.ConnectionError:
+                time.sleep(POLL_INTERVAL_SECONDS)
+                continue
+            first_response = time.perf_counter()
+
+            warm_start = time.perf_counter()
+            requests.get(url, timeout=args.timeout)
+            warm_end = time.perf_counter()
+
+            return {
+                "startup": first_response - started,
+                "first_request": first_response - request_start,
+                "warm_request": warm_end - warm_start,
+            }
+        raise TimeoutError(f"{image} did not answer {url} within {args.timeout}s")
+    finally:
+        subprocess.run(["docker", "stop", container], check=False, capture_output=True)
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__, formatter_class=argparse.RawDescriptionHelpFormatter)
+    parser.add_argument("--modes", nargs="+", default=DEFAULT_MODES, help="image tags to compare")
+    parser.add_argument("--image", default="efl-backend", help="image repository; modes are its tags")
+    parser.add_argument("--runs", type=int, default=5)
+    parser.add_argument("--port", type=int, default=18080)
+    parser.add_argument("--path", default="/api/facilities/1", help="endpoint used for the first request")
+    parser.add_argument("--network", help="docker network that can reach the database")
+    parser.add_argument("--env-file", default=".env")
+    parser.add_argument("--db-address", default="jdbc:mysql://database:3306")
+    parser.add_argument("--timeout", type=float, default=120.0)
+    args = parser.parse_args()
+
+    rows = []
+    for mode in args.modes:
+        image = f"{args.image}:{mode}"
+        samples = []
+        for run in range(args.runs):
+            result = run_once(image, args)
+            print(f"{mode} run {run + 1}: startup {result['startup']:.2f}s, "
+                  f"first request {result['first_request'] * 1000:.0f}ms")
+            samples.append(result)
+        rows.append([
+            mode,
+            f"{statistics.median(s['startup'] for s in samples):.2f}",
+            f"{statistics.median(s['first_request'] for s in samples) * 1000:.0f}",
+            f"{statistics.median(s['warm_request'] for s in samples) * 1000:.0f}",
+        ])
+
+    print()
+    print(tabulate(rows,
+                   headers=["mode", "startup (s, median)", "first request (ms)", "next request (ms)"],
+                   tablefmt="grid"))
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,205 @@
+#!/usr/bin/env python3
+"""
+Replay captured production traffic against a backend and compare.
+
+Reads a capture written by the backend with efl.capture.enabled=true (see
+TrafficLog for the format) and re-issues its GET requests at their original
+offsets, divided by --speed, so requests that overlapped in production
+overlap here too. Requests of other methods are counted but not replayed,
+since the capture has no bodies.
+
+Reports, per route, the recorded and replayed median, 95th and 99th
+percentile latencies, the mean response size of each, and how many replayed
+responses differed from the recording in size or status. For example
+    python tools/traffic_replay.py traffic.eflt --base-url http://localhost:8080 --speed 2
+"""
+
+import argparse
+import math
+import statistics
+import struct
+import threading
+import time
+from collections import defaultdict
+from concurrent.futures import ThreadPoolExecutor
+
+import requests
+from tabulate import tabulate
+
+MAGIC = b"EFLT"
+VERSION = 1
+TAG_NULL, TAG_LITERAL, TAG_NEW_ENTRY, TAG_FIRST_ENTRY = 0, 1, 2, 3
+
+
+class CaptureReader:
+    """Decodes a capture; each record is a dict with the TrafficRecord fields."""
+
+    def __init__(self, data: bytes):
+        self.data = data
+        self.pos = 0
+        self.table = []
+
+    def varint(self) -> int:
+        value, shift = 0, 0
+        while True:
+            if self.pos >= len(self.data):
+                raise EOFError("capture ends inside a request")
+            byte = self.data[self.pos]
+            self.pos += 1
+            value |= (byte & 0x7F) << shift
+            if not byte & 0x80:
+                return value
+            shift += 7
+
+    def string(self):
+        tag = self.varint()
+        if tag == TAG_NULL:
+            return None
+        if tag >= TAG_FIRST_ENTRY:
+            return self.table[tag - TAG_FIRST_ENTRY]
+        length = self.varint()
+        value = self.data[self.pos:self.pos + length].decode("utf-8")
+        self.pos += length
+        if tag == TAG_NEW_ENTRY:
+            self.table.append(value)
+        return value
+
+    def read(self):
+        if self.data[:4] != MAGIC or self.data[4] != VERSION:
+            raise ValueError(f"not a version {VERSION} traffic capture")
+        (started_ms,) = struct.unpack(">q", self.data[5:13])
+        self.pos = 13
+        records = []
+        while self.pos < len(self.data):
+            records.append({
+                "start_us": self.varint(),
+                "duration_us": self.varint(),
+                "status": self.varint(),
+                "bytes": self.varint(),
+                "method": self.string(),
+                "route": self.string(),
+                "path": self.string(),
+                "query": self.string(),
+            })
+        return started_ms, records
+
+
+def peak_concurrency(records) -> int:
+    """Most requests in flight at once in the recording."""
+    events = []
+    for record in records:
+        events.append((record["start_us"], 1))
+        events.append((record["start_us"] + record["duration_us"], -1))
+    in_flight = peak = 0
+    # Ends sort before starts at the same instant
+    for _, change in sorted(events):
+        in_flight += change
+        peak = max(peak, in_flight)
+    return peak
+
+
+def percentile(values, fraction):
+    """Nearest-rank percentile."""
+    ordered = sorted(values)
+    return ordered[max(math.ceil(fraction * len(ordered)) - 1, 0)]
+
+
+def replay(records, args):
+    """Issue each record at its (scaled) offset; returns one result per record."""
+    local = threading.local()
+    results = [None] * len(records)
+    # Enough threads for the recorded overlap, scaled up with the speed
+    workers = args.workers or max(math.ceil(peak_concurrency(records) * args.speed), 1)
+    first_us = records[0]["start_us"]
+    started = time.perf_counter()
+    late = 0
+
+    def issue(index, record):
+        session = getattr(local, "session", None)
+        if session is None:
+            session = local.session = requests.Session()
+        url = args.base_url + record["path"] + (f"?{record['query']}" if record["query"] is not None else "")
+        request_start = time.perf_counter()
+        try:
+            response = session.get(url, timeout=args.timeout)
+            results[index] = (time.perf_counter() - request_start, response.status_code, len(response.content))
+        except requests.RequestException as e:
+            results[index] = (time.perf_counter() - request_start, None, repr(e))
+
+    with ThreadPoolExecutor(max_workers=workers) as pool:
+        for index, record in enumerate(records):
+            due = (record["start_us"] - first_us) / 1_000_000 / args.speed
+            wait = due - (time.perf_counter() - started)
+            if wait > 0:
+                time.sleep(wait)
+            elif wait < -0.01:
+                late += 1
+            pool.submit(issue, index, record)
+    return results, workers, late, time.perf_counter() - started
+
+
+def report(records, results):
+    by_route = defaultdict(list)
+    for record, result in zip(records, results):
+        by_route[record["route"] or record["path"]].append((record, result))
+
+    rows = []
+    for route, pairs in sorted(by_route.items(), key=lambda item: -len(item[1])):
+        recorded_ms = [record["duration_us"] / 1000 for record, _ in pairs]
+        replayed = [(record, result) for record, result in pairs if result is not None and result[1] is not None]
+        replayed_ms = [result[0] * 1000 for _, result in replayed]
+        size_changed = sum(1 for record, result in replayed if result[2] != record["bytes"])
+        status_changed = sum(1 for record, result in replayed if result[1] != record["status"])
+
+        def summary(values):
+            if not values:
+                return ["-", "-", "-"]
+            return [f"{percentile(values, p):.1f}" for p in (0.5, 0.95, 0.99)]
+
+        rows.append([
+            route, len(pairs),
+            *summary(recorded_ms), *summary(replayed_ms),
+            f"{statistics.mean(record['bytes'] for record, _ in pairs):.0f}",
+            f"{statistics.mean(result[2] for _, result in replayed):.0f}" if replayed else "-",
+            size_changed, status_changed, len(pairs) - len(replayed),
+        ])
+    print(tabulate(rows, headers=[
+        "route", "n",
+        "rec p50 ms", "rec p95", "rec p99", "new p50 ms", "new p95", "new p99",
+        "rec bytes", "new bytes", "size diff", "status diff", "errors",
+    ]))
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__, formatter_class=argparse.RawDescriptionHelpFormatter)
+    parser.add_argument("capture", help="capture file written by the backend")
+    parser.add_argument("--base-url", default="http://localhost:8080")
+    parser.add_argument("--speed", type=float, default=1.0, help="replay N times faster than recorded")
+    parser.add_argument("--limit", type=int, help="replay only the first N requests")
+    parser.add_argument("--workers", type=int, help="request threads (default: recorded peak concurrency x speed)")
+    parser.add_argument("--timeout", type=float, default=60.0)
+    args = parser.parse_args()
+    if args.speed <= 0:
+        parser.error("--speed must be positive")
+
+    with open(args.capture, "rb") as f:
+        started_ms, records = CaptureReader(f.read()).read()
+    records.sort(key=lambda record: record["start_us"])
+    skipped = sum(1 for record in records if record["method"] != "GET")
+    records = [record for record in records if record["method"] == "GET"][:args.limit]
+    if not records:
+        print("No GET requests to replay")
+        return
+    recorded_s = (records[-1]["start_us"] - records[0]["start_us"]) / 1_000_000
+    captured_at = time.strftime("%Y-%m-%d %H:%M:%S", time.localtime(started_ms / 1000))
+    print(f"Replaying {len(records)} requests captured from {captured_at} over {recorded_s:.1f} s "
+          f"at {args.speed:g}x ({skipped} non-GET requests skipped)")
+
+    results, workers, late, elapsed = replay(records, args)
+    print(f"Done in {elapsed:.1f} s with {workers} threads; {late} requests sent more than 10 ms late")
+    print()
+    report(records, results)
+
+
+if __name__ == "__main__":
+    main()